@@ -27,8 +27,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.joda.time.LocalDate;
@@ -423,14 +425,14 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
         CriticalPathCalculator<Task, Dependency> criticalPathCalculator =
                 CriticalPathCalculator.create(configuration.isDependenciesConstraintsHavePriority());
 
-        List<Task> criticalPath = criticalPathCalculator.calculateCriticalPath(diagramGraph);
+        Set<Task> criticalPath = new HashSet<>(criticalPathCalculator.calculateCriticalPath(diagramGraph));
 
         for (Task task : diagramGraph.getTasks()) {
             task.setInCriticalPath(isInCriticalPath(criticalPath, task));
         }
     }
 
-    private boolean isInCriticalPath(List<Task> criticalPath, Task task) {
+    private boolean isInCriticalPath(Set<Task> criticalPath, Task task) {
         if ( task.isContainer() ) {
             List<Task> allTaskLeafs = task.getAllTaskLeafs();
 
@@ -23,6 +23,7 @@ package org.zkoss.ganttz.data;
 
 import static java.util.Arrays.asList;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -35,6 +36,8 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
@@ -423,7 +426,9 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
      * Topological sorting is used to make graph nodes not to be mixed, because
      * parent and child nodes ({@link TaskPoint}) must be placed in the correct order.
      * Also during topological sorting nodes are placed on appropriate levels.
-     * Topological sorting can be done using different algorithms, but here is used Khan's algorithm.
+     * The levels are calculated with Khan's algorithm the first time they are needed,
+     * and from then on they are kept up to date when tasks and dependencies are added or removed,
+     * visiting only the nodes after the modified ones.
      */
     class TopologicalSorter {
 
@@ -431,97 +436,209 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
 
         /**
          * This method is used to place each node on appropriate level.
+         * The level of a node is the length of the longest path reaching it.
          *
          * @return map of TaskPoints with appropriate levels
          */
         private Map<TaskPoint, Integer> taskPointsByDepth() {
-            if ( taskPointsByDepthCached != null ) {
-                return taskPointsByDepthCached;
+            if ( taskPointsByDepthCached == null ) {
+                taskPointsByDepthCached = calculateTaskPointsByDepth();
             }
 
+            return taskPointsByDepthCached;
+        }
+
+        private Map<TaskPoint, Integer> calculateTaskPointsByDepth() {
             Map<TaskPoint, Integer> result = new HashMap<>();
-            Map<TaskPoint, Set<TaskPoint>> visitedBy = new HashMap<>();
+            Map<TaskPoint, Integer> pendingPredecessors = new HashMap<>();
+            Map<TaskPoint, Set<TaskPoint>> successors = new HashMap<>();
 
-            /*
-             * Here are stored taskpoints that we have visited.
-             * This need to be done because we need to check have we visited this taskpoint, or not.
-             * Described above need to be done to avoid loop between taskpoints.
-             */
-            Set<TaskPoint> visitedTaskPoints = new HashSet ();
+            for (V task : graph.vertexSet()) {
+                for (TaskPoint each : pointsOf(task)) {
+                    initializeIfNeededForKey(pendingPredecessors, each, 0);
+                    successors.put(each, each.getImmediateSuccessors());
 
-            Queue<TaskPoint> withoutIncoming = getInitial(withoutVisibleIncomingDependencies(getTopLevelTasks()));
-            for (TaskPoint each : withoutIncoming) {
-                initializeIfNeededForKey(result, each, 0);
+                    for (TaskPoint successor : successors.get(each)) {
+                        Integer pending = pendingPredecessors.get(successor);
+                        pendingPredecessors.put(successor, pending == null ? 1 : pending + 1);
+                    }
+                }
             }
 
-            while (!withoutIncoming.isEmpty()) {
+            Queue<TaskPoint> withoutIncoming = new ArrayDeque<>();
+            for (Entry<TaskPoint, Integer> each : pendingPredecessors.entrySet()) {
+                if ( each.getValue() == 0 ) {
+                    withoutIncoming.offer(each.getKey());
+                    result.put(each.getKey(), 0);
+                }
+            }
 
+            while (!withoutIncoming.isEmpty()) {
                 TaskPoint current = withoutIncoming.poll();
+                int depth = result.get(current) + 1;
 
-                visitedTaskPoints.add(current); // Marking taskpoint as visited
+                Set<TaskPoint> immediateSuccessors = successors.get(current);
+                if ( immediateSuccessors == null ) {
+                    immediateSuccessors = current.getImmediateSuccessors();
+                }
 
-                // Taking all child elements
-                for (TaskPoint each : current.getImmediateSuccessors()) {
+                for (TaskPoint each : immediateSuccessors) {
+                    Integer previousDepth = result.get(each);
+                    if ( previousDepth == null || previousDepth < depth ) {
+                        result.put(each, depth);
+                    }
 
-                    if (!visitedTaskPoints.contains(each)) {
+                    int pending = pendingPredecessors.get(each) - 1;
+                    pendingPredecessors.put(each, pending);
+                    if ( pending == 0 ) {
+                        withoutIncoming.offer(each);
+                    }
+                }
+            }
 
-                        initializeIfNeededForKey(visitedBy, each, new HashSet<TaskPoint>());
+            return result;
+        }
 
-                        Set<TaskPoint> visitors = visitedBy.get(each);
-                        visitors.add(current);
+        private <K, T> void initializeIfNeededForKey(Map<K, T> map, K key, T initialValue) {
+            if ( !map.containsKey(key) ) {
+                map.put(key, initialValue);
+            }
+        }
 
-                        // Taking parent elements
-                        Set<TaskPoint> predecessorsRequired = each.getImmediatePredecessors();
+        void taskAdded(V task) {
+            if ( taskPointsByDepthCached == null ) {
+                return;
+            }
 
-                        if ( visitors.containsAll(predecessorsRequired) ) {
+            List<TaskPoint> points = pointsOf(task);
+            for (TaskPoint each : points) {
+                initializeIfNeededForKey(taskPointsByDepthCached, each, 0);
+            }
+            raiseSuccessorsOf(points);
+        }
 
-                            initializeIfNeededForKey(result, each, result.get(current) + 1);
+        void dependencyAdded(D dependency) {
+            if ( taskPointsByDepthCached == null ) {
+                return;
+            }
 
-                            withoutIncoming.offer(each);
-                        }
-                    }
+            raiseSuccessorsOf(pointsOf(getDependencySource(dependency)));
+        }
+
+        Set<TaskPoint> successorsOf(V task) {
+            Set<TaskPoint> result = new HashSet<>();
+            if ( taskPointsByDepthCached != null ) {
+                for (TaskPoint each : pointsOf(task)) {
+                    result.addAll(each.getImmediateSuccessors());
                 }
             }
 
-            return taskPointsByDepthCached = Collections.unmodifiableMap(result);
+            return result;
         }
 
-        private <K, T> void initializeIfNeededForKey(Map<K, T> map, K key, T initialValue) {
-            if ( !map.containsKey(key) ) {
-                map.put(key, initialValue);
+        void taskRemoved(V task, Set<TaskPoint> previousSuccessors) {
+            if ( taskPointsByDepthCached == null ) {
+                return;
+            }
+
+            List<TaskPoint> points = pointsOf(task);
+            for (TaskPoint each : points) {
+                taskPointsByDepthCached.remove(each);
             }
+            previousSuccessors.removeAll(points);
+            lowerFrom(previousSuccessors);
         }
 
-        private LinkedList<TaskPoint> getInitial(List<V> initial) {
-            LinkedList<TaskPoint> result = new LinkedList<>();
-            for (V each : initial) {
-                result.add(allPointsPotentiallyModified(each));
+        void dependencyRemoved(D dependency) {
+            if ( taskPointsByDepthCached == null ) {
+                return;
             }
 
-            return result;
+            lowerFrom(Collections.singletonList(destinationPoint(dependency)));
+        }
+
+        /**
+         * After adding a dependency the successors at the same or lower level than their predecessor are moved down.
+         */
+        private void raiseSuccessorsOf(Collection<TaskPoint> points) {
+            Map<TaskPoint, Integer> depths = taskPointsByDepthCached;
+            Queue<TaskPoint> pending = new ArrayDeque<>(points);
+
+            while (!pending.isEmpty()) {
+                TaskPoint current = pending.poll();
+                Integer depth = depths.get(current);
+                if ( depth == null ) {
+                    continue;
+                }
+
+                for (TaskPoint each : current.getImmediateSuccessors()) {
+                    Integer previousDepth = depths.get(each);
+
+                    if ( previousDepth == null || previousDepth <= depth ) {
+                        if ( depth >= depths.size() ) {
+                            LOG.warn("loop detected reaching " + each);
+                            continue;
+                        }
+                        depths.put(each, depth + 1);
+                        pending.offer(each);
+                    }
+                }
+            }
         }
 
-        public void recalculationNeeded() {
-            taskPointsByDepthCached = null;
+        /**
+         * After removing tasks or dependencies the levels can only decrease. The affected nodes are visited by their
+         * previous level, so the level of their predecessors is already updated.
+         */
+        private void lowerFrom(Collection<TaskPoint> points) {
+            final Map<TaskPoint, Integer> depths = taskPointsByDepthCached;
+            Queue<TaskPoint> pending = new PriorityQueue<>(11, new Comparator<TaskPoint>() {
+                @Override
+                public int compare(TaskPoint o1, TaskPoint o2) {
+                    return Integer.compare(depths.get(o1), depths.get(o2));
+                }
+            });
+            Set<TaskPoint> queued = new HashSet<>();
+
+            for (TaskPoint each : points) {
+                if ( depths.containsKey(each) && queued.add(each) ) {
+                    pending.offer(each);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                TaskPoint current = pending.poll();
+                queued.remove(current);
+
+                int depth = current.getDepthFromPredecessors(depths);
+                if ( depth < depths.get(current) ) {
+                    depths.put(current, depth);
+
+                    for (TaskPoint each : current.getImmediateSuccessors()) {
+                        if ( depths.containsKey(each) && queued.add(each) ) {
+                            pending.offer(each);
+                        }
+                    }
+                }
+            }
         }
 
         public List<Recalculation> sort(Collection<? extends Recalculation> recalculationsToBeSorted) {
 
             List<Recalculation> result = new ArrayList<>(recalculationsToBeSorted);
-            final Map<TaskPoint, Integer> taskPointsByDepth = taskPointsByDepth();
+            Map<TaskPoint, Integer> taskPointsByDepth = taskPointsByDepth();
+
+            for (Recalculation each : result) {
+                each.depth = onNullDefault(
+                        taskPointsByDepth.get(each.taskPoint),
+                        Integer.MAX_VALUE, "no depth value for " + each.taskPoint);
+            }
+
             Collections.sort(result, new Comparator<Recalculation>() {
 
                 @Override
                 public int compare(Recalculation o1, Recalculation o2) {
-                    int o1Depth = onNullDefault(
-                            taskPointsByDepth.get(o1.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for " + o1.taskPoint);
-
-                    int o2Depth = onNullDefault(
-                            taskPointsByDepth.get(o2.taskPoint),
-                            Integer.MAX_VALUE, "no depth value for " + o2.taskPoint);
-
-                    int result = o1Depth - o2Depth;
+                    int result = Integer.compare(o1.depth, o2.depth);
 
                     if ( result == 0 ) {
                         return asInt(o1.parentRecalculation) - asInt(o2.parentRecalculation);
@@ -560,7 +677,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
 
             V task = stack.remove(0);
             graph.addVertex(task);
-            topologicalSorter.recalculationNeeded();
+            topologicalSorter.taskAdded(task);
             adapter.registerDependenciesEnforcerHookOn(task, enforcer);
 
             if ( adapter.isContainer(task) ) {
@@ -1280,9 +1397,16 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
 
         private final TaskPoint taskPoint;
 
-        private Set<Recalculation> recalculationsCouldAffectThis = new HashSet<>();
+        /**
+         * The recalculations after this one that must be done if this one modifies the task.
+         */
+        private List<Recalculation> recalculationsAffectedByThis = new ArrayList<>(0);
+
+        private boolean comesFromPredecessor = false;
+
+        private boolean predecessorModified = false;
 
-        private boolean recalculationCalled = false;
+        private int depth;
 
         private boolean dataPointModified = false;
 
@@ -1299,30 +1423,25 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
         }
 
         public void comesFromPredecessor(Recalculation predecessor) {
-            recalculationsCouldAffectThis.add(predecessor);
+            comesFromPredecessor = true;
+            predecessor.recalculationsAffectedByThis.add(this);
+            if ( predecessor.couldHaveBeenModifiedBeforehand ) {
+                predecessorModified = true;
+            }
         }
 
         boolean doRecalculation() {
-            recalculationCalled = true;
             dataPointModified = haveToDoCalculation() && taskChangesPosition();
+            if ( dataPointModified ) {
+                for (Recalculation each : recalculationsAffectedByThis) {
+                    each.predecessorModified = true;
+                }
+            }
             return dataPointModified;
         }
 
         private boolean haveToDoCalculation() {
-            return recalculationsCouldAffectThis.isEmpty() || predecessorsHaveBeenModified();
-        }
-
-        private boolean predecessorsHaveBeenModified() {
-            for (Recalculation each : recalculationsCouldAffectThis) {
-                if ( !each.recalculationCalled ) {
-                    // FIXME this need to be not commented, but some imported projects not working with it
-                    //throw new RuntimeException("the predecessor must be called first");
-                }
-                if ( each.dataPointModified || each.couldHaveBeenModifiedBeforehand ) {
-                    return true;
-                }
-            }
-            return false;
+            return !comesFromPredecessor || predecessorModified;
         }
 
         private boolean taskChangesPosition() {
@@ -1935,10 +2054,10 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
         @Override
         public String toString() {
             return String.format(
-                    "%s, parentRecalculation: %s, predecessors: %s",
+                    "%s, parentRecalculation: %s, successors: %s",
                     taskPoint,
                     parentRecalculation,
-                    asSimpleString(recalculationsCouldAffectThis));
+                    asSimpleString(recalculationsAffectedByThis));
         }
 
         private String asSimpleString(Collection<? extends Recalculation> recalculations) {
@@ -1969,7 +2088,9 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
 
     public void remove(final V task) {
         Set<V> needingEnforcing = getOutgoingTasksFor(task);
+        Set<TaskPoint> successors = topologicalSorter.successorsOf(task);
         graph.removeVertex(task);
+        topologicalSorter.taskRemoved(task, successors);
         topLevelTasks.remove(task);
         fromChildToParent.remove(task);
 
@@ -1979,13 +2100,12 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
             }
         }
 
-        topologicalSorter.recalculationNeeded();
         enforcer.enforceRestrictionsOn(needingEnforcing);
     }
 
     public void removeDependency(D dependency) {
         graph.removeEdge(dependency);
-        topologicalSorter.recalculationNeeded();
+        topologicalSorter.dependencyRemoved(dependency);
         V destination = adapter.getDestination(dependency);
         V source = adapter.getSource(dependency);
         enforcer.enforceRestrictionsOn(destination);
@@ -2030,7 +2150,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
         V source = adapter.getSource(dependency);
         V destination = adapter.getDestination(dependency);
         graph.addEdge(source, destination, dependency);
-        topologicalSorter.recalculationNeeded();
+        topologicalSorter.dependencyAdded(dependency);
         if ( enforceRestrictions ) {
             enforceRestrictions(destination);
         }
@@ -2249,6 +2369,10 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
         return new TaskPoint(task, getDominatingPoint());
     }
 
+    private List<TaskPoint> pointsOf(V task) {
+        return asList(allPointsPotentiallyModified(task), new TaskPoint(task, getDominatingPoint().getOther()));
+    }
+
     private class TaskPoint {
 
         private final V task;
@@ -2378,6 +2502,34 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements ICritical
             return cachedImmediatePredecessors = Collections.unmodifiableSet(result);
         }
 
+        /**
+         * Unlike {@link #getImmediatePredecessors()} it takes into account all the nodes having this one as
+         * immediate successor.
+         */
+        int getDepthFromPredecessors(Map<TaskPoint, Integer> depths) {
+            int result = 0;
+            if ( !isDominatingPoint(entryPoint) ) {
+                result = depthAfter(depths, allPointsPotentiallyModified(task), result);
+            }
+
+            for (D each : immediateIncomingDependencies()) {
+                if ( destinationPoint(each).equals(this) ) {
+                    for (TaskPoint source : pointsOf(getDependencySource(each))) {
+                        if ( source.sendsModificationsThrough(each) ) {
+                            result = depthAfter(depths, source, result);
+                        }
+                    }
+                }
+            }
+
+            return result;
+        }
+
+        private int depthAfter(Map<TaskPoint, Integer> depths, TaskPoint predecessor, int currentDepth) {
+            Integer depth = depths.get(predecessor);
+            return depth == null ? currentDepth : Math.max(currentDepth, depth + 1);
+        }
+
         private Collection<TaskPoint> getImmediatelyDerivedOnSameTask() {
             for (Point each : pointsModified) {
                 if ( isDominatingPoint(each) ) {
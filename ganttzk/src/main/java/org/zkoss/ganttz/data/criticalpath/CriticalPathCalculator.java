@@ -21,10 +21,12 @@
 
 package org.zkoss.ganttz.data.criticalpath;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,10 +43,17 @@ import org.zkoss.ganttz.data.constraint.Constraint;
 /**
  * Class that calculates the critical path of a Gantt diagram graph.
  *
+ * The graph is compiled first to arrays indexed by the position of each task, being the containers replaced by their
+ * leaf tasks. Then a single forward pass in topological order calculates the earliest starts, and a single backward
+ * pass the latest finishes. The compiled graph is kept, so after moving a task only the tasks affected by it are
+ * recalculated by {@link #recalculateCriticalPathAfterMoving(Object)}.
+ *
  * @author Manuel Rego Casasnovas <mrego@igalia.com>
  */
 public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
+    private static final int UNDEFINED = Integer.MAX_VALUE;
+
     private final boolean dependenciesConstraintsHavePriority;
 
     public static <T, D extends IDependency<T>> CriticalPathCalculator<T, D> create(
@@ -57,56 +66,216 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         this.dependenciesConstraintsHavePriority = dependenciesConstraintsHavePriority;
     }
 
+    /**
+     * Dependencies stored by one of their ends. The dependencies of the task <code>i</code> are in the positions from
+     * <code>start[i]</code> to <code>start[i + 1]</code>, being <code>other</code> the task at the other end.
+     */
+    private static class Adjacency {
+
+        private final int[] start;
+
+        private final int[] other;
+
+        private final DependencyType[] types;
+
+        Adjacency(int size, int[] from, int[] to, DependencyType[] dependencyTypes) {
+            start = new int[size + 1];
+            other = new int[from.length];
+            types = new DependencyType[from.length];
+
+            for (int each : from) {
+                start[each + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                start[i + 1] += start[i];
+            }
+            int[] filled = new int[size];
+            for (int i = 0; i < from.length; i++) {
+                int position = start[from[i]] + filled[from[i]]++;
+                other[position] = to[i];
+                types[position] = dependencyTypes[i];
+            }
+        }
+
+        int degree(int task) {
+            return start[task + 1] - start[task];
+        }
+    }
+
     private ICriticalPathCalculable<T> graph;
 
     private LocalDate initDate;
 
-    private Map<T, Node<T, D>> nodes;
+    private List<T> tasks;
 
-    private InitialNode<T, D> bop;
-    private LastNode<T, D> eop;
+    private Map<T, Integer> positions;
 
-    private Map<T, Map<T, DependencyType>> dependencies;
+    private int[] durations;
 
-    private class VisitorTracker {
+    private List<Constraint<GanttDate>> constraints;
 
-        private Map<T, Set<T>> visitorsOn = new HashMap<T, Set<T>>();
+    /**
+     * Tasks linked to the beginning of the project.
+     */
+    private boolean[] initial;
 
-        void visit(T visited, T visitor) {
-            if (!visitorsOn.containsKey(visited)) {
-                visitorsOn.put(visited, new HashSet<T>());
-            }
-            visitorsOn.get(visited).add(visitor);
-        }
+    /**
+     * Tasks linked to the end of the project.
+     */
+    private boolean[] latest;
 
-        boolean hasBeenVisitedByAll(T current,
-                Collection<? extends T> collection) {
-            return visitorsOn.containsKey(current)
-                    && visitorsOn.get(current).containsAll(collection);
-        }
+    /**
+     * Dependencies navigated in the forward pass, i.e. from each task to its outgoing tasks.
+     */
+    private Adjacency forwardByOrigin;
 
-    }
+    private Adjacency forwardByDestination;
+
+    /**
+     * Dependencies navigated in the backward pass, i.e. from each task to its incoming tasks.
+     */
+    private Adjacency backwardByOrigin;
+
+    private Adjacency backwardByDestination;
+
+    /**
+     * Tasks visited by the forward pass, in topological order, followed by the ones not visited.
+     */
+    private int[] forwardOrder;
+
+    private int[] forwardPosition;
+
+    private boolean[] forwardVisited;
+
+    private int[] backwardOrder;
+
+    private int[] backwardPosition;
+
+    private boolean[] backwardVisited;
+
+    private int[] earliestStart;
+
+    private int[] latestFinish;
+
+    private int projectEnd;
 
     public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
         this.graph = graph;
 
-        dependencies = new HashMap<T, Map<T, DependencyType>>();
-
         initDate = calculateInitDate();
 
-        bop = createBeginningOfProjectNode();
-        eop = createEndOfProjectNode();
+        compileGraph();
+
+        forwardVisited = new boolean[tasks.size()];
+        forwardOrder = sortTopologically(forwardByOrigin, initial, forwardVisited);
+        forwardPosition = positionsIn(forwardOrder);
+
+        backwardVisited = new boolean[tasks.size()];
+        backwardOrder = sortTopologically(backwardByOrigin, latest, backwardVisited);
+        backwardPosition = positionsIn(backwardOrder);
+
+        earliestStart = new int[tasks.size()];
+        for (int each : forwardOrder) {
+            earliestStart[each] = calculateEarliestStart(each);
+        }
+        projectEnd = calculateProjectEnd();
+
+        latestFinish = new int[tasks.size()];
+        for (int each : backwardOrder) {
+            latestFinish[each] = calculateLatestFinish(each);
+        }
+
+        return getTasksOnCriticalPath();
+    }
+
+    /**
+     * Recalculates the critical path after the dates of a task have changed, without compiling the graph again.
+     * Only the earliest starts of the tasks after it and the latest finishes of the tasks before it are
+     * recalculated, unless the end of the project changes.
+     *
+     * The dependencies must not have changed since the last calculation.
+     */
+    public List<T> recalculateCriticalPathAfterMoving(T task) {
+        if (graph == null) {
+            throw new IllegalStateException("the critical path has not been calculated yet");
+        }
+
+        Integer moved = positions.get(task);
+        if (moved == null || !calculateInitDate().equals(initDate)) {
+            return calculateCriticalPath(graph);
+        }
+
+        durations[moved] = calculateDuration(task);
+        constraints.set(moved, getDateConstraints(task));
 
-        nodes = createGraphNodes();
+        for (int each : reachableFrom(moved, forwardByOrigin, forwardOrder, forwardPosition)) {
+            earliestStart[each] = calculateEarliestStart(each);
+        }
 
-        forward(bop, null, new VisitorTracker());
-        eop.updateLatestValues();
+        int previousProjectEnd = projectEnd;
+        projectEnd = calculateProjectEnd();
 
-        backward(eop, null, new VisitorTracker());
+        if (projectEnd != previousProjectEnd) {
+            for (int each : backwardOrder) {
+                latestFinish[each] = calculateLatestFinish(each);
+            }
+        } else {
+            for (int each : reachableFrom(moved, backwardByOrigin, backwardOrder, backwardPosition)) {
+                latestFinish[each] = calculateLatestFinish(each);
+            }
+        }
 
         return getTasksOnCriticalPath();
     }
 
+    /**
+     * @return the days the task can be delayed without delaying the end of the project, or <code>null</code> if it
+     *         can't be calculated
+     */
+    public Integer getTotalFloat(T task) {
+        int i = positionOf(task);
+        if (latestFinish[i] == UNDEFINED) {
+            return null;
+        }
+        return latestFinish[i] - durations[i] - earliestStart[i];
+    }
+
+    /**
+     * @return the days the task can be delayed without delaying the earliest start of any of the following tasks
+     */
+    public int getFreeFloat(T task) {
+        int i = positionOf(task);
+        int earliestFinish = earliestStart[i] + durations[i];
+
+        int result = endsProject(i) ? projectEnd - earliestFinish : Integer.MAX_VALUE;
+        for (int j = forwardByOrigin.start[i]; j < forwardByOrigin.start[i + 1]; j++) {
+            int next = forwardByOrigin.other[j];
+            int nextEarliestStart = earliestStart[next];
+            switch (forwardByOrigin.types[j]) {
+                case START_START:
+                    result = Math.min(result, nextEarliestStart - earliestStart[i]);
+                    break;
+                case END_END:
+                    result = Math.min(result, nextEarliestStart + durations[next] - earliestFinish);
+                    break;
+                case END_START:
+                default:
+                    result = Math.min(result, nextEarliestStart - earliestFinish);
+                    break;
+            }
+        }
+
+        return Math.max(result, 0);
+    }
+
+    private int positionOf(T task) {
+        Integer result = positions != null ? positions.get(task) : null;
+        if (result == null) {
+            throw new IllegalArgumentException("the task is not in the calculated graph: " + task);
+        }
+        return result;
+    }
+
     private LocalDate calculateInitDate() {
         if (graph.getTasks().isEmpty()) {
             return null;
@@ -139,12 +308,52 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return noConatinersTasks;
     }
 
-    private InitialNode<T, D> createBeginningOfProjectNode() {
-        return new InitialNode<T, D>(
-                removeWithVisibleIncomingDependencies(removeContainers(graph
-                .getInitialTasks())));
+    private void compileGraph() {
+        tasks = new ArrayList<T>();
+        positions = new HashMap<T, Integer>();
+        for (T task : graph.getTasks()) {
+            if (!graph.isContainer(task) && !positions.containsKey(task)) {
+                positions.put(task, tasks.size());
+                tasks.add(task);
+            }
+        }
+
+        int size = tasks.size();
+        durations = new int[size];
+        constraints = new ArrayList<Constraint<GanttDate>>(size);
+        for (int i = 0; i < size; i++) {
+            durations[i] = calculateDuration(tasks.get(i));
+            constraints.add(getDateConstraints(tasks.get(i)));
+        }
+
+        initial = markedTasks(removeWithVisibleIncomingDependencies(removeContainers(graph.getInitialTasks())));
+        latest = markedTasks(removeWithVisibleOutcomingDependencies(removeContainers(graph.getLatestTasks())));
+
+        List<Set<T>> next = new ArrayList<Set<T>>(size);
+        List<Set<T>> previous = new ArrayList<Set<T>>(size);
+        for (T task : tasks) {
+            next.add(withoutContainers(graph.getOutgoingTasksFor(task)));
+            previous.add(withoutContainers(graph.getIncomingTasksFor(task)));
+        }
+
+        Map<T, Map<T, DependencyType>> containerDependencies = addContainersDependencies(next, previous);
+
+        forwardByOrigin = adjacency(next, true, false, containerDependencies);
+        forwardByDestination = adjacency(next, true, true, containerDependencies);
+        backwardByOrigin = adjacency(previous, false, false, containerDependencies);
+        backwardByDestination = adjacency(previous, false, true, containerDependencies);
     }
 
+    private boolean[] markedTasks(Collection<T> marked) {
+        boolean[] result = new boolean[tasks.size()];
+        for (T each : marked) {
+            Integer position = positions.get(each);
+            if (position != null) {
+                result[position] = true;
+            }
+        }
+        return result;
+    }
 
     private Set<T> removeWithVisibleIncomingDependencies(Collection<T> tasks) {
         Set<T> result = new HashSet<T>();
@@ -156,12 +365,6 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private LastNode<T, D> createEndOfProjectNode() {
-        return new LastNode<T, D>(
-                removeWithVisibleOutcomingDependencies(removeContainers(graph
-                        .getLatestTasks())));
-    }
-
     private Set<T> removeWithVisibleOutcomingDependencies(
             Collection<T> removeContainers) {
         Set<T> result = new HashSet<T>();
@@ -173,22 +376,13 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private Map<T, Node<T, D>> createGraphNodes() {
-        Map<T, Node<T, D>> result = new HashMap<T, Node<T, D>>();
-
-        for (T task : graph.getTasks()) {
-            if (!graph.isContainer(task)) {
-                Set<T> in = withoutContainers(task, graph
-                        .getIncomingTasksFor(task));
-                Set<T> out = withoutContainers(task, graph
-                        .getOutgoingTasksFor(task));
-
-                Node<T, D> node = new Node<T, D>(task, in, out, graph
-                        .getStartDate(task), graph.getEndDateFor(task));
-
-                result.put(task, node);
-            }
-        }
+    /**
+     * The dependencies of a container are replaced by dependencies between the leaf tasks at both sides.
+     *
+     * @return the types of the dependencies added
+     */
+    private Map<T, Map<T, DependencyType>> addContainersDependencies(List<Set<T>> next, List<Set<T>> previous) {
+        Map<T, Map<T, DependencyType>> result = new HashMap<T, Map<T, DependencyType>>();
 
         for (T task : graph.getTasks()) {
             if (graph.isContainer(task)) {
@@ -204,7 +398,7 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
                     if (dependency != null) {
                         type = dependency.getType();
                     }
-                    addDepedenciesAndRelatedTasks(result,
+                    addDependencies(next, previous, result,
                             removeContainers(Arrays.asList(t)), allChildren,
                             type);
                 }
@@ -218,7 +412,7 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
                     if (dependency != null) {
                         type = dependency.getType();
                     }
-                    addDepedenciesAndRelatedTasks(result, allChildren,
+                    addDependencies(next, previous, result, allChildren,
                             removeContainers(Arrays.asList(t)), type);
                 }
             }
@@ -227,22 +421,28 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private void addDepedenciesAndRelatedTasks(Map<T, Node<T, D>> graph,
-            Collection<T> origins,
+    private void addDependencies(List<Set<T>> next, List<Set<T>> previous,
+            Map<T, Map<T, DependencyType>> types, Collection<T> origins,
             Collection<T> destinations, DependencyType type) {
         for (T origin : origins) {
             for (T destination : destinations) {
-                graph.get(origin).addNextTask(destination);
-                graph.get(destination).addPreviousTask(origin);
-                addDependency(origin, destination, type);
+                next.get(positions.get(origin)).add(destination);
+                previous.get(positions.get(destination)).add(origin);
+
+                Map<T, DependencyType> typesFromOrigin = types.get(origin);
+                if (typesFromOrigin == null) {
+                    typesFromOrigin = new HashMap<T, DependencyType>();
+                    types.put(origin, typesFromOrigin);
+                }
+                typesFromOrigin.put(destination, type);
             }
         }
     }
 
-    private Set<T> withoutContainers(T task, Set<T> tasks) {
+    private Set<T> withoutContainers(Set<T> tasks) {
         Set<T> result = new HashSet<T>();
         for (T t : tasks) {
-            if (!graph.isContainer(t)) {
+            if (!graph.isContainer(t) && positions.containsKey(t)) {
                 result.add(t);
             }
         }
@@ -264,98 +464,67 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return result;
     }
 
-    private void addDependency(T from, T destination, DependencyType type) {
-        Map<T, DependencyType> destinations = dependencies.get(from);
-        if (destinations == null) {
-            destinations = new HashMap<T, DependencyType>();
-            dependencies.put(from, destinations);
+    /**
+     * @param linked
+     *            for each task, the tasks linked to it. In the forward pass the outgoing tasks and in the backward
+     *            pass the incoming ones
+     * @param forward
+     *            if the linked tasks are the outgoing ones
+     * @param byDestination
+     *            if the dependencies are stored by the linked tasks instead of by the task
+     */
+    private Adjacency adjacency(List<Set<T>> linked, boolean forward, boolean byDestination,
+            Map<T, Map<T, DependencyType>> containerDependencies) {
+
+        int count = 0;
+        for (Set<T> each : linked) {
+            count += each.size();
         }
-        destinations.put(destination, type);
-    }
 
-    private DependencyType getDependencyTypeEndStartByDefault(T from, T to) {
-        if ((from != null) && (to != null)) {
-            IDependency<T> dependency = graph.getDependencyFrom(from, to);
-            if (dependency != null) {
-                return dependency.getType();
-            } else {
-                Map<T, DependencyType> destinations = dependencies.get(from);
-                if (destinations != null) {
-                    DependencyType type = destinations.get(to);
-                    if (type != null) {
-                        return type;
-                    }
-                }
+        int[] from = new int[count];
+        int[] to = new int[count];
+        DependencyType[] types = new DependencyType[count];
+
+        int added = 0;
+        for (int i = 0; i < linked.size(); i++) {
+            for (T each : linked.get(i)) {
+                int other = positions.get(each);
+                from[added] = byDestination ? other : i;
+                to[added] = byDestination ? i : other;
+                types[added] = forward
+                        ? getDependencyTypeEndStartByDefault(tasks.get(i), each, containerDependencies)
+                        : getDependencyTypeEndStartByDefault(each, tasks.get(i), containerDependencies);
+                added++;
             }
         }
-        return DependencyType.END_START;
-    }
 
-    private void forward(Node<T, D> currentNode, T previousTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int earliestStart = currentNode.getEarliestStart();
-        int earliestFinish = currentNode.getEarliestFinish();
-
-        Set<T> nextTasks = currentNode.getNextTasks();
-        if (nextTasks.isEmpty()) {
-            eop.setEarliestStart(earliestFinish);
-        } else {
-            int countStartStart = 0;
-
-            for (T task : nextTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, previousTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
-                }
-
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        currentTask, task);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
-
-                switch (dependencyType) {
-                case START_START:
-                    setEarliestStart(node, earliestStart, constraint);
-                    countStartStart++;
-                    break;
-                case END_END:
-                    setEarliestStart(node, earliestFinish - node.getDuration(),
-                            constraint);
-                    break;
-                case END_START:
-                default:
-                    setEarliestStart(node, earliestFinish, constraint);
-                    break;
-                }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getPreviousTasks())) {
-                    forward(node, currentTask, visitorTracker);
-                }
-            }
+        return new Adjacency(tasks.size(), from, to, types);
+    }
 
-            if (nextTasks.size() == countStartStart) {
-                eop.setEarliestStart(earliestFinish);
+    private DependencyType getDependencyTypeEndStartByDefault(T from, T to,
+            Map<T, Map<T, DependencyType>> containerDependencies) {
+        IDependency<T> dependency = graph.getDependencyFrom(from, to);
+        if (dependency != null) {
+            return dependency.getType();
+        }
+        Map<T, DependencyType> destinations = containerDependencies.get(from);
+        if (destinations != null) {
+            DependencyType type = destinations.get(to);
+            if (type != null) {
+                return type;
             }
         }
+        return DependencyType.END_START;
     }
 
-    private void setEarliestStart(Node<T, D> node, int earliestStart,
-            Constraint<GanttDate> constraint) {
-        if (constraint != null) {
-            GanttDate date = GanttDate.createFrom(initDate
-                    .plusDays(earliestStart));
-            date = constraint.applyTo(date);
-            earliestStart = Days.daysBetween(initDate,
-                    LocalDate.fromDateFields(date.toDayRoundedDate()))
-                    .getDays();
+    private int calculateDuration(T task) {
+        GanttDate startDate = graph.getStartDate(task);
+        GanttDate endDate = graph.getEndDateFor(task);
+        if (startDate == null || endDate == null) {
+            return 0;
         }
-        node.setEarliestStart(earliestStart);
+        return Days.daysBetween(new LocalDate(startDate.toDayRoundedDate()),
+                new LocalDate(endDate.toDayRoundedDate())).getDays();
     }
 
     private Constraint<GanttDate> getDateConstraints(T task) {
@@ -377,84 +546,199 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         if (endConstraints == null || endConstraints.isEmpty()) {
             return Constraint.coalesce(startConstraints);
         }
-        startConstraints.addAll(endConstraints);
-        return Constraint.coalesce(startConstraints);
+        List<Constraint<GanttDate>> all = new ArrayList<Constraint<GanttDate>>(startConstraints);
+        all.addAll(endConstraints);
+        return Constraint.coalesce(all);
     }
 
-    private void backward(Node<T, D> currentNode, T nextTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int latestStart = currentNode.getLatestStart();
-        int latestFinish = currentNode.getLatestFinish();
+    /**
+     * A task is visited once all the tasks linked to it, in the direction of the pass, have been visited. The tasks
+     * that are never visited are put at the end.
+     */
+    private int[] sortTopologically(Adjacency adjacency, boolean[] sources, boolean[] visited) {
+        int size = tasks.size();
+        int[] result = new int[size];
+        int[] pending = new int[size];
+        for (int i = 0; i < size; i++) {
+            for (int j = adjacency.start[i]; j < adjacency.start[i + 1]; j++) {
+                pending[adjacency.other[j]]++;
+            }
+        }
 
-        Set<T> previousTasks = currentNode.getPreviousTasks();
-        if (previousTasks.isEmpty()) {
-            bop.setLatestFinish(latestStart);
-        } else {
-            int countEndEnd = 0;
-
-            for (T task : previousTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, nextTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
+        int added = 0;
+        for (int i = 0; i < size; i++) {
+            if (sources[i] && pending[i] == 0) {
+                visited[i] = true;
+                result[added++] = i;
+            }
+        }
+        for (int next = 0; next < added; next++) {
+            int task = result[next];
+            for (int j = adjacency.start[task]; j < adjacency.start[task + 1]; j++) {
+                int other = adjacency.other[j];
+                if (--pending[other] == 0 && !visited[other]) {
+                    visited[other] = true;
+                    result[added++] = other;
                 }
+            }
+        }
 
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        task, currentTask);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
+        for (int i = 0; i < size; i++) {
+            if (!visited[i]) {
+                result[added++] = i;
+            }
+        }
+        return result;
+    }
 
-                switch (dependencyType) {
+    private static int[] positionsIn(int[] order) {
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[order[i]] = i;
+        }
+        return result;
+    }
+
+    /**
+     * @return the given task and all the tasks reachable from it, sorted as they are visited in the pass
+     */
+    private int[] reachableFrom(int task, Adjacency adjacency, int[] order, int[] positionInPass) {
+        boolean[] reached = new boolean[tasks.size()];
+        Deque<Integer> pending = new ArrayDeque<Integer>();
+        List<Integer> found = new ArrayList<Integer>();
+        reached[task] = true;
+        pending.add(task);
+        while (!pending.isEmpty()) {
+            int current = pending.poll();
+            found.add(current);
+            for (int j = adjacency.start[current]; j < adjacency.start[current + 1]; j++) {
+                int other = adjacency.other[j];
+                if (!reached[other]) {
+                    reached[other] = true;
+                    pending.add(other);
+                }
+            }
+        }
+
+        int[] result = new int[found.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = positionInPass[found.get(i)];
+        }
+        Arrays.sort(result);
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[result[i]];
+        }
+        return result;
+    }
+
+    private int calculateEarliestStart(int task) {
+        int result = 0;
+        if (initial[task]) {
+            result = Math.max(result, constrainStart(task, 0));
+        }
+
+        for (int j = forwardByDestination.start[task]; j < forwardByDestination.start[task + 1]; j++) {
+            int previous = forwardByDestination.other[j];
+            if (!forwardVisited[previous]) {
+                continue;
+            }
+            int previousFinish = earliestStart[previous] + durations[previous];
+            int candidate;
+            switch (forwardByDestination.types[j]) {
                 case START_START:
-                    setLatestFinish(node, latestStart + node.getDuration(),
-                            constraint);
+                    candidate = earliestStart[previous];
                     break;
                 case END_END:
-                    setLatestFinish(node, latestFinish, constraint);
-                    countEndEnd++;
+                    candidate = previousFinish - durations[task];
                     break;
                 case END_START:
                 default:
-                    setLatestFinish(node, latestStart, constraint);
+                    candidate = previousFinish;
                     break;
-                }
+            }
+            result = Math.max(result, constrainStart(task, candidate));
+        }
 
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getNextTasks())) {
-                    backward(node, currentTask, visitorTracker);
-                }
+        return result;
+    }
+
+    private int calculateProjectEnd() {
+        int result = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (forwardVisited[i] && endsProject(i)) {
+                result = Math.max(result, earliestStart[i] + durations[i]);
             }
+        }
+        return result;
+    }
 
-            if (previousTasks.size() == countEndEnd) {
-                bop.setLatestFinish(latestStart);
+    /**
+     * The end of a task is linked to the end of the project if it has no outgoing tasks or all of them only depend
+     * on its start.
+     */
+    private boolean endsProject(int task) {
+        for (int j = forwardByOrigin.start[task]; j < forwardByOrigin.start[task + 1]; j++) {
+            if (forwardByOrigin.types[j] != DependencyType.START_START) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int calculateLatestFinish(int task) {
+        int result = UNDEFINED;
+        if (latest[task]) {
+            result = Math.min(result, constrainFinish(task, projectEnd));
+        }
+
+        for (int j = backwardByDestination.start[task]; j < backwardByDestination.start[task + 1]; j++) {
+            int next = backwardByDestination.other[j];
+            if (!backwardVisited[next] || latestFinish[next] == UNDEFINED) {
+                continue;
+            }
+            int nextLatestStart = latestFinish[next] - durations[next];
+            int candidate;
+            switch (backwardByDestination.types[j]) {
+                case START_START:
+                    candidate = nextLatestStart + durations[task];
+                    break;
+                case END_END:
+                    candidate = latestFinish[next];
+                    break;
+                case END_START:
+                default:
+                    candidate = nextLatestStart;
+                    break;
             }
+            result = Math.min(result, constrainFinish(task, candidate));
         }
+
+        return result;
     }
 
-    private void setLatestFinish(Node<T, D> node, int latestFinish,
-            Constraint<GanttDate> constraint) {
-        if (constraint != null) {
-            int duration = node.getDuration();
-            GanttDate date = GanttDate.createFrom(initDate.plusDays(latestFinish - duration));
-            date = constraint.applyTo(date);
-            int daysBetween = Days.daysBetween(initDate,
-                    LocalDate.fromDateFields(date.toDayRoundedDate()))
-                    .getDays();
-            latestFinish = daysBetween + duration;
+    private int constrainStart(int task, int start) {
+        Constraint<GanttDate> constraint = constraints.get(task);
+        if (constraint == null) {
+            return start;
         }
-        node.setLatestFinish(latestFinish);
+        GanttDate date = GanttDate.createFrom(initDate.plusDays(start));
+        date = constraint.applyTo(date);
+        return Days.daysBetween(initDate,
+                LocalDate.fromDateFields(date.toDayRoundedDate())).getDays();
+    }
+
+    private int constrainFinish(int task, int finish) {
+        int duration = durations[task];
+        return constrainStart(task, finish - duration) + duration;
     }
 
     private List<T> getTasksOnCriticalPath() {
         List<T> result = new ArrayList<T>();
 
-        for (Node<T, D> node : nodes.values()) {
-            if (node.getLatestStart() == node.getEarliestStart()) {
-                result.add(node.getTask());
+        for (int i = 0; i < tasks.size(); i++) {
+            if (latestFinish[i] != UNDEFINED && latestFinish[i] - durations[i] == earliestStart[i]) {
+                result.add(tasks.get(i));
             }
         }
 
@@ -0,0 +1,337 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.zkoss.ganttz.data;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.ganttz.data.DependencyType.Point;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IAdapter;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IDependenciesEnforcerHook;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IDependenciesEnforcerHookFactory;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Tests for the dependencies enforcement done by {@link GanttDiagramGraph}.
+ */
+public class GanttDiagramGraphTest {
+
+    static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    /**
+     * Task with a start date and a duration in days, moved keeping its duration.
+     */
+    static class SimpleTask {
+
+        private final String name;
+
+        private LocalDate start;
+
+        private int days;
+
+        private IDependenciesEnforcerHook hook = GanttDiagramGraph.doNothingHook();
+
+        SimpleTask(String name, LocalDate start, int days) {
+            this.name = name;
+            this.start = start;
+            this.days = days;
+        }
+
+        LocalDate getStart() {
+            return start;
+        }
+
+        LocalDate getEnd() {
+            return start.plusDays(days);
+        }
+
+        void moveTo(LocalDate newStart) {
+            GanttDate previousStart = GanttDate.createFrom(start);
+            GanttDate previousEnd = GanttDate.createFrom(getEnd());
+            start = newStart;
+            hook.setStartDate(previousStart, previousEnd, GanttDate.createFrom(newStart));
+        }
+
+        void resizeTo(LocalDate newEnd) {
+            GanttDate previousEnd = GanttDate.createFrom(getEnd());
+            days = Days.daysBetween(start, newEnd).getDays();
+            hook.setNewEnd(previousEnd, GanttDate.createFrom(newEnd));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static class SimpleDependency implements IDependency<SimpleTask> {
+
+        private final SimpleTask source;
+
+        private final SimpleTask destination;
+
+        private final DependencyType type;
+
+        private final boolean visible;
+
+        SimpleDependency(SimpleTask source, SimpleTask destination, DependencyType type, boolean visible) {
+            this.source = source;
+            this.destination = destination;
+            this.type = type;
+            this.visible = visible;
+        }
+
+        @Override
+        public SimpleTask getSource() {
+            return source;
+        }
+
+        @Override
+        public SimpleTask getDestination() {
+            return destination;
+        }
+
+        @Override
+        public DependencyType getType() {
+            return type;
+        }
+    }
+
+    static class SimpleAdapter implements IAdapter<SimpleTask, SimpleDependency> {
+
+        @Override
+        public List<SimpleTask> getChildren(SimpleTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SimpleTask getOwner(SimpleTask task) {
+            return null;
+        }
+
+        @Override
+        public boolean isContainer(SimpleTask task) {
+            return false;
+        }
+
+        @Override
+        public void registerDependenciesEnforcerHookOn(SimpleTask task,
+                IDependenciesEnforcerHookFactory<SimpleTask> hookFactory) {
+            task.hook = hookFactory.create(task);
+        }
+
+        @Override
+        public GanttDate getStartDate(SimpleTask task) {
+            return GanttDate.createFrom(task.getStart());
+        }
+
+        @Override
+        public void setStartDateFor(SimpleTask task, GanttDate newStart) {
+            task.moveTo(newStart.toLocalDate());
+        }
+
+        @Override
+        public GanttDate getEndDateFor(SimpleTask task) {
+            return GanttDate.createFrom(task.getEnd());
+        }
+
+        @Override
+        public void setEndDateFor(SimpleTask task, GanttDate newEnd) {
+            task.resizeTo(newEnd.toLocalDate());
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getConstraints(ConstraintCalculator<SimpleTask> calculator,
+                Set<SimpleDependency> withDependencies, Point point) {
+
+            List<Constraint<GanttDate>> result = new ArrayList<>();
+            for (SimpleDependency each : withDependencies) {
+                result.addAll(calculator.getConstraints(each, point));
+            }
+
+            return result;
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraintsFor(SimpleTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getEndConstraintsFor(SimpleTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SimpleTask getSource(SimpleDependency dependency) {
+            return dependency.getSource();
+        }
+
+        @Override
+        public SimpleTask getDestination(SimpleDependency dependency) {
+            return dependency.getDestination();
+        }
+
+        @Override
+        public Class<SimpleDependency> getDependencyType() {
+            return SimpleDependency.class;
+        }
+
+        @Override
+        public SimpleDependency createInvisibleDependency(SimpleTask origin, SimpleTask destination,
+                DependencyType type) {
+            return new SimpleDependency(origin, destination, type, false);
+        }
+
+        @Override
+        public DependencyType getType(SimpleDependency dependency) {
+            return dependency.getType();
+        }
+
+        @Override
+        public boolean isVisible(SimpleDependency dependency) {
+            return dependency.visible;
+        }
+
+        @Override
+        public boolean isFixed(SimpleTask task) {
+            return false;
+        }
+    }
+
+    static GanttDiagramGraph<SimpleTask, SimpleDependency> createGraph() {
+        return GanttDiagramGraph.create(false, new SimpleAdapter(),
+                Collections.<Constraint<GanttDate>> emptyList(),
+                Collections.<Constraint<GanttDate>> emptyList(), false);
+    }
+
+    static SimpleDependency endStart(SimpleTask source, SimpleTask destination) {
+        return new SimpleDependency(source, destination, DependencyType.END_START, true);
+    }
+
+    private GanttDiagramGraph<SimpleTask, SimpleDependency> graph;
+
+    private SimpleTask a;
+
+    private SimpleTask b;
+
+    private SimpleTask c;
+
+    private SimpleTask d;
+
+    /**
+     * <pre>
+     * #### A ####
+     *       |---- ## B ##
+     *       |        |---- #### D ####
+     *       |---- ###### C ######
+     * </pre>
+     */
+    @Before
+    public void givenDiamond() {
+        graph = createGraph();
+        a = new SimpleTask("A", START, 5);
+        b = new SimpleTask("B", START.plusDays(5), 2);
+        c = new SimpleTask("C", START.plusDays(5), 6);
+        d = new SimpleTask("D", START.plusDays(11), 5);
+        graph.addTopLevel(a);
+        graph.addTopLevel(b);
+        graph.addTopLevel(c);
+        graph.addTopLevel(d);
+        graph.add(endStart(a, b));
+        graph.add(endStart(a, c));
+        graph.add(endStart(b, d));
+        graph.add(endStart(c, d));
+    }
+
+    @Test
+    public void movingATaskMovesAllItsSuccessors() {
+        a.moveTo(START.plusDays(3));
+
+        assertThat(b.getStart(), equalTo(START.plusDays(8)));
+        assertThat(c.getStart(), equalTo(START.plusDays(8)));
+        assertThat(d.getStart(), equalTo(START.plusDays(14)));
+    }
+
+    @Test
+    public void theTasksAreScheduledAsSoonAsPossible() {
+        b.moveTo(START.plusDays(20));
+
+        assertThat(b.getStart(), equalTo(START.plusDays(5)));
+        assertThat(d.getStart(), equalTo(START.plusDays(11)));
+    }
+
+    @Test
+    public void theSuccessorsAreMovedAfterAllTheirPredecessors() {
+        a.moveTo(START.plusDays(1));
+        b.resizeTo(START.plusDays(20));
+
+        assertThat(d.getStart(), equalTo(START.plusDays(20)));
+    }
+
+    @Test
+    public void aRemovedDependencyIsNoLongerEnforced() {
+        a.moveTo(START.plusDays(1));
+        graph.removeDependency(findDependency(a, b));
+        a.moveTo(START.plusDays(10));
+
+        assertThat(b.getStart(), equalTo(START.plusDays(6)));
+        assertThat(c.getStart(), equalTo(START.plusDays(15)));
+        assertThat(d.getStart(), equalTo(START.plusDays(21)));
+    }
+
+    @Test
+    public void aDependencyAddedAfterMovingTasksIsEnforced() {
+        SimpleTask e = new SimpleTask("E", START, 3);
+        graph.addTopLevel(e);
+        a.moveTo(START.plusDays(1));
+
+        graph.add(endStart(d, e));
+        assertThat(e.getStart(), equalTo(START.plusDays(17)));
+
+        a.moveTo(START.plusDays(2));
+        assertThat(e.getStart(), equalTo(START.plusDays(18)));
+    }
+
+    @Test
+    public void aRemovedTaskIsNoLongerEnforced() {
+        a.moveTo(START.plusDays(1));
+        graph.remove(c);
+        a.moveTo(START.plusDays(2));
+
+        assertThat(c.getStart(), equalTo(START.plusDays(6)));
+        assertThat(b.getStart(), equalTo(START.plusDays(7)));
+        assertThat(d.getStart(), equalTo(START.plusDays(9)));
+    }
+
+    private SimpleDependency findDependency(SimpleTask source, SimpleTask destination) {
+        return (SimpleDependency) graph.getDependencyFrom(source, destination);
+    }
+
+}
@@ -392,6 +392,60 @@ public class CriticalPathCalculatorTest {
         replay(diagramGraphExample);
     }
 
+    /**
+     * <pre>
+     * #### T1 ####
+     *       |---- #### S1 #### -> #### S1 ############
+     *       |---- #### S2 ####
+     * </pre>
+     */
+    private void givenOneTaskWithTwoDependantTasksFirstOneMoved(
+            int daysTask1, int daysSubtask1, int daysSubtask2, int daysSubtask1AfterMoving) {
+
+        diagramGraphExample = createNiceMock(ICriticalPathCalculable.class);
+
+        ITaskFundamentalProperties task = createTask(START, daysTask1);
+        ITaskFundamentalProperties subtask1 = createTask(START, daysSubtask1);
+        ITaskFundamentalProperties subtask2 = createTask(START, daysSubtask2);
+
+        List<ITaskFundamentalProperties> listOfTasks = Arrays.asList(task, subtask1, subtask2);
+
+        expect(diagramGraphExample.getTasks()).andReturn(listOfTasks).anyTimes();
+        expect(diagramGraphExample.getInitialTasks()).andReturn(Collections.singletonList(task)).anyTimes();
+        expect(diagramGraphExample.getLatestTasks()).andReturn(Arrays.asList(subtask1, subtask2)).anyTimes();
+
+        expect(diagramGraphExample.getDependencyFrom(
+                isA(ITaskFundamentalProperties.class),
+                isA(ITaskFundamentalProperties.class))).andReturn(null)
+                .anyTimes();
+
+        expect(diagramGraphExample.getIncomingTasksFor(task)).andReturn(new HashSet<>()).anyTimes();
+
+        expect(diagramGraphExample.getIncomingTasksFor(subtask1))
+                .andReturn(new HashSet<>(Collections.singletonList(task)))
+                .anyTimes();
+
+        expect(diagramGraphExample.getIncomingTasksFor(subtask2))
+                .andReturn(new HashSet<>(Collections.singletonList(task)))
+                .anyTimes();
+
+        expect(diagramGraphExample.getOutgoingTasksFor(task))
+                .andReturn(new HashSet<>(Arrays.asList(subtask1, subtask2)))
+                .anyTimes();
+
+        expect(diagramGraphExample.getOutgoingTasksFor(subtask1)).andReturn(new HashSet<>()).anyTimes();
+        expect(diagramGraphExample.getOutgoingTasksFor(subtask2)).andReturn(new HashSet<>()).anyTimes();
+
+        addTaskMethods(Arrays.asList(task, subtask2));
+
+        expect(diagramGraphExample.getStartDate(subtask1)).andReturn(toDate(START)).anyTimes();
+        expect(diagramGraphExample.getEndDateFor(subtask1))
+                .andReturn(toDate(START.plusDays(daysSubtask1))).once()
+                .andReturn(toDate(START.plusDays(daysSubtask1AfterMoving))).anyTimes();
+
+        replay(diagramGraphExample);
+    }
+
     /**
      * <pre>
      * #### T1 ####
@@ -2356,6 +2410,59 @@ public class CriticalPathCalculatorTest {
         }
     }
 
+    @Test
+    public void floatsOfOneTaskWithTwoDependantTasks() {
+        givenOneTaskWithTwoDependantTasks(4, 5, 10);
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator =
+                buildCalculator();
+        calculator.calculateCriticalPath(diagramGraphExample);
+
+        List<ITaskFundamentalProperties> tasks = diagramGraphExample.getTasks();
+        assertThat(calculator.getTotalFloat(tasks.get(0)), equalTo(0));
+        assertThat(calculator.getFreeFloat(tasks.get(0)), equalTo(0));
+        assertThat(calculator.getTotalFloat(tasks.get(1)), equalTo(5));
+        assertThat(calculator.getFreeFloat(tasks.get(1)), equalTo(5));
+        assertThat(calculator.getTotalFloat(tasks.get(2)), equalTo(0));
+        assertThat(calculator.getFreeFloat(tasks.get(2)), equalTo(0));
+    }
+
+    @Test
+    public void recalculateCriticalPathAfterMovingOneTask() {
+        givenOneTaskWithTwoDependantTasksFirstOneMoved(4, 5, 10, 15);
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator =
+                buildCalculator();
+        List<ITaskFundamentalProperties> tasks = diagramGraphExample.getTasks();
+
+        assertThat(calculator.calculateCriticalPath(diagramGraphExample),
+                equalTo(Arrays.asList(tasks.get(0), tasks.get(2))));
+
+        assertThat(calculator.recalculateCriticalPathAfterMoving(tasks.get(1)),
+                equalTo(Arrays.asList(tasks.get(0), tasks.get(1))));
+        assertThat(calculator.getTotalFloat(tasks.get(2)), equalTo(5));
+        assertThat(calculator.getFreeFloat(tasks.get(2)), equalTo(5));
+    }
+
+    @Test
+    public void recalculateAfterMovingWithoutChangingTheEndIsTheSameAsCalculatingAgain() {
+        givenOneTaskWithTwoDependantTasksFirstOneMoved(4, 5, 10, 8);
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> calculator =
+                buildCalculator();
+        List<ITaskFundamentalProperties> tasks = diagramGraphExample.getTasks();
+        calculator.calculateCriticalPath(diagramGraphExample);
+
+        List<ITaskFundamentalProperties> recalculated = calculator.recalculateCriticalPathAfterMoving(tasks.get(1));
+        assertThat(recalculated, equalTo(Arrays.asList(tasks.get(0), tasks.get(2))));
+        assertThat(calculator.getTotalFloat(tasks.get(1)), equalTo(2));
+
+        CriticalPathCalculator<ITaskFundamentalProperties, IDependency<ITaskFundamentalProperties>> fromScratch =
+                buildCalculator();
+        assertThat(fromScratch.calculateCriticalPath(diagramGraphExample), equalTo(recalculated));
+        for (ITaskFundamentalProperties each : tasks) {
+            assertThat(calculator.getTotalFloat(each), equalTo(fromScratch.getTotalFloat(each)));
+            assertThat(calculator.getFreeFloat(each), equalTo(fromScratch.getFreeFloat(each)));
+        }
+    }
+
     @Test
     public void twoTaskWithOneCommonDependantTask() {
         givenTwoTaskWithOneCommonDependantTask(4, 2, 5);
@@ -0,0 +1,80 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Capacity of a {@link BaseCalendar} with exceptions along an interval, asked day by day as most callers do and for
+ * the whole interval at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseCalendarBenchmark {
+
+    @Param({ "365", "1825" })
+    private int days;
+
+    @Param({ "10", "200" })
+    private int exceptions;
+
+    private BaseCalendar calendar;
+
+    private LocalDate end;
+
+    @Setup
+    public void generate() {
+        calendar = SyntheticPlanning.create().calendar(exceptions, days);
+        end = SyntheticPlanning.START.plusDays(days);
+    }
+
+    @Benchmark
+    public void getCapacityOnEachDay(Blackhole blackhole) {
+        for (LocalDate day = SyntheticPlanning.START; day.isBefore(end); day = day.plusDays(1)) {
+            blackhole.consume(calendar.getCapacityOn(PartialDay.wholeDay(day)));
+        }
+    }
+
+    @Benchmark
+    public int[] getCapacitiesOn() {
+        return calendar.getCapacitiesOn(SyntheticPlanning.START, end);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.planner.chart.ContiguousDaysLine;
+import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.workingday.EffortDuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transformations of {@link ContiguousDaysLine} used to build the load and earned value charts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContiguousDaysLineBenchmark {
+
+    @Param({ "365", "3650" })
+    private int days;
+
+    private ContiguousDaysLine<EffortDuration> load;
+
+    private ContiguousDaysLine<EffortDuration> capacity;
+
+    private List<? extends DayAssignment> assignments;
+
+    @Setup
+    public void generate() {
+        final SyntheticPlanning planning = SyntheticPlanning.create();
+        LocalDate end = SyntheticPlanning.START.plusDays(days);
+
+        load = ContiguousDaysLine.create(SyntheticPlanning.START, end);
+        load.transformInSitu(new IValueTransformer<EffortDuration, EffortDuration>() {
+            @Override
+            public EffortDuration transform(LocalDate day, EffortDuration previousValue) {
+                return EffortDuration.minutes(planning.nextInt(12 * 60));
+            }
+        });
+
+        capacity = ContiguousDaysLine.create(SyntheticPlanning.START, end);
+        capacity.setValueForAll(hours(8));
+
+        BaseCalendar calendar = planning.calendar(days / 20, days);
+        SpecificResourceAllocation allocation = planning.allocation(
+                planning.task(calendar, SyntheticPlanning.START, days), planning.worker(calendar));
+        SyntheticPlanning.allocateUntilFilling(allocation, hours(days * 5));
+        assignments = allocation.getAssignments();
+    }
+
+    @Benchmark
+    public ContiguousDaysLine<EffortDuration> min() {
+        return ContiguousDaysLine.min(load, capacity);
+    }
+
+    @Benchmark
+    public ContiguousDaysLine<EffortDuration> sum() {
+        return ContiguousDaysLine.sum(load, capacity);
+    }
+
+    @Benchmark
+    public ContiguousDaysLine<EffortDuration> substract() {
+        return ContiguousDaysLine.substract(capacity, load);
+    }
+
+    @Benchmark
+    public ContiguousDaysLine<EffortDuration> transform() {
+        return load.transform(new IValueTransformer<EffortDuration, EffortDuration>() {
+            @Override
+            public EffortDuration transform(LocalDate day, EffortDuration previousValue) {
+                return previousValue.multiplyBy(2);
+            }
+        });
+    }
+
+    @Benchmark
+    public SortedMap<LocalDate, EffortDuration> toSortedMap() {
+        return ContiguousDaysLine.toSortedMap(load);
+    }
+
+    @Benchmark
+    public ContiguousDaysLine<List<DayAssignment>> byDay() {
+        return ContiguousDaysLine.byDay(assignments);
+    }
+
+}
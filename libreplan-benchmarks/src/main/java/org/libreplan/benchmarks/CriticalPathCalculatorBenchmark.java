@@ -0,0 +1,88 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.Dependency;
+import org.zkoss.ganttz.data.GanttDiagramGraph.GanttZKDiagramGraph;
+import org.zkoss.ganttz.data.Task;
+import org.zkoss.ganttz.data.criticalpath.CriticalPathCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CriticalPathCalculator} over a generated Gantt diagram: the whole calculation and the recalculation after
+ * moving the first task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CriticalPathCalculatorBenchmark {
+
+    @Param({ "500", "2000" })
+    private int tasks;
+
+    private GanttZKDiagramGraph graph;
+
+    private Task first;
+
+    private CriticalPathCalculator<Task, Dependency> calculator;
+
+    private int moves = 0;
+
+    @Setup
+    public void generate() {
+        List<Task> generatedTasks = new ArrayList<>();
+        graph = SyntheticPlanning.create().ganttDiagram(tasks, generatedTasks);
+        first = generatedTasks.get(0);
+        calculator = CriticalPathCalculator.create(false);
+        calculator.calculateCriticalPath(graph);
+    }
+
+    @Benchmark
+    public List<Task> calculateCriticalPath() {
+        return CriticalPathCalculator.<Task, Dependency> create(false).calculateCriticalPath(graph);
+    }
+
+    @Benchmark
+    public List<Task> recalculateCriticalPathAfterMoving() {
+        LocalDate start = LocalDate.fromDateFields(first.getBeginDate().toDayRoundedDate());
+        first.resizeTo(start.plusDays(1 + moves++ % 2));
+
+        return calculator.recalculateCriticalPathAfterMoving(first);
+    }
+
+}
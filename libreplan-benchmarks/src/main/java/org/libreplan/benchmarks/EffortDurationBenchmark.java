@@ -0,0 +1,130 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.business.workingday.EffortAccumulator;
+import org.libreplan.business.workingday.EffortDuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Arithmetic of {@link EffortDuration}, which is done for every day and resource when allocating and when building
+ * the charts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EffortDurationBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int size;
+
+    private List<EffortDuration> efforts;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(SyntheticPlanning.SEED);
+        efforts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            efforts.add(EffortDuration.seconds(random.nextInt(8 * 3600)));
+        }
+    }
+
+    @Benchmark
+    public EffortDuration sum() {
+        return EffortDuration.sum(efforts, new EffortDuration.IEffortFrom<EffortDuration>() {
+            @Override
+            public EffortDuration from(EffortDuration each) {
+                return each;
+            }
+        });
+    }
+
+    @Benchmark
+    public EffortDuration plusOneByOne() {
+        EffortDuration result = EffortDuration.zero();
+        for (EffortDuration each : efforts) {
+            result = result.plus(each);
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public EffortDuration accumulate() {
+        EffortAccumulator result = EffortAccumulator.create();
+        for (EffortDuration each : efforts) {
+            result.add(each);
+        }
+
+        return result.toEffortDuration();
+    }
+
+    @Benchmark
+    public EffortDuration plusAndMinus() {
+        EffortDuration result = EffortDuration.zero();
+        EffortDuration previous = EffortDuration.zero();
+        for (EffortDuration each : efforts) {
+            result = result.plus(each).minus(EffortDuration.min(each, previous));
+            previous = each;
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public EffortDuration multiplyAndDivide() {
+        EffortDuration result = EffortDuration.zero();
+        for (EffortDuration each : efforts) {
+            result = result.plus(each.multiplyBy(3).divideBy(7));
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public BigDecimal toHoursAsDecimal() {
+        BigDecimal result = BigDecimal.ZERO;
+        for (EffortDuration each : efforts) {
+            result = result.add(each.toHoursAsDecimalWithScale(2));
+        }
+
+        return result;
+    }
+
+}
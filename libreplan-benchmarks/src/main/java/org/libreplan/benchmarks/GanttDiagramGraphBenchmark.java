@@ -0,0 +1,118 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.Dependency;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+import org.zkoss.ganttz.data.GanttDiagramGraph.GanttZKDiagramGraph;
+import org.zkoss.ganttz.data.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Enforcement of the dependencies of a {@link GanttDiagramGraph}: building the whole diagram and resizing a task at
+ * the beginning, so all the following tasks are moved, and at the end of the project, also after adding and removing
+ * a dependency.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GanttDiagramGraphBenchmark {
+
+    @Param({ "500", "2000" })
+    private int tasks;
+
+    private GanttZKDiagramGraph graph;
+
+    private List<Task> generatedTasks;
+
+    private Task first;
+
+    private Task beforeLast;
+
+    private Task last;
+
+    private int resizes = 0;
+
+    @Setup
+    public void generate() {
+        generatedTasks = new ArrayList<>();
+        graph = SyntheticPlanning.create().ganttDiagram(tasks, generatedTasks);
+        first = generatedTasks.get(0);
+        beforeLast = generatedTasks.get(generatedTasks.size() - 2);
+        last = generatedTasks.get(generatedTasks.size() - 1);
+    }
+
+    @Benchmark
+    public GanttZKDiagramGraph enforceAllRestrictions() {
+        return SyntheticPlanning.create().ganttDiagram(tasks, new ArrayList<Task>());
+    }
+
+    @Benchmark
+    public Task resizeFirstTask() {
+        resizeAlternating(first);
+
+        return first;
+    }
+
+    @Benchmark
+    public Task resizeLastTask() {
+        resizeAlternating(last);
+
+        return last;
+    }
+
+    @Benchmark
+    public Task resizeLastTaskAfterNewDependency() {
+        Dependency dependency = new Dependency(beforeLast, last, DependencyType.END_START);
+        graph.addWithoutEnforcingConstraints(dependency);
+        graph.removeDependency(dependency);
+        resizeAlternating(last);
+
+        return last;
+    }
+
+    /**
+     * Makes the task one or two days long alternately, so every invocation modifies the diagram.
+     */
+    private void resizeAlternating(Task task) {
+        LocalDate start = LocalDate.fromDateFields(task.getBeginDate().toDayRoundedDate());
+        task.resizeTo(start.plusDays(1 + resizes++ % 2));
+    }
+
+}
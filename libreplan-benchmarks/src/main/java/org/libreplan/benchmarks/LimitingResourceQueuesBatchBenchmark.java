@@ -0,0 +1,121 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.web.limitingresources.LimitingResourceQueueModel;
+import org.libreplan.web.limitingresources.QueuesState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assignment with {@link LimitingResourceQueueModel#assignLimitingResourceQueueElements(List)} of a batch of new
+ * elements to several limiting queues already holding some elements, as the batch assignment of the limiting
+ * resources view and its scheduled job do. The model works on a {@link QueuesState} built from the synthetic queues
+ * instead of loading them from the database, and nothing is saved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LimitingResourceQueuesBatchBenchmark {
+
+    private static final int ELEMENTS_PER_QUEUE = 50;
+
+    @Param({ "40" })
+    private int queues;
+
+    @Param({ "300" })
+    private int elements;
+
+    private List<LimitingResourceQueueElement> unassigned;
+
+    private LimitingResourceQueueModel model;
+
+    private long lastId;
+
+    @Setup(Level.Invocation)
+    public void generate() throws ReflectiveOperationException {
+        SyntheticPlanning planning = SyntheticPlanning.create();
+        BaseCalendar calendar = planning.calendar(ELEMENTS_PER_QUEUE, ELEMENTS_PER_QUEUE * 10);
+        lastId = 0;
+
+        List<LimitingResourceQueue> limitingQueues = new ArrayList<>();
+        for (int i = 0; i < queues; i++) {
+            LimitingResourceQueue queue = planning.limitingQueue(calendar, ELEMENTS_PER_QUEUE);
+            identify(queue);
+            identify(queue.getResource());
+            for (LimitingResourceQueueElement each : queue.getLimitingResourceQueueElements()) {
+                identify(each);
+            }
+            limitingQueues.add(queue);
+        }
+
+        unassigned = new ArrayList<>();
+        for (int i = 0; i < elements; i++) {
+            Worker worker = (Worker) limitingQueues.get(planning.nextInt(queues)).getResource();
+            LimitingResourceQueueElement element = planning.limitingElement(calendar, worker, SyntheticPlanning.START,
+                    1 + planning.nextInt(5));
+            identify(element);
+            unassigned.add(element);
+        }
+
+        model = new LimitingResourceQueueModel();
+        Field queuesState = LimitingResourceQueueModel.class.getDeclaredField("queuesState");
+        queuesState.setAccessible(true);
+        queuesState.set(model, new QueuesState(limitingQueues, unassigned));
+    }
+
+    /**
+     * {@link QueuesState} finds the elements, queues and resources by id, as if they had been loaded.
+     */
+    private void identify(BaseEntity entity) throws ReflectiveOperationException {
+        Field id = BaseEntity.class.getDeclaredField("id");
+        id.setAccessible(true);
+        id.set(entity, ++lastId);
+    }
+
+    @Benchmark
+    public int assignAll() {
+        return model.assignLimitingResourceQueueElements(unassigned).size();
+    }
+
+}
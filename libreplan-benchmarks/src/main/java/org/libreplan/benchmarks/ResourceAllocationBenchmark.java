@@ -0,0 +1,114 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.planner.entities.SigmoidFunction;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Stretch;
+import org.libreplan.business.planner.entities.StretchesFunction;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.resources.entities.Worker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation algorithms of {@link org.libreplan.business.planner.entities.ResourceAllocation}: allocating until
+ * filling some hours and reassigning the allocated hours with a sigmoid and with a stretches function.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceAllocationBenchmark {
+
+    @Param({ "400", "4000" })
+    private int hours;
+
+    private SyntheticPlanning planning;
+
+    private BaseCalendar calendar;
+
+    private Worker worker;
+
+    private SpecificResourceAllocation allocated;
+
+    private StretchesFunction stretches;
+
+    @Setup
+    public void generate() {
+        planning = SyntheticPlanning.create();
+        calendar = planning.calendar(hours / 20, hours / 2);
+        worker = planning.worker(calendar);
+
+        allocated = newAllocation();
+        SyntheticPlanning.allocateUntilFilling(allocated, hours(hours));
+
+        stretches = StretchesFunction.create();
+        stretches.addStretch(Stretch.create(new BigDecimal("0.25"), new BigDecimal("0.1")));
+        stretches.addStretch(Stretch.create(new BigDecimal("0.5"), new BigDecimal("0.4")));
+        stretches.addStretch(Stretch.create(new BigDecimal("0.75"), new BigDecimal("0.6")));
+        stretches.addStretch(Stretch.create(BigDecimal.ONE, BigDecimal.ONE));
+    }
+
+    private SpecificResourceAllocation newAllocation() {
+        Task task = planning.task(calendar, SyntheticPlanning.START, hours / 8);
+        return planning.allocation(task, worker);
+    }
+
+    @Benchmark
+    public SpecificResourceAllocation untilFillingHours() {
+        SpecificResourceAllocation result = newAllocation();
+        SyntheticPlanning.allocateUntilFilling(result, hours(hours));
+
+        return result;
+    }
+
+    @Benchmark
+    public SpecificResourceAllocation sigmoidFunction() {
+        SigmoidFunction.create().applyTo(allocated);
+
+        return allocated;
+    }
+
+    @Benchmark
+    public SpecificResourceAllocation stretchesFunction() {
+        stretches.applyTo(allocated);
+
+        return allocated;
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.benchmarks;
+
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.CalendarException;
+import org.libreplan.business.calendars.entities.CalendarExceptionType;
+import org.libreplan.business.calendars.entities.CalendarExceptionTypeColor;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.allocationalgorithms.ResourcesPerDayModification;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.ResourceType;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.business.workingday.ResourcesPerDay;
+import org.zkoss.ganttz.data.DefaultFundamentalProperties;
+import org.zkoss.ganttz.data.Dependency;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+import org.zkoss.ganttz.data.GanttDiagramGraph.GanttZKDiagramGraph;
+import org.zkoss.ganttz.data.TaskLeaf;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Generates in memory the entities the benchmarks work on, so no database is needed.
+ *
+ * Everything is derived from a {@link Random} with a fixed seed and from the fixed {@link #START} date, never from the
+ * current date, so the same sizes produce the same project in every run and the results of different commits can be
+ * compared.
+ */
+public class SyntheticPlanning {
+
+    public static final long SEED = 20160104L;
+
+    public static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    /**
+     * Tasks of the generated Gantt diagrams are placed in layers of this width, each task depending on two tasks of
+     * the previous layer.
+     */
+    public static final int LAYER_WIDTH = 20;
+
+    private static final int MAX_TASK_DAYS = 10;
+
+    public static SyntheticPlanning create() {
+        return new SyntheticPlanning(SEED);
+    }
+
+    private final Random random;
+
+    private final CalendarExceptionType exceptionType =
+            CalendarExceptionType.create("BENCHMARK", CalendarExceptionTypeColor.DEFAULT, false);
+
+    private int workersCreated = 0;
+
+    private Order order;
+
+    private SyntheticPlanning(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Basic calendar with the given number of exception days spread over the days following {@link #START}. Half
+     * of them are holidays and the rest reduce the capacity of the day.
+     */
+    public BaseCalendar calendar(int exceptions, int days) {
+        BaseCalendar result = BaseCalendar.createBasicCalendar();
+        List<Integer> offsets = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            offsets.add(i);
+        }
+        Collections.shuffle(offsets, random);
+
+        for (int i = 0; i < Math.min(exceptions, days); i++) {
+            EffortDuration capacity = i % 2 == 0 ? EffortDuration.zero() : hours(1 + random.nextInt(7));
+            result.addExceptionDay(CalendarException.create(START.plusDays(offsets.get(i)), capacity, exceptionType));
+        }
+
+        return result;
+    }
+
+    /**
+     * Worker whose calendar derives from the given one and is available since before {@link #START}.
+     */
+    public Worker worker(BaseCalendar calendar) {
+        int number = workersCreated++;
+        Worker result = Worker.create("Worker " + number, "Benchmark", "BENCHMARK-" + number);
+        ResourceCalendar resourceCalendar = calendar.newDerivedResourceCalendar();
+        resourceCalendar.getLastCalendarAvailability().setStartDate(START.minusYears(1));
+        result.setCalendar(resourceCalendar);
+
+        return result;
+    }
+
+    public Task task(BaseCalendar calendar, LocalDate start, int days) {
+        return withDates(new Task(), calendar, start, days);
+    }
+
+    /**
+     * Task of a synthetic project, so it can be moved as the limiting resources view does.
+     */
+    public Task projectTask(BaseCalendar calendar, LocalDate start, int days) {
+        Task result = Task.createTask(TaskSource.withHoursGroupOf(getOrder().getCurrentSchedulingDataForVersion()));
+
+        return withDates(result, calendar, start, days);
+    }
+
+    private static Task withDates(Task task, BaseCalendar calendar, LocalDate start, int days) {
+        task.setCalendar(calendar);
+        task.setIntraDayStartDate(IntraDayDate.startOfDay(start));
+        task.setIntraDayEndDate(IntraDayDate.startOfDay(start.plusDays(days)));
+
+        return task;
+    }
+
+    private Order getOrder() {
+        if ( order == null ) {
+            order = Order.create();
+            order.setName("Benchmark");
+            order.setInitDate(START.toDateTimeAtStartOfDay().toDate());
+            order.useSchedulingDataFor(OrderVersion.createInitialVersion(Scenario.create("Benchmark")));
+        }
+
+        return order;
+    }
+
+    /**
+     * Specific allocation of the worker to the task without assignments yet.
+     */
+    public SpecificResourceAllocation allocation(Task task, Worker worker) {
+        SpecificResourceAllocation result = SpecificResourceAllocation.create(task);
+        result.setResource(worker);
+
+        return result;
+    }
+
+    public static void allocateUntilFilling(SpecificResourceAllocation allocation, EffortDuration effort) {
+        ResourceAllocation
+                .allocating(Collections.singletonList(
+                        ResourcesPerDayModification.create(allocation, ResourcesPerDay.amount(1))))
+                .untilAllocating(effort);
+    }
+
+    /**
+     * Gantt diagram graph with the given number of tasks of random length. The tasks are arranged in layers of
+     * {@link #LAYER_WIDTH} tasks and each task depends on two tasks of the previous layer, with the constraints
+     * already enforced.
+     */
+    public GanttZKDiagramGraph ganttDiagram(int size, List<org.zkoss.ganttz.data.Task> tasks) {
+        GanttZKDiagramGraph result = GanttDiagramGraph.create(false,
+                Collections.<Constraint<GanttDate>> emptyList(), Collections.<Constraint<GanttDate>> emptyList(),
+                false);
+
+        Date start = START.toDateTimeAtStartOfDay().toDate();
+        for (int i = 0; i < size; i++) {
+            DefaultFundamentalProperties properties = new DefaultFundamentalProperties("Task " + i, start,
+                    START.plusDays(1 + random.nextInt(MAX_TASK_DAYS)).toDateTimeAtStartOfDay().getMillis()
+                            - start.getTime(),
+                    "", start, start, null, null, null, null);
+            TaskLeaf task = new TaskLeaf(properties);
+            tasks.add(task);
+            result.addTopLevel(task);
+        }
+
+        for (int i = LAYER_WIDTH; i < size; i++) {
+            int previousLayer = (i / LAYER_WIDTH - 1) * LAYER_WIDTH;
+            org.zkoss.ganttz.data.Task task = tasks.get(i);
+            result.addWithoutEnforcingConstraints(new Dependency(
+                    tasks.get(previousLayer + random.nextInt(LAYER_WIDTH / 2)), task, DependencyType.END_START));
+            result.addWithoutEnforcingConstraints(new Dependency(
+                    tasks.get(previousLayer + LAYER_WIDTH / 2 + random.nextInt(LAYER_WIDTH / 2)), task,
+                    DependencyType.END_START));
+        }
+        result.enforceAllRestrictions();
+
+        return result;
+    }
+
+    /**
+     * Limiting queue of a new worker already holding the given number of elements. The elements are placed one after
+     * another leaving gaps of random length between them.
+     */
+    public LimitingResourceQueue limitingQueue(BaseCalendar calendar, int elements) {
+        Worker worker = worker(calendar);
+        worker.setResourceType(ResourceType.LIMITING_RESOURCE);
+        LimitingResourceQueue result = LimitingResourceQueue.create();
+        result.setResource(worker);
+        worker.setLimitingResourceQueue(result);
+
+        LocalDate day = START;
+        for (int i = 0; i < elements; i++) {
+            int days = 1 + random.nextInt(MAX_TASK_DAYS);
+            LimitingResourceQueueElement element = limitingElement(calendar, worker, day, days);
+            element.setStartDate(day);
+            element.setStartHour(0);
+            element.setEndDate(day.plusDays(days));
+            element.setEndHour(0);
+            result.addLimitingResourceQueueElement(element);
+            day = day.plusDays(days + random.nextInt(3));
+        }
+
+        return result;
+    }
+
+    /**
+     * Element of a limiting queue not placed yet, which can start since {@link #START}.
+     */
+    public LimitingResourceQueueElement limitingElement(BaseCalendar calendar, Worker worker, LocalDate start,
+                                                        int days) {
+        Task task = projectTask(calendar, start, days);
+        SpecificResourceAllocation allocation = SpecificResourceAllocation.createForLimiting(worker, task);
+        allocation.setIntendedTotalHours(days * 8);
+
+        LimitingResourceQueueElement result = LimitingResourceQueueElement.create();
+        result.setResourceAllocation(allocation);
+        result.setEarlierStartDateBecauseOfGantt(START.toDateTimeAtStartOfDay().toDate());
+
+        return result;
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+}
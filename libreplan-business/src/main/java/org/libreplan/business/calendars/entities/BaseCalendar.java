@@ -21,7 +21,10 @@
 
 package org.libreplan.business.calendars.entities;
 
+import static org.joda.time.Days.daysBetween;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -44,8 +47,6 @@ import org.libreplan.business.common.entities.EntitySequence;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.resources.entities.VirtualWorker;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
-import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
 
@@ -74,6 +75,17 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
 
     private Integer lastSequenceCode = 0;
 
+    /**
+     * Compiled view of the exceptions. This field is transient.
+     */
+    private CalendarExceptionsIndex exceptionsIndex = null;
+
+    /**
+     * Counts the changes done to the exceptions and the work weeks, so {@link #exceptionsIndex} can detect it is
+     * stale. This field is transient.
+     */
+    private int exceptionsModifications = 0;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -149,6 +161,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
             setParent(parent);
         }
 
+        invalidateCompiledExceptions();
     }
 
     public void setName(String name) {
@@ -170,10 +183,12 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
 
     public void setParent(BaseCalendar parent) {
         getLastCalendarData().setParent(parent);
+        invalidateCompiledExceptions();
     }
 
     public void setParent(BaseCalendar parent, LocalDate date) {
         getCalendarData(date).setParent(parent);
+        invalidateCompiledExceptions();
     }
 
     public boolean isDerived() {
@@ -189,18 +204,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
     }
 
     public Set<CalendarException> getExceptions() {
-        Set<CalendarException> exceptionDays = new HashSet<>();
-        exceptionDays.addAll(exceptions);
-
-        if (getParent() != null) {
-            for (CalendarException exceptionDay : getParent().getExceptions()) {
-                if (!isExceptionDayAlreadyInExceptions(exceptionDay)) {
-                    exceptionDays.add(exceptionDay);
-                }
-            }
-        }
-
-        return Collections.unmodifiableSet(exceptionDays);
+        return Collections.unmodifiableSet(new HashSet<>(getExceptionsIndex().getAllMerged()));
     }
 
     public Set<CalendarException> getExceptions(LocalDate date) {
@@ -208,7 +212,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
         exceptionDays.addAll(exceptions);
 
         if (getParent(date) != null) {
-            for (CalendarException exceptionDay : getParent(date).getExceptions()) {
+            for (CalendarException exceptionDay : getParent(date).getExceptionsIndex().getAllMerged()) {
                 if (!isExceptionDayAlreadyInExceptions(exceptionDay)) {
                     exceptionDays.add(exceptionDay);
                 }
@@ -219,13 +223,30 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
     }
 
     private boolean isExceptionDayAlreadyInExceptions(CalendarException exceptionDay) {
-        for (CalendarException day : exceptions) {
-            if (day.getDate().equals(exceptionDay.getDate())) {
-                return true;
-            }
+        return getExceptionsIndex().hasOwnAt(exceptionDay.getDate());
+    }
+
+    /**
+     * Returns the compiled exceptions of this calendar, building them again if this calendar or any of its parents
+     * have been modified since the last time.
+     */
+    CalendarExceptionsIndex getExceptionsIndex() {
+        CalendarExceptionsIndex result = exceptionsIndex;
+        if (result == null || !result.isUpToDate(this, exceptions, exceptionsModifications)) {
+            result = CalendarExceptionsIndex.compile(this, exceptions, exceptionsModifications);
+            exceptionsIndex = result;
         }
 
-        return false;
+        return result;
+    }
+
+    /**
+     * Forces the exceptions of this calendar to be compiled again. It must be called when an exception or a work
+     * week is modified without using the methods of this class.
+     */
+    public void invalidateCompiledExceptions() {
+        exceptionsModifications++;
+        exceptionsIndex = null;
     }
 
     public void addExceptionDay(CalendarException day) {
@@ -239,6 +260,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
         }
 
         exceptions.add(day);
+        invalidateCompiledExceptions();
     }
 
     public void removeExceptionDay(LocalDate date) {
@@ -249,6 +271,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
         }
 
         exceptions.remove(day);
+        invalidateCompiledExceptions();
     }
 
     public void updateExceptionDay(LocalDate date, Capacity capacity, CalendarExceptionType type) {
@@ -258,23 +281,18 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
     }
 
     public CalendarException getOwnExceptionDay(LocalDate date) {
-        for (CalendarException exceptionDay : exceptions) {
-            if (exceptionDay.getDate().equals(date)) {
-                return exceptionDay;
-            }
-        }
-
-        return null;
+        return getExceptionsIndex().getOwn(date);
     }
 
     public CalendarException getExceptionDay(LocalDate date) {
-        for (CalendarException exceptionDay : getExceptions(date)) {
-            if (exceptionDay.getDate().equals(date)) {
-                return exceptionDay;
-            }
+        CalendarException own = getExceptionsIndex().getOwn(date);
+        if (own != null) {
+            return own;
         }
 
-        return null;
+        BaseCalendar parent = getParent(date);
+
+        return parent != null ? parent.getExceptionsIndex().getMerged(date) : null;
     }
 
     @Override
@@ -289,6 +307,165 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
         return multiplyByCalendarUnits(findCapacityAt(day));
     }
 
+    /**
+     * Returns the capacity in seconds, without overtime, of every day in the given interval.
+     * It is equivalent to call {@link #getCapacityOn(PartialDay)} for each whole day, but the result is stored in a
+     * primitive array where the position <code>i</code> corresponds to <code>startInclusive + i</code> days.
+     * <p>
+     * The interval is traversed by work weeks, so the work week and the parent of each day are not searched again,
+     * and the availabilities are applied by ranges.
+     * </p>
+     *
+     * @param startInclusive
+     * @param endExclusive
+     * @return Capacities in seconds for each day
+     */
+    public int[] getCapacitiesOn(LocalDate startInclusive, LocalDate endExclusive) {
+        Validate.notNull(startInclusive);
+        Validate.notNull(endExclusive);
+
+        int size = Math.max(daysBetween(startInclusive, endExclusive).getDays(), 0);
+        Capacity[] capacities = new Capacity[size];
+        fillCapacitiesConsideringExceptionsOn(startInclusive, capacities);
+
+        boolean[] active = getActiveDays(startInclusive, size);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = active[i] ? multiplyByCalendarUnits(capacities[i]).getStandardEffort().getSeconds() : 0;
+        }
+
+        return result;
+    }
+
+    /**
+     * Fills <code>capacities</code> with the capacity of each day since <code>start</code> like
+     * {@link #findCapacityAt(LocalDate)}, but without considering the availabilities.
+     */
+    private void fillCapacitiesConsideringExceptionsOn(LocalDate start, Capacity[] capacities) {
+        CalendarExceptionsIndex ownExceptions = getExceptionsIndex();
+
+        for (WorkWeekInterval each : getWorkWeekIntervals(start, capacities.length)) {
+            BaseCalendar parent = each.calendarData.getParent();
+            CalendarExceptionsIndex parentExceptions = parent != null ? parent.getExceptionsIndex() : null;
+            Capacity[] base = getCapacitiesConsideringCalendarDataOn(each, start);
+
+            for (int i = each.from; i < each.to; i++) {
+                LocalDate day = start.plusDays(i);
+                CalendarException exception = ownExceptions.getOwn(day);
+                if (exception == null && parentExceptions != null) {
+                    exception = parentExceptions.getMerged(day);
+                }
+                capacities[i] = exception != null ? exception.getCapacity() : base[i - each.from];
+            }
+        }
+    }
+
+    /**
+     * Returns the capacity of each day of the interval like
+     * {@link #getCapacityConsideringCalendarDataOn(LocalDate, Days)}, resolving the days without capacity in the work
+     * week with a single call to the parent for the whole interval.
+     */
+    private Capacity[] getCapacitiesConsideringCalendarDataOn(WorkWeekInterval interval, LocalDate start) {
+        LocalDate from = start.plusDays(interval.from);
+        Capacity[] result = new Capacity[interval.to - interval.from];
+        Capacity[] fromParent = null;
+
+        for (int i = 0; i < result.length; i++) {
+            LocalDate day = from.plusDays(i);
+            Capacity capacity = interval.calendarData.getCapacityOn(getDayFrom(day));
+            BaseCalendar parent = interval.calendarData.getParent();
+
+            if (capacity == null && parent != null) {
+                if (fromParent == null) {
+                    fromParent = parent.getCapacitiesConsideringCalendarDataOn(from, result.length);
+                }
+                capacity = fromParent[i];
+            }
+            result[i] = valueIfNotNullElseDefaultValue(capacity);
+        }
+
+        return result;
+    }
+
+    private Capacity[] getCapacitiesConsideringCalendarDataOn(LocalDate start, int size) {
+        Capacity[] result = new Capacity[size];
+        for (WorkWeekInterval each : getWorkWeekIntervals(start, size)) {
+            Capacity[] capacities = getCapacitiesConsideringCalendarDataOn(each, start);
+            System.arraycopy(capacities, 0, result, each.from, capacities.length);
+        }
+
+        return result;
+    }
+
+    /**
+     * Interval of days, as positions since a start date, in which a {@link CalendarData} applies.
+     */
+    private static class WorkWeekInterval {
+
+        private final CalendarData calendarData;
+
+        private final int from;
+
+        private final int to;
+
+        private WorkWeekInterval(CalendarData calendarData, int from, int to) {
+            this.calendarData = calendarData;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Splits the <code>size</code> days since <code>start</code> by the {@link CalendarData} that applies to them, as
+     * {@link #getCalendarData(LocalDate)} would find it for each day.
+     */
+    private List<WorkWeekInterval> getWorkWeekIntervals(LocalDate start, int size) {
+        List<WorkWeekInterval> result = new ArrayList<>();
+        int from = 0;
+
+        for (CalendarData each : calendarDataVersions) {
+            if (from >= size) {
+                break;
+            }
+
+            LocalDate expiringDate = each.getExpiringDate();
+            int to = expiringDate == null ? size : Math.min(size, daysBetween(start, expiringDate).getDays());
+            if (to > from) {
+                result.add(new WorkWeekInterval(each, from, to));
+                from = to;
+            }
+        }
+
+        if (from < size) {
+            throw new RuntimeException("Some work week should not be expired");
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns if each of the <code>size</code> days since <code>start</code> is active like
+     * {@link #isActive(LocalDate)}.
+     */
+    private boolean[] getActiveDays(LocalDate start, int size) {
+        boolean[] result = new boolean[size];
+        if (getCalendarAvailabilities().isEmpty()) {
+            Arrays.fill(result, true);
+            return result;
+        }
+
+        for (CalendarAvailability each : getCalendarAvailabilities()) {
+            int from = Math.max(0, daysBetween(start, each.getStartDate()).getDays());
+            int to = each.getEndDate() == null ? size :
+                    Math.min(size, daysBetween(start, each.getEndDate()).getDays() + 1);
+            if (from < to) {
+                Arrays.fill(result, from, to, true);
+            }
+        }
+
+        return result;
+    }
+
     private Capacity findCapacityAt(LocalDate date) {
         if (!isActive(date)) {
             return Capacity.zero();
@@ -346,17 +523,12 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
      * @return Duration of work
      */
     public EffortDuration getWorkableDuration(LocalDate init, LocalDate endInclusive) {
+        int seconds = 0;
+        for (int each : getCapacitiesOn(init, endInclusive.plusDays(1))) {
+            seconds += each;
+        }
 
-        Iterable<PartialDay> daysBetween =
-                IntraDayDate.startOfDay(init).daysUntil(IntraDayDate.startOfDay(endInclusive).nextDayAtStart());
-
-        return EffortDuration.sum(daysBetween, new IEffortFrom<PartialDay>() {
-            @Override
-            public EffortDuration from(PartialDay each) {
-                return getCapacityOn(each);
-            }
-
-        });
+        return EffortDuration.seconds(seconds);
     }
 
     /**
@@ -781,10 +953,11 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar, IHuman
      */
     public Set<LocalDate> getNonWorkableDays(LocalDate init, LocalDate end) {
         Set<LocalDate> result = new HashSet<>();
+        int[] capacities = getCapacitiesOn(init, end.plusDays(1));
 
-        for (LocalDate current = init; current.compareTo(end) <= 0; current = current.plusDays(1)) {
-            if (getCapacityOn(PartialDay.wholeDay(current)).isZero()) {
-                result.add(current);
+        for (int i = 0; i < capacities.length; i++) {
+            if (capacities[i] == 0) {
+                result.add(init.plusDays(i));
             }
         }
 
@@ -73,6 +73,9 @@ public class CalendarException extends IntegrationEntity {
             CalendarExceptionType type) {
         if (date != null) {
             this.date = date;
+            if (calendar != null) {
+                calendar.invalidateCompiledExceptions();
+            }
         }
 
         if (hours != null) {
@@ -90,6 +93,12 @@ public class CalendarException extends IntegrationEntity {
 
     private CalendarExceptionType type;
 
+    /**
+     * Calendar whose compiled exceptions include this one, so they are invalidated when the date changes. This field
+     * is transient.
+     */
+    private BaseCalendar calendar;
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -124,6 +133,10 @@ public class CalendarException extends IntegrationEntity {
         return type;
     }
 
+    void setCalendar(BaseCalendar calendar) {
+        this.calendar = calendar;
+    }
+
     @Override
     protected ICalendarExceptionDAO getIntegrationEntityDAO() {
         return Registry.getCalendarExceptionDAO();
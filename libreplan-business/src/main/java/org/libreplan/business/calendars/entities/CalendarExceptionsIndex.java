@@ -0,0 +1,138 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Date keyed view of the {@link CalendarException exceptions} of a {@link BaseCalendar}, compiled once and reused
+ * while the calendar and its parents are not modified.
+ * <p>
+ * It keeps two maps: the own exceptions of the calendar and the exceptions inherited through the parent of the last
+ * work week merged with the own ones (the latter take precedence). Exceptions for a concrete date are resolved
+ * against the parent of the work week that contains that date, so {@link CalendarData} versions are also honored.
+ * </p>
+ * <p>
+ * The index checks lazily if it is stale, comparing the state it was built from with the current one of the
+ * calendar, and relies on the parent calendar index for the inherited exceptions. The compiled exceptions invalidate
+ * their calendar when their date is changed.
+ * </p>
+ */
+final class CalendarExceptionsIndex {
+
+    static CalendarExceptionsIndex compile(BaseCalendar calendar, Set<CalendarException> ownExceptions,
+                                           int modifications) {
+
+        Map<LocalDate, CalendarException> own = new HashMap<>();
+        for (CalendarException each : ownExceptions) {
+            own.put(each.getDate(), each);
+            each.setCalendar(calendar);
+        }
+
+        BaseCalendar parent = calendar.getParent();
+        CalendarExceptionsIndex parentIndex = parent != null ? parent.getExceptionsIndex() : null;
+
+        Map<LocalDate, CalendarException> merged;
+        if (parentIndex == null) {
+            merged = own;
+        } else {
+            merged = new HashMap<>(parentIndex.merged);
+            merged.putAll(own);
+        }
+
+        return new CalendarExceptionsIndex(ownExceptions, modifications, parent, parentIndex, own, merged);
+    }
+
+    private final Set<CalendarException> ownExceptionsCompiled;
+
+    private final int ownExceptionsSize;
+
+    private final int modifications;
+
+    private final BaseCalendar parent;
+
+    private final CalendarExceptionsIndex parentIndex;
+
+    private final Map<LocalDate, CalendarException> own;
+
+    private final Map<LocalDate, CalendarException> merged;
+
+    private CalendarExceptionsIndex(Set<CalendarException> ownExceptions,
+                                    int modifications,
+                                    BaseCalendar parent,
+                                    CalendarExceptionsIndex parentIndex,
+                                    Map<LocalDate, CalendarException> own,
+                                    Map<LocalDate, CalendarException> merged) {
+
+        this.ownExceptionsCompiled = ownExceptions;
+        this.ownExceptionsSize = ownExceptions.size();
+        this.modifications = modifications;
+        this.parent = parent;
+        this.parentIndex = parentIndex;
+        this.own = own;
+        this.merged = merged;
+    }
+
+    boolean isUpToDate(BaseCalendar calendar, Set<CalendarException> ownExceptions, int currentModifications) {
+        if (ownExceptions != ownExceptionsCompiled
+                || ownExceptions.size() != ownExceptionsSize
+                || currentModifications != modifications) {
+            return false;
+        }
+
+        BaseCalendar currentParent = calendar.getParent();
+        if (currentParent != parent) {
+            return false;
+        }
+
+        return currentParent == null || currentParent.getExceptionsIndex() == parentIndex;
+    }
+
+    CalendarException getOwn(LocalDate date) {
+        return own.get(date);
+    }
+
+    /**
+     * Exception at the given date considering own exceptions and the ones inherited from the parent of the last work
+     * week, as {@link BaseCalendar#getExceptions()} does.
+     */
+    CalendarException getMerged(LocalDate date) {
+        return merged.get(date);
+    }
+
+    boolean hasOwnAt(LocalDate date) {
+        return own.containsKey(date);
+    }
+
+    Collection<CalendarException> getAllOwn() {
+        return Collections.unmodifiableCollection(own.values());
+    }
+
+    Collection<CalendarException> getAllMerged() {
+        return Collections.unmodifiableCollection(merged.values());
+    }
+
+}
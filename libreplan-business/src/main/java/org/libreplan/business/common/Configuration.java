@@ -26,7 +26,7 @@ import org.apache.commons.lang3.BooleanUtils;
 /**
  * This is a singleton that contains the compilation options passed from Maven.
  *
- * Currently we have four options:
+ * Currently we have eight options:
  * <ul>
  *     <li>Enable/Disable the warning changing default password</li>
  *     <li>
@@ -35,6 +35,10 @@ import org.apache.commons.lang3.BooleanUtils;
  *     </li>
  *     <li>Enable/Disable E-mail sending functionality</li>
  *     <li>Enable/Disable "Delete all projects" button</li>
+ *     <li>Number of threads used to reload the database snapshots</li>
+ *     <li>Minimum interval between reloads of a database snapshot</li>
+ *     <li>Maximum staleness allowed for a database snapshot before its reloads stop being cancelled</li>
+ *     <li>Number of threads used to calculate the cost per task snapshots</li>
  * </ul>
  *
  * @author Susana Montes Pedreira <smontes@wirelessgalicia.com>
@@ -54,6 +58,14 @@ public class Configuration {
 
     private boolean deleteAllProjectsButtonDisabled;
 
+    private Integer snapshotsRefreshThreads;
+
+    private Long snapshotsMinReloadInterval;
+
+    private Long snapshotsMaxStaleness;
+
+    private Integer costCalculationThreads;
+
     private Configuration() {
     }
 
@@ -107,4 +119,71 @@ public class Configuration {
     public void setDeleteAllProjectsButtonDisabled(boolean deleteAllProjectsButtonDisabled) {
         this.deleteAllProjectsButtonDisabled = deleteAllProjectsButtonDisabled;
     }
+
+    /**
+     * It returns the number of threads used to reload the database snapshots, 3 if it is not configured.
+     */
+    public static int getNumberOfSnapshotsRefreshThreads() {
+        Integer threads = singleton.getSnapshotsRefreshThreads();
+        return threads != null && threads > 0 ? threads : 3;
+    }
+
+    public Integer getSnapshotsRefreshThreads() {
+        return snapshotsRefreshThreads;
+    }
+
+    public void setSnapshotsRefreshThreads(Integer snapshotsRefreshThreads) {
+        this.snapshotsRefreshThreads = snapshotsRefreshThreads;
+    }
+
+    /**
+     * It returns the minimum milliseconds between reloads of a database snapshot, 1 second if it is not configured.
+     */
+    public static long getSnapshotsMinReloadIntervalMillis() {
+        Long millis = singleton.getSnapshotsMinReloadInterval();
+        return millis != null && millis >= 0 ? millis : 1000;
+    }
+
+    public Long getSnapshotsMinReloadInterval() {
+        return snapshotsMinReloadInterval;
+    }
+
+    public void setSnapshotsMinReloadInterval(Long snapshotsMinReloadInterval) {
+        this.snapshotsMinReloadInterval = snapshotsMinReloadInterval;
+    }
+
+    /**
+     * It returns the maximum milliseconds that a database snapshot is allowed to be outdated before its ongoing
+     * reloads stop being cancelled, 1 minute if it is not configured. It is never less than the minimum interval
+     * between reloads.
+     */
+    public static long getSnapshotsMaxStalenessMillis() {
+        Long millis = singleton.getSnapshotsMaxStaleness();
+        long result = millis != null && millis >= 0 ? millis : 60000;
+        return Math.max(result, getSnapshotsMinReloadIntervalMillis());
+    }
+
+    public Long getSnapshotsMaxStaleness() {
+        return snapshotsMaxStaleness;
+    }
+
+    public void setSnapshotsMaxStaleness(Long snapshotsMaxStaleness) {
+        this.snapshotsMaxStaleness = snapshotsMaxStaleness;
+    }
+
+    /**
+     * It returns the number of threads used to calculate the cost per task snapshots, 4 if it is not configured.
+     */
+    public static int getNumberOfCostCalculationThreads() {
+        Integer threads = singleton.getCostCalculationThreads();
+        return threads != null && threads > 0 ? threads : 4;
+    }
+
+    public Integer getCostCalculationThreads() {
+        return costCalculationThreads;
+    }
+
+    public void setCostCalculationThreads(Integer costCalculationThreads) {
+        this.costCalculationThreads = costCalculationThreads;
+    }
 }
@@ -21,6 +21,7 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.libreplan.business.common.IntegrationEntity;
@@ -36,6 +37,13 @@ import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 public interface IIntegrationEntityDAO<E extends IntegrationEntity>
     extends IGenericDAO<E, Long> {
 
+    /**
+     * Receives the entities one by one as they are read from the database.
+     */
+    public interface IEntityReceiver<E> {
+        public void receive(E entity);
+    }
+
     /**
      * If <code>code</code> is blank (whitespace, empty ("") or
      * <code>null</code>), it returns <code>false</code>.
@@ -63,9 +71,31 @@ public interface IIntegrationEntityDAO<E extends IntegrationEntity>
 
     public E findExistingEntityByCode(String code);
 
+    /**
+     * It returns the entities having any of the <code>codes</code> in only
+     * one query. Codes are compared as in {@link #findByCode(String)}, blank
+     * codes are ignored and codes not found are simply missing in the
+     * result.
+     */
+    public List<E> findByCodes(Collection<String> codes);
+
     /**
      * It returns all entities ordered by ascending code.
      */
     public List<E> findAll();
 
+    /**
+     * It sends to the receiver the entities ordered by ascending code, as they
+     * are read from the database with a cursor. The session is cleared
+     * periodically, so the receiver must not keep the entities it receives.
+     * Codes are compared ignoring case, as in {@link #findByCode(String)}.
+     *
+     * @param afterCode if not <code>null</code> only the entities with a code
+     *        greater than it are sent
+     * @param limit if not <code>null</code> maximum number of entities sent,
+     *        it must be positive
+     */
+    public void forEachOrderedByCode(String afterCode, Integer limit,
+        IEntityReceiver<? super E> receiver);
+
 }
@@ -21,11 +21,18 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.springframework.transaction.annotation.Propagation;
@@ -41,6 +48,13 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
         extends GenericDAOHibernate<E, Long>
         implements IIntegrationEntityDAO<E> {
 
+    /**
+     * Number of entities fetched at once by
+     * {@link #forEachOrderedByCode(String, Integer, IEntityReceiver)}, which
+     * is also the number of entities after which the session is cleared.
+     */
+    private static final int FETCH_SIZE = 100;
+
     @Override
     public boolean existsByCode(String code) {
         try {
@@ -94,10 +108,74 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public List<E> findByCodes(Collection<String> codes) {
+        List<String> lowerCaseCodes = new ArrayList<>();
+        for (String each : codes) {
+            if (!StringUtils.isBlank(each)) {
+                lowerCaseCodes.add(each.trim().toLowerCase());
+            }
+        }
+
+        if (lowerCaseCodes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return getSession()
+                .createQuery("FROM " + getEntityClass().getName() + " e WHERE lower(e.code) IN (:codes)")
+                .setParameterList("codes", lowerCaseCodes)
+                .list();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<E> findAll() {
         return getSession().createCriteria(getEntityClass()).addOrder(Order.asc("code")).list();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachOrderedByCode(String afterCode, Integer limit, IEntityReceiver<? super E> receiver) {
+        Validate.isTrue(limit == null || limit > 0, "limit must be positive");
+
+        Criteria criteria = createCriteriaForAll()
+                .addOrder(Order.asc("code").ignoreCase())
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true);
+
+        // Codes are compared ignoring case, as in findByCode
+        if (afterCode != null) {
+            criteria.add(Restrictions.sqlRestriction(
+                    "lower({alias}.code) > ?", afterCode.trim().toLowerCase(), StringType.INSTANCE));
+        }
+        if (limit != null) {
+            criteria.setMaxResults(limit);
+        }
+
+        ScrollableResults results = criteria.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            int received = 0;
+            while (results.next()) {
+                receiver.receive((E) results.get(0));
+                if (++received % FETCH_SIZE == 0) {
+                    getSession().clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Criteria matching the entities visited by
+     * {@link #forEachOrderedByCode(String, Integer, IEntityReceiver)}. DAOs can
+     * override it to leave out some entities.
+     */
+    protected Criteria createCriteriaForAll() {
+        return getSession().createCriteria(getEntityClass());
+    }
+
 }
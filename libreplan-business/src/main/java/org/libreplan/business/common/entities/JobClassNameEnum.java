@@ -37,7 +37,10 @@ public enum JobClassNameEnum {
     SEND_EMAIL_MILESTONE_REACHED("org.libreplan.importers.notifications.jobs", "SendEmailOnMilestoneReachedJob"),
     SEND_EMAIL_TASK_SHOULD_START("org.libreplan.importers.notifications.jobs", "SendEmailOnTaskShouldStartJob"),
     SEND_EMAIL_TASK_SHOULD_FINISH("org.libreplan.importers.notifications.jobs", "SendEmailOnTaskShouldFinishJob"),
-    SEND_EMAIL_TIMESHEET_DATA_MISSING("org.libreplan.importers.notifications.jobs", "SendEmailOnTimesheetDataMissingJob");
+    SEND_EMAIL_TIMESHEET_DATA_MISSING("org.libreplan.importers.notifications.jobs", "SendEmailOnTimesheetDataMissingJob"),
+
+    SCHEDULE_LIMITING_RESOURCE_QUEUE_ELEMENTS_JOB(
+            "org.libreplan.web.limitingresources", "ScheduleLimitingResourceQueueElementsJob");
 
     private String packageName;
 
@@ -20,6 +20,8 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -29,11 +31,17 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
 
@@ -53,13 +61,18 @@ import org.hibernate.event.spi.PostUpdateEventListener;
 import org.hibernate.internal.SessionFactoryImpl;
 import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.Type;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.common.Configuration;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 /**
  * @author Óscar González Fernández
  */
 @Component
+@DependsOn("configuration")
 public class HibernateDatabaseModificationsListener implements
         PostInsertEventListener,
         PostUpdateEventListener,
@@ -68,7 +81,11 @@ public class HibernateDatabaseModificationsListener implements
 
     private static final Log LOG = LogFactory.getLog(HibernateDatabaseModificationsListener.class);
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private static final String STATISTICS_DOMAIN = "org.libreplan.snapshots";
+
+    private final ScheduledExecutorService executor;
+
+    private final List<NotBlockingAutoUpdatedSnapshot<?>> snapshots = new CopyOnWriteArrayList<>();
 
     private final ConcurrentMap<Class<?>, BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>>> interested;
 
@@ -97,15 +114,25 @@ public class HibernateDatabaseModificationsListener implements
     private final class Dispatcher implements Synchronization {
 
         private BlockingQueue<Class<?>> classes = new LinkedBlockingQueue<>();
+        private final ModifiedEntities.Builder modifications = ModifiedEntities.builder();
         private final Transaction transaction;
 
-        public Dispatcher(Transaction transaction, Class<?> entityClass) {
-            classes.offer(entityClass);
+        public Dispatcher(Transaction transaction, Class<?> entityClass, ModifiedEntities modification) {
             this.transaction = transaction;
+            add(entityClass, modification);
         }
 
-        public void add(Class<?> entityClass) {
+        public void add(Class<?> entityClass, ModifiedEntities modification) {
             classes.offer(entityClass);
+            synchronized (modifications) {
+                modifications.addAll(modification);
+            }
+        }
+
+        private ModifiedEntities getModifications() {
+            synchronized (modifications) {
+                return modifications.build();
+            }
         }
 
         @Override
@@ -126,7 +153,7 @@ public class HibernateDatabaseModificationsListener implements
                 LOG.debug(
                         "dispatching " + toDispatch + " snapshots to reload due to transaction successful completion");
 
-                dispatch(toDispatch);
+                dispatch(toDispatch, getModifications());
             }
         }
 
@@ -143,6 +170,15 @@ public class HibernateDatabaseModificationsListener implements
 
     public HibernateDatabaseModificationsListener() {
         interested = new ConcurrentHashMap<>();
+        executor = Executors.newScheduledThreadPool(Configuration.getNumberOfSnapshotsRefreshThreads());
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+        for (NotBlockingAutoUpdatedSnapshot<?> each : snapshots) {
+            unregisterStatistics(each.getStatistics());
+        }
     }
 
     @PostConstruct
@@ -164,17 +200,51 @@ public class HibernateDatabaseModificationsListener implements
 
     @Override
     public void onPostDelete(PostDeleteEvent event) {
-        modificationOn(inferTransaction(event), inferEntityClass(getEntityObject(event)));
+        Class<?> entityClass = inferEntityClass(getEntityObject(event));
+        modificationOn(inferTransaction(event), entityClass,
+                modificationFrom(entityClass, event.getId(), event.getPersister(), event.getDeletedState()));
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
-        modificationOn(inferTransaction(event), inferEntityClass(getEntityObject(event)));
+        Class<?> entityClass = inferEntityClass(getEntityObject(event));
+        modificationOn(inferTransaction(event), entityClass,
+                modificationFrom(entityClass, event.getId(), event.getPersister(),
+                        event.getState(), event.getOldState()));
     }
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
-        modificationOn(inferTransaction(event), inferEntityClass(getEntityObject(event)));
+        Class<?> entityClass = inferEntityClass(getEntityObject(event));
+        modificationOn(inferTransaction(event), entityClass,
+                modificationFrom(entityClass, event.getId(), event.getPersister(), event.getState()));
+    }
+
+    /**
+     * Records the id of the modified entity and the ids of the entities it points to through associations. The state
+     * arrays can be used to know them even if the entity has been deleted.
+     */
+    private static ModifiedEntities modificationFrom(Class<?> entityClass,
+                                                     Serializable id,
+                                                     EntityPersister persister,
+                                                     Object[]... states) {
+
+        ModifiedEntities.Builder builder = ModifiedEntities.builder();
+        builder.modified(entityClass, id instanceof Long ? (Long) id : null);
+
+        Type[] types = persister.getPropertyTypes();
+        for (Object[] state : states) {
+            if ( state == null ) {
+                continue;
+            }
+            for (int i = 0; i < types.length && i < state.length; i++) {
+                if ( types[i].isEntityType() && state[i] instanceof BaseEntity ) {
+                    builder.referenced(inferEntityClass(state[i]), ((BaseEntity) state[i]).getId());
+                }
+            }
+        }
+
+        return builder.build();
     }
 
 
@@ -204,41 +274,48 @@ public class HibernateDatabaseModificationsListener implements
         return entity.getClass();
     }
 
-    void modificationOn(Transaction transaction, Class<?> entityClass) {
+    void modificationOn(Transaction transaction, Class<?> entityClass, ModifiedEntities modification) {
         if ( transaction == null ) {
-            dispatch(snapshotsInterestedOn(entityClass));
+            dispatch(snapshotsInterestedOn(entityClass), modification);
 
             return;
         }
-        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass);
+        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass, modification);
         Dispatcher previous;
         previous = pending.putIfAbsent(transaction, newDispatcher);
 
         boolean dispatcherAlreadyExisted = previous != null;
         if ( dispatcherAlreadyExisted ) {
-            previous.add(entityClass);
+            previous.add(entityClass, modification);
         } else {
             transaction.registerSynchronization(newDispatcher);
         }
     }
 
-    private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched) {
-        toBeDispatched.forEach(this::dispatch);
+    private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched, ModifiedEntities modifications) {
+        for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
+            each.reloadNeeded(modifications);
+        }
     }
 
-    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each) {
-        each.reloadNeeded(executor);
+    @Override
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn) {
+        return takeSnapshot(name, callable, null, reloadOn);
     }
 
     @Override
-    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn) {
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+                                                    Callable<T> callable,
+                                                    ISnapshotPatcher<T> patcher,
+                                                    ReloadOn reloadOn) {
         if ( !hibernateListenersRegistered ) {
             throw new IllegalStateException(
                     "The hibernate listeners has not been registered. There is some configuration problem.");
         }
 
         final NotBlockingAutoUpdatedSnapshot<T> result;
-        result = new NotBlockingAutoUpdatedSnapshot<>(name, callable);
+        result = new NotBlockingAutoUpdatedSnapshot<>(name, callable, patcher, executor,
+                Configuration.getSnapshotsMinReloadIntervalMillis(), Configuration.getSnapshotsMaxStalenessMillis());
 
         for (Class<?> each : reloadOn.getClassesOnWhichToReload()) {
             interested.putIfAbsent(each, emptyQueue());
@@ -246,11 +323,56 @@ public class HibernateDatabaseModificationsListener implements
             boolean success = queue.add(result);
             assert success : "the type of queue used must not have restricted capacity";
         }
-        result.ensureFirstLoad(executor);
+        snapshots.add(result);
+        registerStatistics(result.getStatistics());
+        result.ensureFirstLoad();
 
         return result;
     }
 
+    @Override
+    public List<ISnapshotStatistics> getSnapshotsStatistics() {
+        List<ISnapshotStatistics> result = new ArrayList<>();
+        for (NotBlockingAutoUpdatedSnapshot<?> each : snapshots) {
+            result.add(each.getStatistics());
+        }
+
+        return result;
+    }
+
+    /**
+     * Publishes the statistics through JMX, replacing the ones of a previous
+     * snapshot with the same name if any.
+     */
+    private void registerStatistics(ISnapshotStatistics statistics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectNameFor(statistics);
+            if ( server.isRegistered(objectName) ) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(statistics, objectName);
+        } catch (JMException e) {
+            LOG.warn("statistics of snapshot " + statistics.getName() + " could not be published through JMX", e);
+        }
+    }
+
+    private void unregisterStatistics(ISnapshotStatistics statistics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectNameFor(statistics);
+            if ( server.isRegistered(objectName) ) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOG.warn("statistics of snapshot " + statistics.getName() + " could not be unpublished from JMX", e);
+        }
+    }
+
+    private static ObjectName objectNameFor(ISnapshotStatistics statistics) throws MalformedObjectNameException {
+        return new ObjectName(STATISTICS_DOMAIN + ":type=Snapshot,name=" + ObjectName.quote(statistics.getName()));
+    }
+
     private BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> emptyQueue() {
         return new LinkedBlockingQueue<>();
     }
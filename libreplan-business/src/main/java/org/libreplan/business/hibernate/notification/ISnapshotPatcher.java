@@ -0,0 +1,43 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+/**
+ * Updates the previous value of a snapshot taking into account only the entities modified since it was calculated,
+ * instead of calculating it again from scratch.
+ * <p>
+ * It is executed in a read only transaction, like the callable that calculates the whole value.
+ * </p>
+ */
+public interface ISnapshotPatcher<T> {
+
+    /**
+     * The previous value can be being used by other threads, so it must not be modified.
+     *
+     * @param previousValue
+     *            the last value calculated for the snapshot
+     * @param modifications
+     *            the entities modified since the previous value was calculated
+     * @return a new value with the modifications applied, or <code>null</code> if they cannot be applied incrementally
+     *         and the whole value must be calculated again
+     */
+    T patch(T previousValue, ModifiedEntities modifications) throws Exception;
+
+}
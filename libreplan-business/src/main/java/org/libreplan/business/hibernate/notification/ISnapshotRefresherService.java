@@ -20,6 +20,7 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 /**
@@ -30,4 +31,17 @@ public interface ISnapshotRefresherService {
 
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn);
 
+    /**
+     * Like {@link #takeSnapshot(String, Callable, ReloadOn)} but the reloads
+     * try first to apply only the modified entities to the previous value
+     * using the provided patcher.
+     */
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            Callable<T> callable, ISnapshotPatcher<T> patcher, ReloadOn reloadOn);
+
+    /**
+     * Returns the statistics about the reloads of the snapshots taken so far.
+     */
+    public List<ISnapshotStatistics> getSnapshotsStatistics();
+
 }
@@ -0,0 +1,76 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import javax.management.MXBean;
+
+/**
+ * Statistics about the reloads of an {@link IAutoUpdatedSnapshot}. They are
+ * also published through JMX.
+ */
+@MXBean
+public interface ISnapshotStatistics {
+
+    String getName();
+
+    /**
+     * Number of calculations of the value finished successfully.
+     */
+    long getReloads();
+
+    long getErrors();
+
+    /**
+     * Number of ongoing calculations cancelled because of new modifications.
+     */
+    long getCancelledReloads();
+
+    /**
+     * Number of modifications merged into a reload that was already pending,
+     * instead of causing a reload of their own.
+     */
+    long getCoalescedReloads();
+
+    long getMeanReloadMillis();
+
+    long getMaxReloadMillis();
+
+    long getMeanWaitingMillis();
+
+    /**
+     * Upper bounds, in milliseconds, of the intervals of
+     * {@link #getReloadMillisHistogram()}. The last interval has no upper
+     * bound.
+     */
+    long[] getReloadMillisHistogramBounds();
+
+    /**
+     * Number of calculations whose duration falls in each of the intervals
+     * defined by {@link #getReloadMillisHistogramBounds()}.
+     */
+    long[] getReloadMillisHistogram();
+
+    /**
+     * Milliseconds since the current value stopped reflecting the state of the
+     * database, or zero if it is up to date.
+     */
+    long getStalenessMillis();
+
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Immutable description of the entities modified by one or several committed transactions.
+ * <p>
+ * For each modified entity it keeps its id grouped by its class, and the ids of the entities it points to through
+ * many-to-one associations. So it can be known, for example, which resources are affected by some modified day
+ * assignments even if the assignments have been deleted.
+ * </p>
+ */
+public class ModifiedEntities {
+
+    private static final ModifiedEntities EMPTY = new ModifiedEntities(
+            Collections.<Class<?>, Set<Long>> emptyMap(),
+            Collections.<Class<?>, Set<Long>> emptyMap());
+
+    public static ModifiedEntities empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Not thread safe builder for {@link ModifiedEntities}.
+     */
+    public static class Builder {
+
+        private final Map<Class<?>, Set<Long>> modified = new HashMap<>();
+
+        private final Map<Class<?>, Set<Long>> referenced = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder modified(Class<?> entityClass, Long id) {
+            add(modified, entityClass, id);
+            return this;
+        }
+
+        public Builder referenced(Class<?> entityClass, Long id) {
+            add(referenced, entityClass, id);
+            return this;
+        }
+
+        public Builder addAll(ModifiedEntities other) {
+            addAll(modified, other.modified);
+            addAll(referenced, other.referenced);
+            return this;
+        }
+
+        private static void add(Map<Class<?>, Set<Long>> map, Class<?> entityClass, Long id) {
+            Set<Long> ids = map.get(entityClass);
+            if ( ids == null ) {
+                ids = new HashSet<>();
+                map.put(entityClass, ids);
+            }
+            if ( id != null ) {
+                ids.add(id);
+            }
+        }
+
+        private static void addAll(Map<Class<?>, Set<Long>> destination, Map<Class<?>, Set<Long>> origin) {
+            for (Entry<Class<?>, Set<Long>> each : origin.entrySet()) {
+                add(destination, each.getKey(), null);
+                destination.get(each.getKey()).addAll(each.getValue());
+            }
+        }
+
+        public ModifiedEntities build() {
+            if ( modified.isEmpty() && referenced.isEmpty() ) {
+                return EMPTY;
+            }
+            return new ModifiedEntities(copy(modified), copy(referenced));
+        }
+
+        private static Map<Class<?>, Set<Long>> copy(Map<Class<?>, Set<Long>> map) {
+            Map<Class<?>, Set<Long>> result = new HashMap<>();
+            for (Entry<Class<?>, Set<Long>> each : map.entrySet()) {
+                result.put(each.getKey(), Collections.unmodifiableSet(new HashSet<>(each.getValue())));
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    }
+
+    private final Map<Class<?>, Set<Long>> modified;
+
+    private final Map<Class<?>, Set<Long>> referenced;
+
+    private ModifiedEntities(Map<Class<?>, Set<Long>> modified, Map<Class<?>, Set<Long>> referenced) {
+        this.modified = modified;
+        this.referenced = referenced;
+    }
+
+    public boolean isEmpty() {
+        return modified.isEmpty();
+    }
+
+    public Set<Class<?>> getModifiedClasses() {
+        return modified.keySet();
+    }
+
+    /**
+     * @return <code>true</code> if all the modified entities are instances of some of the given classes
+     */
+    public boolean onlyModificationsOn(Collection<? extends Class<?>> classes) {
+        for (Class<?> each : modified.keySet()) {
+            if ( !isAssignableToAny(each, classes) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAssignableToAny(Class<?> klass, Collection<? extends Class<?>> classes) {
+        for (Class<?> each : classes) {
+            if ( each.isAssignableFrom(klass) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the ids of the modified entities that are instances of the given class
+     */
+    public Set<Long> getModifiedIdsOf(Class<?> entityClass) {
+        return idsAssignableTo(modified, entityClass);
+    }
+
+    /**
+     * @return the ids of the entities that are instances of the given class and are pointed to by some modified
+     *         entity
+     */
+    public Set<Long> getReferencedIdsOf(Class<?> entityClass) {
+        return idsAssignableTo(referenced, entityClass);
+    }
+
+    private static Set<Long> idsAssignableTo(Map<Class<?>, Set<Long>> map, Class<?> entityClass) {
+        Set<Long> result = new HashSet<>();
+        for (Entry<Class<?>, Set<Long>> each : map.entrySet()) {
+            if ( entityClass.isAssignableFrom(each.getKey()) ) {
+                result.addAll(each.getValue());
+            }
+        }
+        return result;
+    }
+
+    public ModifiedEntities merge(ModifiedEntities other) {
+        if ( other.isEmpty() && other.referenced.isEmpty() ) {
+            return this;
+        }
+        if ( this.isEmpty() && this.referenced.isEmpty() ) {
+            return other;
+        }
+        return builder().addAll(this).addAll(other).build();
+    }
+
+    @Override
+    public String toString() {
+        return "modified: " + modified.keySet();
+    }
+
+}
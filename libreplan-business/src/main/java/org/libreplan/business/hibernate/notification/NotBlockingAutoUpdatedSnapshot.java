@@ -20,16 +20,37 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.time.Clock;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
+ * Snapshot whose value is calculated on background and reloaded when some of the entities it depends on are modified.
+ * The previous value is returned meanwhile.
+ * <p>
+ * If a {@link ISnapshotPatcher} is provided, the reloads only apply the modifications done since the last calculated
+ * value.
+ * </p>
+ * <p>
+ * The reloads are scheduled so the snapshot converges even under a continuous stream of modifications:
+ * <ul>
+ * <li>A reload is not started until the minimum interval has passed since the first modification it includes and
+ * since the previous reload was started, so bursts of modifications are coalesced into one reload.</li>
+ * <li>There is at most one pending reload. The modifications received meanwhile are merged into it.</li>
+ * <li>An ongoing calculation is only cancelled, to be started again with the new modifications, if it has not reached
+ * half of its usual duration and restarting it does not exceed the maximum staleness. Otherwise it is allowed to
+ * finish and the pending reload is started afterwards.</li>
+ * </ul>
+ * </p>
+ *
  * @author Óscar González Fernández
  *
  */
@@ -40,263 +61,280 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     private final Callable<T> callable;
 
-    private final AtomicReference<State> currentState;
+    private final ISnapshotPatcher<T> patcher;
 
     private final String name;
 
-    private final ExecutionsReport executionsReport;
+    private final ScheduledExecutorService executor;
 
-    private abstract class State {
-        abstract T getValue();
+    private final long minIntervalMillis;
 
-        void cancel() {
-        }
+    private final long maxStalenessMillis;
 
-        State nextState(Future<T> future) {
-            return new PreviousValueAndOngoingCalculation(this, future);
-        }
+    private final SnapshotStatistics statistics;
 
-        boolean hasBeenInitialized() {
-            return true;
-        }
-    }
+    private final Clock clock;
 
-    private class NotLaunchState extends State {
+    private T value;
 
-        @Override
-        T getValue() {
-            throw new UnsupportedOperationException();
-        }
+    private boolean hasValue = false;
 
-        @Override
-        State nextState(Future<T> future) {
-            return new FirstCalculation(future);
-        }
+    private Calculation ongoing;
 
-        @Override
-        boolean hasBeenInitialized() {
-            return false;
-        }
+    private ModifiedEntities pending;
 
-    }
+    private long pendingSince;
 
-    private class NoOngoingCalculation extends State {
-        private final T value;
+    private ScheduledFuture<?> scheduledLaunch;
 
-        NoOngoingCalculation(T value) {
-            this.value = value;
-        }
+    private long lastLaunch;
 
-        @Override
-        T getValue() {
-            return value;
-        }
-    }
+    private class Calculation extends FutureTask<T> {
 
-    private class PreviousValueAndOngoingCalculation extends State {
-        private final State previousValue;
+        private final ModifiedEntities modifications;
 
-        private final Future<T> ongoingCalculation;
+        /**
+         * When the first of its modifications was received
+         */
+        private final long since;
 
-        private PreviousValueAndOngoingCalculation(State value,
-                Future<T> ongoingCalculation) {
-            Validate.notNull(value);
-            Validate.notNull(ongoingCalculation);
-            this.previousValue = value;
-            this.ongoingCalculation = ongoingCalculation;
+        private final long start;
+
+        private volatile long executionStart;
+
+        Calculation(Callable<T> callable, ModifiedEntities modifications,
+                long since, long start) {
+            super(callable);
+            this.modifications = modifications;
+            this.since = since;
+            this.start = start;
         }
 
         @Override
-        T getValue() {
-            if (!ongoingCalculation.isCancelled()
-                    && ongoingCalculation.isDone()) {
-                T newValue = getValueFromFuture();
-                currentState.compareAndSet(this, new NoOngoingCalculation(
-                        newValue));
-                return newValue;
-            }
-            LOG.debug(name + " the ongoing calculation has not been completed. "
-                    + "Returning previous value");
-            return previousValue.getValue();
+        public void run() {
+            executionStart = clock.millis();
+            super.run();
         }
 
-        private T getValueFromFuture() {
-            try {
-                return ongoingCalculation.get();
-            } catch (Exception e) {
-                LOG.error("error creating new value for " + name
-                        + ", keeping old value", e);
-                return previousValue.getValue();
-            }
+        @Override
+        protected void done() {
+            finished(this);
         }
 
-        @Override
-        void cancel() {
-            if (ongoingCalculation.isDone() || ongoingCalculation.isCancelled()) {
-                return;
+    }
+
+    public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            ISnapshotPatcher<T> patcher, ScheduledExecutorService executor,
+            long minIntervalMillis, long maxStalenessMillis) {
+        this(name, callable, patcher, executor, minIntervalMillis,
+                maxStalenessMillis, Clock.systemUTC());
+    }
+
+    NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            ISnapshotPatcher<T> patcher, ScheduledExecutorService executor,
+            long minIntervalMillis, long maxStalenessMillis, Clock clock) {
+        Validate.notNull(callable);
+        Validate.notNull(name);
+        Validate.notNull(executor);
+        Validate.isTrue(minIntervalMillis >= 0);
+        Validate.isTrue(maxStalenessMillis >= minIntervalMillis);
+        this.name = "*" + name + "*";
+        this.callable = callable;
+        this.patcher = patcher;
+        this.executor = executor;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.statistics = new SnapshotStatistics(name);
+        this.clock = clock;
+    }
+
+    @Override
+    public T getValue() {
+        Calculation firstCalculation;
+        synchronized (this) {
+            if (hasValue) {
+                return value;
             }
-            LOG.debug(name + " cancelling ongoing future");
-            try {
-                ongoingCalculation.cancel(true);
-            } catch (Exception e) {
-                LOG.error("error cancelling future for " + name, e);
+            if (ongoing == null) {
+                launch(ModifiedEntities.empty(), clock.millis());
             }
+            firstCalculation = ongoing;
         }
+        try {
+            return firstCalculation.get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void reloadNeeded() {
+        reloadNeeded(ModifiedEntities.empty());
     }
 
-    private class FirstCalculation extends State {
-        private final Future<T> ongoingCalculation;
+    public synchronized void reloadNeeded(ModifiedEntities modifications) {
+        long now = clock.millis();
+        statistics.modified(now);
 
-        private FirstCalculation(Future<T> ongoingCalculation) {
-            this.ongoingCalculation = ongoingCalculation;
+        if (!hasValue && ongoing == null && pending == null) {
+            launch(modifications, now);
+            return;
         }
 
-        @Override
-        T getValue() {
-            try {
-                return ongoingCalculation.get();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        if (pending != null) {
+            statistics.coalesced();
+            pending = pending.merge(modifications);
+        } else {
+            pending = modifications;
+            pendingSince = now;
         }
 
-        @Override
-        void cancel() {
-            ongoingCalculation.cancel(true);
+        if (ongoing != null) {
+            if (canBeRestarted(ongoing, now)) {
+                LOG.debug(name + " cancelling ongoing calculation");
+                pending = ongoing.modifications.merge(pending);
+                pendingSince = Math.min(pendingSince, ongoing.since);
+                // the pending reload is scheduled when the cancellation is
+                // notified
+                ongoing.cancel(true);
+            }
+        } else {
+            scheduleLaunch(now);
         }
+    }
 
+    private boolean canBeRestarted(Calculation calculation, long now) {
+        long usualDuration = statistics.getMeanReloadMillis();
+        long running = now - calculation.start;
+        return running < usualDuration / 2
+                && statistics.getStalenessMillis(now) + usualDuration
+                        + minIntervalMillis <= maxStalenessMillis;
     }
 
-    public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable) {
-        Validate.notNull(callable);
-        Validate.notNull(name);
-        this.name = "*" + name + "*";
-        this.callable = callable;
-        this.currentState = new AtomicReference<State>(new NotLaunchState());
-        this.executionsReport = new ExecutionsReport();
+    private void scheduleLaunch(long now) {
+        if (scheduledLaunch != null) {
+            return;
+        }
+        long launchAt = Math.max(pendingSince, lastLaunch) + minIntervalMillis;
+        launchAt = Math.min(launchAt, pendingSince + maxStalenessMillis);
+        scheduledLaunch = executor.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                launchPending();
+            }
+        }, Math.max(0, launchAt - now), TimeUnit.MILLISECONDS);
     }
 
-    @Override
-    public T getValue() {
-        return currentState.get().getValue();
+    private synchronized void launchPending() {
+        scheduledLaunch = null;
+        if (ongoing != null || pending == null) {
+            return;
+        }
+        ModifiedEntities modifications = pending;
+        pending = null;
+        launch(modifications, pendingSince);
     }
 
-    public void reloadNeeded(ExecutorService executorService) {
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
-        State previousState;
-        State newState = null;
-        do {
-            if (newState != null) {
-                newState.cancel();
-            }
-            previousState = currentState.get();
-            newState = previousState.nextState(future);
-        } while (!currentState.compareAndSet(previousState, newState));
-        previousState.cancel();
+    private void launch(ModifiedEntities modifications, long since) {
+        long now = clock.millis();
+        Callable<T> calculation = hasValue ? calculationFrom(value,
+                modifications) : callable;
+        ongoing = new Calculation(calculation, modifications, since, now);
+        lastLaunch = now;
+        executor.execute(ongoing);
     }
 
-    public void ensureFirstLoad(ExecutorService executorService) {
-        if (hasBeenInitialized()) {
+    private synchronized void finished(Calculation calculation) {
+        if (calculation != ongoing) {
             return;
         }
-        Future<T> future = executorService
-                .submit(callableDecoratedWithStatistics());
-        State previous = currentState.get();
-        State newState = previous.nextState(future);
-        boolean compareAndSet = currentState.compareAndSet(previous, newState);
-        if (!compareAndSet) {
-            newState.cancel();
+        ongoing = null;
+        long now = clock.millis();
+        if (calculation.isCancelled()) {
+            statistics.cancelled();
+        } else {
+            try {
+                value = calculation.get();
+                hasValue = true;
+                calculated(calculation, now, null);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof InterruptedException) {
+                    // interrupted without being cancelled, e.g. on shutdown
+                    statistics.cancelled();
+                } else {
+                    LOG.error("error creating new value for " + name
+                            + ", keeping old value", e.getCause());
+                    calculated(calculation, now, e);
+                }
+                keepModificationsOf(calculation);
+            } catch (InterruptedException e) {
+                // not possible, the calculation is done
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (pending != null) {
+            scheduleLaunch(now);
         }
     }
 
-    @Override
-    public String toString() {
-        return name;
+    private void calculated(Calculation calculation, long now,
+            Exception possibleError) {
+        statistics.calculated(calculation.start, calculation.executionStart
+                - calculation.start, now - calculation.executionStart,
+                possibleError);
     }
 
-    private boolean hasBeenInitialized() {
-        return currentState.get().hasBeenInitialized();
+    /**
+     * The modifications of a failed calculation are still to be applied.
+     */
+    private void keepModificationsOf(Calculation failed) {
+        if (!hasValue) {
+            return;
+        }
+        if (pending == null) {
+            pending = failed.modifications;
+            pendingSince = failed.since;
+        } else {
+            pending = failed.modifications.merge(pending);
+            pendingSince = Math.min(pendingSince, failed.since);
+        }
     }
 
-    private Callable<T> callableDecoratedWithStatistics() {
-        final long requestTime = System.currentTimeMillis();
+    private Callable<T> calculationFrom(final T previousValue,
+            final ModifiedEntities modifications) {
+        if (patcher == null) {
+            return callable;
+        }
         return new Callable<T>() {
 
             @Override
             public T call() throws Exception {
-                long start = System.currentTimeMillis();
-                long timeWaiting = start - requestTime;
-                Exception error = null;
-                try {
-                    return callable.call();
-                } catch (Exception e) {
-                    error = e;
-                    LOG.error("error executing snapshot " + name);
-                    throw e;
-                } finally {
-                    long timeExecuting = System.currentTimeMillis() - start;
-                    executionsReport.newData(timeWaiting, timeExecuting, error);
+                T result = patcher.patch(previousValue, modifications);
+                if (result != null) {
+                    LOG.debug(name + " patched with " + modifications);
+                    return result;
                 }
+                LOG.debug(name + " cannot be patched with " + modifications
+                        + ". Calculating it again");
+                return callable.call();
             }
         };
     }
 
-    private static class Data {
-        final int executionTimes;
-        final int errors;
-        long totalMsWaiting;
-        long totalMsExecuting;
-
-        private Data(int executionTimes, int errors, long totalMsWaiting,
-                long totalMsExecuting) {
-            this.executionTimes = executionTimes;
-            this.totalMsWaiting = totalMsWaiting;
-            this.totalMsExecuting = totalMsExecuting;
-            this.errors = errors;
-        }
-
-        public Data newData(long timeWaiting, long timeExcuting, Exception e) {
-            return new Data(executionTimes + 1, errors + (e != null ? 1 : 0),
-                    totalMsWaiting + timeWaiting,
-                    totalMsExecuting + timeExcuting);
+    public synchronized void ensureFirstLoad() {
+        if (hasValue || ongoing != null) {
+            return;
         }
-
+        launch(ModifiedEntities.empty(), clock.millis());
     }
 
-    private class ExecutionsReport {
-
-        private AtomicReference<Data> data = new AtomicReference<Data>(
-                new Data(0, 0, 0, 0));
-
-        public void newData(long timeWaiting, long timeExecuting,
-                Exception possibleError) {
-            Data previousData;
-            Data newData;
-            do {
-                previousData = data.get();
-                newData = previousData.newData(timeWaiting, timeExecuting,
-                        possibleError);
-            } while (!data.compareAndSet(previousData, newData));
-            report(timeWaiting, timeExecuting, newData, possibleError);
-        }
+    @Override
+    public String toString() {
+        return name;
+    }
 
-        private void report(long timeWaiting, long timeExecuting, Data data,
-                Exception possibleError) {
-            LOG.debug(name + " took " + timeExecuting + " ms executing");
-            if (possibleError != null) {
-                LOG.error("error loading " + name, possibleError);
-            }
-            LOG.debug(name + " waited for " + timeWaiting
-                    + " ms until executing");
-            LOG.debug(name + " mean time waiting for execution: "
-                    + data.totalMsWaiting / data.executionTimes + " ms");
-            LOG.debug(name + " mean time  executing: "
-                    + data.totalMsExecuting / data.executionTimes + " ms");
-            LOG.debug(name + " has been executed " + data.executionTimes
-                    + " times");
-            LOG.debug(name + " has produced errors " + data.errors + " times");
-        }
+    ISnapshotStatistics getStatistics() {
+        return statistics;
     }
 
 }
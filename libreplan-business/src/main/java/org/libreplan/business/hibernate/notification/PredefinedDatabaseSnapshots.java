@@ -22,13 +22,25 @@ package org.libreplan.business.hibernate.notification;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +50,7 @@ import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.common.AdHocTransactionService;
+import org.libreplan.business.common.Configuration;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
@@ -49,13 +62,16 @@ import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.labels.entities.LabelType;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
 import org.libreplan.business.planner.daos.IDayAssignmentDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignmentsContainer;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ICostCalculator;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignmentsContainer;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
@@ -71,6 +87,7 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.VirtualWorker;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.util.SearchIndex;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -88,6 +105,12 @@ public class PredefinedDatabaseSnapshots {
 
     private static final Log LOG = LogFactory.getLog(PredefinedDatabaseSnapshots.class);
 
+    /**
+     * Calculates the cost per task of several orders at the same time, as many as
+     * {@link Configuration#getNumberOfCostCalculationThreads()}.
+     */
+    private ForkJoinPool costCalculationPool;
+
     @Autowired
     private IAdHocTransactionService transactionService;
 
@@ -162,8 +185,28 @@ public class PredefinedDatabaseSnapshots {
 
     private IAutoUpdatedSnapshot<Map<TaskElement,SortedMap<LocalDate, BigDecimal>>> advanceCostPerTask;
 
+    private IndexOfSnapshot<SortedMap<CriterionType, List<Criterion>>, Criterion> criterionsIndex;
+
+    private IndexOfSnapshot<Map<LabelType, List<Label>>, Label> labelsIndex;
+
+    private IndexOfSnapshot<List<ExternalCompany>, ExternalCompany> externalCompaniesIndex;
+
+    private IndexOfSnapshot<List<String>, String> customerReferencesIndex;
+
+    private IndexOfSnapshot<List<String>, String> ordersCodesIndex;
+
     private boolean snapshotsRegistered = false;
 
+    @PostConstruct
+    private void createCostCalculationPool() {
+        costCalculationPool = new ForkJoinPool(Configuration.getNumberOfCostCalculationThreads());
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        costCalculationPool.shutdownNow();
+    }
+
     public SortedMap<CriterionType, List<Criterion>> snapshotCriterionsMap() {
         return criterionsMap.getValue();
     }
@@ -200,6 +243,30 @@ public class PredefinedDatabaseSnapshots {
         return ordersCodes.getValue();
     }
 
+    /**
+     * Indexes of some of the snapshots to search them by text. Each index is built the first time it is used after
+     * the snapshot is reloaded and it is shared by all the users.
+     */
+    public SearchIndex<Criterion> snapshotCriterionsIndex() {
+        return criterionsIndex.getValue();
+    }
+
+    public SearchIndex<Label> snapshotLabelsIndex() {
+        return labelsIndex.getValue();
+    }
+
+    public SearchIndex<ExternalCompany> snapshotExternalCompaniesIndex() {
+        return externalCompaniesIndex.getValue();
+    }
+
+    public SearchIndex<String> snapshotCustomerReferencesIndex() {
+        return customerReferencesIndex.getValue();
+    }
+
+    public SearchIndex<String> snapshotOrdersCodesIndex() {
+        return ordersCodesIndex.getValue();
+    }
+
     public ResourceLoadChartData snapshotResourceLoadChartData() {
         return resourceLoadChartData.getValue();
     }
@@ -241,6 +308,20 @@ public class PredefinedDatabaseSnapshots {
         customerReferences = snapshot("customer references", calculateCustomerReferences(), Order.class);
         ordersCodes = snapshot("order codes", calculateOrdersCodes(), Order.class);
 
+        criterionsIndex = new IndexOfSnapshot<>(criterionsMap,
+                value -> SearchIndex.create(flatten(value.values()), Criterion::getName));
+
+        labelsIndex = new IndexOfSnapshot<>(labelsMap,
+                value -> SearchIndex.create(flatten(value.values()), Label::getName));
+
+        externalCompaniesIndex = new IndexOfSnapshot<>(externalCompanies,
+                value -> SearchIndex.createWithTexts(value, each -> Arrays.asList(each.getName(), each.getNif())));
+
+        customerReferencesIndex = new IndexOfSnapshot<>(customerReferences,
+                value -> SearchIndex.create(value, Function.identity()));
+
+        ordersCodesIndex = new IndexOfSnapshot<>(ordersCodes, value -> SearchIndex.create(value, Function.identity()));
+
         resourceLoadChartData = snapshot(
                 "resource load grouped by date",
                 calculateResourceLoadChartData(),
@@ -256,7 +337,8 @@ public class PredefinedDatabaseSnapshots {
 
         estimatedCostPerTask = snapshot(
                 "estimated cost per task",
-                calculateEstimatedCostPerTask(),
+                calculateCostPerTask(hoursCostCalculator::getEstimatedCost),
+                patchCostPerTask(hoursCostCalculator::getEstimatedCost),
                 TaskElement.class,
                 Task.class,
                 TaskGroup.class,
@@ -264,23 +346,76 @@ public class PredefinedDatabaseSnapshots {
 
         advanceCostPerTask = snapshot(
                 "advance cost per task",
-                calculateAdvanceCostPerTask(),
+                calculateCostPerTask(hoursCostCalculator::getAdvanceCost),
+                patchCostPerTask(hoursCostCalculator::getAdvanceCost),
                 TaskElement.class,
                 Task.class,
                 TaskGroup.class,
                 DirectAdvanceAssignment.class);
     }
 
+    private static <T> List<T> flatten(Collection<List<T>> lists) {
+        List<T> result = new ArrayList<>();
+        for (List<T> each : lists) {
+            result.addAll(each);
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the index of the last value of a snapshot, building it again when the snapshot has a new value.
+     */
+    private static class IndexOfSnapshot<S, T> {
+
+        private final IAutoUpdatedSnapshot<S> snapshot;
+
+        private final Function<S, SearchIndex<T>> indexer;
+
+        private S indexedValue;
+
+        private SearchIndex<T> index;
+
+        IndexOfSnapshot(IAutoUpdatedSnapshot<S> snapshot, Function<S, SearchIndex<T>> indexer) {
+            this.snapshot = snapshot;
+            this.indexer = indexer;
+        }
+
+        synchronized SearchIndex<T> getValue() {
+            S value = snapshot.getValue();
+            if (index == null || value != indexedValue) {
+                index = indexer.apply(value);
+                indexedValue = value;
+            }
+            return index;
+        }
+    }
+
     private <T> IAutoUpdatedSnapshot<T> snapshot(String name, Callable<T> callable, Class<?>... reloadOnChangesOf) {
         return snapshotRefresherService
                 .takeSnapshot(name, callableOnReadOnlyTransaction(callable), ReloadOn.onChangeOf(reloadOnChangesOf));
     }
 
+    private <T> IAutoUpdatedSnapshot<T> snapshot(String name,
+                                                 Callable<T> callable,
+                                                 ISnapshotPatcher<T> patcher,
+                                                 Class<?>... reloadOnChangesOf) {
+        return snapshotRefresherService.takeSnapshot(
+                name,
+                callableOnReadOnlyTransaction(callable),
+                patcherOnReadOnlyTransaction(patcher),
+                ReloadOn.onChangeOf(reloadOnChangesOf));
+    }
+
     @SuppressWarnings("unchecked")
     private <T> Callable<T> callableOnReadOnlyTransaction(Callable<T> callable) {
         return AdHocTransactionService.readOnlyProxy(transactionService, Callable.class, callable);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> ISnapshotPatcher<T> patcherOnReadOnlyTransaction(ISnapshotPatcher<T> patcher) {
+        return AdHocTransactionService.readOnlyProxy(transactionService, ISnapshotPatcher.class, patcher);
+    }
+
     private Callable<SortedMap<CriterionType, List<Criterion>>> calculateCriterionsMap() {
         return () -> {
             SortedMap<CriterionType, List<Criterion>> result = new TreeMap<>(getComparatorByName());
@@ -362,10 +497,12 @@ public class PredefinedDatabaseSnapshots {
 
     private Callable<ResourceLoadChartData> calculateResourceLoadChartData() {
         return () -> {
-            List<DayAssignment> dayAssignments = dayAssignmentDAO.getAllFor(scenarioManager.getCurrent(), null, null);
-            List<Resource> resources = resourceDAO.list(Resource.class);
-            return new ResourceLoadChartData(dayAssignments, resources);
+            ResourceLoadChartData.Builder builder = new ResourceLoadChartData.Builder(resourceDAO.list(Resource.class));
+            dayAssignmentDAO.forEachRowOf(
+                    scenarioManager.getCurrent(),
+                    (resourceId, day, seconds, consolidated) -> builder.add(resourceId, day, seconds));
 
+            return builder.build();
         };
     }
 
@@ -375,30 +512,88 @@ public class PredefinedDatabaseSnapshots {
 
 
 
-    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateEstimatedCostPerTask() {
-        return () -> {
-            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map = new HashMap<>();
-
-            taskElementDAO.
-                    list(TaskElement.class)
-                    .stream()
-                    .filter(task -> task instanceof Task)
-                    .forEach(task -> map.put(task, hoursCostCalculator.getEstimatedCost((Task) task)));
+    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateCostPerTask(
+            Function<Task, SortedMap<LocalDate, BigDecimal>> costCalculation) {
 
-            return map;
-        };
+        return () -> costPerTask(taskElementDAO.findTaskIdsPerRootTask().values(), costCalculation);
     }
 
-    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateAdvanceCostPerTask() {
-        return () -> {
-            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map = new HashMap<>();
-            for (TaskElement task : taskElementDAO.list(TaskElement.class)) {
-                if ( task instanceof Task ) {
-                    map.put(task, hoursCostCalculator.getAdvanceCost((Task)task));
+    /**
+     * Recalculates the cost only for the tasks affected by the modifications and keeps the previous cost for the
+     * rest of them. If most of the tasks are affected it is calculated again from scratch.
+     */
+    private ISnapshotPatcher<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> patchCostPerTask(
+            Function<Task, SortedMap<LocalDate, BigDecimal>> costCalculation) {
+
+        return (previous, modifications) -> {
+            Set<Long> affectedTasks = tasksAffectedBy(modifications);
+            if ( affectedTasks.isEmpty() ) {
+                return previous;
+            }
+            if ( affectedTasks.size() > previous.size() / 2 ) {
+                return null;
+            }
+
+            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<>();
+            for (Entry<TaskElement, SortedMap<LocalDate, BigDecimal>> each : previous.entrySet()) {
+                if ( !affectedTasks.contains(each.getKey().getId()) ) {
+                    result.put(each.getKey(), each.getValue());
                 }
             }
-            return map;
+            result.putAll(costPerTask(Collections.singletonList(affectedTasks), costCalculation));
+
+            return Collections.unmodifiableMap(result);
         };
     }
 
+    /**
+     * Calculates the cost of the tasks of each group on {@link #costCalculationPool}, each group on its own read only
+     * transaction. The groups are usually the tasks of an order, so they share most of the data needed.
+     */
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> costPerTask(
+            Collection<? extends Collection<Long>> taskIdsGroups,
+            Function<Task, SortedMap<LocalDate, BigDecimal>> costCalculation) throws Exception {
+
+        List<Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>> calculations = new ArrayList<>();
+        for (Collection<Long> each : taskIdsGroups) {
+            calculations.add(() -> transactionService.runOnReadOnlyTransaction(
+                    () -> costPerTaskOf(each, costCalculation)));
+        }
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<>();
+        for (Future<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> each :
+                costCalculationPool.invokeAll(calculations)) {
+
+            result.putAll(each.get());
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> costPerTaskOf(
+            Collection<Long> taskIds, Function<Task, SortedMap<LocalDate, BigDecimal>> costCalculation) {
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<>();
+        for (Task each : taskElementDAO.findTasksWithResourceAllocations(taskIds)) {
+            result.put(each, costCalculation.apply(each));
+        }
+
+        return result;
+    }
+
+    private Set<Long> tasksAffectedBy(ModifiedEntities modifications) {
+        Set<Long> result = new HashSet<>();
+        result.addAll(modifications.getModifiedIdsOf(TaskElement.class));
+        result.addAll(modifications.getReferencedIdsOf(Task.class));
+
+        result.addAll(taskElementDAO.findTaskIdsByDayAssignmentsContainers(
+                modifications.getReferencedIdsOf(SpecificDayAssignmentsContainer.class),
+                modifications.getReferencedIdsOf(GenericDayAssignmentsContainer.class)));
+
+        result.addAll(taskElementDAO.findTaskIdsByOrderElements(
+                modifications.getReferencedIdsOf(OrderElement.class)));
+
+        return result;
+    }
+
 }
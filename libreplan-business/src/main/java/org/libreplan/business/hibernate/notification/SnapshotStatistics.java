@@ -0,0 +1,217 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Collects the {@link ISnapshotStatistics} of a
+ * {@link NotBlockingAutoUpdatedSnapshot}. It can be updated concurrently from
+ * the threads calculating the snapshot and the ones modifying the database.
+ */
+class SnapshotStatistics implements ISnapshotStatistics {
+
+    private static final Log LOG = LogFactory.getLog(SnapshotStatistics.class);
+
+    private static final long[] HISTOGRAM_BOUNDS = { 100, 1000, 10000, 60000 };
+
+    private final String name;
+
+    private final AtomicLong reloads = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong cancelled = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong totalMillisExecuting = new AtomicLong();
+
+    private final AtomicLong totalMillisWaiting = new AtomicLong();
+
+    private final AtomicLong maxMillisExecuting = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(
+            HISTOGRAM_BOUNDS.length + 1);
+
+    private long lastModification = 0;
+
+    private long staleSince = 0;
+
+    SnapshotStatistics(String name) {
+        Validate.notNull(name);
+        this.name = name;
+    }
+
+    /**
+     * Registers that the database has been modified at <code>time</code>, so
+     * the value is not up to date until a calculation requested after it
+     * finishes.
+     */
+    synchronized void modified(long time) {
+        lastModification = Math.max(lastModification, time);
+        if (staleSince == 0) {
+            staleSince = time;
+        }
+    }
+
+    /**
+     * Registers a calculation that was requested at <code>requestTime</code>.
+     * If it has finished successfully, the value reflects all the
+     * modifications done until then.
+     */
+    void calculated(long requestTime, long timeWaiting, long timeExecuting,
+            Exception possibleError) {
+        totalMillisWaiting.addAndGet(timeWaiting);
+        if (possibleError != null) {
+            errors.incrementAndGet();
+        } else {
+            reloads.incrementAndGet();
+            totalMillisExecuting.addAndGet(timeExecuting);
+            histogram.incrementAndGet(bucketFor(timeExecuting));
+            updateMax(timeExecuting);
+            upToDateUntil(requestTime);
+        }
+        report(timeWaiting, timeExecuting);
+    }
+
+    private static int bucketFor(long millis) {
+        int i = 0;
+        while (i < HISTOGRAM_BOUNDS.length && millis >= HISTOGRAM_BOUNDS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private void updateMax(long timeExecuting) {
+        long previous;
+        do {
+            previous = maxMillisExecuting.get();
+        } while (timeExecuting > previous
+                && !maxMillisExecuting.compareAndSet(previous, timeExecuting));
+    }
+
+    private synchronized void upToDateUntil(long requestTime) {
+        if (lastModification <= requestTime) {
+            staleSince = 0;
+        } else {
+            // the first modification not reflected happened after the request
+            staleSince = Math.max(staleSince, requestTime);
+        }
+    }
+
+    void cancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    void coalesced() {
+        coalesced.incrementAndGet();
+    }
+
+    private void report(long timeWaiting, long timeExecuting) {
+        if (!LOG.isDebugEnabled()) {
+            return;
+        }
+        LOG.debug(name + " took " + timeExecuting + " ms executing");
+        LOG.debug(name + " waited for " + timeWaiting + " ms until executing");
+        LOG.debug(name + " mean time waiting for execution: "
+                + getMeanWaitingMillis() + " ms");
+        LOG.debug(name + " mean time executing: " + getMeanReloadMillis()
+                + " ms");
+        LOG.debug(name + " has been executed " + getReloads() + " times");
+        LOG.debug(name + " has produced errors " + getErrors() + " times");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public long getCancelledReloads() {
+        return cancelled.get();
+    }
+
+    @Override
+    public long getCoalescedReloads() {
+        return coalesced.get();
+    }
+
+    @Override
+    public long getMeanReloadMillis() {
+        long count = reloads.get();
+        return count == 0 ? 0 : totalMillisExecuting.get() / count;
+    }
+
+    @Override
+    public long getMaxReloadMillis() {
+        return maxMillisExecuting.get();
+    }
+
+    @Override
+    public long getMeanWaitingMillis() {
+        long count = reloads.get() + errors.get();
+        return count == 0 ? 0 : totalMillisWaiting.get() / count;
+    }
+
+    @Override
+    public long[] getReloadMillisHistogramBounds() {
+        return HISTOGRAM_BOUNDS.clone();
+    }
+
+    @Override
+    public long[] getReloadMillisHistogram() {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public long getStalenessMillis() {
+        return getStalenessMillis(System.currentTimeMillis());
+    }
+
+    synchronized long getStalenessMillis(long now) {
+        return staleSince == 0 ? 0 : Math.max(0, now - staleSince);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
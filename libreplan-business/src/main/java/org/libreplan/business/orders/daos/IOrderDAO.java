@@ -21,6 +21,7 @@
 
 package org.libreplan.business.orders.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -88,6 +89,31 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
             List<Label> labels, List<Criterion> criteria,
             ExternalCompany customer, OrderStatusEnum state);
 
+    /**
+     * Returns the dates of the root tasks of the orders in the scenario that the user can read, without loading their
+     * scheduling data.
+     *
+     * @param states
+     *            only the orders in these states are considered
+     */
+    List<RootTaskDatesDTO> getRootTasksDatesByReadAuthorizationByScenario(
+            String username, Scenario scenario, Collection<OrderStatusEnum> states);
+
+    /**
+     * Returns a page of the dates of the root tasks of the orders that would be returned by
+     * {@link #getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState}, sorted by their start date.
+     *
+     * @param after
+     *            the last element of the previous page, or <code>null</code> to retrieve the first one
+     * @param pageSize
+     *            the maximum number of elements returned
+     */
+    List<RootTaskDatesDTO> getRootTasksDatesByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
+            String username, Scenario scenario, Date startDate, Date endDate,
+            List<Label> labels, List<Criterion> criteria,
+            ExternalCompany customer, OrderStatusEnum state,
+            RootTaskDatesDTO after, int pageSize);
+
     /**
      * Returns the order filtered by the name.
      * If name is blank (whitespace, empty ("") or null, it throws <code>InstanceNotFoundException</code>.
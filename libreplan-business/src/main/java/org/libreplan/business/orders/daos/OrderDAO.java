@@ -22,10 +22,12 @@ package org.libreplan.business.orders.daos;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
@@ -74,6 +76,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Scope(BeanDefinition.SCOPE_SINGLETON)
 public class OrderDAO extends IntegrationEntityDAO<Order> implements IOrderDAO {
 
+    private static final int MAX_ORDERS_PER_QUERY = 500;
+
     @Autowired
     private ITaskSourceDAO taskSourceDAO;
 
@@ -532,13 +536,7 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements IOrderDAO {
 
     @Override
     public List<Order> getOrdersByReadAuthorizationByScenario(String username, Scenario scenario) {
-        User user;
-        try {
-            user = userDAO.findByLoginName(username);
-        } catch (InstanceNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-        return existsInScenario(getOrdersByReadAuthorization(user), scenario);
+        return existsInScenario(getOrdersByReadAuthorization(findUser(username)), scenario);
     }
 
     @Override
@@ -552,14 +550,8 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements IOrderDAO {
             ExternalCompany customer,
             OrderStatusEnum state) {
 
-        User user;
-        try {
-            user = userDAO.findByLoginName(username);
-        } catch (InstanceNotFoundException e) {
-            throw new RuntimeException(e);
-        }
         return existsInScenario(getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-                user, startDate, endDate, labels, criteria, customer, state), scenario);
+                findUser(username), startDate, endDate, labels, criteria, customer, state), scenario);
     }
 
     private List<Order> existsInScenario(List<Order> orders, Scenario scenario) {
@@ -572,6 +564,151 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements IOrderDAO {
         return result;
     }
 
+    @Override
+    public List<RootTaskDatesDTO> getRootTasksDatesByReadAuthorizationByScenario(
+            String username, Scenario scenario, Collection<OrderStatusEnum> states) {
+
+        if (states.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ordersIds = getOrdersIdsByReadAuthorization(findUser(username));
+
+        return findRootTasksDates(scenario, ordersIds, null, null, states, null, 0);
+    }
+
+    @Override
+    public List<RootTaskDatesDTO> getRootTasksDatesByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
+            String username,
+            Scenario scenario,
+            Date startDate,
+            Date endDate,
+            List<Label> labels,
+            List<Criterion> criteria,
+            ExternalCompany customer,
+            OrderStatusEnum state,
+            RootTaskDatesDTO after,
+            int pageSize) {
+
+        List<Long> ordersIds = getOrdersIdsFiltered(findUser(username), labels, criteria, customer, state);
+
+        return findRootTasksDates(scenario, ordersIds, startDate, endDate, null, after, pageSize);
+    }
+
+    private User findUser(String username) {
+        try {
+            return userDAO.findByLoginName(username);
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The orders are queried by chunks, so when a page is requested the first elements of each chunk are retrieved
+     * and merged.
+     *
+     * @param ordersIds
+     *            if it is <code>null</code> all the orders of the scenario are considered
+     * @param pageSize
+     *            if it is not positive all the elements are returned
+     */
+    private List<RootTaskDatesDTO> findRootTasksDates(Scenario scenario,
+                                                      List<Long> ordersIds,
+                                                      Date startDate,
+                                                      Date endDate,
+                                                      Collection<OrderStatusEnum> states,
+                                                      RootTaskDatesDTO after,
+                                                      int pageSize) {
+
+        if (ordersIds == null) {
+            return findRootTasksDatesOfChunk(scenario, null, startDate, endDate, states, after, pageSize);
+        }
+
+        List<RootTaskDatesDTO> result = new ArrayList<>();
+        for (List<Long> chunk : ListUtils.partition(ordersIds, MAX_ORDERS_PER_QUERY)) {
+            result.addAll(findRootTasksDatesOfChunk(scenario, chunk, startDate, endDate, states, after, pageSize));
+        }
+        Collections.sort(result);
+
+        return pageSize > 0 && result.size() > pageSize ? new ArrayList<>(result.subList(0, pageSize)) : result;
+    }
+
+    /**
+     * The root task of an order in a scenario is the one of the scheduling data of the version of the order used by
+     * the scenario, so the versions are joined in the query and neither the orders nor the versions of the rest of
+     * the pages are loaded.
+     */
+    @SuppressWarnings("unchecked")
+    private List<RootTaskDatesDTO> findRootTasksDatesOfChunk(Scenario scenario,
+                                                             List<Long> ordersIds,
+                                                             Date startDate,
+                                                             Date endDate,
+                                                             Collection<OrderStatusEnum> states,
+                                                             RootTaskDatesDTO after,
+                                                             int pageSize) {
+
+        String strQuery = "SELECT new org.libreplan.business.orders.daos.RootTaskDatesDTO("
+                + "o.id, t.id, o.initDate, o.deadline, t.startDate.date, t.endDate.date) "
+                + "FROM Order o JOIN o.scenarios v JOIN o.schedulingDataForVersion s, TaskSource ts JOIN ts.task t "
+                + "WHERE index(v) = :scenario "
+                + "AND index(s) = v "
+                + "AND ts.schedulingData = s "
+                + "AND t.parent IS NULL ";
+
+        if (ordersIds != null) {
+            strQuery += "AND o.id IN (:ordersIds) ";
+        }
+
+        if (endDate != null) {
+            strQuery += "AND t.startDate.date <= :endDate ";
+        }
+
+        if (startDate != null) {
+            strQuery += "AND t.endDate.date >= :startDate ";
+        }
+
+        if (states != null) {
+            strQuery += "AND o.state IN (:states) ";
+        }
+
+        if (after != null) {
+            strQuery += "AND (t.startDate.date > :afterDate "
+                    + "OR (t.startDate.date = :afterDate AND t.id > :afterId)) ";
+        }
+
+        strQuery += "ORDER BY t.startDate.date, t.id";
+
+        Query query = getSession().createQuery(strQuery);
+        query.setParameter("scenario", scenario);
+
+        if (ordersIds != null) {
+            query.setParameterList("ordersIds", ordersIds);
+        }
+
+        if (endDate != null) {
+            query.setParameter("endDate", LocalDate.fromDateFields(endDate));
+        }
+
+        if (startDate != null) {
+            query.setParameter("startDate", LocalDate.fromDateFields(startDate));
+        }
+
+        if (states != null) {
+            query.setParameterList("states", states);
+        }
+
+        if (after != null) {
+            query.setParameter("afterDate", after.getStartDate());
+            query.setParameter("afterId", after.getTaskId());
+        }
+
+        if (pageSize > 0) {
+            query.setMaxResults(pageSize);
+        }
+
+        return query.list();
+    }
+
     @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public Order findByNameAnotherTransaction(String name) throws InstanceNotFoundException {
         return findByName(name);
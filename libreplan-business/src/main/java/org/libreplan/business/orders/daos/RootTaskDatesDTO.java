@@ -0,0 +1,86 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.orders.daos;
+
+import java.util.Date;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.orders.entities.Order;
+
+/**
+ * Dates of an {@link Order} and of its root task in a scenario, retrieved without loading its scheduling data.
+ * <p>
+ * They are ordered by the start date of the root task and its id, which is also the key used to paginate them.
+ * </p>
+ */
+public class RootTaskDatesDTO implements Comparable<RootTaskDatesDTO> {
+
+    private final Long orderId;
+
+    private final Long taskId;
+
+    private final Date initDate;
+
+    private final Date deadline;
+
+    private final LocalDate startDate;
+
+    private final LocalDate endDate;
+
+    public RootTaskDatesDTO(Long orderId, Long taskId, Date initDate, Date deadline,
+                            LocalDate startDate, LocalDate endDate) {
+        this.orderId = orderId;
+        this.taskId = taskId;
+        this.initDate = initDate;
+        this.deadline = deadline;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public Date getInitDate() {
+        return initDate;
+    }
+
+    public Date getDeadline() {
+        return deadline;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    @Override
+    public int compareTo(RootTaskDatesDTO other) {
+        int result = startDate.compareTo(other.startDate);
+        return result != 0 ? result : taskId.compareTo(other.taskId);
+    }
+
+}
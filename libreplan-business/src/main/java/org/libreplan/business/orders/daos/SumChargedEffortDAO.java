@@ -19,12 +19,16 @@
 
 package org.libreplan.business.orders.daos;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hibernate.SessionFactory;
@@ -38,8 +42,10 @@ import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.orders.entities.OrderLineGroup;
 import org.libreplan.business.orders.entities.SumChargedEffort;
 import org.libreplan.business.util.Pair;
+import org.libreplan.business.workingday.EffortAccumulator;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO.ITimesheetSummaryReceiver;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -73,6 +79,12 @@ public class SumChargedEffortDAO extends
     @Autowired
     private IOrderElementDAO orderElementDAO;
 
+    /**
+     * Maximum number of order elements in the <code>in</code> condition of a
+     * query.
+     */
+    private static final int MAX_ORDER_ELEMENTS_PER_QUERY = 500;
+
     private Map<OrderElement, SumChargedEffort> mapSumChargedEfforts;
 
     @Override
@@ -80,13 +92,16 @@ public class SumChargedEffortDAO extends
             Set<WorkReportLine> workReportLineSet) {
         resetMapSumChargedEfforts();
 
+        ChargedEffortChanges changes = new ChargedEffortChanges();
         for (WorkReportLine workReportLine : workReportLineSet) {
-            updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(workReportLine);
+            updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(
+                    changes, workReportLine);
         }
+        changes.apply();
     }
 
     private void updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(
-            final WorkReportLine workReportLine) {
+            ChargedEffortChanges changes, final WorkReportLine workReportLine) {
         boolean increase = true;
         boolean sameOrderElement = true;
         EffortDuration effort = workReportLine.getEffort();
@@ -143,36 +158,14 @@ public class SumChargedEffortDAO extends
 
             if (!effort.isZero()) {
                 if (increase) {
-                    addDirectChargedEffort(orderElement, effort);
+                    changes.add(orderElement, effort);
                 } else {
-                    substractDirectChargedEffort(orderElement, effort);
+                    changes.subtract(orderElement, effort);
                 }
             }
         } else {
-            substractDirectChargedEffort(previousOrderElement, previousEffort);
-            addDirectChargedEffort(orderElement, effort);
-        }
-    }
-
-    private void addDirectChargedEffort(OrderElement orderElement,
-            EffortDuration effort) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-        sumChargedEffort.addDirectChargedEffort(effort);
-        save(sumChargedEffort);
-
-        addInirectChargedEffortRecursively(orderElement.getParent(), effort);
-    }
-
-    private void addInirectChargedEffortRecursively(OrderElement orderElement,
-            EffortDuration effort) {
-        if (orderElement != null) {
-            SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-            sumChargedEffort.addIndirectChargedEffort(effort);
-            save(sumChargedEffort);
-
-            addInirectChargedEffortRecursively(orderElement.getParent(), effort);
+            changes.subtract(previousOrderElement, previousEffort);
+            changes.add(orderElement, effort);
         }
     }
 
@@ -181,9 +174,12 @@ public class SumChargedEffortDAO extends
             Set<WorkReportLine> workReportLineSet) {
         resetMapSumChargedEfforts();
 
+        ChargedEffortChanges changes = new ChargedEffortChanges();
         for (WorkReportLine workReportLine : workReportLineSet) {
-            updateRelatedSumChargedEffortWithDeletedWorkReportLine(workReportLine);
+            updateRelatedSumChargedEffortWithDeletedWorkReportLine(changes,
+                    workReportLine);
         }
+        changes.apply();
     }
 
     private void resetMapSumChargedEfforts() {
@@ -191,7 +187,7 @@ public class SumChargedEffortDAO extends
     }
 
     private void updateRelatedSumChargedEffortWithDeletedWorkReportLine(
-            WorkReportLine workReportLine) {
+            ChargedEffortChanges changes, WorkReportLine workReportLine) {
         if (workReportLine.isNewObject()) {
             // If the line hasn't been saved, we have nothing to update
             return;
@@ -201,31 +197,84 @@ public class SumChargedEffortDAO extends
         // useful for the following operations
         sessionFactory.getCurrentSession().refresh(workReportLine);
 
-        substractDirectChargedEffort(workReportLine.getOrderElement(),
+        changes.subtract(workReportLine.getOrderElement(),
                 workReportLine.getEffort());
     }
 
-    private void substractDirectChargedEffort(OrderElement orderElement,
-            EffortDuration effort) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
+    /**
+     * Accumulates the changes of charged effort caused by several
+     * {@link WorkReportLine WorkReportLines}, so each {@link SumChargedEffort}
+     * of the affected {@link OrderElement OrderElements} and their ancestors is
+     * only updated and saved once.
+     */
+    private class ChargedEffortChanges {
 
-        sumChargedEffort.subtractDirectChargedEffort(effort);
-        save(sumChargedEffort);
+        private final Map<Long, OrderElement> orderElements = new LinkedHashMap<Long, OrderElement>();
 
-        substractInirectChargedEffortRecursively(orderElement.getParent(),
-                effort);
-    }
+        private final Map<Long, Integer> directSeconds = new HashMap<Long, Integer>();
 
-    private void substractInirectChargedEffortRecursively(OrderElement orderElement,
-            EffortDuration effort) {
-        if (orderElement != null) {
-            SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
+        private final Map<Long, Integer> indirectSeconds = new HashMap<Long, Integer>();
 
-            sumChargedEffort.subtractIndirectChargedEffort(effort);
-            save(sumChargedEffort);
+        void add(OrderElement orderElement, EffortDuration effort) {
+            change(orderElement, effort.getSeconds());
+        }
 
-            substractInirectChargedEffortRecursively(orderElement.getParent(), effort);
+        void subtract(OrderElement orderElement, EffortDuration effort) {
+            change(orderElement, -effort.getSeconds());
         }
+
+        private void change(OrderElement orderElement, int seconds) {
+            addTo(directSeconds, orderElement, seconds);
+            for (OrderElement parent = orderElement.getParent(); parent != null; parent = parent
+                    .getParent()) {
+                addTo(indirectSeconds, parent, seconds);
+            }
+        }
+
+        private void addTo(Map<Long, Integer> seconds,
+                OrderElement orderElement, int value) {
+            Long id = orderElement.getId();
+            if (!orderElements.containsKey(id)) {
+                orderElements.put(id, orderElement);
+            }
+            Integer previous = seconds.get(id);
+            seconds.put(id, previous == null ? value : previous + value);
+        }
+
+        void apply() {
+            for (Entry<Long, OrderElement> each : orderElements.entrySet()) {
+                int direct = secondsOf(directSeconds, each.getKey());
+                int indirect = secondsOf(indirectSeconds, each.getKey());
+                if (direct == 0 && indirect == 0) {
+                    continue;
+                }
+
+                SumChargedEffort sumChargedEffort = getByOrderElement(each
+                        .getValue());
+                if (direct > 0) {
+                    sumChargedEffort.addDirectChargedEffort(EffortDuration
+                            .seconds(direct));
+                } else if (direct < 0) {
+                    sumChargedEffort.subtractDirectChargedEffort(EffortDuration
+                            .seconds(-direct));
+                }
+                if (indirect > 0) {
+                    sumChargedEffort.addIndirectChargedEffort(EffortDuration
+                            .seconds(indirect));
+                } else if (indirect < 0) {
+                    sumChargedEffort
+                            .subtractIndirectChargedEffort(EffortDuration
+                                    .seconds(-indirect));
+                }
+                save(sumChargedEffort);
+            }
+        }
+
+        private int secondsOf(Map<Long, Integer> seconds, Long id) {
+            Integer result = seconds.get(id);
+            return result == null ? 0 : result;
+        }
+
     }
 
     private SumChargedEffort getByOrderElement(OrderElement orderElement) {
@@ -254,68 +303,123 @@ public class SumChargedEffortDAO extends
         try {
             Order order = orderDAO.find(orderId);
             resetMapSumChargedEfforts();
-            resetSumChargedEffort(order);
-            calculateDirectChargedEffort(order);
-            calculateTimesheetData(order);
+
+            List<OrderElement> orderElements = new ArrayList<OrderElement>();
+            orderElements.add(order);
+            orderElements.addAll(order.getAllChildren());
+
+            Map<Long, OrderElement> byId = new HashMap<Long, OrderElement>();
+            for (OrderElement each : orderElements) {
+                byId.put(each.getId(), each);
+            }
+            loadSumChargedEfforts(byId);
+
+            final Map<Long, TimesheetSummary> summaries = new HashMap<Long, TimesheetSummary>();
+            workReportLineDAO.forEachTimesheetSummaryOf(byId.keySet(),
+                    new ITimesheetSummaryReceiver() {
+                        @Override
+                        public void receive(Long orderElementId,
+                                EffortDuration effort, Date firstDate,
+                                Date lastDate, boolean finished) {
+                            summaries.put(orderElementId, new TimesheetSummary(
+                                    effort, firstDate, lastDate, finished));
+                        }
+                    });
+
+            rollUp(order, summaries);
         } catch (InstanceNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void resetSumChargedEffort(OrderElement orderElement) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.reset();
-
-        for (OrderElement each : orderElement.getChildren()) {
-            resetSumChargedEffort(each);
+    /**
+     * Loads the existing {@link SumChargedEffort} of the given
+     * {@link OrderElement OrderElements}, so they are not searched one by one.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadSumChargedEfforts(Map<Long, OrderElement> byId) {
+        List<Long> ids = new ArrayList<Long>(byId.keySet());
+        for (int i = 0; i < ids.size(); i += MAX_ORDER_ELEMENTS_PER_QUERY) {
+            List<Long> chunk = ids.subList(i,
+                    Math.min(i + MAX_ORDER_ELEMENTS_PER_QUERY, ids.size()));
+            List<SumChargedEffort> found = getSession()
+                    .createQuery(
+                            "FROM SumChargedEffort s "
+                                    + "WHERE s.orderElement.id IN (:ids)")
+                    .setParameterList("ids", chunk).list();
+            for (SumChargedEffort each : found) {
+                mapSumChargedEfforts.put(
+                        byId.get(each.getOrderElement().getId()), each);
+            }
         }
     }
 
-    private void calculateDirectChargedEffort(OrderElement orderElement) {
-        for (OrderElement each : orderElement.getChildren()) {
-            calculateDirectChargedEffort(each);
+    /**
+     * Recalculates the {@link SumChargedEffort} of the
+     * <code>orderElement</code> and its children from the summaries of their
+     * own {@link WorkReportLine WorkReportLines}, children first. Returns the
+     * summary of the whole subtree.
+     */
+    private TimesheetSummary rollUp(OrderElement orderElement,
+            Map<Long, TimesheetSummary> summaries) {
+        TimesheetSummary own = summaries.get(orderElement.getId());
+
+        EffortAccumulator indirect = EffortAccumulator.create();
+        Date first = own != null ? own.firstDate : null;
+        Date last = own != null ? own.lastDate : null;
+        for (OrderElement child : orderElement.getChildren()) {
+            TimesheetSummary childSummary = rollUp(child, summaries);
+            indirect.add(childSummary.effort);
+            first = min(first, childSummary.firstDate);
+            last = max(last, childSummary.lastDate);
         }
 
-        EffortDuration effort = EffortDuration.zero();
-        for (WorkReportLine line : workReportLineDAO
-                .findByOrderElement(orderElement)) {
-            effort = effort.plus(line.getEffort());
+        EffortDuration direct = own != null ? own.effort : EffortDuration
+                .zero();
+        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
+        sumChargedEffort.reset();
+        sumChargedEffort.addDirectChargedEffort(direct);
+        sumChargedEffort.addIndirectChargedEffort(indirect.toEffortDuration());
+        sumChargedEffort.setTimesheetDates(first, last);
+        sumChargedEffort.setFinishedTimesheets(own != null && own.finished);
+        save(sumChargedEffort);
+
+        return new TimesheetSummary(direct.plus(indirect.toEffortDuration()),
+                first, last, false);
+    }
+
+    private static Date min(Date a, Date b) {
+        if (a == null) {
+            return b;
         }
-        addDirectChargedEffort(orderElement, effort);
+        return b == null || a.compareTo(b) <= 0 ? a : b;
     }
 
-    private void calculateTimesheetData(OrderElement orderElement) {
-        calculateTimesheetDatesAndChildren(orderElement);
-        calculateFinishedTimesheetsAndChildren(orderElement);
+    private static Date max(Date a, Date b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) >= 0 ? a : b;
     }
 
-    private Pair<Date, Date> calculateTimesheetDatesAndChildren(
-            OrderElement orderElement) {
-        Pair<Date, Date> minMax = workReportLineDAO
-                .findMinAndMaxDatesByOrderElement(orderElement);
+    private static class TimesheetSummary {
 
-        Set<Date> minDates = new HashSet<Date>();
-        Set<Date> maxDates = new HashSet<Date>();
+        private final EffortDuration effort;
 
-        addIfNotNull(minDates, minMax.getFirst());
-        addIfNotNull(maxDates, minMax.getSecond());
+        private final Date firstDate;
 
-        for (OrderElement child : orderElement.getChildren()) {
-            Pair<Date, Date> minMaxChild = calculateTimesheetDatesAndChildren(child);
-            addIfNotNull(minDates, minMaxChild.getFirst());
-            addIfNotNull(maxDates, minMaxChild.getSecond());
-        }
+        private final Date lastDate;
 
-        Pair<Date, Date> result = Pair.create(
-                minDates.isEmpty() ? null : Collections.min(minDates),
-                maxDates.isEmpty() ? null : Collections.max(maxDates));
+        private final boolean finished;
 
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.setTimesheetDates(result.getFirst(),
-                result.getSecond());
-        save(sumChargedEffort);
+        TimesheetSummary(EffortDuration effort, Date firstDate,
+                Date lastDate, boolean finished) {
+            this.effort = effort;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+            this.finished = finished;
+        }
 
-        return result;
     }
 
     private void addIfNotNull(Collection<Date> list, Date date) {
@@ -324,15 +428,6 @@ public class SumChargedEffortDAO extends
         }
     }
 
-    private void calculateFinishedTimesheetsAndChildren(
-            OrderElement orderElement) {
-        calculateFinishedTimesheets(orderElement);
-
-        for (OrderElement child : orderElement.getChildren()) {
-            calculateFinishedTimesheetsAndChildren(child);
-        }
-    }
-
     private void calculateFinishedTimesheets(OrderElement orderElement) {
         SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
         sumChargedEffort.setFinishedTimesheets(workReportLineDAO
@@ -109,6 +109,22 @@ public class ContiguousDaysLine<T> implements Iterable<OnDay<T>> {
         return result;
     }
 
+    /**
+     * Creates a line starting at <code>fromInclusive</code> with as many days
+     * as <code>seconds</code>. The effort of each day is the seconds at the
+     * same position.
+     */
+    public static ContiguousDaysLine<EffortDuration> fromSeconds(
+            LocalDate fromInclusive, int[] seconds) {
+        Validate.notNull(fromInclusive);
+        ContiguousDaysLine<EffortDuration> result = new ContiguousDaysLine<EffortDuration>(
+                fromInclusive, 0);
+        for (int each : seconds) {
+            result.values.add(EffortDuration.seconds(each));
+        }
+        return result;
+    }
+
     public static <T> ContiguousDaysLine<T> invalid() {
         return new ContiguousDaysLine<T>(null, 0);
     }
@@ -154,12 +170,11 @@ public class ContiguousDaysLine<T> implements Iterable<OnDay<T>> {
             @Override
             public EffortDuration transform(LocalDate day,
                     EffortDuration[] previousValue) {
-                EffortDuration result = previousValue[0];
+                int result = previousValue[0].getSeconds();
                 for (int i = 1; i < previousValue.length; i++) {
-                    result = result.minus(EffortDuration.min(previousValue[i],
-                            result));
+                    result = Math.max(0, result - previousValue[i].getSeconds());
                 }
-                return result;
+                return EffortDuration.seconds(result);
             }
         };
     }
@@ -21,27 +21,30 @@
 
 package org.libreplan.business.planner.chart;
 
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.compound;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.sum;
-import static org.libreplan.business.planner.chart.ContiguousDaysLine.toSortedMap;
-import static org.libreplan.business.workingday.EffortDuration.min;
+import static org.libreplan.business.workingday.EpochDays.epochDay;
+import static org.libreplan.business.workingday.EpochDays.fromEpochDay;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.ICalendar;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
-import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 
 /**
@@ -49,191 +52,304 @@ import org.libreplan.business.workingday.IntraDayDate.PartialDay;
  * The purpose of the class is having these data pre-calculated to prevent heavy algorithms being
  * run each time the chart is shown.
  *
+ * The values are stored by columns, one array of seconds per value where the position <code>i</code> corresponds
+ * to the day <code>start + i</code>. The {@link SortedMap} needed by the chart are built from them when requested,
+ * covering only the requested interval.
+ *
  * @see PredefinedDatabaseSnapshots
  *
  * @author Jacobo Aragunde Pérez<jaragunde@igalia.com>
  */
 public class ResourceLoadChartData implements ILoadChartData {
 
-    private SortedMap<LocalDate, EffortDuration> load;
+    private static final Log LOG = LogFactory.getLog(ResourceLoadChartData.class);
 
-    private SortedMap<LocalDate, EffortDuration> overload;
+    private static final int[] NO_SECONDS = new int[0];
 
-    private SortedMap<LocalDate, EffortDuration> availability;
+    /**
+     * Accumulates in a single pass the effort assigned to each resource on each day. The {@link DayAssignment} don't
+     * need to be kept in memory, so it can be fed directly from the rows of a projection query.
+     */
+    public static class Builder {
 
-    public ResourceLoadChartData(List<DayAssignment> dayAssignments, List<Resource> resources) {
-        this(dayAssignments, resources, null, null);
-    }
+        private final List<Resource> resources;
 
-    public ResourceLoadChartData(List<DayAssignment> dayAssignments,
-                                 List<Resource> resources,
-                                 LocalDate startInclusive,
-                                 LocalDate endExclusive) {
+        private final Map<Long, Resource> resourcesById = new HashMap<>();
 
-        ContiguousDaysLine<List<DayAssignment>> assignments = ContiguousDaysLine.byDay(dayAssignments);
+        private final Map<Resource, SecondsByDay> assignedByResource = new HashMap<>();
 
-        if (startInclusive != null && endExclusive != null) {
-            assignments = assignments.subInterval(startInclusive, endExclusive);
+        public Builder(List<Resource> resources) {
+            Validate.notNull(resources);
+            this.resources = resources;
+            for (Resource each : resources) {
+                if (each.getId() != null) {
+                    resourcesById.put(each.getId(), each);
+                }
+            }
         }
 
-        ContiguousDaysLine<EffortDuration> load = assignments.transform(extractLoad());
+        public Builder add(Collection<? extends DayAssignment> dayAssignments) {
+            for (DayAssignment each : dayAssignments) {
+                add(each.getResource(), each.getDay(), each.getDuration().getSeconds());
+            }
+            return this;
+        }
 
-        ContiguousDaysLine<EffortDuration> overload = assignments.transform(extractOverload());
+        public Builder add(Long resourceId, LocalDate day, int seconds) {
+            Resource resource = resourcesById.get(resourceId);
+            if (resource == null) {
+                LOG.warn("skipping the effort assigned on " + day + " to the unknown resource with id " + resourceId);
+                return this;
+            }
 
-        ContiguousDaysLine<EffortDuration> availabilityOnAllResources =
-                assignments.transform(extractAvailabilityOnAllResources(resources));
+            return add(resource, day, seconds);
+        }
 
-        this.load = toSortedMap(ContiguousDaysLine.min(load, availabilityOnAllResources));
-        this.overload = toSortedMap(sum(overload, availabilityOnAllResources));
-        this.availability = toSortedMap(availabilityOnAllResources);
-    }
+        public Builder add(Resource resource, LocalDate day, int seconds) {
+            SecondsByDay assigned = assignedByResource.get(resource);
+            if (assigned == null) {
+                assigned = new SecondsByDay();
+                assignedByResource.put(resource, assigned);
+            }
+            assigned.add(epochDay(day), seconds);
+            return this;
+        }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractOverload() {
-        return compound(effortByResource(), calculateOverload());
-    }
+        public ResourceLoadChartData build() {
+            return build(null, null);
+        }
 
-    private static IValueTransformer<List<DayAssignment>, Map<Resource, EffortDuration>> effortByResource() {
-        return new IValueTransformer<List<DayAssignment>, Map<Resource, EffortDuration>>() {
+        /**
+         * The interval only applies if both limits are provided, otherwise the data cover from the first to the last
+         * day with some effort assigned.
+         */
+        public ResourceLoadChartData build(LocalDate startInclusive, LocalDate endExclusive) {
+            int first = Integer.MAX_VALUE;
+            int end = Integer.MIN_VALUE;
+            for (SecondsByDay each : assignedByResource.values()) {
+                first = Math.min(first, each.getFirst());
+                end = Math.max(end, each.getEndExclusive());
+            }
 
-            @Override
-            public Map<Resource, EffortDuration> transform(LocalDate day, List<DayAssignment> previousValue) {
-                Map<Resource, List<DayAssignment>> byResource = DayAssignment.byResource(previousValue);
-                Map<Resource, EffortDuration> result = new HashMap<>();
-                for (Entry<Resource, List<DayAssignment>> each : byResource.entrySet()) {
-                    result.put(each.getKey(), DayAssignment.sum(each.getValue()));
+            if (startInclusive != null && endExclusive != null) {
+                first = Math.max(first, epochDay(startInclusive));
+                end = Math.min(end, epochDay(endExclusive));
+            }
+
+            if (first >= end) {
+                return new ResourceLoadChartData(null, NO_SECONDS, NO_SECONDS, NO_SECONDS);
+            }
+
+            int size = end - first;
+            int[] assigned = new int[size];
+            int[] overAssigned = new int[size];
+            int[] availability = new int[size];
+
+            Set<Resource> pending = new HashSet<>(assignedByResource.keySet());
+            for (Resource each : resources) {
+                int[] capacities = capacitiesOf(each, first, end);
+                for (int i = 0; i < size; i++) {
+                    availability[i] += capacities[i];
+                }
+                if (pending.remove(each)) {
+                    accumulate(assignedByResource.get(each), capacities, first, assigned, overAssigned);
                 }
-                return result;
             }
-        };
-    }
+            for (Resource each : pending) {
+                accumulate(assignedByResource.get(each), capacitiesOf(each, first, end), first, assigned,
+                        overAssigned);
+            }
 
-    public static IValueTransformer<Map<Resource, EffortDuration>, EffortDuration> calculateOverload() {
-        return new IValueTransformer<Map<Resource, EffortDuration>, EffortDuration>() {
-            @Override
-            public EffortDuration transform(LocalDate day, Map<Resource, EffortDuration> previousValue) {
+            int[] load = new int[size];
+            int[] overload = new int[size];
+            for (int i = 0; i < size; i++) {
+                load[i] = Math.min(assigned[i], availability[i]);
+                overload[i] = overAssigned[i] + availability[i];
+            }
 
-                final PartialDay wholeDay = PartialDay.wholeDay(day);
+            return new ResourceLoadChartData(fromEpochDay(first), load, overload, availability);
+        }
 
-                return EffortDuration.sum(previousValue.entrySet(), new IEffortFrom<Entry<Resource, EffortDuration>>() {
-                    @Override
-                    public EffortDuration from(Entry<Resource, EffortDuration> each) {
-                        EffortDuration capacity = calendarCapacityFor(each.getKey(), wholeDay);
-                        EffortDuration assigned = each.getValue();
+        private static void accumulate(SecondsByDay assignedToResource, int[] capacities, int first,
+                                       int[] assigned, int[] overAssigned) {
 
-                        return assigned.minus(min(capacity, assigned));
-                    }
-                });
+            int from = Math.max(first, assignedToResource.getFirst());
+            int to = Math.min(first + capacities.length, assignedToResource.getEndExclusive());
+            for (int day = from; day < to; day++) {
+                int seconds = assignedToResource.get(day);
+                int i = day - first;
+                assigned[i] += seconds;
+                overAssigned[i] += Math.max(seconds - capacities[i], 0);
             }
-        };
+        }
+
+        private static int[] capacitiesOf(Resource resource, int first, int endExclusive) {
+            return ResourceLoadChartData.capacitiesOf(resource, fromEpochDay(first), fromEpochDay(endExclusive));
+        }
     }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractLoad() {
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+    /**
+     * @return the seconds of capacity of the resource on each day of the interval, the position <code>i</code>
+     *         corresponding to the day <code>startInclusive + i</code>
+     */
+    public static int[] capacitiesOf(Resource resource, LocalDate startInclusive, LocalDate endExclusive) {
+        ICalendar calendar = resource.getCalendarOrDefault();
+        if (calendar instanceof BaseCalendar) {
+            return ((BaseCalendar) calendar).getCapacitiesOn(startInclusive, endExclusive);
+        }
 
-            @Override
-            public EffortDuration transform(LocalDate day, List<DayAssignment> previousValue) {
-                return DayAssignment.sum(previousValue);
-            }
-        };
+        int[] result = new int[Days.daysBetween(startInclusive, endExclusive).getDays()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = calendar.getCapacityOn(PartialDay.wholeDay(startInclusive.plusDays(i))).getSeconds();
+        }
+        return result;
     }
 
-    public static IValueTransformer<List<DayAssignment>, EffortDuration> extractAvailabilityOnAssignedResources() {
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+    /**
+     * Seconds for the days of an interval that grows as needed to include the days added to it.
+     */
+    private static class SecondsByDay {
 
-            @Override
-            public EffortDuration transform(LocalDate day, List<DayAssignment> previousValue) {
-                Set<Resource> resources = getResources(previousValue);
+        private int first;
+
+        private int end;
+
+        private int base;
+
+        private int[] values;
 
-                return sumCalendarCapacitiesForDay(resources, day);
+        void add(int day, int seconds) {
+            if (values == null) {
+                first = day;
+                end = day + 1;
+                base = day;
+                values = new int[1];
+            } else if (day < first || day >= end) {
+                growTo(Math.min(first, day), Math.max(end, day + 1));
             }
+            values[day - base] += seconds;
+        }
 
-            private Set<Resource> getResources(List<DayAssignment> assignments) {
-                Set<Resource> resources = new HashSet<>();
-                for (DayAssignment dayAssignment : assignments) {
-                    resources.add(dayAssignment.getResource());
-                }
-                return resources;
+        private void growTo(int newFirst, int newEnd) {
+            if (newFirst >= base && newEnd - base <= values.length) {
+                first = newFirst;
+                end = newEnd;
+                return;
             }
-        };
+            int capacity = Math.max(values.length * 2, newEnd - newFirst);
+            int newBase = newFirst - (capacity - (newEnd - newFirst)) / 2;
+            int[] newValues = new int[capacity];
+            System.arraycopy(values, first - base, newValues, first - newBase, end - first);
+
+            first = newFirst;
+            end = newEnd;
+            base = newBase;
+            values = newValues;
+        }
+
+        int get(int day) {
+            return day < first || day >= end ? 0 : values[day - base];
+        }
+
+        int getFirst() {
+            return first;
+        }
+
+        int getEndExclusive() {
+            return end;
+        }
     }
 
-    private IValueTransformer<List<DayAssignment>, EffortDuration> extractAvailabilityOnAllResources(
-            final List<Resource> resources) {
+    /**
+     * First day of the columns. It's <code>null</code> if there is no day.
+     */
+    private final LocalDate start;
 
-        return new IValueTransformer<List<DayAssignment>, EffortDuration>() {
+    private final int[] load;
 
-            @Override
-            public EffortDuration transform(LocalDate day, List<DayAssignment> previousValue) {
-                return sumCalendarCapacitiesForDay(resources, day);
-            }
-        };
+    private final int[] overload;
+
+    private final int[] availability;
+
+    public ResourceLoadChartData(List<DayAssignment> dayAssignments, List<Resource> resources) {
+        this(dayAssignments, resources, null, null);
+    }
+
+    public ResourceLoadChartData(List<DayAssignment> dayAssignments,
+                                 List<Resource> resources,
+                                 LocalDate startInclusive,
+                                 LocalDate endExclusive) {
+
+        this(new Builder(resources).add(dayAssignments).build(startInclusive, endExclusive));
+    }
+
+    private ResourceLoadChartData(ResourceLoadChartData data) {
+        this(data.start, data.load, data.overload, data.availability);
+    }
+
+    private ResourceLoadChartData(LocalDate start, int[] load, int[] overload, int[] availability) {
+        this.start = start;
+        this.load = load;
+        this.overload = overload;
+        this.availability = availability;
+    }
+
+    /**
+     * @return the values of the columns from the position <code>from</code> to <code>to</code>, exclusive
+     */
+    private SortedMap<LocalDate, EffortDuration> toSortedMap(int[] seconds, int from, int to) {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<>();
+        for (int i = from; i < to; i++) {
+            result.put(start.plusDays(i), EffortDuration.seconds(seconds[i]));
+        }
+        return Collections.unmodifiableSortedMap(result);
     }
 
     public SortedMap<LocalDate, EffortDuration> getLoad() {
-        return load;
+        return toSortedMap(load, 0, load.length);
     }
 
     public SortedMap<LocalDate, EffortDuration> getOverload() {
-        return overload;
+        return toSortedMap(overload, 0, overload.length);
     }
 
     public SortedMap<LocalDate, EffortDuration> getAvailability() {
-        return availability;
+        return toSortedMap(availability, 0, availability.length);
     }
 
     public ILoadChartData on(final LocalDate startInclusive, final LocalDate endExclusive) {
 
-        final ResourceLoadChartData original = ResourceLoadChartData.this;
-
         if (startInclusive == null && endExclusive == null) {
-            return original;
+            return this;
         }
 
+        final int from = startInclusive == null || start == null ? 0 : Math.max(0, daysFromStart(startInclusive));
+
+        final int to = endExclusive == null || start == null
+                ? load.length
+                : Math.max(from, Math.min(load.length, daysFromStart(endExclusive)));
+
         return new ILoadChartData() {
 
             @Override
             public SortedMap<LocalDate, EffortDuration> getOverload() {
-                return filter(original.getOverload());
+                return toSortedMap(overload, from, to);
             }
 
             @Override
             public SortedMap<LocalDate, EffortDuration> getLoad() {
-                return filter(original.getLoad());
+                return toSortedMap(load, from, to);
             }
 
             @Override
             public SortedMap<LocalDate, EffortDuration> getAvailability() {
-                return filter(original.getAvailability());
-            }
-
-            private SortedMap<LocalDate, EffortDuration> filter(SortedMap<LocalDate, EffortDuration> map) {
-                if (startInclusive != null) {
-                    return map.tailMap(startInclusive);
-                }
-
-                if (endExclusive != null) {
-                    return map.headMap(endExclusive);
-                }
-
-                return map.subMap(startInclusive, endExclusive);
+                return toSortedMap(availability, from, to);
             }
         };
     }
 
-    private static EffortDuration sumCalendarCapacitiesForDay(Collection<? extends Resource> resources, LocalDate day) {
-
-        final PartialDay wholeDay = PartialDay.wholeDay(day);
-
-        return EffortDuration.sum(resources, new IEffortFrom<Resource>() {
-            @Override
-            public EffortDuration from(Resource each) {
-                return calendarCapacityFor(each, wholeDay);
-            }
-        });
-    }
-
-    protected static EffortDuration calendarCapacityFor(Resource resource, PartialDay day) {
-        return resource.getCalendarOrDefault().getCapacityOn(day);
+    private int daysFromStart(LocalDate day) {
+        return epochDay(day) - epochDay(start);
     }
 
 }
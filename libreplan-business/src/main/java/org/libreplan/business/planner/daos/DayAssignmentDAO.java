@@ -24,10 +24,14 @@ package org.libreplan.business.planner.daos;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.GenericDAOHibernate;
@@ -37,6 +41,7 @@ import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Repository;
@@ -54,6 +59,11 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long> i
 
     private final String SCENARIO = "scenario";
 
+    /**
+     * Maximum number of resources in the <code>in</code> condition of a query.
+     */
+    private static final int MAX_RESOURCES_PER_QUERY = 500;
+
     @Override
     public void removeDerived(Collection<? extends DerivedDayAssignment> assignments) {
         for (DerivedDayAssignment each : assignments) {
@@ -161,6 +171,98 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long> i
         return query.list();
     }
 
+    @Override
+    public void forEachRowOf(Scenario scenario, IDayAssignmentRowReceiver receiver) {
+        forEachRowOf("SpecificDayAssignmentsContainer", scenario, receiver);
+        forEachRowOf("GenericDayAssignmentsContainer", scenario, receiver);
+        forEachRowOf("DerivedDayAssignmentsContainer", scenario, receiver);
+    }
+
+    private void forEachRowOf(String containerEntity, Scenario scenario, IDayAssignmentRowReceiver receiver) {
+        String queryString = "select d.resource.id, d.day, d.duration, d.consolidated from " + containerEntity +
+                " c JOIN c.dayAssignments d where c.scenario = :scenario";
+
+        ScrollableResults rows = getSession()
+                .createQuery(queryString)
+                .setParameter(SCENARIO, scenario)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (rows.next()) {
+                EffortDuration duration = (EffortDuration) rows.get(2);
+                Boolean consolidated = (Boolean) rows.get(3);
+                receiver.receive(
+                        (Long) rows.get(0),
+                        (LocalDate) rows.get(1),
+                        duration.getSeconds(),
+                        consolidated != null && consolidated);
+            }
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Override
+    public Map<Long, Map<LocalDate, EffortDuration>> getEffortPerResourceAndDay(
+            Scenario scenario, LocalDate startInclusive, LocalDate endInclusive,
+            Collection<? extends Resource> resources) {
+
+        List<Long> resourceIds = new ArrayList<>();
+        for (Resource each : resources) {
+            if (each.getId() != null) {
+                resourceIds.add(each.getId());
+            }
+        }
+
+        Map<Long, Map<LocalDate, EffortDuration>> result = new HashMap<>();
+        for (int i = 0; i < resourceIds.size(); i += MAX_RESOURCES_PER_QUERY) {
+            List<Long> chunk = resourceIds.subList(i, Math.min(i + MAX_RESOURCES_PER_QUERY, resourceIds.size()));
+            addEffortPerResourceAndDay(result, "SpecificDayAssignmentsContainer", scenario, startInclusive,
+                    endInclusive, chunk);
+            addEffortPerResourceAndDay(result, "GenericDayAssignmentsContainer", scenario, startInclusive,
+                    endInclusive, chunk);
+            addEffortPerResourceAndDay(result, "DerivedDayAssignmentsContainer", scenario, startInclusive,
+                    endInclusive, chunk);
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addEffortPerResourceAndDay(Map<Long, Map<LocalDate, EffortDuration>> result,
+                                            String containerEntity,
+                                            Scenario scenario,
+                                            LocalDate startInclusive,
+                                            LocalDate endInclusive,
+                                            List<Long> resourceIds) {
+
+        String queryString = "select d.resource.id, d.day, sum(d.duration) from " + containerEntity +
+                " c JOIN c.dayAssignments d where c.scenario = :scenario" +
+                addQueryConditionForInitAndEndDate(startInclusive, endInclusive) +
+                " and d.resource.id in (:resourceIds) group by d.resource.id, d.day";
+
+        Query query = getSession()
+                .createQuery(queryString)
+                .setParameter(SCENARIO, scenario)
+                .setParameterList("resourceIds", resourceIds);
+        addInitAndEndParameters(query, startInclusive, endInclusive);
+
+        for (Object[] row : (List<Object[]>) query.list()) {
+            Long resourceId = (Long) row[0];
+            LocalDate day = (LocalDate) row[1];
+            // The sum of the durations is a number of seconds, not a duration
+            EffortDuration effort = EffortDuration.seconds(((Number) row[2]).intValue());
+
+            Map<LocalDate, EffortDuration> effortPerDay = result.get(resourceId);
+            if (effortPerDay == null) {
+                effortPerDay = new HashMap<>();
+                result.put(resourceId, effortPerDay);
+            }
+            EffortDuration previous = effortPerDay.get(day);
+            effortPerDay.put(day, previous == null ? effort : previous.plus(effort));
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public List<DayAssignment> listFilteredByDate(LocalDate init, LocalDate end) {
@@ -23,6 +23,7 @@ package org.libreplan.business.planner.daos;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IGenericDAO;
@@ -30,6 +31,7 @@ import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.DerivedDayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
 
 /**
  * DAO interface for {@link DayAssignment}
@@ -40,6 +42,13 @@ import org.libreplan.business.scenarios.entities.Scenario;
  */
 public interface IDayAssignmentDAO extends IGenericDAO<DayAssignment, Long> {
 
+    /**
+     * Receives the values of a {@link DayAssignment} without the entity being loaded.
+     */
+    public interface IDayAssignmentRowReceiver {
+        public void receive(Long resourceId, LocalDate day, int seconds, boolean consolidated);
+    }
+
     public void removeDerived(
             Collection<? extends DerivedDayAssignment> derivedAllocations);
 
@@ -52,6 +61,21 @@ public interface IDayAssignmentDAO extends IGenericDAO<DayAssignment, Long> {
             LocalDate startDateInclusive, LocalDate endDateInclusive,
             Resource resource);
 
+    /**
+     * Sends the resource, day and effort of all the {@link DayAssignment} of the scenario to the receiver, one by
+     * one as they are read from the database.
+     */
+    public void forEachRowOf(Scenario scenario, IDayAssignmentRowReceiver receiver);
+
+    /**
+     * Returns the effort assigned to each of the resources on each day between the dates in the scenario, indexed by
+     * the id of the resource. The efforts are summed up by the database, so the {@link DayAssignment} are not loaded.
+     * Days without effort are not included.
+     */
+    public Map<Long, Map<LocalDate, EffortDuration>> getEffortPerResourceAndDay(
+            Scenario scenario, LocalDate startInclusive, LocalDate endInclusive,
+            Collection<? extends Resource> resources);
+
     List<DayAssignment> listFilteredByDate(LocalDate init, LocalDate end);
 
     public List<DayAssignment> findByResources(Scenario scenario, List<Resource> resources);
@@ -21,10 +21,14 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.libreplan.business.common.daos.IGenericDAO;
+import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.entities.TaskGroup;
 
@@ -44,4 +48,33 @@ public interface ITaskElementDAO extends IGenericDAO<TaskElement, Long> {
 
     List<TaskElement> getTaskElementsWithParentsWithoutMilestones();
 
+    List<TaskElement> findByIds(Collection<Long> ids);
+
+    /**
+     * Returns the ids of the tasks owning the resource allocations of the
+     * given specific and generic day assignments containers.
+     */
+    Set<Long> findTaskIdsByDayAssignmentsContainers(
+            Collection<Long> specificContainersIds,
+            Collection<Long> genericContainersIds);
+
+    /**
+     * Returns the ids of the tasks of the given order elements and of their
+     * ancestors, as the tasks of the ancestors depend on their descendants.
+     */
+    Set<Long> findTaskIdsByOrderElements(Collection<Long> orderElementsIds);
+
+    /**
+     * Returns the ids of the {@link Task Tasks} grouped by the root
+     * {@link TaskGroup} they belong to, so there is a group for each order.
+     * The tasks are not loaded.
+     */
+    Map<Long, List<Long>> findTaskIdsPerRootTask();
+
+    /**
+     * Returns the {@link Task Tasks} with the given ids with their resource
+     * allocations already initialized.
+     */
+    List<Task> findTasksWithResourceAllocations(Collection<Long> ids);
+
 }
@@ -21,9 +21,17 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.collections4.ListUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.Query;
@@ -31,6 +39,7 @@ import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.GenericDAOHibernate;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.entities.TaskGroup;
 import org.libreplan.business.workingday.EffortDuration;
@@ -48,6 +57,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Scope(BeanDefinition.SCOPE_SINGLETON)
 public class TaskElementDAO extends GenericDAOHibernate<TaskElement, Long> implements ITaskElementDAO {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     @SuppressWarnings("unchecked")
     @Override
     public List<TaskElement> findChildrenOf(TaskGroup each) {
@@ -155,4 +166,123 @@ public class TaskElementDAO extends GenericDAOHibernate<TaskElement, Long> imple
         return query.list();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TaskElement> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<TaskElement> result = new ArrayList<>();
+        for (List<Long> each : ListUtils.partition(new ArrayList<>(ids), MAX_IDS_PER_QUERY)) {
+            result.addAll(getSession()
+                    .createQuery("FROM TaskElement WHERE id IN (:ids)")
+                    .setParameterList("ids", each).list());
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Long> findTaskIdsByDayAssignmentsContainers(
+            Collection<Long> specificContainersIds,
+            Collection<Long> genericContainersIds) {
+        Set<Long> result = new HashSet<>();
+        result.addAll(findIds(
+                "SELECT c.resourceAllocation.task.id "
+                        + "FROM SpecificDayAssignmentsContainer c "
+                        + "WHERE c.id IN (:ids)", specificContainersIds));
+        result.addAll(findIds(
+                "SELECT c.resourceAllocation.task.id "
+                        + "FROM GenericDayAssignmentsContainer c "
+                        + "WHERE c.id IN (:ids)", genericContainersIds));
+        return result;
+    }
+
+    @Override
+    public Set<Long> findTaskIdsByOrderElements(
+            Collection<Long> orderElementsIds) {
+        return findIds("SELECT ts.id FROM TaskSource ts "
+                + "WHERE ts.schedulingData.orderElement.id IN (:ids)",
+                withAncestors(orderElementsIds));
+    }
+
+    private Set<Long> withAncestors(Collection<Long> orderElementsIds) {
+        Set<Long> result = new HashSet<>(orderElementsIds);
+        Set<Long> current = result;
+        while (!current.isEmpty()) {
+            Set<Long> parents = findIds("SELECT oe.parent.id "
+                    + "FROM OrderElement oe "
+                    + "WHERE oe.id IN (:ids) AND oe.parent IS NOT NULL",
+                    current);
+            parents.removeAll(result);
+            result.addAll(parents);
+            current = parents;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<Long, List<Long>> findTaskIdsPerRootTask() {
+        Map<Long, Long> parents = new HashMap<>();
+        for (Object[] each : (List<Object[]>) getSession()
+                .createQuery("SELECT t.id, t.parent.id FROM TaskElement t")
+                .list()) {
+            parents.put((Long) each[0], (Long) each[1]);
+        }
+
+        Map<Long, Long> roots = new HashMap<>();
+        Map<Long, List<Long>> result = new HashMap<>();
+        for (Long each : (List<Long>) getSession()
+                .createQuery("SELECT t.id FROM Task t").list()) {
+            Long root = rootOf(each, parents, roots);
+            if (!result.containsKey(root)) {
+                result.put(root, new ArrayList<Long>());
+            }
+            result.get(root).add(each);
+        }
+        return result;
+    }
+
+    private Long rootOf(Long taskElementId, Map<Long, Long> parents,
+            Map<Long, Long> roots) {
+        Long parent = parents.get(taskElementId);
+        if (parent == null) {
+            return taskElementId;
+        }
+        Long result = roots.get(parent);
+        if (result == null) {
+            result = rootOf(parent, parents, roots);
+            roots.put(parent, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Task> findTasksWithResourceAllocations(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Task> result = new ArrayList<>();
+        for (List<Long> each : ListUtils.partition(new ArrayList<>(ids), MAX_IDS_PER_QUERY)) {
+            result.addAll(getSession()
+                    .createQuery("SELECT DISTINCT t FROM Task t "
+                            + "LEFT JOIN FETCH t.resourceAllocations "
+                            + "WHERE t.id IN (:ids)")
+                    .setParameterList("ids", each).list());
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> findIds(String strQuery, Collection<Long> ids) {
+        Set<Long> result = new HashSet<>();
+        for (List<Long> each : ListUtils.partition(new ArrayList<>(ids), MAX_IDS_PER_QUERY)) {
+            Query query = getSession().createQuery(strQuery);
+            query.setParameterList("ids", each);
+            result.addAll(query.list());
+        }
+        return result;
+    }
+
 }
@@ -19,17 +19,16 @@
 
 package org.libreplan.business.planner.entities;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
-import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.planner.chart.ContiguousDaysLine;
-import org.libreplan.business.planner.chart.ContiguousDaysLine.OnDay;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
 import org.libreplan.business.planner.entities.DayAssignment.FilterType;
 import org.libreplan.business.resources.entities.IAssignmentsOnResourceCalculator;
@@ -40,6 +39,12 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 /**
+ * The five lines are calculated together in a single pass over the
+ * assignments, keeping the seconds of each day in arrays. They cover from the
+ * first to the last day with assignments of the order. Only the days in which
+ * a resource has assignments of the order are taken into account for that
+ * resource.
+ *
  * @author Óscar González Fernández <ogonzalez@igalia.com>
  * @author Diego Pino García <dpino@igalia.com>
  */
@@ -51,168 +56,163 @@ public class OrderResourceLoadCalculator implements IOrderResourceLoadCalculator
 
     private IAssignmentsOnResourceCalculator assignmentsOnResourceCalculator;
 
-    private ContiguousDaysLine<List<DayAssignment>> orderAssignments;
+    private LoadLines loadLines;
 
-    private ContiguousDaysLine<List<DayAssignment>> filteredAssignments;
+    /**
+     * Seconds by day of each of the lines, the position <code>i</code>
+     * corresponding to the day <code>start + i</code>
+     */
+    private static class LoadLines {
 
-    private ContiguousDaysLine<EffortDuration> maxCapacityOnResources;
+        private static final LoadLines INVALID = new LoadLines(null, 0);
 
-    private ContiguousDaysLine<EffortDuration> orderLoad;
+        private final LocalDate start;
 
-    private ContiguousDaysLine<EffortDuration> allLoad;
+        private final int[] maxCapacityOnResources;
 
-    private ContiguousDaysLine<EffortDuration> orderOverload;
+        private final int[] orderLoad;
 
-    private ContiguousDaysLine<EffortDuration> allOverload;
+        private final int[] allLoad;
 
-    @Override
-    public void setOrder(Order order,
-            IAssignmentsOnResourceCalculator assignmentsOnResourceCalculator) {
-        this.order = order;
-        this.assignmentsOnResourceCalculator = assignmentsOnResourceCalculator;
-        initializeValues();
-    }
+        private final int[] orderOverload;
 
-    private void initializeValues() {
-        orderAssignments = null;
-        filteredAssignments = null;
-        maxCapacityOnResources = null;
-        orderLoad = null;
-        allLoad = null;
-        orderOverload = null;
-        allOverload = null;
-    }
+        private final int[] allOverload;
 
-    @Override
-    public ContiguousDaysLine<EffortDuration> getMaxCapacityOnResources() {
-        if (maxCapacityOnResources == null) {
-            maxCapacityOnResources = getOrderAssignments()
-                     .transform(ResourceLoadChartData
-                             .extractAvailabilityOnAssignedResources());
+        private LoadLines(LocalDate start, int size) {
+            this.start = start;
+            this.maxCapacityOnResources = new int[size];
+            this.orderLoad = new int[size];
+            this.allLoad = new int[size];
+            this.orderOverload = new int[size];
+            this.allOverload = new int[size];
         }
-        return maxCapacityOnResources;
-    }
 
-    private ContiguousDaysLine<List<DayAssignment>> getOrderAssignments() {
-        if (orderAssignments == null) {
-            List<DayAssignment> orderDayAssignments = order
-                    .getDayAssignments(FilterType.WITHOUT_DERIVED);
-            orderAssignments = ContiguousDaysLine.byDay(orderDayAssignments);
+        ContiguousDaysLine<EffortDuration> toLine(int[] seconds) {
+            if (start == null) {
+                return ContiguousDaysLine.invalid();
+            }
+            return ContiguousDaysLine.fromSeconds(start, seconds);
         }
-        return orderAssignments;
     }
 
-    @Override
-    public ContiguousDaysLine<EffortDuration> getOrderLoad() {
-        if (orderLoad == null) {
-            orderLoad = getOrderAssignments()
-                     .transform(ResourceLoadChartData.extractLoad());
+    /**
+     * The days in which a resource has assignments of the order and the
+     * seconds assigned in them
+     */
+    private static class OnResource {
+
+        private final BitSet daysWithAssignments = new BitSet();
+
+        private final int[] orderSeconds;
+
+        private OnResource(int size) {
+            this.orderSeconds = new int[size];
         }
-        return orderLoad;
     }
 
     @Override
-    public ContiguousDaysLine<EffortDuration> getAllLoad() {
-        if (allLoad == null) {
-            allLoad = getFilteredAssignments()
-                     .transform(ResourceLoadChartData.extractLoad());
-        }
-        return allLoad;
+    public void setOrder(Order order,
+            IAssignmentsOnResourceCalculator assignmentsOnResourceCalculator) {
+        this.order = order;
+        this.assignmentsOnResourceCalculator = assignmentsOnResourceCalculator;
+        this.loadLines = null;
     }
 
-    private ContiguousDaysLine<List<DayAssignment>> getFilteredAssignments() {
-        if (filteredAssignments == null) {
-            ContiguousDaysLine<List<DayAssignment>> allAssignments = allAssignments(getOrderAssignments());
-            filteredAssignments = filterAllAssignmentsByOrderResources(
-                    allAssignments, getOrderAssignments());
+    private LoadLines getLoadLines() {
+        if (loadLines == null) {
+            loadLines = calculateLoadLines(order
+                    .getDayAssignments(FilterType.WITHOUT_DERIVED));
         }
-        return filteredAssignments;
+        return loadLines;
     }
 
-    private ContiguousDaysLine<List<DayAssignment>> filterAllAssignmentsByOrderResources(
-            ContiguousDaysLine<List<DayAssignment>> allAssignments,
-            ContiguousDaysLine<List<DayAssignment>> orderAssignments) {
-        List<DayAssignment> filteredAssignments = new ArrayList<DayAssignment>();
-
-        Iterator<OnDay<List<DayAssignment>>> iterator = orderAssignments
-                .iterator();
-        while (iterator.hasNext()) {
-            OnDay<List<DayAssignment>> onDay = iterator.next();
-            Set<Resource> resources = getResources(onDay.getValue());
-            filteredAssignments.addAll(filterAssignmentsByResource(
-                    allAssignments.get(onDay.getDay()), resources));
+    private LoadLines calculateLoadLines(List<DayAssignment> orderAssignments) {
+        if (orderAssignments.isEmpty()) {
+            return LoadLines.INVALID;
+        }
+        LocalDate start = orderAssignments.get(0).getDay();
+        LocalDate last = start;
+        for (DayAssignment each : orderAssignments) {
+            LocalDate day = each.getDay();
+            start = day.isBefore(start) ? day : start;
+            last = day.isAfter(last) ? day : last;
+        }
+        LocalDate endExclusive = last.plusDays(1);
+        int size = Days.daysBetween(start, endExclusive).getDays();
+
+        Map<Resource, OnResource> byResource = new HashMap<Resource, OnResource>();
+        for (DayAssignment each : orderAssignments) {
+            OnResource onResource = byResource.get(each.getResource());
+            if (onResource == null) {
+                onResource = new OnResource(size);
+                byResource.put(each.getResource(), onResource);
+            }
+            int i = Days.daysBetween(start, each.getDay()).getDays();
+            onResource.daysWithAssignments.set(i);
+            onResource.orderSeconds[i] += each.getDuration().getSeconds();
         }
-        return ContiguousDaysLine.byDay(filteredAssignments);
-    }
 
-    private List<DayAssignment> filterAssignmentsByResource(
-            List<DayAssignment> list, Set<Resource> resources) {
-        List<DayAssignment> result = new ArrayList<DayAssignment>();
-        for (DayAssignment each : list) {
-            if (resources.contains(each.getResource())) {
-                result.add(each);
+        LoadLines result = new LoadLines(start, size);
+        for (Entry<Resource, OnResource> entry : byResource.entrySet()) {
+            Resource resource = entry.getKey();
+            OnResource onResource = entry.getValue();
+            int[] capacities = ResourceLoadChartData.capacitiesOf(resource,
+                    start, endExclusive);
+            int[] allSeconds = allSecondsOn(resource, start, size);
+
+            BitSet days = onResource.daysWithAssignments;
+            for (int i = days.nextSetBit(0); i >= 0; i = days.nextSetBit(i + 1)) {
+                int orderSeconds = onResource.orderSeconds[i];
+                result.maxCapacityOnResources[i] += capacities[i];
+                result.orderLoad[i] += orderSeconds;
+                result.orderOverload[i] += Math.max(orderSeconds - capacities[i], 0);
+                result.allLoad[i] += allSeconds[i];
+                result.allOverload[i] += Math.max(allSeconds[i] - capacities[i], 0);
             }
         }
         return result;
     }
 
-    private Set<Resource> getResources(List<DayAssignment> dayAssignments) {
-        Set<Resource> resources = new HashSet<Resource>();
-        for (DayAssignment each : dayAssignments) {
-            resources.add(each.getResource());
+    private int[] allSecondsOn(Resource resource, LocalDate start, int size) {
+        int[] result = new int[size];
+        for (DayAssignment each : assignmentsOnResourceCalculator
+                .getAssignments(resource)) {
+            int i = Days.daysBetween(start, each.getDay()).getDays();
+            if (i >= 0 && i < size) {
+                result[i] += each.getDuration().getSeconds();
+            }
         }
-        return resources;
+        return result;
     }
 
-    private ContiguousDaysLine<List<DayAssignment>> allAssignments(
-            ContiguousDaysLine<List<DayAssignment>> orderAssignments) {
-        if (orderAssignments.isNotValid()) {
-            return ContiguousDaysLine.<List<DayAssignment>> invalid();
-        }
-        return allAssignmentsOnResourcesAt(orderAssignments.getStart(),
-                orderAssignments.getEndExclusive());
+    @Override
+    public ContiguousDaysLine<EffortDuration> getMaxCapacityOnResources() {
+        LoadLines lines = getLoadLines();
+        return lines.toLine(lines.maxCapacityOnResources);
     }
 
-    private ContiguousDaysLine<List<DayAssignment>> allAssignmentsOnResourcesAt(
-            LocalDate startInclusive, LocalDate endExclusive) {
-        AvailabilityTimeLine.Interval interval = AvailabilityTimeLine.Interval
-                .create(startInclusive, endExclusive);
-        List<DayAssignment> resourcesDayAssignments = new ArrayList<DayAssignment>();
-        for (Resource resource : order.getResources(FilterType.WITHOUT_DERIVED)) {
-            resourcesDayAssignments.addAll(insideInterval(interval,
-                    assignmentsOnResourceCalculator.getAssignments(resource)));
-        }
-        return ContiguousDaysLine.byDay(resourcesDayAssignments);
+    @Override
+    public ContiguousDaysLine<EffortDuration> getOrderLoad() {
+        LoadLines lines = getLoadLines();
+        return lines.toLine(lines.orderLoad);
     }
 
-    private List<DayAssignment> insideInterval(
-            AvailabilityTimeLine.Interval interval,
-            List<DayAssignment> assignments) {
-        List<DayAssignment> result = new ArrayList<DayAssignment>();
-        for (DayAssignment each : assignments) {
-            if (interval.includes(each.getDay())) {
-                result.add(each);
-            }
-        }
-        return result;
+    @Override
+    public ContiguousDaysLine<EffortDuration> getAllLoad() {
+        LoadLines lines = getLoadLines();
+        return lines.toLine(lines.allLoad);
     }
 
     @Override
     public ContiguousDaysLine<EffortDuration> getOrderOverload() {
-        if (orderOverload == null) {
-            orderOverload = getOrderAssignments()
-                     .transform(ResourceLoadChartData.extractOverload());
-        }
-        return orderOverload;
+        LoadLines lines = getLoadLines();
+        return lines.toLine(lines.orderOverload);
     }
 
     @Override
     public ContiguousDaysLine<EffortDuration> getAllOverload() {
-        if (allOverload == null) {
-            allOverload = getFilteredAssignments()
-                     .transform(ResourceLoadChartData.extractOverload());
-        }
-        return allOverload;
+        LoadLines lines = getLoadLines();
+        return lines.toLine(lines.allOverload);
     }
 
 }
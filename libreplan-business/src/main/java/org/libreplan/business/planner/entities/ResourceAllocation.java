@@ -70,6 +70,7 @@ import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.util.deepcopy.OnCopy;
 import org.libreplan.business.util.deepcopy.Strategy;
+import org.libreplan.business.workingday.EffortAccumulator;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.EffortDuration.IEffortFrom;
 import org.libreplan.business.workingday.IntraDayDate;
@@ -1228,23 +1229,26 @@ public abstract class ResourceAllocation<T extends DayAssignment>
         LocalDate max = Collections.max(byDay.keySet());
         Iterable<PartialDay> daysToIterate = startFor(min).daysUntil(endFor(max));
 
-        EffortDuration sumTotalEffort = zero();
-        EffortDuration sumWorkableEffort = zero();
+        EffortAccumulator sumTotalEffort = EffortAccumulator.create();
+        EffortAccumulator sumWorkableEffort = EffortAccumulator.create();
         final ResourcesPerDay ONE_RESOURCE_PER_DAY = ResourcesPerDay.amount(1);
 
         for (PartialDay day : daysToIterate) {
-            List<T> assignmentsAtDay =  avoidNull(byDay.get(day.getDate()), Collections.<T> emptyList());
+            List<T> assignmentsAtDay = byDay.get(day.getDate());
 
-            EffortDuration incrementWorkable = getAllocationCalendar().asDurationOn(day, ONE_RESOURCE_PER_DAY);
-            sumWorkableEffort = sumWorkableEffort.plus(incrementWorkable);
+            sumWorkableEffort.add(getAllocationCalendar().asDurationOn(day, ONE_RESOURCE_PER_DAY));
 
-            sumTotalEffort = sumTotalEffort.plus(sumDuration(assignmentsAtDay));
+            if ( assignmentsAtDay != null ) {
+                for (T each : assignmentsAtDay) {
+                    sumTotalEffort.add(each.getDuration());
+                }
+            }
         }
-        if ( sumWorkableEffort.equals(zero()) ) {
+        if ( sumWorkableEffort.isZero() ) {
             return ResourcesPerDay.amount(0);
         }
 
-        return ResourcesPerDay.calculateFrom(sumTotalEffort, sumWorkableEffort);
+        return ResourcesPerDay.calculateFrom(sumTotalEffort.toEffortDuration(), sumWorkableEffort.toEffortDuration());
     }
 
     private IntraDayDate startFor(LocalDate dayDate) {
@@ -1259,10 +1263,6 @@ public abstract class ResourceAllocation<T extends DayAssignment>
         return end.getDate().equals(assignmentDate) ? end : IntraDayDate.startOfDay(assignmentDate).nextDayAtStart();
     }
 
-    private static <T> T avoidNull(T value, T defaultValue) {
-        return value != null ? value : defaultValue;
-    }
-
     public ICalendar getAllocationCalendar() {
         return getCalendarGivenTaskCalendar(getTaskCalendar());
     }
@@ -1853,15 +1853,6 @@ public abstract class ResourceAllocation<T extends DayAssignment>
         return getAssignedDuration(getAssignments(startInclusive, endExclusive), startInclusive, endExclusive);
     }
 
-    private EffortDuration sumDuration(Collection<? extends DayAssignment> assignments) {
-        return EffortDuration.sum(assignments, new IEffortFrom<DayAssignment>() {
-            @Override
-            public EffortDuration from(DayAssignment each) {
-                return each.getDuration();
-            }
-        });
-    }
-
     private EffortDuration getAssignedDuration(
             List<? extends DayAssignment> assignments,
             final IntraDayDate startInclusive,
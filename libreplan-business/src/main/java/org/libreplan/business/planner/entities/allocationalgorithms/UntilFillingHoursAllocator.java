@@ -40,7 +40,7 @@ import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.ResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation.Direction;
 import org.libreplan.business.planner.entities.Task;
-import org.libreplan.business.util.Pair;
+import org.libreplan.business.workingday.EffortAccumulator;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
@@ -125,26 +125,27 @@ public abstract class UntilFillingHoursAllocator {
     private IntraDayDate untilAllocating(IntraDayDate dateFromWhichToAllocate,
             ResourcesPerDayModification resourcesPerDayModification,
             EffortDuration effortRemaining) {
-        EffortDuration taken = zero();
-        EffortDuration biggestLastAssignment = zero();
+        EffortAccumulator remaining = EffortAccumulator
+                .startingAt(effortRemaining);
+        List<? extends DayAssignment> lastAssignments = Collections.emptyList();
         IntraDayDate current = dateFromWhichToAllocate;
         IAssignmentsCreator assignmentsCreator = resourcesPerDayModification
                 .createAssignmentsCreator();
-        while (effortRemaining.compareTo(zero()) > 0) {
+        while (!remaining.isZero()) {
             PartialDay day = calculateDay(current);
-            Pair<EffortDuration, EffortDuration> pair = assignForDay(
-                    resourcesPerDayModification, assignmentsCreator, day,
-                    effortRemaining);
-            taken = pair.getFirst();
-            biggestLastAssignment = pair.getSecond();
-            effortRemaining = effortRemaining.minus(taken);
-
-            if (effortRemaining.compareTo(zero()) > 0) {
+            lastAssignments = assignForDay(resourcesPerDayModification,
+                    assignmentsCreator, day, remaining.toEffortDuration());
+            for (DayAssignment each : lastAssignments) {
+                remaining.subtract(each.getDuration());
+            }
+
+            if (!remaining.isZero()) {
                 current = nextDay(current);
             }
         }
-        IntraDayDate finish = adjustFinish(resourcesPerDayModification, taken,
-                biggestLastAssignment, current);
+        IntraDayDate finish = adjustFinish(resourcesPerDayModification,
+                DayAssignment.sum(lastAssignments),
+                getMaxAssignment(lastAssignments), current);
         // We have to do it now, so the other allocations take it into account.
         // At the end it's done again with the right end date.
         setNewDataForAllocation(resourcesPerDayModification, resultAssignments
@@ -273,10 +274,9 @@ public abstract class UntilFillingHoursAllocator {
     /**
      *
      * @param resourcesPerDayModification
-     * @return a pair composed of the effort assigned and the biggest assignment
-     *         done.
+     * @return the assignments done at the day
      */
-    private Pair<EffortDuration, EffortDuration> assignForDay(
+    private List<? extends DayAssignment> assignForDay(
             ResourcesPerDayModification resourcesPerDayModification,
             IAssignmentsCreator assignmentsCreator,
             PartialDay day, EffortDuration remaining) {
@@ -285,8 +285,7 @@ public abstract class UntilFillingHoursAllocator {
                         resourcesPerDayModification.getGoal());
         resultAssignments.get(resourcesPerDayModification).addAll(
                 newAssignments);
-        return Pair.create(DayAssignment.sum(newAssignments),
-                getMaxAssignment(newAssignments));
+        return newAssignments;
     }
 
     private EffortDuration getMaxAssignment(
@@ -0,0 +1,375 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.limiting.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Resource;
+
+/**
+ * Index of the free intervals of a {@link LimitingResourceQueue}, this is, the time between each queue element and the
+ * next one, plus the interval after the last one.
+ * <p>
+ * The intervals are kept in a balanced search tree (a treap) sorted by their end, and each node caches the maximum
+ * hours available in the intervals of its subtree. So the first interval after a date where a number of hours could
+ * fit is found without visiting the subtrees that cannot hold it, and the capacity of an interval is only calculated
+ * again when one of the elements delimiting it is added or removed.
+ * </p>
+ * The hours of an interval are an upper bound of the hours of any {@link Gap} inside it, so they can be used to
+ * discard intervals, but the gaps of the returned ones must still be checked.
+ */
+public class GapsIndex {
+
+    /**
+     * The free time between two consecutive elements of the queue.
+     */
+    public static class FreeInterval {
+
+        private final LimitingResourceQueueElement previous;
+
+        private final LimitingResourceQueueElement next;
+
+        private final DateAndHour end;
+
+        private final int hours;
+
+        private List<GapOnQueue> gaps;
+
+        private FreeInterval(Resource resource,
+                             LimitingResourceQueueElement previous,
+                             LimitingResourceQueueElement next) {
+
+            this.previous = previous;
+            this.next = next;
+            this.end = (next != null) ? next.getStartTime() : null;
+            this.hours = calculateHours(resource, previous, next);
+        }
+
+        private static int calculateHours(Resource resource,
+                                          LimitingResourceQueueElement previous,
+                                          LimitingResourceQueueElement next) {
+
+            if ( previous == null || next == null ) {
+                return Integer.MAX_VALUE;
+            }
+
+            DateAndHour start = previous.getEndTime();
+            DateAndHour end = next.getStartTime();
+
+            return start.isBefore(end) ? Gap.create(resource, start, end).getHoursInGap() : 0;
+        }
+
+        /**
+         * @return the element before the interval, or <code>null</code> if there is no element before it
+         */
+        public LimitingResourceQueueElement getPrevious() {
+            return previous;
+        }
+
+        /**
+         * @return the element after the interval, or <code>null</code> if it is the interval after the last element
+         */
+        public LimitingResourceQueueElement getNext() {
+            return next;
+        }
+
+        /**
+         * @return the end of the interval, or <code>null</code> if it is the interval after the last element
+         */
+        public DateAndHour getEnd() {
+            return end;
+        }
+
+        public int getHours() {
+            return hours;
+        }
+
+        private boolean endsBefore(DateAndHour time) {
+            return end != null && end.isBefore(time);
+        }
+
+        /**
+         * Same gaps that {@link LimitingResourceQueue#getGaps()} had for this interval when they were calculated at
+         * once for all the queue, delimited by the activation periods of the calendar of the resource.
+         */
+        private List<GapOnQueue> getGaps(LimitingResourceQueue queue) {
+            if ( gaps == null ) {
+                gaps = calculateGaps(queue);
+            }
+            return gaps;
+        }
+
+        private List<GapOnQueue> calculateGaps(LimitingResourceQueue queue) {
+            Resource resource = queue.getResource();
+            DateAndHour previousEnd = (previous != null) ? previous.getEndTime() : null;
+
+            if ( next == null ) {
+                return GapOnQueue.onQueue(queue, Collections.singletonList(Gap.create(resource, previousEnd, null)));
+            }
+
+            if ( previousEnd != null && !end.isAfter(previousEnd) ) {
+                return Collections.emptyList();
+            }
+
+            ResourceCalendar calendar = resource.getCalendar();
+            List<GapInterval> gapIntervals = GapInterval
+                    .create(previousEnd, end)
+                    .delimitByActivationPeriods(calendar.getCalendarAvailabilities());
+
+            return GapOnQueue.onQueue(queue, GapInterval.gapsOn(gapIntervals, resource));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s, %s] %s hours", previous != null ? previous.getEndTime() : null, end, hours);
+        }
+
+    }
+
+    private static class Node {
+
+        private final FreeInterval interval;
+
+        private final int priority;
+
+        private Node left;
+
+        private Node right;
+
+        private int maxHours;
+
+        private Node(FreeInterval interval, int priority) {
+            this.interval = interval;
+            this.priority = priority;
+            this.maxHours = interval.getHours();
+        }
+
+        private Node update() {
+            maxHours = interval.getHours();
+            if ( left != null ) {
+                maxHours = Math.max(maxHours, left.maxHours);
+            }
+            if ( right != null ) {
+                maxHours = Math.max(maxHours, right.maxHours);
+            }
+            return this;
+        }
+
+    }
+
+    private final LimitingResourceQueue queue;
+
+    private final Random random = new Random();
+
+    private Node root;
+
+    private int size;
+
+    private List<GapOnQueue> cachedGaps;
+
+    public static GapsIndex create(LimitingResourceQueue queue) {
+        GapsIndex result = new GapsIndex(queue);
+        LimitingResourceQueueElement previous = null;
+
+        for (LimitingResourceQueueElement each : queue.getLimitingResourceQueueElements()) {
+            result.insert(result.intervalBetween(previous, each));
+            previous = each;
+        }
+        result.insert(result.intervalBetween(previous, null));
+
+        return result;
+    }
+
+    private GapsIndex(LimitingResourceQueue queue) {
+        this.queue = queue;
+    }
+
+    private FreeInterval intervalBetween(LimitingResourceQueueElement previous, LimitingResourceQueueElement next) {
+        return new FreeInterval(queue.getResource(), previous, next);
+    }
+
+    /**
+     * Splits the interval containing <code>element</code>, that must have been just added to the queue between
+     * <code>previous</code> and <code>next</code>.
+     */
+    public void elementAdded(LimitingResourceQueueElement previous,
+                             LimitingResourceQueueElement element,
+                             LimitingResourceQueueElement next) {
+
+        replace(intervalBetween(element, next));
+        insert(intervalBetween(previous, element));
+    }
+
+    /**
+     * Merges the intervals around <code>element</code>, that must have been just removed from the queue, being
+     * <code>previous</code> and <code>next</code> the elements that were around it.
+     */
+    public void elementRemoved(LimitingResourceQueueElement previous,
+                               LimitingResourceQueueElement element,
+                               LimitingResourceQueueElement next) {
+
+        remove(element.getStartTime());
+        replace(intervalBetween(previous, next));
+    }
+
+    /**
+     * @return the first interval ending at or after <code>since</code> with at least <code>hours</code>, or
+     *         <code>null</code> if there is none
+     */
+    public FreeInterval getFirstFitting(DateAndHour since, int hours) {
+        return first(root, since, false, hours);
+    }
+
+    /**
+     * @return the first interval after <code>interval</code> with at least <code>hours</code>, or <code>null</code> if
+     *         there is none
+     */
+    public FreeInterval getNextFitting(FreeInterval interval, int hours) {
+        return interval.getEnd() != null ? first(root, interval.getEnd(), true, hours) : null;
+    }
+
+    /**
+     * @return the gaps of all the intervals, ordered by start date
+     */
+    public List<GapOnQueue> getGaps() {
+        if ( cachedGaps == null ) {
+            List<GapOnQueue> result = new ArrayList<>();
+            addGaps(root, result);
+            cachedGaps = Collections.unmodifiableList(result);
+        }
+        return cachedGaps;
+    }
+
+    private void addGaps(Node node, List<GapOnQueue> result) {
+        if ( node != null ) {
+            addGaps(node.left, result);
+            result.addAll(node.interval.getGaps(queue));
+            addGaps(node.right, result);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static FreeInterval first(Node node, DateAndHour since, boolean strictlyAfter, int hours) {
+        if ( node == null || node.maxHours < hours ) {
+            return null;
+        }
+
+        if ( isBefore(node.interval.getEnd(), since, strictlyAfter) ) {
+            return first(node.right, since, strictlyAfter, hours);
+        }
+
+        FreeInterval result = first(node.left, since, strictlyAfter, hours);
+        if ( result != null ) {
+            return result;
+        }
+
+        return node.interval.getHours() >= hours
+                ? node.interval
+                : first(node.right, since, strictlyAfter, hours);
+    }
+
+    private static boolean isBefore(DateAndHour end, DateAndHour time, boolean orEqual) {
+        if ( end == null ) {
+            return false;
+        }
+        int comparison = end.compareTo(time);
+
+        return comparison < 0 || (orEqual && comparison == 0);
+    }
+
+    /**
+     * The end of the interval after the last element is <code>null</code>, and it goes after all the others.
+     */
+    private static int compareEnds(DateAndHour end, DateAndHour another) {
+        if ( end == null || another == null ) {
+            return (end == null ? 1 : 0) - (another == null ? 1 : 0);
+        }
+        return end.compareTo(another);
+    }
+
+    private void insert(FreeInterval interval) {
+        Node[] parts = split(root, interval.getEnd(), false);
+        root = merge(merge(parts[0], new Node(interval, random.nextInt())), parts[1]);
+        size++;
+        cachedGaps = null;
+    }
+
+    private void remove(DateAndHour end) {
+        Node[] parts = split(root, end, false);
+        Node[] rest = split(parts[1], end, true);
+        if ( rest[0] != null ) {
+            size--;
+        }
+        root = merge(parts[0], rest[1]);
+        cachedGaps = null;
+    }
+
+    private void replace(FreeInterval interval) {
+        remove(interval.getEnd());
+        insert(interval);
+    }
+
+    /**
+     * @return the nodes ending before <code>end</code> (or at it if <code>inclusive</code>) and the rest
+     */
+    private static Node[] split(Node node, DateAndHour end, boolean inclusive) {
+        if ( node == null ) {
+            return new Node[] { null, null };
+        }
+
+        int comparison = compareEnds(node.interval.getEnd(), end);
+        if ( comparison < 0 || (inclusive && comparison == 0) ) {
+            Node[] parts = split(node.right, end, inclusive);
+            node.right = parts[0];
+            return new Node[] { node.update(), parts[1] };
+        } else {
+            Node[] parts = split(node.left, end, inclusive);
+            node.left = parts[1];
+            return new Node[] { parts[0], node.update() };
+        }
+    }
+
+    private static Node merge(Node left, Node right) {
+        if ( left == null ) {
+            return right;
+        }
+        if ( right == null ) {
+            return left;
+        }
+
+        if ( left.priority > right.priority ) {
+            left.right = merge(left.right, right);
+            return left.update();
+        } else {
+            right.left = merge(left, right.left);
+            return right.update();
+        }
+    }
+
+}
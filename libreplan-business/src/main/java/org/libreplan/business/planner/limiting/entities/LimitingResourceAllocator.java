@@ -39,6 +39,7 @@ import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation;
 import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.limiting.entities.GapsIndex.FreeInterval;
 import org.libreplan.business.resources.entities.LimitingResourceQueue;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workingday.EffortDuration;
@@ -105,30 +106,42 @@ public class LimitingResourceAllocator {
      * @return {@link Gap}
      */
     public static Gap getFirstValidGap(LimitingResourceQueue queue, LimitingResourceQueueElement element) {
+        List<Gap> gaps = getValidGaps(element, queue, getStartTimeBecauseOfGantt(element), true);
 
-        final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<>(queue.getLimitingResourceQueueElements());
-        final int size = elements.size();
-        final DateAndHour startTime = getStartTimeBecauseOfGantt(element);
+        // The queue cannot hold this element (queue.resource doesn't meet element.criteria)
+        return (!gaps.isEmpty()) ? gaps.get(0) : null;
+    }
+
+    /**
+     * Only the free intervals of the queue that end after <code>since</code> and that have enough hours for the
+     * element are checked, looking for them in {@link LimitingResourceQueue#getGapsIndex()}.
+     */
+    private static List<Gap> getValidGaps(LimitingResourceQueueElement element,
+                                          LimitingResourceQueue queue,
+                                          DateAndHour since,
+                                          boolean onlyFirst) {
 
-        int pos = 0;
+        List<Gap> result = new ArrayList<>();
 
-        // Iterate through queue elements
-        while (pos <= size) {
-            Gap gap = getGapInQueueAtPosition(resource, elements, startTime, pos++);
+        final Resource resource = queue.getResource();
+        final GapsIndex gapsIndex = queue.getGapsIndex();
+        final int hours = element.getIntentedTotalHours();
 
-            if ( gap != null ) {
+        FreeInterval interval = gapsIndex.getFirstFitting(since, hours);
+        while (interval != null) {
+            Gap gap = getGapInInterval(resource, interval, since);
 
-                List<Gap> subgaps = getFittingSubgaps(element, gap, resource);
+            if ( gap != null ) {
+                result.addAll(getFittingSubgaps(element, gap, resource));
 
-                if ( !subgaps.isEmpty() ) {
-                    return subgaps.get(0);
+                if ( onlyFirst && !result.isEmpty() ) {
+                    return result;
                 }
             }
+            interval = gapsIndex.getNextFitting(interval, hours);
         }
 
-        // The queue cannot hold this element (queue.resource doesn't meet element.criteria)
-        return null;
+        return result;
     }
 
     private static List<Gap> getFittingSubgaps(LimitingResourceQueueElement element,
@@ -164,49 +177,7 @@ public class LimitingResourceAllocator {
                                                         LimitingResourceQueue queue,
                                                         DateAndHour since) {
 
-        List<Gap> result = new ArrayList<>();
-
-        final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<>(queue.getLimitingResourceQueueElements());
-        final int size = elements.size();
-
-        int pos = moveUntil(elements, since);
-
-        // Iterate through queue elements
-        while (pos <= size) {
-            Gap gap = getGapInQueueAtPosition(
-                    resource, elements, since, pos++);
-
-            // The queue cannot hold this element (queue.resource doesn't meet element.criteria)
-            if ( gap != null ) {
-                List<Gap> subgaps = getFittingSubgaps(element, gap, resource);
-                result.addAll(subgaps);
-            }
-        }
-
-        return result;
-    }
-
-    private static int moveUntil(List<LimitingResourceQueueElement> elements, DateAndHour until) {
-        int pos = 0;
-
-        if ( elements.size() > 0 ) {
-            // Space between until and first element start time
-            LimitingResourceQueueElement first = elements.get(0);
-            if (until.isBefore(first.getStartTime())) {
-                return 0;
-            }
-
-            for (pos = 1; pos < elements.size(); pos++) {
-                final LimitingResourceQueueElement each = elements.get(pos);
-                final DateAndHour startTime = each.getStartTime();
-
-                if ( until.isBefore(startTime) || until.isEquals(startTime) ) {
-                    return pos;
-                }
-            }
-        }
-        return pos;
+        return getValidGaps(element, queue, since, false);
     }
 
     private static boolean isGeneric(LimitingResourceQueueElement element) {
@@ -227,40 +198,29 @@ public class LimitingResourceAllocator {
         return new DateAndHour(end.getDay(), end.getDuration().getHours());
     }
 
-    private static Gap getGapInQueueAtPosition(Resource resource,
-                                               List<LimitingResourceQueueElement> elements,
-                                               DateAndHour startTimeBecauseOfGantt,
-                                               int pos) {
-
-        final int size = elements.size();
+    private static Gap getGapInInterval(Resource resource,
+                                        FreeInterval interval,
+                                        DateAndHour startTimeBecauseOfGantt) {
 
-        // No elements in queue
-        if ( size == 0 ) {
-            return createLastGap(startTimeBecauseOfGantt, null, resource);
-        }
+        LimitingResourceQueueElement previous = interval.getPrevious();
+        LimitingResourceQueueElement next = interval.getNext();
 
-        // Last element
-        if ( pos == size ) {
-            return createLastGap(startTimeBecauseOfGantt, elements.get(size - 1), resource);
+        // Last element or no elements in queue
+        if ( next == null ) {
+            return createLastGap(startTimeBecauseOfGantt, previous, resource);
         }
 
-        LimitingResourceQueueElement next = elements.get(pos);
-
         // First element
-        if ( pos == 0 && startTimeBecauseOfGantt.getDate().isBefore(next.getStartDate()) ) {
-            return Gap.create(resource, startTimeBecauseOfGantt, next.getStartTime());
+        if ( previous == null ) {
+            return startTimeBecauseOfGantt.getDate().isBefore(next.getStartDate())
+                    ? Gap.create(resource, startTimeBecauseOfGantt, next.getStartTime())
+                    : null;
         }
 
         // In the middle of two elements
-        if (pos > 0) {
-            LimitingResourceQueueElement previous = elements.get(pos - 1);
-            return Gap.create(resource,
-                                DateAndHour.max(previous.getEndTime(),
-                                startTimeBecauseOfGantt),
-                                next.getStartTime());
-        }
-
-        return null;
+        return Gap.create(resource,
+                          DateAndHour.max(previous.getEndTime(), startTimeBecauseOfGantt),
+                          next.getStartTime());
     }
 
     private static DateAndHour getStartTimeBecauseOfGantt(LimitingResourceQueueElement element) {
@@ -20,18 +20,17 @@
 package org.libreplan.business.resources.daos;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.libreplan.business.planner.daos.IDayAssignmentDAO;
-import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.workingday.EffortDuration;
-import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -119,67 +118,64 @@ public class ResourceLoadRatiosCalculator implements IResourceLoadRatiosCalculat
                                                    final LocalDate startDate,
                                                    final LocalDate endDate,
                                                    final Scenario scenario) {
-        resourceDAO.reattach(resource);
 
-        EffortDuration
-                totalLoad = EffortDuration.zero(),
-                totalOverload = EffortDuration.zero(),
-                totalCapacity;
-
-        Set<Map.Entry<LocalDate, EffortDuration>> efforts =
-                getAllEffortPerDateFor(scenario, startDate, endDate, resource).entrySet();
+        return calculateLoadRatios(Collections.singletonList(resource), startDate, endDate, scenario).get(resource);
+    }
 
-        for (Map.Entry<LocalDate, EffortDuration> each : efforts) {
-            totalLoad = totalLoad.plus(each.getValue());
-            totalOverload = addOverload(totalOverload, resource, each.getValue(), each.getKey());
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Resource, ILoadRatiosDataType> calculateLoadRatios(Collection<? extends Resource> resources,
+                                                                  LocalDate startDate,
+                                                                  LocalDate endDate,
+                                                                  Scenario scenario) {
+        for (Resource each : resources) {
+            resourceDAO.reattach(each);
         }
 
-        totalCapacity = calculateTotalCapacity(resource, startDate, endDate);
+        Map<Long, Map<LocalDate, EffortDuration>> effortPerResource =
+                dayAssignmentDAO.getEffortPerResourceAndDay(scenario, startDate, endDate, resources);
+
+        Map<Resource, ILoadRatiosDataType> result = new LinkedHashMap<>();
+        for (Resource each : resources) {
+            Map<LocalDate, EffortDuration> efforts = effortPerResource.get(each.getId());
+            result.put(each, calculateLoadRatios(each, startDate, endDate,
+                    efforts != null ? efforts : Collections.<LocalDate, EffortDuration> emptyMap()));
+        }
 
-        return new LoadRatiosDataType(totalLoad, totalOverload, totalCapacity);
+        return result;
     }
 
-    private Map<LocalDate, EffortDuration> getAllEffortPerDateFor(
-            Scenario scenario, LocalDate startDate, LocalDate endDate, Resource resource) {
+    /**
+     * The capacities of the resource are calculated once for the whole
+     * interval and used for the total capacity and for the overload of each
+     * day.
+     */
+    private ILoadRatiosDataType calculateLoadRatios(Resource resource,
+                                                    LocalDate startDate,
+                                                    LocalDate endDate,
+                                                    Map<LocalDate, EffortDuration> efforts) {
 
-        HashMap<LocalDate, EffortDuration> result;
-        result = new HashMap<>();
+        int[] capacities = resource.getCalendar().getCapacitiesOn(startDate, endDate.plusDays(1));
 
-        List<DayAssignment> l = dayAssignmentDAO.getAllFor(scenario, startDate, endDate, resource);
+        EffortDuration
+                totalLoad = EffortDuration.zero(),
+                totalOverload = EffortDuration.zero();
 
-        EffortDuration newValue;
+        for (Map.Entry<LocalDate, EffortDuration> each : efforts.entrySet()) {
+            EffortDuration capacityAtDay = EffortDuration.seconds(
+                    capacities[Days.daysBetween(startDate, each.getKey()).getDays()]);
 
-        for (DayAssignment each : l) {
-            if (result.containsKey(each.getDay())) {
-                newValue = result.get(each.getDay()).plus(each.getDuration());
-            } else {
-                newValue = each.getDuration();
+            totalLoad = totalLoad.plus(each.getValue());
+            if (capacityAtDay.compareTo(each.getValue()) < 0) {
+                totalOverload = totalOverload.plus(each.getValue().minus(capacityAtDay));
             }
-            result.put(each.getDay(), newValue);
         }
-        return result;
-    }
-
-    private EffortDuration calculateTotalCapacity(Resource resource, LocalDate startDate, LocalDate endDate) {
-        return resource.getCalendar().getWorkableDuration(startDate, endDate);
-    }
 
-    private EffortDuration addOverload(
-            EffortDuration currentOverload, Resource resource, EffortDuration loadAtDate, LocalDate date) {
-
-        EffortDuration result;
-        EffortDuration capacityAtDay = getCapacityAtDate(resource, date);
-
-        if (capacityAtDay.compareTo(loadAtDate) < 0) {
-            result = currentOverload.plus(loadAtDate.minus(capacityAtDay));
-        } else {
-            result = currentOverload;
+        int totalCapacity = 0;
+        for (int each : capacities) {
+            totalCapacity += each;
         }
 
-        return result;
-    }
-
-    private EffortDuration getCapacityAtDate(Resource resource, LocalDate date) {
-        return resource.getCalendar().getCapacityOn(PartialDay.wholeDay(date));
+        return new LoadRatiosDataType(totalLoad, totalOverload, EffortDuration.seconds(totalCapacity));
     }
-}
\ No newline at end of file
+}
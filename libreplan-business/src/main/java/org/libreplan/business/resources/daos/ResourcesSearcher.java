@@ -22,13 +22,16 @@
 package org.libreplan.business.resources.daos;
 
 import static org.hibernate.criterion.Restrictions.eq;
+import static org.hibernate.criterion.Restrictions.eqProperty;
 import static org.hibernate.criterion.Restrictions.ilike;
 import static org.hibernate.criterion.Restrictions.in;
+import static org.hibernate.criterion.Restrictions.isNull;
 import static org.hibernate.criterion.Restrictions.like;
 import static org.hibernate.criterion.Restrictions.or;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -39,11 +42,16 @@ import org.apache.commons.lang3.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Subqueries;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionSatisfaction;
 import org.libreplan.business.resources.entities.CriterionType;
 import org.libreplan.business.resources.entities.Machine;
 import org.libreplan.business.resources.entities.Resource;
@@ -125,21 +133,36 @@ public class ResourcesSearcher implements IResourcesSearcher {
         }
 
         private Criteria buildCriteria(Session session) {
-            Criteria result = session.createCriteria(klass);
+            Criteria result = session.createCriteria(klass, "resource");
             result.add(eq("resourceType", type));
             addQueryByName(result);
-            addFindRelatedWithSomeOfTheCriterions(result);
+            addFindSatisfyingEachOfTheCriterions(result);
             result.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
 
             return result;
         }
 
-        private void addFindRelatedWithSomeOfTheCriterions(Criteria criteria) {
+        /**
+         * Only the resources having a satisfaction of each criterion, or of one of its descendants, are retrieved.
+         * Their satisfactions are fetched in the same query, as they are needed by
+         * {@link #restrictToSatisfyAllCriteria(List)}.
+         */
+        private void addFindSatisfyingEachOfTheCriterions(Criteria criteria) {
             if ( !criteriaSpecified() ) {
                 return;
             }
-            criteria.createCriteria("criterionSatisfactions")
-                    .add(in("criterion", Criterion.withAllDescendants(this.criteria)));
+            for (Criterion each : this.criteria) {
+                criteria.add(Subqueries.exists(satisfactionsOf(each)));
+            }
+            criteria.setFetchMode("criterionSatisfactions", FetchMode.JOIN);
+        }
+
+        private DetachedCriteria satisfactionsOf(Criterion criterion) {
+            return DetachedCriteria.forClass(CriterionSatisfaction.class, "satisfaction")
+                    .add(eqProperty("satisfaction.resource.id", "resource.id"))
+                    .add(in("criterion", Criterion.withAllDescendants(Collections.singletonList(criterion))))
+                    .add(or(isNull("isDeleted"), eq("isDeleted", false)))
+                    .setProjection(Projections.id());
         }
 
         private boolean criteriaSpecified() {
@@ -165,6 +188,10 @@ public class ResourcesSearcher implements IResourcesSearcher {
             }
         }
 
+        /**
+         * The query ensures each criterion is satisfied at some point, here it is checked that all of them are
+         * satisfied at the same time.
+         */
         private List<T> restrictToSatisfyAllCriteria(List<T> resources) {
             if ( !criteriaSpecified() ) {
                 return resources;
@@ -0,0 +1,228 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.resources.entities;
+
+import static org.libreplan.business.workingday.EpochDays.epochDay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.EpochDays;
+
+/**
+ * Keeps the {@link DayAssignment day assignments} of a {@link Resource} for
+ * one scenario sorted by day, together with the running totals of their
+ * effort.
+ * <p>
+ * Assignments can be added and removed incrementally, and the effort assigned
+ * on a range of days is answered in <code>O(log n)</code>, so it is not needed
+ * to rebuild anything when the assignments of the resource change.
+ * </p>
+ * The days are keyed by their {@link EpochDays epoch day}. The running
+ * totals are kept in a Fenwick tree over the days, in seconds, that grows when
+ * an assignment falls outside the days it covers.
+ */
+public class DayAssignmentsIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    public static DayAssignmentsIndex create() {
+        return new DayAssignmentsIndex();
+    }
+
+    public static DayAssignmentsIndex create(Collection<? extends DayAssignment> assignments) {
+        DayAssignmentsIndex result = create();
+        result.addAll(assignments);
+        return result;
+    }
+
+    private final TreeMap<Integer, List<DayAssignment>> byDay = new TreeMap<>();
+
+    private int size = 0;
+
+    /**
+     * Epoch day at the first position of {@link #tree}
+     */
+    private int origin;
+
+    /**
+     * Fenwick tree with the seconds assigned on each day. Position
+     * <code>i</code>, starting at one, is the day <code>origin + i - 1</code>.
+     */
+    private long[] tree = new long[1];
+
+    private DayAssignmentsIndex() {
+    }
+
+    public void addAll(Collection<? extends DayAssignment> assignments) {
+        for (DayAssignment each : assignments) {
+            add(each);
+        }
+    }
+
+    public void add(DayAssignment assignment) {
+        Validate.notNull(assignment);
+        int day = epochDay(assignment.getDay());
+        ensureCovered(day);
+
+        List<DayAssignment> assignmentsOnDay = byDay.get(day);
+        if ( assignmentsOnDay == null ) {
+            assignmentsOnDay = new ArrayList<>(1);
+            byDay.put(day, assignmentsOnDay);
+        }
+        assignmentsOnDay.add(assignment);
+        size++;
+        update(day, assignment.getDuration().getSeconds());
+    }
+
+    public void removeAll(Collection<? extends DayAssignment> assignments) {
+        for (DayAssignment each : assignments) {
+            remove(each);
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the assignment was not on this index
+     */
+    public boolean remove(DayAssignment assignment) {
+        int day = epochDay(assignment.getDay());
+        List<DayAssignment> assignmentsOnDay = byDay.get(day);
+        if ( assignmentsOnDay == null || !assignmentsOnDay.remove(assignment) ) {
+            return false;
+        }
+        if ( assignmentsOnDay.isEmpty() ) {
+            byDay.remove(day);
+        }
+        size--;
+        update(day, -assignment.getDuration().getSeconds());
+
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public List<DayAssignment> getAssignmentsAt(LocalDate day) {
+        List<DayAssignment> result = byDay.get(epochDay(day));
+        return result == null ? Collections.<DayAssignment> emptyList() : Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return all the assignments ordered by day
+     */
+    public List<DayAssignment> getAssignments() {
+        List<DayAssignment> result = new ArrayList<>(size);
+        for (List<DayAssignment> each : byDay.values()) {
+            result.addAll(each);
+        }
+        return result;
+    }
+
+    public EffortDuration getAssignedEffort(LocalDate day) {
+        int epochDay = epochDay(day);
+        return toEffort(prefixSum(epochDay + 1) - prefixSum(epochDay));
+    }
+
+    public EffortDuration getAssignedEffort(LocalDate startInclusive, LocalDate endExclusive) {
+        Validate.isTrue(!endExclusive.isBefore(startInclusive));
+        return toEffort(prefixSum(epochDay(endExclusive)) - prefixSum(epochDay(startInclusive)));
+    }
+
+    private static EffortDuration toEffort(long seconds) {
+        Validate.isTrue(seconds <= Integer.MAX_VALUE, "the assigned effort doesn't fit on an EffortDuration");
+        return EffortDuration.seconds((int) seconds);
+    }
+
+    private int capacity() {
+        return tree.length - 1;
+    }
+
+    /**
+     * @return the seconds assigned on the days before <code>epochDay</code>
+     */
+    private long prefixSum(int epochDay) {
+        int i = Math.min(Math.max(epochDay - origin, 0), capacity());
+        long result = 0;
+        for (; i > 0; i -= i & -i) {
+            result += tree[i];
+        }
+        return result;
+    }
+
+    private void update(int epochDay, long seconds) {
+        for (int i = epochDay - origin + 1; i < tree.length; i += i & -i) {
+            tree[i] += seconds;
+        }
+    }
+
+    private void ensureCovered(int epochDay) {
+        if ( capacity() == 0 ) {
+            origin = epochDay - INITIAL_CAPACITY / 4;
+            tree = new long[INITIAL_CAPACITY + 1];
+            return;
+        }
+        int end = origin + capacity();
+        if ( epochDay >= origin && epochDay < end ) {
+            return;
+        }
+        int needed = Math.max(end, epochDay + 1) - Math.min(origin, epochDay);
+        int newCapacity = Math.max(needed, 2 * capacity());
+        origin = epochDay < origin ? end - newCapacity : origin;
+        rebuild(newCapacity);
+    }
+
+    /**
+     * Builds the tree again with the totals of {@link #byDay}, in linear time
+     */
+    private void rebuild(int capacity) {
+        tree = new long[capacity + 1];
+        for (Entry<Integer, List<DayAssignment>> entry : byDay.entrySet()) {
+            tree[entry.getKey() - origin + 1] += secondsOf(entry.getValue());
+        }
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if ( parent < tree.length ) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private static long secondsOf(List<DayAssignment> assignments) {
+        long result = 0;
+        for (DayAssignment each : assignments) {
+            result += each.getDuration().getSeconds();
+        }
+        return result;
+    }
+
+}
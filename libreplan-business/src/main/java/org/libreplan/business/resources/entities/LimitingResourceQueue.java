@@ -33,13 +33,10 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.libreplan.business.calendars.entities.CalendarAvailability;
-import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.planner.limiting.entities.DateAndHour;
-import org.libreplan.business.planner.limiting.entities.Gap;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
-import org.libreplan.business.planner.limiting.entities.GapInterval;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
 import org.libreplan.business.planner.limiting.entities.InsertionRequirements;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 /**
@@ -54,7 +51,7 @@ public class LimitingResourceQueue extends BaseEntity {
     private SortedSet<LimitingResourceQueueElement> limitingResourceQueueElements =
         new TreeSet<LimitingResourceQueueElement>(new LimitingResourceQueueElementComparator());
 
-    private List<GapOnQueue> cachedGaps;
+    private GapsIndex gapsIndex;
 
     public static Collection<LimitingResourceQueue> queuesOf(
             Collection<LimitingResourceQueueElement> queueElements) {
@@ -83,47 +80,53 @@ public class LimitingResourceQueue extends BaseEntity {
 
     public void addLimitingResourceQueueElement(LimitingResourceQueueElement element) {
         element.setLimitingResourceQueue(this);
-        limitingResourceQueueElements.add(element);
-        invalidCachedGaps();
+        if (limitingResourceQueueElements.add(element) && gapsIndex != null) {
+            gapsIndex.elementAdded(getPreviousElement(element), element, getNextElement(element));
+        }
     }
 
     public void removeLimitingResourceQueueElement(LimitingResourceQueueElement element) {
-        limitingResourceQueueElements.remove(element);
+        if (limitingResourceQueueElements.remove(element) && gapsIndex != null) {
+            gapsIndex.elementRemoved(getPreviousElement(element), element, getNextElement(element));
+        }
         element.detach();
-        invalidCachedGaps();
     }
 
-    private void invalidCachedGaps() {
-        cachedGaps = null;
+    private LimitingResourceQueueElement getPreviousElement(LimitingResourceQueueElement element) {
+        SortedSet<LimitingResourceQueueElement> before = limitingResourceQueueElements.headSet(element);
+        return before.isEmpty() ? null : before.last();
     }
 
-    public List<GapOnQueue> getGaps() {
-        if (cachedGaps == null) {
-            cachedGaps = calculateGaps();
-        }
-        return cachedGaps;
-    }
-
-    private List<GapOnQueue> calculateGaps() {
-        List<Gap> result = new ArrayList<Gap>();
-        DateAndHour previousEnd = null;
-        ResourceCalendar calendar = resource.getCalendar();
-        List<CalendarAvailability> activationPeriods = calendar.getCalendarAvailabilities();
-
-        for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
-            DateAndHour startTime = each.getStartTime();
-            if (previousEnd == null || startTime.isAfter(previousEnd)) {
-                List<GapInterval> gapIntervals = GapInterval.
-                        create(previousEnd, startTime).
-                        delimitByActivationPeriods(activationPeriods);
-                if (!gapIntervals.isEmpty()) {
-                    result.addAll(GapInterval.gapsOn(gapIntervals, resource));
-                }
+    /**
+     * @return the element after <code>element</code> in the queue, or
+     *         <code>null</code> if there is none
+     */
+    public LimitingResourceQueueElement getNextElement(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueElement each : limitingResourceQueueElements.tailSet(element)) {
+            if (each != element) {
+                return each;
             }
-            previousEnd = each.getEndTime();
         }
-        result.add(Gap.create(resource, previousEnd, null));
-        return GapOnQueue.onQueue(this, result);
+        return null;
+    }
+
+    private void invalidGapsIndex() {
+        gapsIndex = null;
+    }
+
+    /**
+     * The index is kept up to date while elements are added or removed, and
+     * calculated again from scratch after any of them is moved
+     */
+    public GapsIndex getGapsIndex() {
+        if (gapsIndex == null) {
+            gapsIndex = GapsIndex.create(this);
+        }
+        return gapsIndex;
+    }
+
+    public List<GapOnQueue> getGaps() {
+        return getGapsIndex().getGaps();
     }
 
     public SortedSet<LimitingResourceQueueElement> getLimitingResourceQueueElements() {
@@ -168,7 +171,7 @@ public class LimitingResourceQueue extends BaseEntity {
 
     public void queueElementMoved(
             LimitingResourceQueueElement limitingResourceQueueElement) {
-        invalidCachedGaps();
+        invalidGapsIndex();
     }
 
     public String toString() {
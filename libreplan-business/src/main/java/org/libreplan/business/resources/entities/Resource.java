@@ -133,8 +133,6 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
 
     private Set<DayAssignment> dayAssignments = new HashSet<DayAssignment>();
 
-    private Map<LocalDate, List<DayAssignment>> assignmentsByDayCached = null;
-
     private Set<ResourcesCostCategoryAssignment> resourcesCostCategoryAssignments =
             new HashSet<ResourcesCostCategoryAssignment>();
 
@@ -142,48 +140,55 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
 
     private LimitingResourceQueue limitingResourceQueue;
 
-    private void clearCachedData() {
-        assignmentsByDayCached = null;
-        dayAssignmentsState.clearCachedData();
-    }
-
-    private List<DayAssignment> getAssignmentsForDay(LocalDate date) {
-        if ( assignmentsByDayCached == null ) {
-            assignmentsByDayCached = DayAssignment.byDay(getAssignments());
-        }
-        List<DayAssignment> list = assignmentsByDayCached.get(date);
-        if ( list == null ){
-            return Collections.emptyList();
-        }
-        return list;
-    }
-
     private abstract class DayAssignmentsState {
 
         private List<DayAssignment> cachedAssignments;
 
-        abstract List<DayAssignment> calculateAssignments();
+        private DayAssignmentsIndex index;
+
+        /**
+         * Called before the assignments of the resource are indexed from
+         * scratch. The assignments added later are checked with
+         * {@link #accepts(DayAssignment)} without calling this again.
+         */
+        void beforeIndexing() {
+        }
+
+        abstract boolean accepts(DayAssignment each);
+
+        DayAssignmentsIndex getIndex() {
+            if ( index == null ) {
+                beforeIndexing();
+                index = DayAssignmentsIndex.create(filter(dayAssignments));
+            }
+            return index;
+        }
 
         List<DayAssignment> getAssignments() {
             if ( cachedAssignments != null ) {
                 return cachedAssignments;
             }
-            return cachedAssignments = calculateAssignments();
+            return cachedAssignments = getIndex().getAssignments();
         }
 
-        void clearCachedData() {
-            cachedAssignments = null;
+        void added(Collection<? extends DayAssignment> assignments) {
+            if ( index != null ) {
+                index.addAll(filter(assignments));
+                cachedAssignments = null;
+            }
         }
-    }
 
-    private class UsingScenarioManager extends DayAssignmentsState {
+        void removed(Collection<? extends DayAssignment> assignments) {
+            if ( index != null ) {
+                index.removeAll(assignments);
+                cachedAssignments = null;
+            }
+        }
 
-        @Override
-        List<DayAssignment> calculateAssignments() {
+        private List<DayAssignment> filter(Collection<? extends DayAssignment> assignments) {
             List<DayAssignment> result = new ArrayList<DayAssignment>();
-            Scenario current = Registry.getScenarioManager().getCurrent();
-            for (DayAssignment each : dayAssignments) {
-                if ( each.getScenario() != null && each.getScenario().equals(current) ) {
+            for (DayAssignment each : assignments) {
+                if ( accepts(each) ) {
                     result.add(each);
                 }
             }
@@ -191,6 +196,21 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
         }
     }
 
+    private class UsingScenarioManager extends DayAssignmentsState {
+
+        private Scenario current;
+
+        @Override
+        void beforeIndexing() {
+            current = Registry.getScenarioManager().getCurrent();
+        }
+
+        @Override
+        boolean accepts(DayAssignment each) {
+            return each.getScenario() != null && each.getScenario().equals(current);
+        }
+    }
+
     private class OnSpecifiedScenario extends DayAssignmentsState {
         private final Scenario currentScenario;
 
@@ -200,14 +220,8 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
         }
 
         @Override
-        List<DayAssignment> calculateAssignments() {
-            List<DayAssignment> result = new ArrayList<DayAssignment>();
-            for (DayAssignment each : dayAssignments) {
-                if ( isTransient(each) || each.getScenario().equals(currentScenario) ) {
-                    result.add(each);
-                }
-            }
-            return result;
+        boolean accepts(DayAssignment each) {
+            return isTransient(each) || each.getScenario().equals(currentScenario);
         }
 
         private boolean isTransient(DayAssignment each) {
@@ -844,7 +858,11 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
     }
 
     public EffortDuration getAssignedEffort(LocalDate localDate) {
-        return DayAssignment.sum(getAssignmentsForDay(localDate));
+        return dayAssignmentsState.getIndex().getAssignedEffort(localDate);
+    }
+
+    public EffortDuration getAssignedEffort(LocalDate startInclusive, LocalDate endExclusive) {
+        return dayAssignmentsState.getIndex().getAssignedEffort(startInclusive, endExclusive);
     }
 
     public EffortDuration getAssignedDurationDiscounting(
@@ -852,7 +870,7 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
             LocalDate day) {
 
         EffortDuration result = zero();
-        for (DayAssignment dayAssignment : getAssignmentsForDay(day)) {
+        for (DayAssignment dayAssignment : dayAssignmentsState.getIndex().getAssignmentsAt(day)) {
 
             if ( !dayAssignment.belongsToSomeOf(allocationsFromWhichDiscountHours) ) {
                 result = result.plus(dayAssignment.getDuration());
@@ -864,14 +882,19 @@ public abstract class Resource extends IntegrationEntity implements IHumanIdenti
     public void addNewAssignments(Collection<? extends DayAssignment> assignments) {
         Validate.notNull(assignments);
         Validate.noNullElements(assignments);
-        clearCachedData();
-        this.dayAssignments.addAll(assignments);
+        List<DayAssignment> added = new ArrayList<DayAssignment>();
+        for (DayAssignment each : assignments) {
+            if ( this.dayAssignments.add(each) ) {
+                added.add(each);
+            }
+        }
+        dayAssignmentsState.added(added);
     }
 
     public void removeAssignments(Collection<? extends DayAssignment> assignments) {
         Validate.noNullElements(assignments);
-        clearCachedData();
         this.dayAssignments.removeAll(assignments);
+        dayAssignmentsState.removed(assignments);
     }
 
     public List<DayAssignment> getAssignments() {
@@ -0,0 +1,268 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * In-memory index to search a list of elements by the texts that contain a filter, ignoring case and whitespace.
+ * <p>
+ * The texts are normalized once when the index is created, and the positions of the elements are indexed by the
+ * trigrams of their texts. So a search only checks the elements that have all the trigrams of the filter, instead of
+ * all of them. Filters shorter than a trigram check all the elements.
+ * </p>
+ * <p>
+ * The matches are ranked: first the elements with a text equal to the filter, then the ones with a text starting
+ * with it and last the ones that only contain it. Elements with the same rank keep the order of the list.
+ * </p>
+ * <p>
+ * It is immutable, so it can be shared between threads.
+ * </p>
+ */
+public class SearchIndex<T> {
+
+    /**
+     * Limit of the searches that return all the elements found.
+     */
+    public static final int NO_LIMIT = -1;
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int EQUAL = 0;
+
+    private static final int STARTS_WITH = 1;
+
+    private static final int CONTAINS = 2;
+
+    private static final int NOT_MATCHED = 3;
+
+    public static <T> SearchIndex<T> create(Collection<? extends T> elements, Function<? super T, String> text) {
+        Validate.notNull(text);
+        return createWithTexts(elements, element -> Collections.singletonList(text.apply(element)));
+    }
+
+    public static <T> SearchIndex<T> createWithTexts(Collection<? extends T> elements,
+                                                     Function<? super T, ? extends Collection<String>> texts) {
+        Validate.notNull(elements);
+        Validate.notNull(texts);
+        return new SearchIndex<>(elements, texts);
+    }
+
+    /**
+     * @return the text without whitespace and in lower case, as it is compared by the index
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : StringUtils.deleteWhitespace(text.toLowerCase());
+    }
+
+    private final List<T> elements;
+
+    private final String[][] texts;
+
+    private final Map<String, int[]> positionsByGram;
+
+    private SearchIndex(Collection<? extends T> elements, Function<? super T, ? extends Collection<String>> texts) {
+        this.elements = Collections.unmodifiableList(new ArrayList<>(elements));
+        this.texts = new String[this.elements.size()][];
+
+        Map<String, PositionsBuilder> builders = new HashMap<>();
+        for (int i = 0; i < this.texts.length; i++) {
+            Collection<String> textsOfElement = texts.apply(this.elements.get(i));
+            this.texts[i] = new String[textsOfElement.size()];
+
+            int j = 0;
+            for (String each : textsOfElement) {
+                String text = normalize(each);
+                this.texts[i][j++] = text;
+
+                for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+                    builders.computeIfAbsent(text.substring(start, start + GRAM_LENGTH), gram -> new PositionsBuilder())
+                            .add(i);
+                }
+            }
+        }
+
+        this.positionsByGram = new HashMap<>(builders.size());
+        for (Entry<String, PositionsBuilder> each : builders.entrySet()) {
+            positionsByGram.put(each.getKey(), each.getValue().build());
+        }
+    }
+
+    public List<T> getElements() {
+        return elements;
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    public List<T> search(String filter, int limit) {
+        return search(filter, element -> true, limit);
+    }
+
+    /**
+     * @param accepted
+     *            only the elements accepted by it are returned
+     * @param limit
+     *            maximum number of elements returned, the best ranked ones. If it is {@link #NO_LIMIT} all the
+     *            elements found are returned
+     */
+    public List<T> search(String filter, Predicate<? super T> accepted, int limit) {
+        Validate.notNull(accepted);
+        if (limit == 0) {
+            return new ArrayList<>();
+        }
+        String normalized = normalize(filter);
+
+        List<List<T>> byRank = Arrays.asList(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (int position : candidatesFor(normalized)) {
+            int rank = rank(position, normalized);
+            if (rank != NOT_MATCHED && accepted.test(elements.get(position))) {
+                byRank.get(rank).add(elements.get(position));
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (List<T> each : byRank) {
+            result.addAll(each);
+        }
+        return limit != NO_LIMIT && result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * @return the elements with a text equal to the filter, ignoring case and whitespace
+     */
+    public List<T> searchEqual(String filter) {
+        String normalized = normalize(filter);
+
+        List<T> result = new ArrayList<>();
+        for (int position : candidatesFor(normalized)) {
+            if (rank(position, normalized) == EQUAL) {
+                result.add(elements.get(position));
+            }
+        }
+        return result;
+    }
+
+    private int rank(int position, String filter) {
+        int result = NOT_MATCHED;
+        for (String text : texts[position]) {
+            if (text.equals(filter)) {
+                return EQUAL;
+            } else if (text.startsWith(filter)) {
+                result = Math.min(result, STARTS_WITH);
+            } else if (text.contains(filter)) {
+                result = Math.min(result, CONTAINS);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the positions, in ascending order, of the elements that have all the trigrams of the filter
+     */
+    private int[] candidatesFor(String filter) {
+        if (filter.length() < GRAM_LENGTH) {
+            return allPositions();
+        }
+
+        List<int[]> positionsOfGrams = new ArrayList<>();
+        for (int start = 0; start + GRAM_LENGTH <= filter.length(); start++) {
+            int[] positions = positionsByGram.get(filter.substring(start, start + GRAM_LENGTH));
+            if (positions == null) {
+                return new int[0];
+            }
+            positionsOfGrams.add(positions);
+        }
+
+        // Intersecting from the shortest list keeps the intermediate results small
+        positionsOfGrams.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        int[] result = positionsOfGrams.get(0);
+        for (int i = 1; i < positionsOfGrams.size() && result.length > 0; i++) {
+            result = intersection(result, positionsOfGrams.get(i));
+        }
+        return result;
+    }
+
+    private int[] allPositions() {
+        int[] result = new int[elements.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = i;
+        }
+        return result;
+    }
+
+    private static int[] intersection(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Accumulates the positions of the elements containing a trigram. They are added in ascending order, so repeated
+     * positions are always consecutive.
+     */
+    private static class PositionsBuilder {
+
+        private int[] positions = new int[4];
+
+        private int size = 0;
+
+        void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        int[] build() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workingday;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Mutable sum of {@link EffortDuration efforts}, kept as seconds.
+ * <p>
+ * It's meant to be used inside the loops that are run for every day and
+ * resource, so a new {@link EffortDuration} isn't created for each
+ * intermediate result. The result is converted to {@link EffortDuration} only
+ * once, when it's returned from the loop.
+ * </p>
+ *
+ * Like {@link EffortDuration} it cannot be negative.
+ */
+public class EffortAccumulator {
+
+    public static EffortAccumulator create() {
+        return new EffortAccumulator(0);
+    }
+
+    public static EffortAccumulator startingAt(EffortDuration initial) {
+        return new EffortAccumulator(initial.getSeconds());
+    }
+
+    private int seconds;
+
+    private EffortAccumulator(int seconds) {
+        this.seconds = seconds;
+    }
+
+    public EffortAccumulator add(EffortDuration effort) {
+        return addSeconds(effort.getSeconds());
+    }
+
+    public EffortAccumulator addSeconds(int amount) {
+        Validate.isTrue(amount >= 0, "seconds cannot be negative");
+        seconds += amount;
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the effort is bigger than the accumulated one
+     */
+    public EffortAccumulator subtract(EffortDuration effort) {
+        Validate.isTrue(effort.getSeconds() <= seconds, "minued must not be smaller than subtrahend");
+        seconds -= effort.getSeconds();
+        return this;
+    }
+
+    /**
+     * Adds the part of <code>assigned</code> that exceeds <code>capacity</code>
+     */
+    public EffortAccumulator addExceeding(EffortDuration assigned, EffortDuration capacity) {
+        return addSeconds(Math.max(0, assigned.getSeconds() - capacity.getSeconds()));
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public boolean isZero() {
+        return seconds == 0;
+    }
+
+    public EffortDuration toEffortDuration() {
+        return EffortDuration.seconds(seconds);
+    }
+
+    @Override
+    public String toString() {
+        return toEffortDuration().toString();
+    }
+
+}
@@ -53,6 +53,29 @@ public class EffortDuration implements Comparable<EffortDuration> {
 
     private static final Pattern contiguousDigitsPattern = Pattern.compile("\\d+");
 
+    private static final int CACHED_SECONDS_STEP = 60;
+
+    private static final int MAX_CACHED_SECONDS = 24 * 3600;
+
+    /**
+     * The durations of whole minutes up to a day, which are the ones that the
+     * calendars and the allocations produce all the time
+     */
+    private static final EffortDuration[] cached = new EffortDuration[MAX_CACHED_SECONDS / CACHED_SECONDS_STEP + 1];
+
+    static {
+        for (int i = 0; i < cached.length; i++) {
+            cached[i] = new EffortDuration(i * CACHED_SECONDS_STEP);
+        }
+    }
+
+    private static EffortDuration valueOf(int seconds) {
+        if ( seconds >= 0 && seconds <= MAX_CACHED_SECONDS && seconds % CACHED_SECONDS_STEP == 0 ) {
+            return cached[seconds / CACHED_SECONDS_STEP];
+        }
+        return new EffortDuration(seconds);
+    }
+
     private final int seconds;
 
     private EffortDuration(int seconds) {
@@ -124,20 +147,19 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public static <T> EffortDuration sum(Iterable<? extends T> collection, IEffortFrom<T> effortFrom) {
-        EffortDuration result = zero();
+        EffortAccumulator result = EffortAccumulator.create();
         for (T each : collection) {
-            result = result.plus(effortFrom.from(each));
+            result.add(effortFrom.from(each));
         }
-        return result;
+        return result.toEffortDuration();
     }
 
     public static EffortDuration sum(EffortDuration... summands) {
-        return sum(Arrays.asList(summands), new IEffortFrom<EffortDuration>() {
-            @Override
-            public EffortDuration from(EffortDuration each) {
-                return each;
-            }
-        });
+        EffortAccumulator result = EffortAccumulator.create();
+        for (EffortDuration each : summands) {
+            result.add(each);
+        }
+        return result.toEffortDuration();
     }
 
     public static EffortDuration zero() {
@@ -145,7 +167,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public static EffortDuration elapsing(int amount, Granularity granularity) {
-        return new EffortDuration(granularity.toSeconds(amount));
+        return valueOf(granularity.toSeconds(amount));
     }
 
     public static EffortDuration hours(int amount) {
@@ -183,7 +205,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     }
 
     public EffortDuration and(int amount, Granularity granularity) {
-        return new EffortDuration(seconds + granularity.toSeconds(amount));
+        return valueOf(seconds + granularity.toSeconds(amount));
     }
 
     @Override
@@ -243,7 +265,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
      */
     public EffortDuration divideBy(int n) {
         Validate.isTrue(n > 0);
-        return new EffortDuration(seconds / n);
+        return valueOf(seconds / n);
     }
 
     /**
@@ -303,7 +325,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
      *         {@link EffortDuration} and the other duration
      */
     public EffortDuration plus(EffortDuration other) {
-        return new EffortDuration(seconds + other.seconds);
+        return valueOf(seconds + other.seconds);
     }
 
     public boolean isZero() {
@@ -323,7 +345,7 @@ public class EffortDuration implements Comparable<EffortDuration> {
     public EffortDuration minus(EffortDuration duration) {
         Validate.isTrue(this.compareTo(duration) >= 0, "minued must not be smaller than subtrahend");
 
-        return new EffortDuration(seconds - duration.seconds);
+        return valueOf(seconds - duration.seconds);
     }
 
     public BigDecimal toHoursAsDecimalWithScale(int scale) {
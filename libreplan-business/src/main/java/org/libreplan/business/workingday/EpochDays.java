@@ -0,0 +1,60 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.workingday;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Conversion of days to and from their number of days since 1970-01-01.
+ * <p>
+ * They are used as compact keys and array positions by the structures that
+ * are accumulated for every day, so {@link #epochDay(LocalDate)} is done with
+ * integer arithmetic on the fields of the date, without creating any object.
+ * </p>
+ */
+public class EpochDays {
+
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    private EpochDays() {
+    }
+
+    /**
+     * @return the number of days from 1970-01-01 to <code>date</code>
+     */
+    public static int epochDay(LocalDate date) {
+        int year = date.getYear();
+        int month = date.getMonthOfYear();
+        if ( month <= 2 ) {
+            year--;
+        }
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + date.getDayOfMonth() - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    public static LocalDate fromEpochDay(int epochDay) {
+        return EPOCH.plusDays(epochDay);
+    }
+
+}
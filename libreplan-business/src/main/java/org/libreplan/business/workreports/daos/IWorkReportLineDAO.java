@@ -21,6 +21,7 @@
 
 package org.libreplan.business.workreports.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -29,6 +30,7 @@ import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.reports.dtos.WorkReportLineDTO;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.util.Pair;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.entities.WorkReport;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 
@@ -41,6 +43,15 @@ import org.libreplan.business.workreports.entities.WorkReportLine;
 public interface IWorkReportLineDAO extends
         IIntegrationEntityDAO<WorkReportLine> {
 
+    /**
+     * Receives the summary of the {@link WorkReportLine WorkReportLines} of an
+     * {@link OrderElement} without the lines being loaded.
+     */
+    public interface ITimesheetSummaryReceiver {
+        public void receive(Long orderElementId, EffortDuration effort,
+                Date firstDate, Date lastDate, boolean finished);
+    }
+
     List<WorkReportLine> findByOrderElement(OrderElement orderElement);
 
     List<WorkReportLine> findByOrderElementAndChildren(OrderElement orderElement);
@@ -74,6 +85,17 @@ public interface IWorkReportLineDAO extends
 
     Boolean isFinished(OrderElement orderElement);
 
+    /**
+     * Sends to the <code>receiver</code> the sum of the effort, the first and
+     * last dates and whether there is any finished line for each of the
+     * {@link OrderElement OrderElements} with the given ids. They are
+     * calculated by the database with grouped queries, so the
+     * {@link WorkReportLine WorkReportLines} are not loaded. The
+     * {@link OrderElement OrderElements} without lines are not sent.
+     */
+    void forEachTimesheetSummaryOf(Collection<Long> orderElementIds,
+            ITimesheetSummaryReceiver receiver);
+
     List<WorkReportLine> findByOrderElementAndWorkReports(
             OrderElement orderElement, List<WorkReport> workReports);
     /**
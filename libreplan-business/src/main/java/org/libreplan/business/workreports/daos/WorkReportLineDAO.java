@@ -25,7 +25,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
@@ -35,6 +37,7 @@ import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.reports.dtos.WorkReportLineDTO;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.util.Pair;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.entities.WorkReport;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -55,6 +58,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
         implements IWorkReportLineDAO {
 
+    /**
+     * Maximum number of order elements in the <code>in</code> condition of a
+     * query.
+     */
+    private static final int MAX_ORDER_ELEMENTS_PER_QUERY = 500;
+
     @SuppressWarnings("unchecked")
     @Override
     public List<WorkReportLine> findByOrderElement(OrderElement orderElement){
@@ -200,6 +209,46 @@ public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
         return criteria.uniqueResult() != null;
     }
 
+    @Override
+    public void forEachTimesheetSummaryOf(Collection<Long> orderElementIds,
+            ITimesheetSummaryReceiver receiver) {
+        List<Long> ids = new ArrayList<Long>(orderElementIds);
+        for (int i = 0; i < ids.size(); i += MAX_ORDER_ELEMENTS_PER_QUERY) {
+            List<Long> chunk = ids.subList(i,
+                    Math.min(i + MAX_ORDER_ELEMENTS_PER_QUERY, ids.size()));
+            sendTimesheetSummaryOf(chunk, receiver);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sendTimesheetSummaryOf(List<Long> orderElementIds,
+            ITimesheetSummaryReceiver receiver) {
+        Set<Long> finished = new HashSet<Long>(getSession()
+                .createQuery(
+                        "SELECT DISTINCT line.orderElement.id "
+                                + "FROM WorkReportLine line "
+                                + "WHERE line.finished = true "
+                                + "AND line.orderElement.id IN (:ids)")
+                .setParameterList("ids", orderElementIds).list());
+
+        List<Object[]> rows = getSession()
+                .createQuery(
+                        "SELECT line.orderElement.id, SUM(line.effort), "
+                                + "MIN(line.date), MAX(line.date) "
+                                + "FROM WorkReportLine line "
+                                + "WHERE line.orderElement.id IN (:ids) "
+                                + "GROUP BY line.orderElement.id")
+                .setParameterList("ids", orderElementIds).list();
+        for (Object[] row : rows) {
+            Long orderElementId = (Long) row[0];
+            // The sum of the efforts is a number of seconds, not a duration
+            receiver.receive(orderElementId,
+                    EffortDuration.seconds(((Number) row[1]).intValue()),
+                    (Date) row[2], (Date) row[3],
+                    finished.contains(orderElementId));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<WorkReportLine> findByOrderElementAndWorkReports(
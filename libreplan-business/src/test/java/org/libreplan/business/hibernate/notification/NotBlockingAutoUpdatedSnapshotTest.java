@@ -0,0 +1,411 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the scheduling of the reloads of
+ * {@link NotBlockingAutoUpdatedSnapshot}.
+ */
+public class NotBlockingAutoUpdatedSnapshotTest {
+
+    private ScheduledExecutorService executor = Executors
+            .newScheduledThreadPool(2);
+
+    private AtomicInteger calculations = new AtomicInteger();
+
+    private List<ModifiedEntities> patches = Collections
+            .synchronizedList(new ArrayList<ModifiedEntities>());
+
+    private volatile CountDownLatch blockCalculations = new CountDownLatch(0);
+
+    private CountDownLatch patched = new CountDownLatch(1);
+
+    private volatile CountDownLatch started = new CountDownLatch(0);
+
+    private volatile boolean failNextPatch = false;
+
+    private ManualClock clock = new ManualClock();
+
+    private ManualScheduler scheduler = new ManualScheduler();
+
+    /**
+     * A clock that only moves when the test says so
+     */
+    private static class ManualClock extends Clock {
+
+        private volatile long millis;
+
+        void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Executes the calculations right away but keeps the scheduled launches
+     * until {@link #runScheduled()} is called, recording their delays
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+        private final List<Long> delays = Collections
+                .synchronizedList(new ArrayList<Long>());
+
+        private final List<Runnable> scheduled = Collections
+                .synchronizedList(new ArrayList<Runnable>());
+
+        ManualScheduler() {
+            super(2);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.schedule(command, 0, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay,
+                TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            scheduled.add(command);
+            return super.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                }
+            }, 1, TimeUnit.DAYS);
+        }
+
+        long lastDelay() {
+            return delays.get(delays.size() - 1);
+        }
+
+        void runScheduled() {
+            List<Runnable> toRun;
+            synchronized (scheduled) {
+                toRun = new ArrayList<Runnable>(scheduled);
+                scheduled.clear();
+            }
+            for (Runnable each : toRun) {
+                each.run();
+            }
+        }
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private Callable<Integer> counting() {
+        return new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws Exception {
+                started.countDown();
+                blockCalculations.await(5, TimeUnit.SECONDS);
+                return calculations.incrementAndGet();
+            }
+        };
+    }
+
+    private ISnapshotPatcher<Integer> recordingPatcher() {
+        return new ISnapshotPatcher<Integer>() {
+
+            @Override
+            public Integer patch(Integer previousValue,
+                    ModifiedEntities modifications) throws Exception {
+                started.countDown();
+                blockCalculations.await(5, TimeUnit.SECONDS);
+                if (failNextPatch) {
+                    failNextPatch = false;
+                    throw new IllegalStateException("patch failed");
+                }
+                patches.add(modifications);
+                patched.countDown();
+                return previousValue + 1;
+            }
+        };
+    }
+
+    private NotBlockingAutoUpdatedSnapshot<Integer> snapshot(
+            long minIntervalMillis) {
+        return new NotBlockingAutoUpdatedSnapshot<Integer>("test",
+                counting(), recordingPatcher(), executor, minIntervalMillis,
+                60000);
+    }
+
+    private NotBlockingAutoUpdatedSnapshot<Integer> manualSnapshot(
+            long minIntervalMillis, long maxStalenessMillis) {
+        return new NotBlockingAutoUpdatedSnapshot<Integer>("test",
+                counting(), recordingPatcher(), scheduler, minIntervalMillis,
+                maxStalenessMillis, clock);
+    }
+
+    /**
+     * Loads the first value taking 1000 ms, so the usual duration of a
+     * calculation is 1000 ms
+     */
+    private void firstLoadTakingASecond(
+            NotBlockingAutoUpdatedSnapshot<Integer> snapshot)
+            throws Exception {
+        clock.set(0);
+        blockCalculations = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        snapshot.ensureFirstLoad();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        clock.set(1000);
+        blockCalculations.countDown();
+        assertEquals(1, (int) snapshot.getValue());
+        waitUntilReloadsAre(snapshot, 1);
+        assertEquals(1000, snapshot.getStatistics().getMeanReloadMillis());
+    }
+
+    /**
+     * Launches a patch for a modification received at 2000 ms and leaves it
+     * blocked while executing
+     */
+    private void blockedPatchLaunchedAt2000(
+            NotBlockingAutoUpdatedSnapshot<Integer> snapshot)
+            throws Exception {
+        blockCalculations = new CountDownLatch(1);
+        started = new CountDownLatch(1);
+        clock.set(2000);
+        snapshot.reloadNeeded(modificationOf(1L));
+        scheduler.runScheduled();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    private static ModifiedEntities modificationOf(Long id) {
+        return ModifiedEntities.builder().modified(Object.class, id).build();
+    }
+
+    @Test
+    public void theFirstValueIsCalculatedOnDemand() {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = snapshot(0);
+
+        assertEquals(1, (int) snapshot.getValue());
+        assertEquals(1, calculations.get());
+    }
+
+    @Test
+    public void aBurstOfModificationsIsCoalescedIntoOneReload()
+            throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = snapshot(200);
+        assertEquals(1, (int) snapshot.getValue());
+
+        for (long i = 0; i < 5; i++) {
+            snapshot.reloadNeeded(modificationOf(i));
+        }
+        assertEquals(1, (int) snapshot.getValue());
+
+        assertTrue(patched.await(5, TimeUnit.SECONDS));
+        waitUntilValueIs(snapshot, 2);
+        assertEquals(1, patches.size());
+        assertEquals(5, patches.get(0).getModifiedIdsOf(Object.class).size());
+        assertEquals(4, snapshot.getStatistics().getCoalescedReloads());
+    }
+
+    @Test
+    public void theModificationsDuringACalculationAreAppliedWhenItFinishes()
+            throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = snapshot(0);
+        assertEquals(1, (int) snapshot.getValue());
+
+        blockCalculations = new CountDownLatch(1);
+        patched = new CountDownLatch(2);
+        snapshot.reloadNeeded(modificationOf(1L));
+        Thread.sleep(100);
+        snapshot.reloadNeeded(modificationOf(2L));
+        snapshot.reloadNeeded(modificationOf(3L));
+        blockCalculations.countDown();
+
+        assertTrue(patched.await(5, TimeUnit.SECONDS));
+        waitUntilValueIs(snapshot, 3);
+        assertEquals(2, patches.size());
+        assertEquals(1, patches.get(0).getModifiedIdsOf(Object.class).size());
+        assertEquals(2, patches.get(1).getModifiedIdsOf(Object.class).size());
+        assertEquals(0, snapshot.getStatistics().getCancelledReloads());
+    }
+
+    @Test
+    public void aCalculationCloseToBeingDoneIsNotCancelled() throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = manualSnapshot(0,
+                60000);
+        firstLoadTakingASecond(snapshot);
+        blockedPatchLaunchedAt2000(snapshot);
+
+        clock.set(2600);
+        snapshot.reloadNeeded(modificationOf(2L));
+        assertEquals(0, snapshot.getStatistics().getCancelledReloads());
+
+        blockCalculations.countDown();
+        waitUntilValueIs(snapshot, 2);
+        scheduler.runScheduled();
+        waitUntilValueIs(snapshot, 3);
+        assertEquals(2, patches.size());
+        assertEquals(0, snapshot.getStatistics().getCancelledReloads());
+    }
+
+    @Test
+    public void aCalculationIsNotCancelledIfRestartingItExceedsTheMaxStaleness()
+            throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = manualSnapshot(0,
+                1000);
+        firstLoadTakingASecond(snapshot);
+        blockedPatchLaunchedAt2000(snapshot);
+
+        clock.set(2100);
+        snapshot.reloadNeeded(modificationOf(2L));
+        assertEquals(0, snapshot.getStatistics().getCancelledReloads());
+
+        blockCalculations.countDown();
+        waitUntilValueIs(snapshot, 2);
+        assertEquals(1, patches.get(0).getModifiedIdsOf(Object.class).size());
+    }
+
+    @Test
+    public void aCancelledCalculationReschedulesItsModifications()
+            throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = manualSnapshot(0,
+                60000);
+        firstLoadTakingASecond(snapshot);
+        blockedPatchLaunchedAt2000(snapshot);
+
+        clock.set(2100);
+        snapshot.reloadNeeded(modificationOf(2L));
+        ISnapshotStatistics statistics = snapshot.getStatistics();
+        assertEquals(1, statistics.getCancelledReloads());
+        assertEquals(0, statistics.getErrors());
+        assertEquals(1, statistics.getReloads());
+        assertEquals(0, scheduler.lastDelay());
+
+        blockCalculations.countDown();
+        scheduler.runScheduled();
+        waitUntilValueIs(snapshot, 2);
+        assertEquals(1, patches.size());
+        assertEquals(2, patches.get(0).getModifiedIdsOf(Object.class).size());
+        waitUntilReloadsAre(snapshot, 2);
+        assertEquals(1, statistics.getCancelledReloads());
+        assertEquals(0, statistics.getErrors());
+    }
+
+    @Test
+    public void theRetryOfAFailedCalculationIsBroughtForwardToRespectTheMaxStaleness()
+            throws Exception {
+        NotBlockingAutoUpdatedSnapshot<Integer> snapshot = manualSnapshot(
+                1000, 1500);
+        clock.set(0);
+        assertEquals(1, (int) snapshot.getValue());
+        waitUntilReloadsAre(snapshot, 1);
+
+        clock.set(10000);
+        snapshot.reloadNeeded(modificationOf(1L));
+        assertEquals(1000, scheduler.lastDelay());
+
+        failNextPatch = true;
+        clock.set(11000);
+        scheduler.runScheduled();
+        waitUntilErrors(snapshot, 1);
+        // the modification is pending since 10000, so the retry can't wait
+        // the whole minimum interval since the launch at 11000
+        assertEquals(500, scheduler.lastDelay());
+
+        clock.set(11500);
+        scheduler.runScheduled();
+        waitUntilValueIs(snapshot, 2);
+        assertEquals(1, patches.size());
+    }
+
+    private void waitUntilErrors(
+            NotBlockingAutoUpdatedSnapshot<Integer> snapshot, long expected)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + 5000;
+        while ((snapshot.getStatistics().getErrors() != expected || scheduler.delays
+                .size() < 2) && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, snapshot.getStatistics().getErrors());
+    }
+
+    private void waitUntilReloadsAre(
+            NotBlockingAutoUpdatedSnapshot<Integer> snapshot, long expected)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + 5000;
+        while (snapshot.getStatistics().getReloads() != expected
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, snapshot.getStatistics().getReloads());
+    }
+
+    private void waitUntilValueIs(
+            NotBlockingAutoUpdatedSnapshot<Integer> snapshot, int expected)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + 5000;
+        while (snapshot.getValue() != expected
+                && System.currentTimeMillis() < limit) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, (int) snapshot.getValue());
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.hibernate.notification;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SnapshotStatistics}.
+ */
+public class SnapshotStatisticsTest {
+
+    private SnapshotStatistics statistics = new SnapshotStatistics("test");
+
+    @Test
+    public void theDurationsAreCountedInTheirInterval() {
+        statistics.calculated(0, 0, 50, null);
+        statistics.calculated(0, 0, 100, null);
+        statistics.calculated(0, 0, 5000, null);
+        statistics.calculated(0, 0, 120000, null);
+
+        assertArrayEquals(new long[] { 1, 1, 1, 0, 1 },
+                statistics.getReloadMillisHistogram());
+        assertEquals(4, statistics.getReloads());
+        assertEquals(120000, statistics.getMaxReloadMillis());
+        assertEquals((50 + 100 + 5000 + 120000) / 4,
+                statistics.getMeanReloadMillis());
+    }
+
+    @Test
+    public void theErrorsAreNotCountedAsReloads() {
+        statistics.calculated(0, 0, 50, new RuntimeException());
+
+        assertEquals(0, statistics.getReloads());
+        assertEquals(1, statistics.getErrors());
+        assertEquals(0, statistics.getMeanReloadMillis());
+    }
+
+    @Test
+    public void itIsStaleSinceTheFirstModificationNotReflected() {
+        assertEquals(0, statistics.getStalenessMillis(1000));
+
+        statistics.modified(1000);
+        statistics.modified(1500);
+        assertEquals(1000, statistics.getStalenessMillis(2000));
+
+        statistics.calculated(1500, 0, 10, null);
+        assertEquals(0, statistics.getStalenessMillis(2000));
+    }
+
+    @Test
+    public void aCalculationRequestedBeforeTheLastModificationDoesNotMakeItUpToDate() {
+        statistics.modified(1000);
+        statistics.modified(1500);
+
+        statistics.calculated(1200, 0, 10, null);
+        assertEquals(800, statistics.getStalenessMillis(2000));
+    }
+
+    @Test
+    public void aFailedCalculationDoesNotMakeItUpToDate() {
+        statistics.modified(1000);
+
+        statistics.calculated(1500, 0, 10, new RuntimeException());
+        assertEquals(1000, statistics.getStalenessMillis(2000));
+    }
+
+    @Test
+    public void theStatisticsCanBePublishedThroughJMX() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(
+                "org.libreplan.snapshots:type=Snapshot,name=test");
+        statistics.calculated(0, 0, 50, null);
+
+        server.registerMBean(statistics, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "Reloads"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+}
@@ -26,6 +26,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.joda.time.Days.daysBetween;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.workingday.EffortDuration.hours;
 import static org.libreplan.business.workingday.EffortDuration.zero;
@@ -38,6 +39,7 @@ import org.joda.time.LocalDate;
 import org.junit.Test;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData.Days;
 import org.libreplan.business.calendars.entities.CalendarException;
 import org.libreplan.business.calendars.entities.CalendarExceptionType;
@@ -838,4 +840,93 @@ public class BaseCalendarTest {
         AvailabilityTimeLine availability = calendar.getAvailability();
         assertFalse(availability.isValid(MONDAY_LOCAL_DATE));
     }
+
+    @Test
+    public void exceptionsAddedToTheParentAreSeenByTheDerivedCalendar() {
+        BaseCalendar parent = createBasicCalendar();
+        BaseCalendar derived = parent.newDerivedCalendar();
+
+        assertThat(derived.getCapacityOn(wholeDay(WEDNESDAY_LOCAL_DATE)), equalTo(hours(8)));
+
+        addExceptionOn(parent, WEDNESDAY_LOCAL_DATE, Capacity.zero());
+        assertThat(derived.getCapacityOn(wholeDay(WEDNESDAY_LOCAL_DATE)), equalTo(zero()));
+
+        parent.removeExceptionDay(WEDNESDAY_LOCAL_DATE);
+        assertThat(derived.getCapacityOn(wholeDay(WEDNESDAY_LOCAL_DATE)), equalTo(hours(8)));
+    }
+
+    @Test
+    public void ownExceptionsOverrideTheParentOnes() {
+        BaseCalendar parent = createBasicCalendar();
+        addExceptionOn(parent, WEDNESDAY_LOCAL_DATE, Capacity.zero());
+        BaseCalendar derived = parent.newDerivedCalendar();
+        addExceptionOn(derived, WEDNESDAY_LOCAL_DATE, Capacity.create(hours(4)).overAssignableWithoutLimit());
+
+        assertThat(derived.getCapacityOn(wholeDay(WEDNESDAY_LOCAL_DATE)), equalTo(hours(4)));
+        assertThat(derived.getExceptions().size(), equalTo(1));
+
+        derived.setParent(createBasicCalendar());
+        derived.removeExceptionDay(WEDNESDAY_LOCAL_DATE);
+        assertThat(derived.getCapacityOn(wholeDay(WEDNESDAY_LOCAL_DATE)), equalTo(hours(8)));
+    }
+
+    @Test
+    public void theCapacitiesOfAnIntervalAreTheSameAsDayByDay() {
+        BaseCalendar calendar = createChristmasCalendar().newDerivedCalendar();
+        addExceptionOn(calendar, MONDAY_LOCAL_DATE, Capacity.create(hours(3)).overAssignableWithoutLimit());
+
+        LocalDate start = MONDAY_LOCAL_DATE.minusDays(10);
+        LocalDate end = CHRISTMAS_DAY_LOCAL_DATE.plusDays(10);
+        int[] capacities = calendar.getCapacitiesOn(start, end);
+
+        assertThat(capacities.length, equalTo(daysBetween(start, end).getDays()));
+        assertSameCapacitiesAsDayByDay(calendar, start, capacities);
+        assertThat(calendar.getCapacitiesOn(end, start).length, equalTo(0));
+    }
+
+    @Test
+    public void theCapacitiesOfAnIntervalConsiderTheWorkWeeksAndTheAvailabilities() {
+        BaseCalendar parent = createChristmasCalendar();
+        parent.newVersion(WEDNESDAY_LOCAL_DATE.plusWeeks(2));
+        parent.setCapacityAt(Days.MONDAY, withNormalDuration(hours(2)));
+
+        BaseCalendar calendar = parent.newDerivedCalendar();
+        calendar.newVersion(MONDAY_LOCAL_DATE.plusWeeks(1));
+        calendar.setCapacityAt(Days.TUESDAY, withNormalDuration(hours(5)));
+        calendar.newVersion(MONDAY_LOCAL_DATE.plusWeeks(4));
+        calendar.setParent(createBasicCalendar());
+        calendar.addNewCalendarAvailability(
+                CalendarAvailability.create(MONDAY_LOCAL_DATE.minusDays(3), MONDAY_LOCAL_DATE.plusWeeks(3)));
+        calendar.addNewCalendarAvailability(CalendarAvailability.create(MONDAY_LOCAL_DATE.plusWeeks(5), null));
+
+        LocalDate start = MONDAY_LOCAL_DATE.minusDays(10);
+        assertSameCapacitiesAsDayByDay(calendar, start, calendar.getCapacitiesOn(start, CHRISTMAS_DAY_LOCAL_DATE));
+    }
+
+    private void assertSameCapacitiesAsDayByDay(BaseCalendar calendar, LocalDate start, int[] capacities) {
+        for (int i = 0; i < capacities.length; i++) {
+            LocalDate day = start.plusDays(i);
+            assertThat(capacities[i], equalTo(calendar.getCapacityOn(wholeDay(day)).getSeconds()));
+        }
+    }
+
+    @Test
+    public void changingTheDateOfAnExceptionUpdatesTheExceptionsOfTheCalendarAndItsChildren() {
+        BaseCalendar parent = createBasicCalendar();
+        CalendarException exception = CalendarException.create(
+                MONDAY_LOCAL_DATE, EffortDuration.zero(), createCalendarExceptionType());
+        parent.addExceptionDay(exception);
+        BaseCalendar calendar = parent.newDerivedCalendar();
+
+        assertThat(calendar.getExceptionDay(MONDAY_LOCAL_DATE), equalTo(exception));
+
+        exception.updateUnvalidated(TUESDAY_LOCAL_DATE, null, null);
+
+        assertThat(parent.getOwnExceptionDay(MONDAY_LOCAL_DATE), nullValue());
+        assertThat(parent.getOwnExceptionDay(TUESDAY_LOCAL_DATE), equalTo(exception));
+        assertThat(calendar.getExceptionDay(MONDAY_LOCAL_DATE), nullValue());
+        assertThat(calendar.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)), equalTo(hours(8)));
+        assertThat(calendar.getCapacityOn(wholeDay(TUESDAY_LOCAL_DATE)), equalTo(zero()));
+    }
+
 }
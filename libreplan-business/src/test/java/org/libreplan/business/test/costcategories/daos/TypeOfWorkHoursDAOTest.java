@@ -29,9 +29,15 @@ import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
@@ -56,6 +62,9 @@ public class TypeOfWorkHoursDAOTest {
     @Autowired
     ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
 
+    @Autowired
+    private SessionFactory sessionFactory;
+
     @Test
     @Transactional
     public void testInSpringContainer() {
@@ -122,4 +131,106 @@ public class TypeOfWorkHoursDAOTest {
         //this call should throw the exception
         typeOfWorkHoursDAO.findUniqueByCode(typeOfWorkHours.getCode());
     }
+
+    @Test
+    @Transactional
+    public void testFindTypesOfWorkHoursByCodes() {
+        TypeOfWorkHours first = createValidTypeOfWorkHours();
+        TypeOfWorkHours second = createValidTypeOfWorkHours();
+        typeOfWorkHoursDAO.save(first);
+        typeOfWorkHoursDAO.save(second);
+        typeOfWorkHoursDAO.save(createValidTypeOfWorkHours());
+
+        List<TypeOfWorkHours> found = typeOfWorkHoursDAO.findByCodes(Arrays.asList(
+                " " + first.getCode().toUpperCase() + " ", second.getCode(), "", null, UUID.randomUUID().toString()));
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(first));
+        assertTrue(found.contains(second));
+    }
+
+    @Test
+    @Transactional
+    public void theInsertsAndUpdatesAreFlushedInBatches() {
+        SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+        assertTrue(factory.getSessionFactoryOptions().getJdbcBatchSize() > 1);
+
+        List<TypeOfWorkHours> saved = saveInOneFlush(120);
+        for (TypeOfWorkHours each : saved) {
+            each.setDefaultPrice(BigDecimal.ONE);
+        }
+        getSession().flush();
+        getSession().clear();
+
+        for (TypeOfWorkHours each : saved) {
+            TypeOfWorkHours reloaded = (TypeOfWorkHours) getSession().get(TypeOfWorkHours.class, each.getId());
+            assertEquals(0, BigDecimal.ONE.compareTo(reloaded.getDefaultPrice()));
+            assertEquals(Long.valueOf(1), reloaded.getVersion());
+        }
+    }
+
+    @Test(expected = StaleStateException.class)
+    @Transactional
+    public void theVersionsAreCheckedInTheBatchedUpdates() {
+        List<TypeOfWorkHours> saved = saveInOneFlush(120);
+
+        // Another transaction modified one of them
+        getSession().createSQLQuery("UPDATE type_of_work_hours SET version = version + 1 WHERE id = :id")
+                .setParameter("id", saved.get(60).getId())
+                .executeUpdate();
+
+        for (TypeOfWorkHours each : saved) {
+            each.setDefaultPrice(BigDecimal.ONE);
+        }
+        getSession().flush();
+    }
+
+    @Test
+    @Transactional
+    public void testForEachOrderedByCodeAfterACodeIgnoringCase() {
+        String prefix = UUID.randomUUID().toString();
+        for (String each : Arrays.asList(prefix + "-b", prefix.toUpperCase() + "-A", prefix + "-C")) {
+            TypeOfWorkHours typeOfWorkHours = createValidTypeOfWorkHours();
+            typeOfWorkHours.setCode(each);
+            typeOfWorkHoursDAO.save(typeOfWorkHours);
+        }
+        getSession().flush();
+
+        assertEquals(Arrays.asList(prefix.toUpperCase() + "-A", prefix + "-b"),
+                codesOrderedByCode(prefix.toUpperCase(), 2));
+        assertEquals(Arrays.asList(prefix + "-b", prefix + "-C"),
+                codesOrderedByCode(prefix + "-a", 2));
+        assertEquals(Arrays.asList(prefix + "-C"),
+                codesOrderedByCode(" " + prefix.toUpperCase() + "-B ", 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @Transactional
+    public void theLimitOfForEachOrderedByCodeMustBePositive() {
+        codesOrderedByCode(null, 0);
+    }
+
+    private List<String> codesOrderedByCode(String afterCode, Integer limit) {
+        final List<String> result = new ArrayList<>();
+        typeOfWorkHoursDAO.forEachOrderedByCode(afterCode, limit, entity -> result.add(entity.getCode()));
+
+        return result;
+    }
+
+    private List<TypeOfWorkHours> saveInOneFlush(int number) {
+        List<TypeOfWorkHours> result = new ArrayList<>();
+        for (int i = 0; i < number; i++) {
+            TypeOfWorkHours typeOfWorkHours = createValidTypeOfWorkHours();
+            typeOfWorkHoursDAO.saveWithoutValidating(typeOfWorkHours);
+            result.add(typeOfWorkHours);
+        }
+        getSession().flush();
+
+        return result;
+    }
+
+    private Session getSession() {
+        return sessionFactory.getCurrentSession();
+    }
+
 }
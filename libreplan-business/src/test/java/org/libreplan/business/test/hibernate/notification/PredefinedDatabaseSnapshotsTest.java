@@ -0,0 +1,276 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.hibernate.notification;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Test;
+import org.libreplan.business.common.Configuration;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot;
+import org.libreplan.business.hibernate.notification.ISnapshotPatcher;
+import org.libreplan.business.hibernate.notification.ISnapshotRefresherService;
+import org.libreplan.business.hibernate.notification.ISnapshotStatistics;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
+import org.libreplan.business.hibernate.notification.ReloadOn;
+import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.entities.ICostCalculator;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.resources.daos.ICriterionDAO;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for the cost per task snapshots of {@link PredefinedDatabaseSnapshots}, which are calculated in parallel
+ * by order.
+ */
+public class PredefinedDatabaseSnapshotsTest {
+
+    private static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    private final Map<Long, List<Long>> taskIdsPerOrder = new HashMap<>();
+
+    private final Map<Long, Task> tasks = new HashMap<>();
+
+    private final Map<Long, Collection<Long>> loadedTaskIds = new ConcurrentHashMap<>();
+
+    private final List<PredefinedDatabaseSnapshots> created = new ArrayList<>();
+
+    @After
+    public void shutdownPools() {
+        for (PredefinedDatabaseSnapshots each : created) {
+            ReflectionTestUtils.invokeMethod(each, "shutdown");
+        }
+        Configuration.getInstance().setCostCalculationThreads(null);
+    }
+
+    private void givenOrders(int orders, long seed) {
+        Random random = new Random(seed);
+        long nextId = 1;
+        for (long order = 0; order < orders; order++) {
+            List<Long> taskIds = new ArrayList<>();
+            int numberOfTasks = 1 + random.nextInt(10);
+            for (int i = 0; i < numberOfTasks; i++) {
+                Task task = new Task();
+                ReflectionTestUtils.setField(task, "id", nextId);
+                tasks.put(nextId, task);
+                taskIds.add(nextId);
+                nextId++;
+            }
+            taskIdsPerOrder.put(order, taskIds);
+        }
+    }
+
+    private static SortedMap<LocalDate, BigDecimal> costOf(Task task) {
+        SortedMap<LocalDate, BigDecimal> result = new TreeMap<>();
+        long id = task.getId();
+        for (int day = 0; day < id % 7 + 1; day++) {
+            result.put(START.plusDays(day), BigDecimal.valueOf(id * 10 + day));
+        }
+        return result;
+    }
+
+    private PredefinedDatabaseSnapshots createSnapshots(int threads,
+                                                        Map<String, Callable<?>> calculations) {
+
+        Configuration.getInstance().setCostCalculationThreads(threads);
+
+        PredefinedDatabaseSnapshots result = new PredefinedDatabaseSnapshots();
+        ReflectionTestUtils.invokeMethod(result, "createCostCalculationPool");
+        created.add(result);
+
+        ReflectionTestUtils.setField(result, "transactionService", new DirectTransactionService());
+        ReflectionTestUtils.setField(result, "snapshotRefresherService", new CapturingRefresherService(calculations));
+        ReflectionTestUtils.setField(result, "criterionDAO", createNiceMock(ICriterionDAO.class));
+        ReflectionTestUtils.setField(result, "taskElementDAO", createTaskElementDAO());
+        ReflectionTestUtils.setField(result, "hoursCostCalculator", createCostCalculator());
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ITaskElementDAO createTaskElementDAO() {
+        ITaskElementDAO result = createNiceMock(ITaskElementDAO.class);
+        expect(result.findTaskIdsPerRootTask()).andReturn(taskIdsPerOrder).anyTimes();
+        expect(result.findTasksWithResourceAllocations(anyObject(Collection.class))).andAnswer(() -> {
+            Collection<Long> ids = (Collection<Long>) getCurrentArguments()[0];
+            loadedTaskIds.put(ids.iterator().next(), ids);
+
+            List<Task> loaded = new ArrayList<>();
+            for (Long each : ids) {
+                loaded.add(tasks.get(each));
+            }
+            return loaded;
+        }).anyTimes();
+        replay(result);
+
+        return result;
+    }
+
+    private ICostCalculator createCostCalculator() {
+        ICostCalculator result = createNiceMock(ICostCalculator.class);
+        expect(result.getEstimatedCost(anyObject(Task.class)))
+                .andAnswer(() -> costOf((Task) getCurrentArguments()[0])).anyTimes();
+        replay(result);
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> estimatedCostPerTaskUsing(int threads)
+            throws Exception {
+
+        Map<String, Callable<?>> calculations = new HashMap<>();
+        createSnapshots(threads, calculations).registerSnapshots();
+
+        return (Map<TaskElement, SortedMap<LocalDate, BigDecimal>>) calculations.get("estimated cost per task").call();
+    }
+
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> sequentialEstimatedCostPerTask() {
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<>();
+        for (Task each : tasks.values()) {
+            result.put(each, costOf(each));
+        }
+        return result;
+    }
+
+    @Test
+    public void theParallelCostPerTaskIsTheSequentialOne() throws Exception {
+        for (long seed = 0; seed < 20; seed++) {
+            taskIdsPerOrder.clear();
+            tasks.clear();
+            givenOrders(30, seed);
+
+            assertEquals(sequentialEstimatedCostPerTask(), estimatedCostPerTaskUsing(4));
+        }
+    }
+
+    @Test
+    public void theCostPerTaskIsTheSameWhateverTheNumberOfThreads() throws Exception {
+        givenOrders(50, 17);
+
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> sequential = estimatedCostPerTaskUsing(1);
+        assertEquals(sequentialEstimatedCostPerTask(), sequential);
+        for (int threads : new int[] { 2, 3, 8 }) {
+            assertEquals(sequential, estimatedCostPerTaskUsing(threads));
+        }
+    }
+
+    @Test
+    public void theTasksOfEachOrderAreLoadedTogether() throws Exception {
+        givenOrders(12, 3);
+
+        estimatedCostPerTaskUsing(4);
+
+        assertEquals(taskIdsPerOrder.size(), loadedTaskIds.size());
+        for (List<Long> each : taskIdsPerOrder.values()) {
+            assertEquals(each, loadedTaskIds.get(each.get(0)));
+        }
+    }
+
+    @Test
+    public void thePoolUsesTheConfiguredNumberOfThreads() {
+        PredefinedDatabaseSnapshots snapshots = createSnapshots(3, new HashMap<>());
+
+        ForkJoinPool pool = (ForkJoinPool) ReflectionTestUtils.getField(snapshots, "costCalculationPool");
+        assertEquals(3, pool.getParallelism());
+
+        ReflectionTestUtils.invokeMethod(snapshots, "shutdown");
+        assertTrue(pool.isShutdown());
+    }
+
+    private static class DirectTransactionService implements IAdHocTransactionService {
+
+        @Override
+        public <T> T runOnTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+    }
+
+    /**
+     * Keeps the calculation of each snapshot by name instead of running it.
+     */
+    private static class CapturingRefresherService implements ISnapshotRefresherService {
+
+        private final Map<String, Callable<?>> calculations;
+
+        CapturingRefresherService(Map<String, Callable<?>> calculations) {
+            this.calculations = calculations;
+        }
+
+        @Override
+        public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn) {
+            calculations.put(name, callable);
+            return () -> null;
+        }
+
+        @Override
+        public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+                                                        Callable<T> callable,
+                                                        ISnapshotPatcher<T> patcher,
+                                                        ReloadOn reloadOn) {
+            return takeSnapshot(name, callable, reloadOn);
+        }
+
+        @Override
+        public List<ISnapshotStatistics> getSnapshotsStatistics() {
+            return Collections.emptyList();
+        }
+    }
+
+}
@@ -21,13 +21,19 @@ package org.libreplan.business.test.orders.daos;
 
 import static org.junit.Assert.assertNotNull;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -41,12 +47,28 @@ import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.externalcompanies.entities.DeadlineCommunication;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.RootTaskDatesDTO;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderStatusEnum;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.orders.entities.TaskSource.IOptionalPersistence;
+import org.libreplan.business.orders.entities.TaskSource.TaskGroupSynchronization;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
 import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.scenarios.daos.IScenarioDAO;
 import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.test.calendars.entities.BaseCalendarTest;
 import org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest;
+import org.libreplan.business.users.daos.IOrderAuthorizationDAO;
+import org.libreplan.business.users.daos.IUserDAO;
+import org.libreplan.business.users.entities.OrderAuthorizationType;
+import org.libreplan.business.users.entities.User;
+import org.libreplan.business.users.entities.UserOrderAuthorization;
+import org.libreplan.business.users.entities.UserRole;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -61,6 +83,8 @@ import org.springframework.transaction.annotation.Transactional;
 @ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE, BUSINESS_SPRING_CONFIG_TEST_FILE })
 public class OrderDAOTest {
 
+    private static final LocalDate FAR_FUTURE = new LocalDate(2090, 3, 1);
+
     @Before
     public void loadRequiredData() {
         transactionService.runOnAnotherTransaction(new IOnTransaction<Void>() {
@@ -87,6 +111,18 @@ public class OrderDAOTest {
     @Autowired
     private IAdHocTransactionService transactionService;
 
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IScenarioDAO scenarioDAO;
+
+    @Autowired
+    private IUserDAO userDAO;
+
+    @Autowired
+    private IOrderAuthorizationDAO orderAuthorizationDAO;
+
     @Test
     @Transactional
     public void testInSpringContainer() {
@@ -205,4 +241,136 @@ public class OrderDAOTest {
         });
     }
 
+    private static Date toDate(LocalDate date) {
+        return date.toDateTimeAtStartOfDay().toDate();
+    }
+
+    private Order givenOrderWithRootTaskStartingOn(LocalDate start) {
+        Order order = createValidOrder(UUID.randomUUID().toString());
+        orderDAO.save(order);
+        givenRootTask(order, start);
+
+        return order;
+    }
+
+    private void givenRootTask(Order order, LocalDate start) {
+        TaskSource taskSource = TaskSource.createForGroup(order.getCurrentSchedulingDataForVersion());
+
+        TaskGroupSynchronization synchronization = new TaskGroupSynchronization(taskSource, Collections.emptyList()) {
+
+            @Override
+            protected TaskElement apply(List<TaskElement> children, IOptionalPersistence persistence) {
+                TaskGroup result = TaskGroup.create(taskSource);
+                result.setStartDate(toDate(start));
+                result.setEndDate(toDate(start.plusDays(3)));
+                setTask(taskSource, result);
+                taskSourceDAO.save(taskSource);
+
+                return result;
+            }
+
+        };
+        synchronization.apply(TaskSource.persistTaskSources(taskSourceDAO));
+        orderDAO.flush();
+    }
+
+    private User givenUser(UserRole... roles) {
+        String loginName = UUID.randomUUID().toString();
+        User user = User.create(loginName, loginName, new HashSet<>(Arrays.asList(roles)));
+        userDAO.save(user);
+
+        return user;
+    }
+
+    private void givenReadAuthorization(User user, Order order) {
+        UserOrderAuthorization authorization = UserOrderAuthorization.create(OrderAuthorizationType.READ_AUTHORIZATION);
+        authorization.setUser(user);
+        authorization.setOrder(order);
+        orderAuthorizationDAO.save(authorization);
+        orderAuthorizationDAO.flush();
+    }
+
+    private List<RootTaskDatesDTO> rootTasksDatesPage(User user, Scenario scenario, RootTaskDatesDTO after,
+                                                      int pageSize) {
+
+        return orderDAO.getRootTasksDatesByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
+                user.getLoginName(), scenario, toDate(FAR_FUTURE), toDate(FAR_FUTURE.plusMonths(1)),
+                null, null, null, null, after, pageSize);
+    }
+
+    private static List<Long> ordersIds(List<RootTaskDatesDTO> rootTasksDates) {
+        List<Long> result = new ArrayList<>();
+        for (RootTaskDatesDTO each : rootTasksDates) {
+            result.add(each.getOrderId());
+        }
+        return result;
+    }
+
+    @Test
+    @Transactional
+    public void theRootTasksDatesArePagedByStartDateAndTaskId() {
+        User user = givenUser(UserRole.ROLE_SUPERUSER);
+        Order fourth = givenOrderWithRootTaskStartingOn(FAR_FUTURE.plusDays(4));
+        Order first = givenOrderWithRootTaskStartingOn(FAR_FUTURE);
+        Order second = givenOrderWithRootTaskStartingOn(FAR_FUTURE.plusDays(2));
+        Order third = givenOrderWithRootTaskStartingOn(FAR_FUTURE.plusDays(2));
+        Order fifth = givenOrderWithRootTaskStartingOn(FAR_FUTURE.plusDays(9));
+        Scenario current = scenarioManager.getCurrent();
+
+        List<RootTaskDatesDTO> firstPage = rootTasksDatesPage(user, current, null, 2);
+        assertEquals(Arrays.asList(first.getId(), second.getId()), ordersIds(firstPage));
+        assertEquals(FAR_FUTURE, firstPage.get(0).getStartDate());
+        assertEquals(FAR_FUTURE.plusDays(3), firstPage.get(0).getEndDate());
+
+        List<RootTaskDatesDTO> secondPage = rootTasksDatesPage(user, current, firstPage.get(1), 2);
+        assertEquals(Arrays.asList(third.getId(), fourth.getId()), ordersIds(secondPage));
+
+        List<RootTaskDatesDTO> lastPage = rootTasksDatesPage(user, current, secondPage.get(1), 2);
+        assertEquals(Collections.singletonList(fifth.getId()), ordersIds(lastPage));
+    }
+
+    @Test
+    @Transactional
+    public void onlyTheRootTasksOfTheOrdersInTheScenarioAreRetrieved() {
+        User user = givenUser(UserRole.ROLE_SUPERUSER);
+        Order inCurrent = givenOrderWithRootTaskStartingOn(FAR_FUTURE);
+
+        Scenario another = Scenario.create(UUID.randomUUID().toString());
+        scenarioDAO.save(another);
+
+        Order inAnother = createValidOrder(UUID.randomUUID().toString());
+        OrderVersion version = OrderVersion.createInitialVersion(another);
+        inAnother.setVersionForScenario(another, version);
+        inAnother.useSchedulingDataFor(version);
+        orderDAO.save(inAnother);
+        givenRootTask(inAnother, FAR_FUTURE);
+
+        assertEquals(Collections.singletonList(inCurrent.getId()),
+                ordersIds(rootTasksDatesPage(user, scenarioManager.getCurrent(), null, 10)));
+
+        assertEquals(Collections.singletonList(inAnother.getId()),
+                ordersIds(rootTasksDatesPage(user, another, null, 10)));
+    }
+
+    @Test
+    @Transactional
+    public void onlyTheRootTasksOfTheOrdersTheUserCanReadInTheStatesAreRetrieved() {
+        User user = givenUser();
+        Order readable = givenOrderWithRootTaskStartingOn(FAR_FUTURE);
+        givenReadAuthorization(user, readable);
+
+        Order cancelled = givenOrderWithRootTaskStartingOn(FAR_FUTURE);
+        cancelled.setState(OrderStatusEnum.CANCELLED);
+        givenReadAuthorization(user, cancelled);
+
+        givenOrderWithRootTaskStartingOn(FAR_FUTURE);
+
+        List<RootTaskDatesDTO> rootTasksDates = orderDAO.getRootTasksDatesByReadAuthorizationByScenario(
+                user.getLoginName(), scenarioManager.getCurrent(), OrderStatusEnum.getVisibleStatus());
+
+        assertEquals(Collections.singletonList(readable.getId()), ordersIds(rootTasksDates));
+        assertTrue(orderDAO.getRootTasksDatesByReadAuthorizationByScenario(
+                user.getLoginName(), scenarioManager.getCurrent(), Collections.emptySet()).isEmpty());
+    }
+
 }
@@ -18,6 +18,7 @@ import org.junit.Test;
 import org.libreplan.business.planner.chart.ContiguousDaysLine;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.OnDay;
+import org.libreplan.business.workingday.EffortDuration;
 
 public class ContiguousDaysLineTest {
 
@@ -169,6 +170,18 @@ public class ContiguousDaysLineTest {
         assertThat(newLine.getEndExclusive(), equalTo(someDate.plusDays(4)));
     }
 
+    @Test
+    public void aLineCanBeCreatedFromTheSecondsOfEachDay() {
+        ContiguousDaysLine<EffortDuration> line = ContiguousDaysLine
+                .fromSeconds(someDate, new int[] { 3600, 0, 60 });
+        assertThat(line.getStart(), equalTo(someDate));
+        assertThat(line.getEndExclusive(), equalTo(someDate.plusDays(3)));
+        assertThat(line.get(someDate), equalTo(EffortDuration.hours(1)));
+        assertThat(line.get(someDate.plusDays(1)),
+                equalTo(EffortDuration.zero()));
+        assertThat(line.get(someDate.plusDays(2)),
+                equalTo(EffortDuration.minutes(1)));
+    }
 
     private Matcher<ContiguousDaysLine<?>> hasSameValuesAs(
             final ContiguousDaysLine<?> line) {
@@ -0,0 +1,155 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.chart;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.planner.chart.ILoadChartData;
+import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+
+public class ResourceLoadChartDataTest {
+
+    private static final LocalDate someDate = new LocalDate(2016, 3, 9);
+
+    private final Worker worker = Worker.create();
+
+    private final Worker anotherWorker = Worker.create();
+
+    private final List<Resource> resources = Arrays.<Resource> asList(worker, anotherWorker);
+
+    private final List<DayAssignment> dayAssignments = Arrays.<DayAssignment> asList(
+            SpecificDayAssignment.create(someDate, hours(10), worker),
+            SpecificDayAssignment.create(someDate, hours(3), anotherWorker),
+            SpecificDayAssignment.create(someDate.plusDays(2), hours(4), worker));
+
+    @Test
+    public void withoutAssignmentsThereIsNoData() {
+        ResourceLoadChartData data = new ResourceLoadChartData(
+                Arrays.<DayAssignment> asList(), resources);
+
+        assertTrue(data.getLoad().isEmpty());
+        assertTrue(data.getOverload().isEmpty());
+        assertTrue(data.getAvailability().isEmpty());
+        assertTrue(data.on(someDate, someDate.plusDays(1)).getLoad().isEmpty());
+    }
+
+    @Test
+    public void theDataCoverFromTheFirstToTheLastAssignedDay() {
+        ResourceLoadChartData data = new ResourceLoadChartData(dayAssignments, resources);
+
+        assertThat(data.getLoad().size(), equalTo(3));
+        assertThat(data.getLoad().firstKey(), equalTo(someDate));
+        assertThat(data.getLoad().lastKey(), equalTo(someDate.plusDays(2)));
+    }
+
+    @Test
+    public void theLoadIsTheAssignedEffortLimitedByTheAvailability() {
+        ResourceLoadChartData data = new ResourceLoadChartData(dayAssignments, resources);
+
+        assertThat(data.getAvailability().get(someDate), equalTo(hours(16)));
+        assertThat(data.getLoad().get(someDate), equalTo(hours(13)));
+        assertThat(data.getLoad().get(someDate.plusDays(1)), equalTo(zero()));
+        assertThat(data.getLoad().get(someDate.plusDays(2)), equalTo(hours(4)));
+    }
+
+    @Test
+    public void theOverloadIsCalculatedForEachResourceAndAddedToTheAvailability() {
+        ResourceLoadChartData data = new ResourceLoadChartData(dayAssignments, resources);
+
+        assertThat(data.getOverload().get(someDate), equalTo(hours(18)));
+        assertThat(data.getOverload().get(someDate.plusDays(1)), equalTo(hours(16)));
+        assertThat(data.getOverload().get(someDate.plusDays(2)), equalTo(hours(16)));
+    }
+
+    @Test
+    public void theDataCanBeRestrictedToAnInterval() {
+        ResourceLoadChartData data = new ResourceLoadChartData(dayAssignments, resources);
+        ILoadChartData onInterval = data.on(someDate.plusDays(1), someDate.plusDays(2));
+
+        assertThat(onInterval.getLoad().size(), equalTo(1));
+        assertThat(onInterval.getLoad().get(someDate.plusDays(1)), equalTo(zero()));
+        assertThat(data.on(someDate.minusDays(10), null).getLoad(), equalTo(data.getLoad()));
+    }
+
+    @Test
+    public void theIntervalCanBeProvidedWhenBuilt() {
+        ResourceLoadChartData data = new ResourceLoadChartData(
+                dayAssignments, resources, someDate.plusDays(2), someDate.plusDays(10));
+
+        assertThat(data.getLoad().size(), equalTo(1));
+        assertThat(data.getLoad().get(someDate.plusDays(2)), equalTo(hours(4)));
+    }
+
+    @Test
+    public void theAssignedEffortCanBeAddedInAnyOrder() {
+        ResourceLoadChartData.Builder builder = new ResourceLoadChartData.Builder(resources);
+        for (int i = 0; i < 20; i++) {
+            builder.add(worker, someDate.plusDays((i * 7) % 20), hours(1).getSeconds());
+        }
+        builder.add(worker, someDate.minusDays(5), hours(2).getSeconds());
+
+        ResourceLoadChartData data = builder.build();
+
+        assertThat(data.getLoad().size(), equalTo(25));
+        assertThat(data.getLoad().get(someDate.minusDays(5)), equalTo(hours(2)));
+        assertThat(data.getLoad().get(someDate.minusDays(1)), equalTo(zero()));
+        for (int i = 0; i < 20; i++) {
+            assertThat(data.getLoad().get(someDate.plusDays(i)), equalTo(hours(1)));
+        }
+    }
+
+    @Test
+    public void theEffortOfUnknownResourcesIsSkipped() {
+        ResourceLoadChartData data = new ResourceLoadChartData.Builder(resources)
+                .add(worker, someDate, hours(2).getSeconds())
+                .add(42L, someDate, hours(5).getSeconds())
+                .build();
+
+        assertThat(data.getLoad().size(), equalTo(1));
+        assertThat(data.getLoad().get(someDate), equalTo(hours(2)));
+    }
+
+    @Test
+    public void theIntervalOnlyCoversTheDaysWithData() {
+        ResourceLoadChartData data = new ResourceLoadChartData(dayAssignments, resources);
+
+        assertThat(data.on(someDate.minusDays(10), someDate.plusDays(1)).getLoad().keySet(),
+                equalTo(Collections.singleton(someDate)));
+        assertThat(data.on(null, someDate.plusDays(1)).getOverload().get(someDate), equalTo(hours(18)));
+        assertTrue(data.on(someDate.plusDays(5), someDate.plusDays(10)).getLoad().isEmpty());
+        assertTrue(data.on(someDate.plusDays(5), null).getAvailability().isEmpty());
+        assertTrue(data.on(someDate.plusDays(2), someDate).getOverload().isEmpty());
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.daos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+import static org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest.setupVersionUsing;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.orders.daos.IHoursGroupDAO;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.entities.HoursGroup;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.daos.IResourceAllocationDAO;
+import org.libreplan.business.planner.daos.ITaskSourceDAO;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
+import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Tests for {@link IDayAssignmentDAO}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE, BUSINESS_SPRING_CONFIG_TEST_FILE })
+public class DayAssignmentDAOTest {
+
+    private static final LocalDate START = new LocalDate(2016, 3, 7);
+
+    @Autowired
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    @Autowired
+    private IResourceAllocationDAO resourceAllocationDAO;
+
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IHoursGroupDAO hoursGroupDAO;
+
+    @Autowired
+    private ITaskSourceDAO taskSourceDAO;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private IScenariosBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Before
+    public void loadRequiredData() {
+        scenariosBootstrap.loadRequiredData();
+    }
+
+    private Worker createValidWorker() {
+        Worker worker = Worker.create();
+        worker.setFirstName(UUID.randomUUID().toString());
+        worker.setSurname(UUID.randomUUID().toString());
+        worker.setNif(UUID.randomUUID().toString());
+        resourceDAO.save(worker);
+
+        return worker;
+    }
+
+    private Task createValidTask() {
+        Order order = new Order();
+        order.setInitDate(new Date());
+        OrderVersion orderVersion = setupVersionUsing(scenarioManager, order);
+        order.useSchedulingDataFor(orderVersion);
+        OrderLine orderLine = OrderLine.create();
+        order.add(orderLine);
+        orderLine.setName(UUID.randomUUID().toString());
+        orderLine.setCode(UUID.randomUUID().toString());
+        orderLine.useSchedulingDataFor(orderVersion);
+        orderElementDAO.save(orderLine);
+
+        HoursGroup hoursGroup = HoursGroup.create(orderLine);
+        hoursGroup.setCode(UUID.randomUUID().toString());
+        hoursGroupDAO.save(hoursGroup);
+
+        TaskSource taskSource = TaskSource.create(
+                orderLine.getCurrentSchedulingDataForVersion(), Arrays.asList(hoursGroup));
+        TaskSource.mustAdd(taskSource).apply(TaskSource.persistTaskSources(taskSourceDAO));
+
+        return (Task) taskSource.getTask();
+    }
+
+    /**
+     * It assigns the efforts to the worker in consecutive days since
+     * <code>start</code>.
+     */
+    private void givenAssigned(Worker worker, LocalDate start, EffortDuration... efforts) {
+        SpecificResourceAllocation allocation = SpecificResourceAllocation.create(createValidTask());
+        allocation.setResource(worker);
+        allocation.switchToScenario(scenarioManager.getCurrent());
+        allocation.withPreviousAssociatedResources()
+                .onInterval(start, start.plusDays(efforts.length))
+                .allocate(Arrays.asList(efforts));
+        resourceAllocationDAO.save(allocation);
+        resourceAllocationDAO.flush();
+    }
+
+    @Test
+    @Transactional
+    public void theEffortPerResourceAndDayIsSummedByTheDatabase() {
+        Worker worker = createValidWorker();
+        Worker another = createValidWorker();
+        givenAssigned(worker, START, hours(3), hours(5));
+        givenAssigned(worker, START.plusDays(1), hours(2), hours(4));
+        givenAssigned(another, START, hours(1));
+
+        Map<Long, Map<LocalDate, EffortDuration>> effort = dayAssignmentDAO.getEffortPerResourceAndDay(
+                scenarioManager.getCurrent(), START, START.plusDays(2), Arrays.asList(worker, another));
+
+        assertEquals(2, effort.size());
+        assertEquals(3, effort.get(worker.getId()).size());
+        assertEquals(hours(3), effort.get(worker.getId()).get(START));
+        assertEquals(hours(7), effort.get(worker.getId()).get(START.plusDays(1)));
+        assertEquals(hours(4), effort.get(worker.getId()).get(START.plusDays(2)));
+        assertEquals(hours(1), effort.get(another.getId()).get(START));
+    }
+
+    @Test
+    @Transactional
+    public void onlyTheEffortOfTheIntervalAndTheResourcesIsReturned() {
+        Worker worker = createValidWorker();
+        Worker another = createValidWorker();
+        givenAssigned(worker, START, hours(3), hours(5), hours(8));
+        givenAssigned(another, START, hours(1));
+
+        Map<Long, Map<LocalDate, EffortDuration>> effort = dayAssignmentDAO.getEffortPerResourceAndDay(
+                scenarioManager.getCurrent(), START.plusDays(1), START.plusDays(1), Arrays.asList(worker));
+
+        assertEquals(1, effort.size());
+        assertEquals(1, effort.get(worker.getId()).size());
+        assertEquals(hours(5), effort.get(worker.getId()).get(START.plusDays(1)));
+        assertFalse(effort.containsKey(another.getId()));
+    }
+
+    @Test
+    @Transactional
+    public void thereIsNoEffortWithoutResources() {
+        assertTrue(dayAssignmentDAO.getEffortPerResourceAndDay(
+                scenarioManager.getCurrent(), START, START.plusDays(1), Arrays.<Worker> asList()).isEmpty());
+    }
+
+}
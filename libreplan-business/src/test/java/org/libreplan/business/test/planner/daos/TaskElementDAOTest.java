@@ -34,6 +34,7 @@ import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CO
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Resource;
@@ -54,6 +55,7 @@ import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.orders.entities.OrderLine;
 import org.libreplan.business.orders.entities.SchedulingDataForVersion;
 import org.libreplan.business.orders.entities.TaskSource;
@@ -182,7 +184,10 @@ public class TaskElementDAOTest {
         OrderLine orderLine = createOrderLine();
         OrderVersion orderVersion = ResourceAllocationDAOTest.setupVersionUsing(scenarioManager, orderLine.getOrder());
         orderLine.useSchedulingDataFor(orderVersion);
-        SchedulingDataForVersion schedulingDataForVersion = orderLine.getCurrentSchedulingDataForVersion();
+        return createValidTaskGroup(orderLine.getCurrentSchedulingDataForVersion());
+    }
+
+    private TaskGroup createValidTaskGroup(SchedulingDataForVersion schedulingDataForVersion) {
         TaskSource taskSource = TaskSource.createForGroup(schedulingDataForVersion);
 
         TaskGroupSynchronization synchronization = new TaskGroupSynchronization(taskSource, Collections.emptyList()) {
@@ -326,6 +331,34 @@ public class TaskElementDAOTest {
 
     }
 
+    @Test
+    @Transactional
+    public void theTasksOfTheAncestorsOfTheOrderElementsAreFound() {
+        Task task = createValidTask();
+        OrderElement orderLine = task.getOrderElement();
+        TaskGroup taskGroup = createValidTaskGroup(orderLine.getOrder().getCurrentSchedulingDataForVersion());
+        sessionFactory.getCurrentSession().flush();
+
+        Set<Long> found = taskElementDAO.findTaskIdsByOrderElements(Collections.singletonList(orderLine.getId()));
+
+        assertThat(found.size(), equalTo(2));
+        assertTrue(found.contains(task.getId()));
+        assertTrue(found.contains(taskGroup.getId()));
+    }
+
+    @Test
+    @Transactional
+    public void theTasksOfTheDescendantsOfTheOrderElementsAreNotFound() {
+        Task task = createValidTask();
+        Order order = task.getOrderElement().getOrder();
+        TaskGroup taskGroup = createValidTaskGroup(order.getCurrentSchedulingDataForVersion());
+        sessionFactory.getCurrentSession().flush();
+
+        Set<Long> found = taskElementDAO.findTaskIdsByOrderElements(Collections.singletonList(order.getId()));
+
+        assertThat(found, equalTo(Collections.singleton(taskGroup.getId())));
+    }
+
     @Test
     public void savingTaskElementSavesAssociatedDependencies() throws InstanceNotFoundException {
         IOnTransaction<Task> createValidTask = new IOnTransaction<Task>() {
@@ -0,0 +1,280 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.CalendarData;
+import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.planner.chart.ContiguousDaysLine;
+import org.libreplan.business.planner.chart.ContiguousDaysLine.OnDay;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DayAssignment.FilterType;
+import org.libreplan.business.planner.entities.OrderResourceLoadCalculator;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.IAssignmentsOnResourceCalculator;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+/**
+ * Tests for {@link OrderResourceLoadCalculator}. Its lines are compared with
+ * the ones calculated day by day, as the previous implementation did, on
+ * randomly generated plannings.
+ */
+public class OrderResourceLoadCalculatorTest {
+
+    private static final LocalDate START = new LocalDate(2016, 3, 7);
+
+    private static final int DAYS = 60;
+
+    private Random random;
+
+    private Order order;
+
+    private List<DayAssignment> orderAssignments;
+
+    private Map<Resource, List<DayAssignment>> assignmentsOnResources;
+
+    private OrderResourceLoadCalculator calculator;
+
+    private void givenRandomPlanning(long seed) {
+        random = new Random(seed);
+
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < 1 + random.nextInt(8); i++) {
+            resources.add(givenWorker());
+        }
+
+        orderAssignments = new ArrayList<>();
+        assignmentsOnResources = new HashMap<>();
+        for (Resource each : resources) {
+            assignmentsOnResources.put(each, new ArrayList<DayAssignment>());
+        }
+
+        for (int i = 0; i < random.nextInt(200); i++) {
+            DayAssignment assignment = givenAssignment(resources);
+            orderAssignments.add(assignment);
+            assignmentsOnResources.get(assignment.getResource()).add(assignment);
+        }
+        for (int i = 0; i < random.nextInt(400); i++) {
+            DayAssignment assignment = givenAssignment(resources);
+            assignmentsOnResources.get(assignment.getResource()).add(assignment);
+        }
+
+        Set<Resource> orderResources = new HashSet<>();
+        for (DayAssignment each : orderAssignments) {
+            orderResources.add(each.getResource());
+        }
+
+        order = createNiceMock(Order.class);
+        expect(order.getDayAssignments(FilterType.WITHOUT_DERIVED)).andReturn(orderAssignments).anyTimes();
+        expect(order.getResources(FilterType.WITHOUT_DERIVED)).andReturn(orderResources).anyTimes();
+        replay(order);
+
+        calculator = new OrderResourceLoadCalculator();
+        calculator.setOrder(order, new IAssignmentsOnResourceCalculator() {
+            @Override
+            public List<DayAssignment> getAssignments(Resource resource) {
+                return assignmentsOnResources.get(resource);
+            }
+        });
+    }
+
+    /**
+     * Some workers have the default calendar and the rest have random
+     * capacities for each day of the week.
+     */
+    private Worker givenWorker() {
+        Worker worker = Worker.create();
+        if (random.nextBoolean()) {
+            ResourceCalendar calendar = ResourceCalendar.create();
+            for (CalendarData.Days each : CalendarData.Days.values()) {
+                calendar.setCapacityAt(each, Capacity.create(randomEffort(10)).overAssignableWithoutLimit());
+            }
+            calendar.setCapacity(1 + random.nextInt(2));
+            worker.setCalendar(calendar);
+        }
+        return worker;
+    }
+
+    private DayAssignment givenAssignment(List<Resource> resources) {
+        return SpecificDayAssignment.create(
+                START.plusDays(random.nextInt(DAYS)),
+                randomEffort(6),
+                resources.get(random.nextInt(resources.size())));
+    }
+
+    private EffortDuration randomEffort(int maxHours) {
+        return EffortDuration.seconds(random.nextBoolean()
+                ? 60 * random.nextInt(maxHours * 60 + 1)
+                : random.nextInt(maxHours * 3600 + 1));
+    }
+
+    @Test
+    public void withoutAssignmentsTheLinesAreNotValid() {
+        givenRandomPlanning(0);
+        orderAssignments.clear();
+
+        assertTrue(calculator.getOrderLoad().isNotValid());
+        assertTrue(calculator.getAllLoad().isNotValid());
+        assertTrue(calculator.getMaxCapacityOnResources().isNotValid());
+    }
+
+    @Test
+    public void theLinesAreTheSameAsCalculatedDayByDay() {
+        for (long seed = 1; seed <= 100; seed++) {
+            givenRandomPlanning(seed);
+            if (orderAssignments.isEmpty()) {
+                continue;
+            }
+
+            ByDay expected = new ByDay();
+
+            assertSameLine(seed, expected.maxCapacityOnResources, calculator.getMaxCapacityOnResources());
+            assertSameLine(seed, expected.orderLoad, calculator.getOrderLoad());
+            assertSameLine(seed, expected.allLoad, calculator.getAllLoad());
+            assertSameLine(seed, expected.orderOverload, calculator.getOrderOverload());
+            assertSameLine(seed, expected.allOverload, calculator.getAllOverload());
+        }
+    }
+
+    private void assertSameLine(long seed, Map<LocalDate, EffortDuration> expected,
+                                ContiguousDaysLine<EffortDuration> line) {
+
+        assertEquals("seed " + seed, expected.size(), line.size());
+        for (OnDay<EffortDuration> each : line) {
+            assertEquals("seed " + seed + ", " + each.getDay(), expected.get(each.getDay()), each.getValue());
+        }
+    }
+
+    /**
+     * The lines calculated day by day, taking on each day the resources
+     * assigned by the order that day and the capacity of their calendars
+     * that day.
+     */
+    private class ByDay {
+
+        private final Map<LocalDate, EffortDuration> maxCapacityOnResources = new HashMap<>();
+
+        private final Map<LocalDate, EffortDuration> orderLoad = new HashMap<>();
+
+        private final Map<LocalDate, EffortDuration> allLoad = new HashMap<>();
+
+        private final Map<LocalDate, EffortDuration> orderOverload = new HashMap<>();
+
+        private final Map<LocalDate, EffortDuration> allOverload = new HashMap<>();
+
+        ByDay() {
+            LocalDate first = orderAssignments.get(0).getDay();
+            LocalDate last = first;
+            for (DayAssignment each : orderAssignments) {
+                first = each.getDay().isBefore(first) ? each.getDay() : first;
+                last = each.getDay().isAfter(last) ? each.getDay() : last;
+            }
+
+            for (int i = 0; i <= Days.daysBetween(first, last).getDays(); i++) {
+                calculate(first.plusDays(i));
+            }
+        }
+
+        private void calculate(LocalDate day) {
+            Map<Resource, EffortDuration> orderEffort = effortByResource(onDay(orderAssignments, day));
+            Map<Resource, EffortDuration> allEffort = new HashMap<>();
+            for (Resource each : orderEffort.keySet()) {
+                allEffort.put(each, effortByResource(onDay(assignmentsOnResources.get(each), day)).get(each));
+            }
+
+            EffortDuration capacity = EffortDuration.zero();
+            for (Resource each : orderEffort.keySet()) {
+                capacity = capacity.plus(capacityOf(each, day));
+            }
+
+            maxCapacityOnResources.put(day, capacity);
+            orderLoad.put(day, sum(orderEffort.values()));
+            allLoad.put(day, sum(allEffort.values()));
+            orderOverload.put(day, overload(orderEffort, day));
+            allOverload.put(day, overload(allEffort, day));
+        }
+
+        private List<DayAssignment> onDay(List<DayAssignment> assignments, LocalDate day) {
+            List<DayAssignment> result = new ArrayList<>();
+            for (DayAssignment each : assignments) {
+                if (each.getDay().equals(day)) {
+                    result.add(each);
+                }
+            }
+            return result;
+        }
+
+        private Map<Resource, EffortDuration> effortByResource(List<DayAssignment> assignments) {
+            Map<Resource, EffortDuration> result = new HashMap<>();
+            for (DayAssignment each : assignments) {
+                EffortDuration previous = result.get(each.getResource());
+                result.put(each.getResource(),
+                        previous == null ? each.getDuration() : previous.plus(each.getDuration()));
+            }
+            return result;
+        }
+
+        private EffortDuration sum(Iterable<EffortDuration> efforts) {
+            EffortDuration result = EffortDuration.zero();
+            for (EffortDuration each : efforts) {
+                result = result.plus(each);
+            }
+            return result;
+        }
+
+        private EffortDuration overload(Map<Resource, EffortDuration> effortByResource, LocalDate day) {
+            EffortDuration result = EffortDuration.zero();
+            for (Map.Entry<Resource, EffortDuration> each : effortByResource.entrySet()) {
+                EffortDuration capacity = capacityOf(each.getKey(), day);
+                if (each.getValue().compareTo(capacity) > 0) {
+                    result = result.plus(each.getValue().minus(capacity));
+                }
+            }
+            return result;
+        }
+
+        private EffortDuration capacityOf(Resource resource, LocalDate day) {
+            return resource.getCalendarOrDefault().getCapacityOn(PartialDay.wholeDay(day));
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.libreplan.business.test.planner.entities.SpecificResourceAllocationTest.createResourceCalendarAlwaysReturning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
+import org.libreplan.business.planner.limiting.entities.GapsIndex.FreeInterval;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Worker;
+
+/**
+ * Tests for {@link GapsIndex}.
+ */
+public class GapsIndexTest {
+
+    private static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    private LimitingResourceQueue queue;
+
+    @Before
+    public void createQueue() {
+        ResourceCalendar calendar = createResourceCalendarAlwaysReturning(8);
+        Worker worker = createNiceMock(Worker.class);
+        expect(worker.getCalendar()).andReturn(calendar).anyTimes();
+        replay(worker);
+
+        queue = LimitingResourceQueue.create();
+        queue.setResource(worker);
+    }
+
+    private LimitingResourceQueueElement addElement(int startDay, int endDay) {
+        LimitingResourceQueueElement result = LimitingResourceQueueElement.create();
+        result.setResourceAllocation(createNiceMock(SpecificResourceAllocation.class));
+        result.setStartDate(START.plusDays(startDay));
+        result.setStartHour(0);
+        result.setEndDate(START.plusDays(endDay));
+        result.setEndHour(0);
+        queue.addLimitingResourceQueueElement(result);
+
+        return result;
+    }
+
+    private static DateAndHour day(int day) {
+        return DateAndHour.from(START.plusDays(day));
+    }
+
+    private static List<Integer> hoursOfIntervals(GapsIndex index) {
+        List<Integer> result = new ArrayList<>();
+        FreeInterval interval = index.getFirstFitting(day(-100), 0);
+        while (interval != null) {
+            result.add(interval.getHours());
+            interval = index.getNextFitting(interval, 0);
+        }
+        return result;
+    }
+
+    @Test
+    public void anEmptyQueueHasOnlyOneEndlessInterval() {
+        GapsIndex index = queue.getGapsIndex();
+
+        assertEquals(1, index.size());
+        FreeInterval interval = index.getFirstFitting(day(0), 1000);
+        assertNull(interval.getPrevious());
+        assertNull(interval.getNext());
+        assertNull(interval.getEnd());
+        assertNull(index.getNextFitting(interval, 0));
+    }
+
+    @Test
+    public void theHoursOfTheIntervalsBetweenElementsAreCalculated() {
+        addElement(0, 2);
+        addElement(5, 6);
+        addElement(10, 15);
+
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, 24, 32, Integer.MAX_VALUE), hoursOfIntervals(queue.getGapsIndex()));
+    }
+
+    @Test
+    public void theFirstIntervalEndingSinceTheDateWithEnoughHoursIsFound() {
+        addElement(0, 2);
+        LimitingResourceQueueElement second = addElement(5, 6);
+        LimitingResourceQueueElement third = addElement(10, 15);
+        LimitingResourceQueueElement fourth = addElement(16, 20);
+        GapsIndex index = queue.getGapsIndex();
+
+        assertSame(third, index.getFirstFitting(day(1), 25).getNext());
+        assertSame(second, index.getFirstFitting(day(1), 8).getNext());
+        assertSame(fourth, index.getFirstFitting(day(11), 8).getNext());
+        assertNull(index.getFirstFitting(day(11), 9).getNext());
+        assertSame(third, index.getNextFitting(index.getFirstFitting(day(1), 8), 8).getNext());
+    }
+
+    @Test
+    public void theIndexIsUpdatedWhenElementsAreAddedOrRemoved() {
+        addElement(0, 2);
+        LimitingResourceQueueElement removed = addElement(5, 6);
+        addElement(10, 15);
+        GapsIndex index = queue.getGapsIndex();
+
+        addElement(3, 4);
+        addElement(20, 21);
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, 8, 8, 32, 40, Integer.MAX_VALUE), hoursOfIntervals(index));
+
+        queue.removeLimitingResourceQueueElement(removed);
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, 8, 48, 40, Integer.MAX_VALUE), hoursOfIntervals(index));
+
+        assertSame(index, queue.getGapsIndex());
+        assertEquals(hoursOfIntervals(GapsIndex.create(queue)), hoursOfIntervals(index));
+    }
+
+    @Test
+    public void theIndexIsCalculatedAgainWhenAnElementIsMoved() {
+        LimitingResourceQueueElement moved = addElement(0, 2);
+        addElement(5, 6);
+        GapsIndex index = queue.getGapsIndex();
+
+        moved.setEndDate(START.plusDays(1));
+
+        assertNotSame(index, queue.getGapsIndex());
+        assertEquals(Arrays.asList(Integer.MAX_VALUE, 32, Integer.MAX_VALUE), hoursOfIntervals(queue.getGapsIndex()));
+    }
+
+}
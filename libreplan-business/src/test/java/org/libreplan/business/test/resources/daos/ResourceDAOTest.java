@@ -31,6 +31,7 @@ import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -234,6 +235,38 @@ public class ResourceDAOTest {
         assertThat(result.size(), not(equalTo(1)));
     }
 
+    @Test
+    @Transactional
+    public void onlyTheResourcesSatisfyingAllTheCriteriaAreFound() {
+        List<Criterion> criterions = new ArrayList<>(createCriterions());
+        Worker satisfyingAll = createAndSaveResourceSatisfyingAllCriterions(criterions);
+        createAndSaveResourceSatisfyingAllCriterions(criterions.subList(0, 1));
+        createAndSaveResourceSatisfyingAllCriterions(Collections.<Criterion> emptyList());
+        resourceDAO.flush();
+
+        List<Resource> result = resourcesSearcher.searchBoth().byCriteria(criterions).execute();
+
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).getId(), equalTo(satisfyingAll.getId()));
+    }
+
+    @Test
+    @Transactional
+    public void aResourceSatisfyingAChildIsFoundWhenTheChildAndItsParentAreRequired() {
+        CriterionType type = createCriterionType("parentAndChildType");
+        Criterion parent = createCriterion("parent", type);
+        Criterion child = createCriterion("child", type);
+        child.moveTo(parent);
+        Worker satisfyingChild = createAndSaveResourceSatisfyingAllCriterions(Collections.singletonList(child));
+        createAndSaveResourceSatisfyingAllCriterions(Collections.singletonList(parent));
+        resourceDAO.flush();
+
+        List<Resource> result = resourcesSearcher.searchBoth().byCriteria(Arrays.asList(parent, child)).execute();
+
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).getId(), equalTo(satisfyingChild.getId()));
+    }
+
     private User givenStoredUser() {
         return transactionService.runOnAnotherTransaction(() -> {
             User user = User.create("login" + UUID.randomUUID(), "password", "");
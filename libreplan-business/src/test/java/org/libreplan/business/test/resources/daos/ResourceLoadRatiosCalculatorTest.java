@@ -0,0 +1,156 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.resources.daos;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.daos.IResourceLoadRatiosCalculator.ILoadRatiosDataType;
+import org.libreplan.business.resources.daos.ResourceLoadRatiosCalculator;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for the load ratios of several resources calculated at once by
+ * {@link ResourceLoadRatiosCalculator}.
+ */
+public class ResourceLoadRatiosCalculatorTest {
+
+    private static final LocalDate START = new LocalDate(2016, 3, 7);
+
+    private static final LocalDate END = START.plusDays(2);
+
+    private Scenario scenario;
+
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    private Map<Long, Map<LocalDate, EffortDuration>> effortPerResource;
+
+    private ResourceLoadRatiosCalculator calculator;
+
+    @Before
+    public void setUp() {
+        scenario = createNiceMock(Scenario.class);
+        dayAssignmentDAO = createMock(IDayAssignmentDAO.class);
+        effortPerResource = new HashMap<>();
+        calculator = new ResourceLoadRatiosCalculator();
+        ReflectionTestUtils.setField(calculator, "dayAssignmentDAO", dayAssignmentDAO);
+        ReflectionTestUtils.setField(calculator, "resourceDAO", createNiceMock(IResourceDAO.class));
+    }
+
+    /**
+     * The resource can work 8 hours the first two days and nothing the third.
+     * Its capacities can only be asked once.
+     */
+    private Resource givenResource(long id) {
+        ResourceCalendar calendar = createMock(ResourceCalendar.class);
+        expect(calendar.getCapacitiesOn(START, END.plusDays(1)))
+                .andReturn(new int[] { hours(8).getSeconds(), hours(8).getSeconds(), 0 }).once();
+
+        Resource resource = createNiceMock(Resource.class);
+        expect(resource.getId()).andReturn(id).anyTimes();
+        expect(resource.getCalendar()).andReturn(calendar).anyTimes();
+        replay(calendar, resource);
+
+        return resource;
+    }
+
+    private void givenEffort(Resource resource, LocalDate day, EffortDuration effort) {
+        Map<LocalDate, EffortDuration> effortPerDay = effortPerResource.get(resource.getId());
+        if (effortPerDay == null) {
+            effortPerDay = new HashMap<>();
+            effortPerResource.put(resource.getId(), effortPerDay);
+        }
+        effortPerDay.put(day, effort);
+    }
+
+    private Map<Resource, ILoadRatiosDataType> calculateLoadRatios(List<Resource> resources) {
+        expect(dayAssignmentDAO.getEffortPerResourceAndDay(scenario, START, END, resources))
+                .andReturn(effortPerResource).once();
+        replay(dayAssignmentDAO);
+
+        Map<Resource, ILoadRatiosDataType> result = calculator.calculateLoadRatios(resources, START, END, scenario);
+        verify(dayAssignmentDAO);
+
+        return result;
+    }
+
+    private static void assertRatios(ILoadRatiosDataType ratios, EffortDuration load, EffortDuration overload,
+                                     String overtimeRatio, String availabilityRatio) {
+        assertEquals(load, ratios.getLoad());
+        assertEquals(overload, ratios.getOverload());
+        assertEquals(hours(16), ratios.getCapacity());
+        assertEquals(new BigDecimal(overtimeRatio), ratios.getOvertimeRatio());
+        assertEquals(new BigDecimal(availabilityRatio), ratios.getAvailiabilityRatio());
+    }
+
+    @Test
+    public void theLoadRatiosOfAllTheResourcesAreCalculatedWithOneQuery() {
+        Resource first = givenResource(1);
+        Resource second = givenResource(2);
+        Resource withoutEffort = givenResource(3);
+        givenEffort(first, START, hours(4));
+        givenEffort(first, END, hours(2));
+        givenEffort(second, START.plusDays(1), hours(10));
+
+        Map<Resource, ILoadRatiosDataType> ratios =
+                calculateLoadRatios(Arrays.asList(first, second, withoutEffort));
+
+        assertEquals(Arrays.asList(first, second, withoutEffort), Arrays.asList(ratios.keySet().toArray()));
+        assertRatios(ratios.get(first), hours(6), hours(2), "0.09", "0.63");
+        assertRatios(ratios.get(second), hours(10), hours(2), "0.08", "0.38");
+        assertRatios(ratios.get(withoutEffort), hours(0), hours(0), "0.00", "1.00");
+        verify(first.getCalendar(), second.getCalendar(), withoutEffort.getCalendar());
+    }
+
+    @Test
+    public void theLoadRatiosOfOneResourceAreTheSameAsInTheBatch() {
+        Resource resource = givenResource(1);
+        givenEffort(resource, START, hours(9));
+        expect(dayAssignmentDAO.getEffortPerResourceAndDay(scenario, START, END, Arrays.asList(resource)))
+                .andReturn(effortPerResource).once();
+        replay(dayAssignmentDAO);
+
+        ILoadRatiosDataType ratios = calculator.calculateLoadRatios(resource, START, END, scenario);
+
+        verify(dayAssignmentDAO);
+        assertRatios(ratios, hours(9), hours(1), "0.04", "0.44");
+    }
+
+}
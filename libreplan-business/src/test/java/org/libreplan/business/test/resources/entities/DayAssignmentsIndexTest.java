@@ -0,0 +1,152 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.resources.entities;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.resources.entities.DayAssignmentsIndex;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class DayAssignmentsIndexTest {
+
+    private static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    private Resource resource;
+
+    private DayAssignmentsIndex index;
+
+    @Before
+    public void setUp() {
+        resource = createNiceMock(Resource.class);
+        replay(resource);
+        index = DayAssignmentsIndex.create();
+    }
+
+    private DayAssignment assignment(LocalDate day, EffortDuration duration) {
+        return GenericDayAssignment.create(day, duration, resource);
+    }
+
+    @Test
+    public void anEmptyIndexHasNoEffort() {
+        assertTrue(index.isEmpty());
+        assertEquals(zero(), index.getAssignedEffort(START));
+        assertEquals(zero(), index.getAssignedEffort(START, START.plusYears(1)));
+        assertTrue(index.getAssignmentsAt(START).isEmpty());
+    }
+
+    @Test
+    public void theEffortOfTheAssignmentsOnTheSameDayIsAdded() {
+        DayAssignment first = assignment(START, hours(3));
+        DayAssignment second = assignment(START, hours(5));
+        index.addAll(Arrays.asList(first, second));
+
+        assertEquals(hours(8), index.getAssignedEffort(START));
+        assertEquals(Arrays.asList(first, second), index.getAssignmentsAt(START));
+        assertEquals(zero(), index.getAssignedEffort(START.plusDays(1)));
+    }
+
+    @Test
+    public void theRangeIsStartInclusiveAndEndExclusive() {
+        for (int i = 0; i < 5; i++) {
+            index.add(assignment(START.plusDays(i), hours(i + 1)));
+        }
+
+        assertEquals(hours(1 + 2 + 3 + 4 + 5), index.getAssignedEffort(START.minusDays(10), START.plusDays(10)));
+        assertEquals(hours(2 + 3), index.getAssignedEffort(START.plusDays(1), START.plusDays(3)));
+        assertEquals(zero(), index.getAssignedEffort(START.plusDays(2), START.plusDays(2)));
+    }
+
+    @Test
+    public void removingAnAssignmentSubtractsItsEffort() {
+        DayAssignment first = assignment(START, hours(3));
+        DayAssignment second = assignment(START, hours(5));
+        index.addAll(Arrays.asList(first, second));
+
+        assertTrue(index.remove(first));
+        assertEquals(hours(5), index.getAssignedEffort(START));
+        assertEquals(Arrays.asList(second), index.getAssignmentsAt(START));
+
+        assertFalse(index.remove(first));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void theAssignmentsAreReturnedOrderedByDay() {
+        DayAssignment later = assignment(START.plusDays(2), hours(1));
+        DayAssignment earlier = assignment(START, hours(1));
+        index.addAll(Arrays.asList(later, earlier));
+
+        assertEquals(Arrays.asList(earlier, later), index.getAssignments());
+    }
+
+    @Test
+    public void theIndexGrowsToCoverDaysFarAwayInBothDirections() {
+        index.add(assignment(START, hours(1)));
+        index.add(assignment(START.plusYears(3), hours(2)));
+        index.add(assignment(START.minusYears(5), hours(4)));
+
+        assertEquals(hours(1), index.getAssignedEffort(START));
+        assertEquals(hours(2), index.getAssignedEffort(START.plusYears(3)));
+        assertEquals(hours(4), index.getAssignedEffort(START.minusYears(5)));
+        assertEquals(hours(7), index.getAssignedEffort(START.minusYears(10), START.plusYears(10)));
+        assertEquals(hours(3), index.getAssignedEffort(START, START.plusYears(10)));
+    }
+
+    @Test
+    public void theRangeSumsMatchTheSumOfTheAssignments() {
+        Random random = new Random(20160104);
+        DayAssignment[] assignments = new DayAssignment[500];
+        for (int i = 0; i < assignments.length; i++) {
+            assignments[i] = assignment(START.plusDays(random.nextInt(2000) - 1000), hours(random.nextInt(8)));
+            index.add(assignments[i]);
+        }
+        for (int i = 0; i < assignments.length; i += 3) {
+            index.remove(assignments[i]);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            LocalDate start = START.plusDays(random.nextInt(2400) - 1200);
+            LocalDate end = start.plusDays(random.nextInt(400));
+            EffortDuration expected = zero();
+            for (int j = 0; j < assignments.length; j++) {
+                if ( j % 3 != 0 && assignments[j].includedIn(start, end) ) {
+                    expected = expected.plus(assignments[j].getDuration());
+                }
+            }
+            assertEquals(expected, index.getAssignedEffort(start, end));
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.workingday;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.minutes;
+import static org.libreplan.business.workingday.EffortDuration.seconds;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import org.junit.Test;
+import org.libreplan.business.workingday.EffortAccumulator;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class EffortAccumulatorTest {
+
+    @Test
+    public void itStartsAtZero() {
+        EffortAccumulator accumulator = EffortAccumulator.create();
+        assertTrue(accumulator.isZero());
+        assertThat(accumulator.toEffortDuration(), equalTo(zero()));
+    }
+
+    @Test
+    public void itSumsTheAddedEfforts() {
+        EffortAccumulator accumulator = EffortAccumulator.create();
+        accumulator.add(hours(2)).add(minutes(30)).addSeconds(15);
+
+        assertFalse(accumulator.isZero());
+        assertThat(accumulator.toEffortDuration(), equalTo(hours(2).and(30, EffortDuration.Granularity.MINUTES)
+                .and(15, EffortDuration.Granularity.SECONDS)));
+    }
+
+    @Test
+    public void itCanSubtractAnEffortNotBiggerThanTheAccumulatedOne() {
+        EffortAccumulator accumulator = EffortAccumulator.startingAt(hours(8));
+        accumulator.subtract(hours(3)).subtract(hours(5));
+
+        assertTrue(accumulator.isZero());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itCannotBecomeNegative() {
+        EffortAccumulator.startingAt(hours(1)).subtract(seconds(3601));
+    }
+
+    @Test
+    public void itCanAddTheEffortExceedingACapacity() {
+        EffortAccumulator accumulator = EffortAccumulator.create();
+        accumulator.addExceeding(hours(10), hours(8));
+        accumulator.addExceeding(hours(6), hours(8));
+
+        assertThat(accumulator.toEffortDuration(), equalTo(hours(2)));
+    }
+
+}
@@ -62,6 +62,14 @@ public class EffortDurationTest {
         }
     }
 
+    @Test
+    public void theCommonDurationsAreShared() {
+        assertTrue(hours(8) == minutes(480));
+        assertTrue(zero() == hours(4).minus(hours(4)));
+        assertThat(seconds(59).plus(seconds(1)), equalTo(minutes(1)));
+        assertThat(hours(25), equalTo(hours(24).plus(hours(1))));
+    }
+
     @Test
     public void hoursCanBeZero() {
         EffortDuration.hours(0);
@@ -0,0 +1,51 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.workingday;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.libreplan.business.workingday.EpochDays.epochDay;
+import static org.libreplan.business.workingday.EpochDays.fromEpochDay;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+public class EpochDaysTest {
+
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    @Test
+    public void theEpochIsTheDayZero() {
+        assertThat(epochDay(EPOCH), equalTo(0));
+        assertThat(fromEpochDay(0), equalTo(EPOCH));
+    }
+
+    @Test
+    public void itIsTheSameAsCountingTheDaysSinceTheEpoch() {
+        for (LocalDate day = new LocalDate(1895, 2, 25); day.isBefore(new LocalDate(2105, 3, 2)); day = day
+                .plusDays(1)) {
+            int expected = Days.daysBetween(EPOCH, day).getDays();
+            assertThat(epochDay(day), equalTo(expected));
+            assertThat(fromEpochDay(expected), equalTo(day));
+        }
+    }
+
+}
@@ -61,7 +61,8 @@ public class EffortDurationTypeTest {
     @Test
     @Transactional
     public void canBeSavedAndRetrieved() {
-        EffortDuration duration = hours(2).and(30, Granularity.MINUTES);
+        // Whole minutes are shared instances, so seconds are added to check it's a new one
+        EffortDuration duration = hours(2).and(30, Granularity.MINUTES).and(15, Granularity.SECONDS);
         givenEntity(duration);
         getSession().save(entity);
         getSession().flush();
@@ -27,6 +27,8 @@ import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import javax.annotation.Resource;
@@ -36,7 +38,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.libreplan.business.IDataBootstrap;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO.ITimesheetSummaryReceiver;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -93,4 +97,28 @@ public class WorkReportLineDAOTest extends AbstractWorkReportTest {
         List<WorkReportLine> list = workReportLineDAO.list(WorkReportLine.class);
         assertEquals(previous + 2, list.size());
     }
+
+    @Test
+    @Transactional
+    public void theTimesheetSummaryIsCalculatedByTheDatabase() {
+        final WorkReportLine workReportLine = createValidWorkReportLine();
+        workReportLineDAO.save(workReportLine);
+        final Long orderElementId = workReportLine.getOrderElement().getId();
+
+        final int[] received = { 0 };
+        workReportLineDAO.forEachTimesheetSummaryOf(
+                Arrays.asList(orderElementId),
+                new ITimesheetSummaryReceiver() {
+                    @Override
+                    public void receive(Long id, EffortDuration effort,
+                            Date firstDate, Date lastDate, boolean finished) {
+                        received[0]++;
+                        assertEquals(orderElementId, id);
+                        assertEquals(workReportLine.getEffort(), effort);
+                        assertEquals(firstDate, lastDate);
+                        assertFalse(finished);
+                    }
+                });
+        assertEquals(1, received[0]);
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.util;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    private SearchIndex<String> index(String... texts) {
+        return SearchIndex.create(asList(texts), Function.identity());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void theElementsMustBeNotNull() {
+        SearchIndex.create(null, Function.identity());
+    }
+
+    @Test
+    public void theFilterIsSearchedIgnoringCaseAndWhitespace() {
+        SearchIndex<String> index = index("Project Alpha", "project beta", "Other");
+
+        assertThat(index.search("PROJECT", SearchIndex.NO_LIMIT), equalTo(asList("Project Alpha", "project beta")));
+        assertThat(index.search("ct al", SearchIndex.NO_LIMIT), equalTo(asList("Project Alpha")));
+    }
+
+    @Test
+    public void theElementsEqualToTheFilterGoFirstThenTheOnesStartingWithIt() {
+        SearchIndex<String> index = index("the code", "code 2", "code");
+
+        assertThat(index.search("code", SearchIndex.NO_LIMIT), equalTo(asList("code", "code 2", "the code")));
+    }
+
+    @Test
+    public void shortFiltersAreSearchedInAllTheElements() {
+        SearchIndex<String> index = index("ab", "xa", "b");
+
+        assertThat(index.search("a", SearchIndex.NO_LIMIT), equalTo(asList("ab", "xa")));
+        assertThat(index.search("xa", SearchIndex.NO_LIMIT), equalTo(asList("xa")));
+    }
+
+    @Test
+    public void onlyTheBestRankedElementsAreReturnedIfThereIsALimit() {
+        SearchIndex<String> index = index("a code", "b code", "code");
+
+        assertThat(index.search("code", 2), equalTo(asList("code", "a code")));
+    }
+
+    @Test
+    public void noElementIsReturnedIfTheLimitIsZero() {
+        SearchIndex<String> index = index("a code", "b code", "code");
+
+        assertTrue(index.search("code", 0).isEmpty());
+    }
+
+    @Test
+    public void theElementsCanBeSearchedByAnyOfTheirTexts() {
+        SearchIndex<List<String>> index = SearchIndex.createWithTexts(
+                asList(asList("Company", "B123"), asList("Other", "C456")), Function.identity());
+
+        assertThat(index.search("c456", SearchIndex.NO_LIMIT), equalTo(asList(asList("Other", "C456"))));
+        assertThat(index.searchEqual("company"), equalTo(asList(asList("Company", "B123"))));
+    }
+
+    @Test
+    public void theElementsNotAcceptedAreSkipped() {
+        SearchIndex<String> index = index("code 1", "code 2");
+
+        assertThat(index.search("code", each -> !each.endsWith("1"), SearchIndex.NO_LIMIT), equalTo(asList("code 2")));
+    }
+
+    @Test
+    public void anElementNeedsAllTheTrigramsOfTheFilterInTheSameOrder() {
+        SearchIndex<String> index = index("abcxbcd", "abcd");
+
+        assertThat(index.search("abcd", SearchIndex.NO_LIMIT), equalTo(asList("abcd")));
+        assertTrue(index.search("dcba", SearchIndex.NO_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void theResultsAreTheSameThanCheckingAllTheElements() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            texts.add("ORD-" + Integer.toString(i * 7919, 36));
+        }
+        SearchIndex<String> index = SearchIndex.create(texts, Function.identity());
+
+        for (String filter : asList("ord", "d-1", "a", "-zz", "1a2", "ord-10")) {
+            List<String> expected = new ArrayList<>();
+            for (String each : texts) {
+                if (SearchIndex.normalize(each).contains(filter)) {
+                    expected.add(each);
+                }
+            }
+            List<String> found = new ArrayList<>(index.search(filter, SearchIndex.NO_LIMIT));
+            Collections.sort(expected);
+            Collections.sort(found);
+            assertThat(found, equalTo(expected));
+        }
+    }
+
+}
@@ -109,7 +109,8 @@ public interface IJiraOrderElementSynchronizer {
      * Synchronize order elements with JIRA issues if they already synchronized using
      * {@link IJiraOrderElementSynchronizer#syncOrderElementsWithJiraIssues(List, Order).
      *
-     * It gets then an already synchronized orders from the {@link OrderSyncInfo} and re-synchronize them.
+     * It gets then an already synchronized orders from the {@link OrderSyncInfo} and re-synchronize them with the
+     * issues updated since their last synchronization, each order in its own transaction.
      *
      * @return a list of {@link SynchronizationInfo}
      *
@@ -31,6 +31,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -80,6 +85,19 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
     private static final Log LOG = LogFactory
             .getLog(JiraOrderElementSynchronizer.class);
 
+    /**
+     * Max number of orders whose issues are fetched from JIRA at the same time
+     */
+    private static final int FETCH_THREADS = 4;
+
+    /**
+     * JQL dates are interpreted in the time zone of the JIRA user, so the
+     * issues updated the day before the last synchronization are fetched too
+     */
+    private static final int UPDATED_SINCE_MARGIN_DAYS = 1;
+
+    private static final String JQL_DATE_FORMAT = "yyyy/MM/dd";
+
     private SynchronizationInfo synchronizationInfo;
 
     @Autowired
@@ -145,7 +163,23 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
      * @return a list of {@link IssueDTO}
      */
     private List<IssueDTO> getJiraIssues(String label, Connector connector) {
-        Map<String, String> properties = connector.getPropertiesAsMap();
+        return getJiraIssues(label, connector.getPropertiesAsMap(), null);
+    }
+
+    /**
+     * Gets the jira issues for the specified <code>label</code> updated since
+     * <code>updatedSince</code>, or all of them if it is <code>null</code>
+     *
+     * @param label
+     *            the search criteria
+     * @param properties
+     *            the configuration parameters of the connector
+     * @param updatedSince
+     *            the date of the last synchronization
+     * @return a list of {@link IssueDTO}
+     */
+    private List<IssueDTO> getJiraIssues(String label,
+            Map<String, String> properties, Date updatedSince) {
         String url = properties.get(PredefinedConnectorProperties.SERVER_URL);
 
         String username = properties
@@ -156,13 +190,59 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
 
         String path = JiraRESTClient.PATH_SEARCH;
         String query = "labels=" + label;
+        if (updatedSince != null) {
+            query += " AND updated >= \""
+                    + LocalDate.fromDateFields(updatedSince)
+                            .minusDays(UPDATED_SINCE_MARGIN_DAYS)
+                            .toString(JQL_DATE_FORMAT) + "\"";
+        }
 
         List<IssueDTO> issues = JiraRESTClient.getIssues(url, username, password,
                 path, query);
 
+        for (IssueDTO issue : issues) {
+            addRemainingWorkLogs(issue, url, username, password);
+        }
+
         return issues;
     }
 
+    /**
+     * The issues returned by the search only include the first page of their
+     * worklogs, so the rest of them are requested here, before the timesheets
+     * are synchronized in a transaction
+     *
+     * @param issue
+     *            the jira issue
+     * @param url
+     *            the url of the jira server
+     * @param username
+     *            the user name
+     * @param password
+     *            the password
+     */
+    private void addRemainingWorkLogs(IssueDTO issue, String url,
+            String username, String password) {
+        if (issue.getFields() == null
+                || issue.getFields().getWorklog() == null) {
+            return;
+        }
+        WorkLogDTO workLog = issue.getFields().getWorklog();
+        List<WorkLogItemDTO> workLogItems = new ArrayList<WorkLogItemDTO>();
+        if (workLog.getWorklogs() != null) {
+            workLogItems.addAll(workLog.getWorklogs());
+        }
+
+        int startAt = (workLog.getStartAt() == null ? 0 : workLog
+                .getStartAt()) + workLogItems.size();
+        if (workLog.getTotal() == null || startAt >= workLog.getTotal()) {
+            return;
+        }
+        workLogItems.addAll(JiraRESTClient.getWorkLogs(url, username,
+                password, issue.getKey(), startAt));
+        workLog.setWorklogs(workLogItems);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public void syncOrderElementsWithJiraIssues(List<IssueDTO> issues, Order order) {
@@ -476,20 +556,24 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                 .runOnAnotherTransaction(new IOnTransaction<Void>() {
                     @Override
                     public Void execute() {
-                        OrderSyncInfo orderSyncInfo = orderSyncInfoDAO
-                                .findByKeyOrderAndConnectorName(key, order,
-                                        PredefinedConnectors.JIRA.getName());
-                        if (orderSyncInfo == null) {
-                            orderSyncInfo = OrderSyncInfo.create(key, order,
-                                    PredefinedConnectors.JIRA.getName());
-                        }
-                        orderSyncInfo.setLastSyncDate(new Date());
-                        orderSyncInfoDAO.save(orderSyncInfo);
+                        doSaveSyncInfo(key, order);
                         return null;
                     }
                 });
     }
 
+    private void doSaveSyncInfo(String key, Order order) {
+        OrderSyncInfo orderSyncInfo = orderSyncInfoDAO
+                .findByKeyOrderAndConnectorName(key, order,
+                        PredefinedConnectors.JIRA.getName());
+        if (orderSyncInfo == null) {
+            orderSyncInfo = OrderSyncInfo.create(key, order,
+                    PredefinedConnectors.JIRA.getName());
+        }
+        orderSyncInfo.setLastSyncDate(new Date());
+        orderSyncInfoDAO.save(orderSyncInfo);
+    }
+
 
     @Override
     @Transactional(readOnly = true)
@@ -500,9 +584,18 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
     }
 
     @Override
-    @Transactional
     public List<SynchronizationInfo> syncOrderElementsWithJiraIssues() throws ConnectorException {
-        Connector connector = getJiraConnector();
+        Connector connector = adHocTransactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<Connector>() {
+                    @Override
+                    public Connector execute() {
+                        Connector jiraConnector = getJiraConnector();
+                        if (jiraConnector != null) {
+                            jiraConnector.getPropertiesAsMap();
+                        }
+                        return jiraConnector;
+                    }
+                });
         if (connector == null) {
             throw new ConnectorException(_("JIRA connector not found"));
         }
@@ -511,8 +604,19 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                     _("Connection values of JIRA connector are invalid"));
         }
 
-        List<OrderSyncInfo> orderSyncInfos = orderSyncInfoDAO
-                .findByConnectorName(PredefinedConnectors.JIRA.getName());
+        List<OrderSyncInfo> orderSyncInfos = adHocTransactionService
+                .runOnReadOnlyTransaction(new IOnTransaction<List<OrderSyncInfo>>() {
+                    @Override
+                    public List<OrderSyncInfo> execute() {
+                        List<OrderSyncInfo> result = orderSyncInfoDAO
+                                .findByConnectorName(PredefinedConnectors.JIRA
+                                        .getName());
+                        for (OrderSyncInfo each : result) {
+                            each.getOrder().getName();
+                        }
+                        return result;
+                    }
+                });
 
         synchronizationInfo = new SynchronizationInfo(_("Synchronization"));
 
@@ -526,40 +630,124 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
             return syncInfos;
         }
 
-        for (OrderSyncInfo orderSyncInfo : orderSyncInfos) {
-            Order order = orderSyncInfo.getOrder();
-            LOG.info("Synchronizing '" + order.getName() + "'");
-            synchronizationInfo = new SynchronizationInfo(_(
-                    "Synchronization order {0}", order.getName()));
-
-            List<IssueDTO> issueDTOs = getJiraIssues(orderSyncInfo.getKey(),
-                    connector);
-            if (issueDTOs == null || issueDTOs.isEmpty()) {
-                LOG.warn("No JIRA issues found for '" + orderSyncInfo.getKey()
-                        + "'");
-                synchronizationInfo.addFailedReason(_(
-                        "No JIRA issues found for key {0}",
-                        orderSyncInfo.getKey()));
-                syncInfos.add(synchronizationInfo);
-                continue;
+        // The issues of the next orders are fetched while the previous ones
+        // are being synchronized
+        Map<String, String> properties = connector.getPropertiesAsMap();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                FETCH_THREADS, orderSyncInfos.size()));
+        try {
+            List<Future<List<IssueDTO>>> fetches = new ArrayList<Future<List<IssueDTO>>>();
+            for (int i = 0; i < orderSyncInfos.size(); i++) {
+                // Only the issues of the order being synchronized and the
+                // next ones, up to FETCH_THREADS orders, are kept in memory
+                int fetchesAhead = Math.min(i + FETCH_THREADS,
+                        orderSyncInfos.size());
+                while (fetches.size() < fetchesAhead) {
+                    fetches.add(executor.submit(fetchJiraIssues(
+                            orderSyncInfos.get(fetches.size()), properties)));
+                }
+
+                syncOrderElementsWithJiraIssues(orderSyncInfos.get(i),
+                        fetches.get(i));
+                fetches.set(i, null);
+                if (!synchronizationInfo.isSuccessful()) {
+                    syncInfos.add(synchronizationInfo);
+                }
             }
+            return syncInfos;
 
-            orderModel.initEdit(order, null);
-            syncOrderElementsWithJiraIssues(issueDTOs, order);
-            if (!synchronizationInfo.isSuccessful()) {
-                syncInfos.add(synchronizationInfo);
-                continue;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<List<IssueDTO>> fetchJiraIssues(
+            final OrderSyncInfo orderSyncInfo,
+            final Map<String, String> properties) {
+        return new Callable<List<IssueDTO>>() {
+            @Override
+            public List<IssueDTO> call() {
+                return getJiraIssues(orderSyncInfo.getKey(), properties,
+                        orderSyncInfo.getLastSyncDate());
             }
-            orderModel.save(false);
+        };
+    }
+
+    /**
+     * Synchronizes the order of <code>orderSyncInfo</code> with the issues
+     * updated since its last synchronization, in its own transaction, so a
+     * failure only discards the changes of that order
+     *
+     * @param orderSyncInfo
+     *            the already synchronized order
+     * @param jiraIssues
+     *            the issues being fetched for it
+     */
+    private void syncOrderElementsWithJiraIssues(
+            final OrderSyncInfo orderSyncInfo, Future<List<IssueDTO>> jiraIssues)
+            throws InterruptedException, ConnectorException {
+        String orderName = orderSyncInfo.getOrder().getName();
+        LOG.info("Synchronizing '" + orderName + "'");
+        synchronizationInfo = new SynchronizationInfo(_(
+                "Synchronization order {0}", orderName));
 
-            saveSyncInfo(orderSyncInfo.getKey(), order);
+        final List<IssueDTO> issueDTOs;
+        try {
+            issueDTOs = jiraIssues.get();
+        } catch (ExecutionException e) {
+            LOG.error("Error fetching JIRA issues for '"
+                    + orderSyncInfo.getKey() + "'", e.getCause());
+            synchronizationInfo.addFailedReason(_(
+                    "Error fetching JIRA issues for key {0}: {1}",
+                    orderSyncInfo.getKey(), e.getCause().getMessage()));
+            return;
+        }
+        if (issueDTOs == null || issueDTOs.isEmpty()) {
+            LOG.info("No JIRA issues updated for '" + orderSyncInfo.getKey()
+                    + "' since its last synchronization");
+            return;
+        }
 
-            jiraTimesheetSynchronizer.syncJiraTimesheetWithJiraIssues(
-                    issueDTOs, order);
-            if (!synchronizationInfo.isSuccessful()) {
-                syncInfos.add(synchronizationInfo);
+        try {
+            adHocTransactionService
+                    .runOnTransaction(new IOnTransaction<Void>() {
+                        @Override
+                        public Void execute() {
+                            Order order = orderSyncInfoDAO.findExistingEntity(
+                                    orderSyncInfo.getId()).getOrder();
+
+                            orderModel.initEdit(order, null);
+                            syncOrderElementsWithJiraIssues(issueDTOs, order);
+                            if (!synchronizationInfo.isSuccessful()) {
+                                return null;
+                            }
+                            orderModel.save(false);
+
+                            try {
+                                jiraTimesheetSynchronizer
+                                        .syncJiraTimesheetWithJiraIssues(
+                                                issueDTOs, order);
+                            } catch (ConnectorException e) {
+                                throw new RuntimeException(e);
+                            }
+
+                            // Saved in the same transaction, so the issues
+                            // are fetched again if the order is discarded
+                            doSaveSyncInfo(orderSyncInfo.getKey(), order);
+                            return null;
+                        }
+                    });
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof ConnectorException) {
+                throw (ConnectorException) e.getCause();
             }
+            LOG.error("Error synchronizing '" + orderName + "'", e);
+            synchronizationInfo.addFailedReason(_(
+                    "Error synchronizing order {0}: {1}", orderName,
+                    e.getMessage()));
         }
-        return syncInfos;
     }
 }
@@ -19,6 +19,7 @@
 
 package org.libreplan.importers;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -32,6 +33,8 @@ import org.apache.cxf.jaxrs.client.WebClient;
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import org.libreplan.importers.jira.IssueDTO;
 import org.libreplan.importers.jira.SearchResultDTO;
+import org.libreplan.importers.jira.WorkLogDTO;
+import org.libreplan.importers.jira.WorkLogItemDTO;
 import org.libreplan.ws.cert.NaiveTrustProvider;
 import org.libreplan.ws.common.impl.Util;
 
@@ -48,6 +51,16 @@ public class JiraRESTClient {
      */
     public static final String PATH_SEARCH = "rest/api/latest/search";
 
+    /**
+     * Path for issue operations in JIRA REST API
+     */
+    public static final String PATH_ISSUE = "rest/api/latest/issue";
+
+    /**
+     * Path segment for the worklogs of an issue in JIRA REST API
+     */
+    public static final String PATH_WORKLOG = "worklog";
+
     /**
      * Path for authenticate session in JIRA REST API
      */
@@ -59,7 +72,8 @@ public class JiraRESTClient {
     private static final String FIELDS_TO_INCLUDE_IN_RESPONSE = "summary,status,timetracking,worklog";
 
     /**
-     * Max number of issues to return(default is 50)
+     * Max number of issues to return per page(default is 50). The server can
+     * return less, so the pages are requested until the total is reached
      */
     private static final long MAX_RESULTS = 1000;
 
@@ -82,7 +96,8 @@ public class JiraRESTClient {
     }
 
     /**
-     * Query Jira for all issues with the specified query parameter
+     * Query Jira for all issues with the specified query parameter, requesting
+     * as many pages as needed to retrieve all of them
      *
      * @param url
      *            the url(end point)
@@ -114,9 +129,73 @@ public class JiraRESTClient {
         client.query("maxResults", MAX_RESULTS);
         client.query("fields", StringUtils.deleteWhitespace(FIELDS_TO_INCLUDE_IN_RESPONSE));
 
-        SearchResultDTO searchResult = client.get(SearchResultDTO.class);
+        List<IssueDTO> issues = new ArrayList<>();
+        int startAt = 0;
+        while (true) {
+            client.replaceQueryParam("startAt", startAt);
+            SearchResultDTO searchResult = client.get(SearchResultDTO.class);
+
+            List<IssueDTO> page = searchResult.getIssues();
+            if ( page == null || page.isEmpty() ) {
+                return issues;
+            }
+            issues.addAll(page);
+            startAt += page.size();
+
+            if ( searchResult.getTotal() != null && startAt >= searchResult.getTotal() ) {
+                return issues;
+            }
+        }
+    }
 
-        return searchResult.getIssues();
+    /**
+     * Query Jira for the worklogs of the specified issue from
+     * <code>startAt</code> on, as the issues returned by {@link #getIssues}
+     * only include the first ones. The pages are requested with the same
+     * client, so it is only authorized once per issue
+     *
+     * @param url
+     *            the url(end point)
+     * @param username
+     *            the user name
+     * @param password
+     *            the password
+     * @param issueKey
+     *            the key of the issue
+     * @param startAt
+     *            the index of the first worklog to return
+     * @return list of worklogs
+     */
+    public static List<WorkLogItemDTO> getWorkLogs(String url, String username, String password,
+                                                   String issueKey, int startAt) {
+
+        WebClient client = createClient(url);
+
+        checkAutherization(client, username, password);
+
+        // Go to baseURI
+        client.back(true);
+
+        client.path(PATH_ISSUE).path(issueKey).path(PATH_WORKLOG);
+
+        client.query("maxResults", MAX_RESULTS);
+
+        List<WorkLogItemDTO> workLogItems = new ArrayList<>();
+        while (true) {
+            client.replaceQueryParam("startAt", startAt);
+            WorkLogDTO workLog = client.get(WorkLogDTO.class);
+
+            List<WorkLogItemDTO> page = workLog.getWorklogs();
+            if ( page == null || page.isEmpty() ) {
+                return workLogItems;
+            }
+            workLogItems.addAll(page);
+            startAt += page.size();
+
+            if ( workLog.getTotal() != null && startAt >= workLog.getTotal() ) {
+                return workLogItems;
+            }
+        }
     }
 
     /**
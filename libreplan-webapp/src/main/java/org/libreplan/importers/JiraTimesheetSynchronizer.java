@@ -21,11 +21,15 @@ package org.libreplan.importers;
 
 import static org.libreplan.web.I18nHelper._;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.NonUniqueResultException;
+import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IConnectorDAO;
 import org.libreplan.business.common.entities.Connector;
 import org.libreplan.business.common.entities.ConnectorException;
@@ -71,7 +75,13 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
 
     private SynchronizationInfo synchronizationInfo;
 
-    private List<Worker> workers;
+    private Map<String, Worker> workersByNif;
+
+    private Set<String> notFoundNifs;
+
+    private Map<String, WorkReportLine> workReportLinesByCode;
+
+    private Set<WorkReportLine> changedWorkReportLines;
 
     private WorkReportType workReportType;
 
@@ -103,14 +113,16 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
     public void syncJiraTimesheetWithJiraIssues(List<IssueDTO> issues, Order order) throws ConnectorException {
         synchronizationInfo = new SynchronizationInfo(_("Synchronization"));
 
+        Connector connector = getJiraConnector();
         workReportType = getJiraTimesheetsWorkReportType();
-        typeOfWorkHours = getTypeOfWorkHours();
+        typeOfWorkHours = getTypeOfWorkHours(connector);
 
-        workers = getWorkers();
-        if (workers == null && workers.isEmpty()) {
+        workersByNif = getWorkersByNif();
+        if (workersByNif.isEmpty()) {
             synchronizationInfo.addFailedReason(_("No workers found"));
             return;
         }
+        notFoundNifs = new HashSet<>();
 
         OrderSyncInfo orderSyncInfo = orderSyncInfoDAO
                 .findLastSynchronizedInfoByOrderAndConnectorName(order, PredefinedConnectors.JIRA.getName());
@@ -128,6 +140,10 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
         String code = order.getCode() + "-" + orderSyncInfo.getKey();
 
         WorkReport workReport = updateOrCreateWorkReport(code);
+        workReportLinesByCode = getWorkReportLinesByCode(workReport);
+        changedWorkReportLines = new HashSet<>();
+
+        Map<String, OrderElement> orderElementsByCode = getChildrenByCode(order);
 
         for (IssueDTO issue : issues) {
             WorkLogDTO workLog = issue.getFields().getWorklog();
@@ -142,7 +158,7 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
                     String codeOrderElement =
                             PredefinedConnectorProperties.JIRA_CODE_PREFIX + order.getCode() + "-" + issue.getKey();
 
-                    OrderElement orderElement = order.getOrderElement(codeOrderElement);
+                    OrderElement orderElement = orderElementsByCode.get(codeOrderElement);
 
                     if (orderElement == null) {
                         synchronizationInfo.addFailedReason(_("Order element \"{0}\" not found", code));
@@ -158,7 +174,7 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
 
     private void saveWorkReportIfNotEmpty() {
         if (workReportModel.getWorkReport().getWorkReportLines().size() > 0) {
-            workReportModel.confirmSave();
+            workReportModel.confirmSave(changedWorkReportLines);
         }
     }
 
@@ -203,22 +219,42 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
                 continue;
             }
 
-            WorkReportLine workReportLine;
             String code = orderElement.getCode() + "-" + workLogItem.getId();
 
-            try {
-                workReportLine = workReport.getWorkReportLineByCode(code);
-            } catch (InstanceNotFoundException e) {
+            WorkReportLine workReportLine = workReportLinesByCode.get(code);
+            if (workReportLine == null) {
                 workReportLine = WorkReportLine.create(workReport);
                 workReport.addWorkReportLine(workReportLine);
                 workReportLine.setCode(code);
+                workReportLinesByCode.put(code, workReportLine);
             }
 
+            if (isChargedEffortChanged(workReportLine, orderElement, workLogItem)) {
+                changedWorkReportLines.add(workReportLine);
+            }
             updateWorkReportLine(workReportLine, orderElement, workLogItem, resource);
         }
 
     }
 
+    /**
+     * Checks if the update of <code>workReportLine</code> with
+     * <code>workLogItem</code> changes the charged effort or the timesheet
+     * dates of the order elements, so the unchanged lines are not taken into
+     * account when saving the {@link WorkReport}.
+     */
+    private boolean isChargedEffortChanged(WorkReportLine workReportLine,
+                                           OrderElement orderElement,
+                                           WorkLogItemDTO workLogItem) {
+
+        return workReportLine.isNewObject() ||
+                !EffortDuration.seconds(workLogItem.getTimeSpentSeconds()).equals(workReportLine.getEffort()) ||
+                workLogItem.getStarted() == null ||
+                !LocalDate.fromDateFields(workLogItem.getStarted()).equals(workReportLine.getLocalDate()) ||
+                workReportLine.getOrderElement() == null ||
+                !orderElement.getId().equals(workReportLine.getOrderElement().getId());
+    }
+
     /**
      * Updates {@link WorkReportLine} with <code>workLogItem</code>.
      *
@@ -289,17 +325,28 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
     }
 
     /**
-     * Returns {@link TypeOfWorkHours} configured for JIRA connector.
+     * Returns JIRA connector.
      *
-     * @return TypeOfWorkHours for JIRA connector
+     * @return JIRA connector
      * @throws ConnectorException
      */
-    private TypeOfWorkHours getTypeOfWorkHours() throws ConnectorException {
+    private Connector getJiraConnector() throws ConnectorException {
         Connector connector = connectorDAO.findUniqueByName(PredefinedConnectors.JIRA.getName());
         if (connector == null) {
             throw new ConnectorException(_("JIRA connector not found"));
         }
+        return connector;
+    }
 
+    /**
+     * Returns {@link TypeOfWorkHours} configured for JIRA connector.
+     *
+     * @param connector
+     *            the JIRA connector
+     * @return TypeOfWorkHours for JIRA connector
+     * @throws ConnectorException
+     */
+    private TypeOfWorkHours getTypeOfWorkHours(Connector connector) throws ConnectorException {
         TypeOfWorkHours typeOfWorkHours;
         String name = connector.getPropertiesAsMap().get(PredefinedConnectorProperties.JIRA_HOURS_TYPE);
 
@@ -333,12 +380,47 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
 
 
     /**
-     * Gets all LibrePlan workers.
+     * Gets all LibrePlan workers indexed by their nif.
      *
-     * @return list of workers
+     * @return map of workers
      */
-    private List<Worker> getWorkers() {
-        return workerDAO.findAll();
+    private Map<String, Worker> getWorkersByNif() {
+        Map<String, Worker> result = new HashMap<>();
+        for (Worker worker : workerDAO.findAll()) {
+            result.put(worker.getNif(), worker);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the lines of <code>workReport</code> indexed by their code.
+     *
+     * @param workReport
+     *            an existing or new created workReport
+     * @return map of workReportLines
+     */
+    private Map<String, WorkReportLine> getWorkReportLinesByCode(WorkReport workReport) {
+        Map<String, WorkReportLine> result = new HashMap<>();
+        for (WorkReportLine workReportLine : workReport.getWorkReportLines()) {
+            result.put(workReportLine.getCode(), workReportLine);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the children of <code>order</code> indexed by their code, like
+     * {@link OrderElement#getOrderElement(String)} would find them.
+     *
+     * @param order
+     *            the order
+     * @return map of orderElements
+     */
+    private Map<String, OrderElement> getChildrenByCode(Order order) {
+        Map<String, OrderElement> result = new HashMap<>();
+        for (OrderElement child : order.getChildren()) {
+            result.putIfAbsent(child.getCode(), child);
+        }
+        return result;
     }
 
     /**
@@ -349,13 +431,11 @@ public class JiraTimesheetSynchronizer implements IJiraTimesheetSynchronizer {
      * @return worker if found, null otherwise
      */
     private Worker getWorker(String nif) {
-        for (Worker worker : workers) {
-            if (worker.getNif().equals(nif)) {
-                return worker;
-            }
+        Worker worker = workersByNif.get(nif);
+        if (worker == null && notFoundNifs.add(nif)) {
+            synchronizationInfo.addFailedReason(_("Worker \"{0}\" not found", nif));
         }
-        synchronizationInfo.addFailedReason(_("Worker \"{0}\" not found", nif));
-        return null;
+        return worker;
     }
 
 
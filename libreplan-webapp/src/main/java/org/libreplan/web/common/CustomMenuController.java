@@ -274,6 +274,10 @@ public class CustomMenuController extends Div implements IMenuItemsRegister {
         return this;
     }
 
+    private CustomMenuItem subItem(String name, String url) {
+        return new CustomMenuItem(name, url);
+    }
+
     private CustomMenuItem subItem(String name, String url, String helpLink) {
         return new CustomMenuItem(name, url, helpLink);
     }
@@ -457,6 +461,10 @@ public class CustomMenuController extends Div implements IMenuItemsRegister {
             configurationItems.add(subItem(_("Job Scheduling"), "/common/jobScheduling.zul", "19-scheduler.html"));
         }
 
+        if ( SecurityUtils.isUserInRole(UserRole.ROLE_SUPERUSER) ) {
+            configurationItems.add(subItem(_("Snapshots"), "/common/snapshots.zul"));
+        }
+
         if ( SecurityUtils.isSuperuserOrUserInRoles(UserRole.ROLE_EDIT_EMAIL_TEMPLATES) ) {
             configurationItems.add(subItem(
                     _("Edit E-mail Templates"),
@@ -30,6 +30,7 @@ import org.libreplan.business.common.entities.JobClassNameEnum;
 import org.libreplan.business.common.entities.JobSchedulerConfiguration;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 import org.libreplan.importers.IExportTimesheetsToTim;
 import org.libreplan.importers.IImportRosterFromTim;
 import org.libreplan.importers.IJiraOrderElementSynchronizer;
@@ -37,6 +38,7 @@ import org.libreplan.importers.ISchedulerManager;
 import org.libreplan.importers.SynchronizationInfo;
 import org.libreplan.importers.notifications.IEmailNotificationJob;
 import org.libreplan.web.common.concurrentdetection.OnConcurrentModification;
+import org.libreplan.web.limitingresources.ILimitingResourceQueueModel;
 import org.quartz.SchedulerException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -103,6 +105,9 @@ public class JobSchedulerModel implements IJobSchedulerModel {
     @Autowired
     private IEmailNotificationJob timesheetDataMissing;
 
+    @Autowired
+    private ILimitingResourceQueueModel limitingResourceQueueModel;
+
     private List<SynchronizationInfo> synchronizationInfos = new ArrayList<>();
 
 
@@ -184,9 +189,43 @@ public class JobSchedulerModel implements IJobSchedulerModel {
             return;
         }
 
+        if ( name.equals(JobClassNameEnum.SCHEDULE_LIMITING_RESOURCE_QUEUE_ELEMENTS_JOB.getName()) ) {
+            synchronizationInfos = new ArrayList<>();
+            synchronizationInfos.add(scheduleLimitingResourceQueueElements());
+
+            return;
+        }
+
         throw new RuntimeException("Unknown action");
     }
 
+    /**
+     * Assigns all the unassigned limiting resource queue elements, reporting
+     * as failed the tasks for which no gap has been found
+     */
+    private SynchronizationInfo scheduleLimitingResourceQueueElements() {
+        SynchronizationInfo synchronizationInfo =
+                new SynchronizationInfo(_("Schedule limiting resource queue elements job"));
+
+        try {
+            limitingResourceQueueModel.scheduleAllUnassignedLimitingResourceQueueElements();
+        } catch (RuntimeException e) {
+            synchronizationInfo.addFailedReason(
+                    _("Limiting resource queue elements could not be scheduled: {0}", e.getMessage()));
+
+            return synchronizationInfo;
+        }
+
+        for (LimitingResourceQueueElement each : limitingResourceQueueModel
+                .getUnassignedLimitingResourceQueueElements()) {
+
+            synchronizationInfo.addFailedReason(
+                    _("No gap found for task \"{0}\"", each.getTask().getName()));
+        }
+
+        return synchronizationInfo;
+    }
+
     @Override
     public List<SynchronizationInfo> getSynchronizationInfos() {
         return synchronizationInfos;
@@ -0,0 +1,101 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.common;
+
+import static org.libreplan.web.I18nHelper._;
+
+import java.util.List;
+
+import org.libreplan.business.hibernate.notification.ISnapshotRefresherService;
+import org.libreplan.business.hibernate.notification.ISnapshotStatistics;
+import org.zkoss.zk.ui.Component;
+import org.zkoss.zk.ui.util.GenericForwardComposer;
+import org.zkoss.zkplus.spring.SpringUtil;
+import org.zkoss.zul.Grid;
+import org.zkoss.zul.RowRenderer;
+
+/**
+ * Controller to show the statistics about the reloads of the database snapshots.
+ */
+@SuppressWarnings("serial")
+public class SnapshotsController extends GenericForwardComposer {
+
+    private ISnapshotRefresherService snapshotRefresherService;
+
+    private Grid snapshotsGrid;
+
+    public SnapshotsController() {
+        snapshotRefresherService =
+                (ISnapshotRefresherService) SpringUtil.getBean("hibernateDatabaseModificationsListener");
+    }
+
+    @Override
+    public void doAfterCompose(Component comp) throws Exception {
+        super.doAfterCompose(comp);
+        comp.setAttribute("controller", this, true);
+    }
+
+    public List<ISnapshotStatistics> getSnapshotsStatistics() {
+        return snapshotRefresherService.getSnapshotsStatistics();
+    }
+
+    public void refresh() {
+        Util.reloadBindings(snapshotsGrid);
+    }
+
+    public RowRenderer getSnapshotsRenderer() {
+        return (row, o, i) -> {
+            ISnapshotStatistics statistics = (ISnapshotStatistics) o;
+            row.setValue(o);
+
+            Util.appendLabel(row, statistics.getName());
+            Util.appendLabel(row, Long.toString(statistics.getReloads()));
+            Util.appendLabel(row, Long.toString(statistics.getErrors()));
+            Util.appendLabel(row, Long.toString(statistics.getCancelledReloads()));
+            Util.appendLabel(row, Long.toString(statistics.getCoalescedReloads()));
+            Util.appendLabel(row, Long.toString(statistics.getMeanReloadMillis()));
+            Util.appendLabel(row, Long.toString(statistics.getMaxReloadMillis()));
+            Util.appendLabel(row, Long.toString(statistics.getMeanWaitingMillis()));
+            Util.appendLabel(row, histogram(statistics));
+            Util.appendLabel(row, Long.toString(statistics.getStalenessMillis()));
+        };
+    }
+
+    private static String histogram(ISnapshotStatistics statistics) {
+        long[] bounds = statistics.getReloadMillisHistogramBounds();
+        long[] counts = statistics.getReloadMillisHistogram();
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if ( i > 0 ) {
+                result.append(", ");
+            }
+            if ( i < bounds.length ) {
+                result.append(_("< {0} ms", bounds[i]));
+            } else {
+                result.append(_(">= {0} ms", bounds[bounds.length - 1]));
+            }
+            result.append(": ").append(counts[i]);
+        }
+
+        return result.toString();
+    }
+
+}
@@ -23,7 +23,6 @@ package org.libreplan.web.common.components.finders;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedMap;
 
 import org.apache.commons.lang3.StringUtils;
@@ -70,50 +69,12 @@ public class CriterionMultipleFiltersFinder extends MultipleFiltersFinder {
         getListMatching().clear();
         if ((filter != null) && (!filter.isEmpty())) {
             filter = StringUtils.deleteWhitespace(filter.toLowerCase());
-            searchInCriterionTypes(filter);
+            searchInCriterions(filter, databaseSnapshots, this::addCriterion);
         }
         addNoneFilter();
         return getListMatching();
     }
 
-    private void searchInCriterionTypes(String filter) {
-        boolean limited = (filter.length() < 3);
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        for (CriterionType type : mapCriterions.keySet()) {
-            String name = StringUtils.deleteWhitespace(type.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                setFilterPairCriterionType(type, limited);
-            } else {
-                searchInCriterions(type, filter);
-            }
-        }
-    }
-
-    private void searchInCriterions(CriterionType type, String filter) {
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        for (Criterion criterion : mapCriterions.get(type)) {
-            String name = StringUtils.deleteWhitespace(criterion.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                addCriterion(type, criterion);
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
-        }
-    }
-
-    private void setFilterPairCriterionType(CriterionType type, boolean limited) {
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        for (Criterion criterion : mapCriterions.get(type)) {
-            addCriterion(type, criterion);
-            if ((limited) && (getListMatching().size() > 9)) {
-                return;
-            }
-        }
-    }
-
     private void addCriterion(CriterionType type, Criterion criterion) {
         String pattern = criterion.getName() + " ( " + type.getName() + " ) ";
         getListMatching().add(
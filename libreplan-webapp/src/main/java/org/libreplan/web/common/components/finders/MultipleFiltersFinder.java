@@ -25,14 +25,25 @@ import org.apache.commons.lang3.StringUtils;
 import org.libreplan.business.common.AdHocTransactionService;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.hibernate.notification.ISnapshotRefresherService;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
+import org.libreplan.business.labels.entities.Label;
+import org.libreplan.business.labels.entities.LabelType;
+import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.CriterionType;
+import org.libreplan.business.util.SearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.zkoss.zul.Listcell;
 import org.zkoss.zul.Listitem;
 import org.zkoss.zul.ListitemRenderer;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import static org.libreplan.web.I18nHelper._;
 
@@ -85,6 +96,66 @@ abstract class MultipleFiltersFinder implements IMultipleFiltersFinder {
         return filterPairRenderer;
     }
 
+    /**
+     * Short filters match too many elements, so their search stops when there are ten filters.
+     *
+     * @return the maximum number of elements to add for the filter, {@link SearchIndex#NO_LIMIT} if there is no limit
+     */
+    int getSearchLimit(String filter) {
+        if (filter.length() >= 3) {
+            return SearchIndex.NO_LIMIT;
+        }
+        return Math.max(0, 10 - getListMatching().size());
+    }
+
+    /**
+     * Adds all the criteria of the types whose name contains the filter and then the other criteria found by the index
+     * of the snapshot, the best ranked first.
+     */
+    void searchInCriterions(String filter,
+                            PredefinedDatabaseSnapshots databaseSnapshots,
+                            BiConsumer<CriterionType, Criterion> addCriterion) {
+
+        Set<CriterionType> matchedTypes = new HashSet<>();
+        for (Entry<CriterionType, List<Criterion>> each : databaseSnapshots.snapshotCriterionsMap().entrySet()) {
+            if (SearchIndex.normalize(each.getKey().getName()).contains(filter)) {
+                matchedTypes.add(each.getKey());
+                addAll(each.getValue(), getSearchLimit(filter), criterion -> addCriterion.accept(each.getKey(), criterion));
+            }
+        }
+
+        for (Criterion criterion : databaseSnapshots.snapshotCriterionsIndex()
+                .search(filter, each -> !matchedTypes.contains(each.getType()), getSearchLimit(filter))) {
+            addCriterion.accept(criterion.getType(), criterion);
+        }
+    }
+
+    /**
+     * Adds all the labels of the types whose name contains the filter and then the other labels found by the index of
+     * the snapshot, the best ranked first.
+     */
+    void searchInLabels(String filter, PredefinedDatabaseSnapshots databaseSnapshots, Consumer<Label> addLabel) {
+        Set<LabelType> matchedTypes = new HashSet<>();
+        for (Entry<LabelType, List<Label>> each : databaseSnapshots.snapshotLabelsMap().entrySet()) {
+            if (SearchIndex.normalize(each.getKey().getName()).contains(filter)) {
+                matchedTypes.add(each.getKey());
+                addAll(each.getValue(), getSearchLimit(filter), addLabel);
+            }
+        }
+
+        for (Label label : databaseSnapshots.snapshotLabelsIndex()
+                .search(filter, each -> !matchedTypes.contains(each.getType()), getSearchLimit(filter))) {
+            addLabel.accept(label);
+        }
+    }
+
+    private static <T> void addAll(List<T> elements, int limit, Consumer<T> add) {
+        List<T> added = limit != SearchIndex.NO_LIMIT && elements.size() > limit ? elements.subList(0, limit) : elements;
+        for (T each : added) {
+            add.accept(each);
+        }
+    }
+
     void addNoneFilter() {
         getListMatching().add(new FilterPair(FilterEnumNone.None, FilterEnumNone.None.toString(), null));
     }
@@ -115,7 +115,7 @@ public class ResourceAllocationMultipleFiltersFinder extends MultipleFiltersFind
         getListMatching().clear();
         if ((filter != null) && (!filter.isEmpty())) {
             filter = StringUtils.deleteWhitespace(filter.toLowerCase());
-            searchInCriterionTypes(filter);
+            searchInCriterions(filter, databaseSnapshots, this::addCriterion);
             searchInResources(filter);
         }
 
@@ -123,44 +123,6 @@ public class ResourceAllocationMultipleFiltersFinder extends MultipleFiltersFind
         return getListMatching();
     }
 
-    private void searchInCriterionTypes(String filter) {
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        boolean limited = (filter.length() < 3);
-        for (CriterionType type : mapCriterions.keySet()) {
-            String name = StringUtils.deleteWhitespace(type.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                setFilterPairCriterionType(type, limited);
-            } else {
-                searchInCriterions(type, filter);
-            }
-        }
-    }
-
-    private void searchInCriterions(CriterionType type, String filter) {
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        for (Criterion criterion : mapCriterions.get(type)) {
-            String name = StringUtils.deleteWhitespace(criterion.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                addCriterion(type, criterion);
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
-        }
-    }
-
-    private void setFilterPairCriterionType(CriterionType type, boolean limited) {
-        Map<CriterionType, List<Criterion>> mapCriterions = getCriterionsMap();
-        for (Criterion criterion : mapCriterions.get(type)) {
-            addCriterion(type, criterion);
-            if ((limited) && (getListMatching().size() > 9)) {
-                return;
-            }
-        }
-    }
-
     private void searchInResources(String filter) {
         Map<Class<?>, List<Resource>> mapResources = databaseSnapshots
                 .snapshotMapResources();
@@ -114,7 +114,7 @@ public class ResourceMultipleFiltersFinderByResourceAndCriterion extends Multipl
         if ((filter != null) && (!filter.isEmpty())) {
             filter = StringUtils.deleteWhitespace(filter.toLowerCase());
             searchInResources(filter);
-            searchInCriterionTypes(filter);
+            searchInCriterions(filter, databaseSnapshots, this::addCriterion);
         }
 
         addNoneFilter();
@@ -138,47 +138,4 @@ public class ResourceMultipleFiltersFinderByResourceAndCriterion extends Multipl
         }
     }
 
-    private void searchInCriterionTypes(String filter) {
-        boolean limited = (filter.length() < 3);
-        for (CriterionType type : getMapCriterions().keySet()) {
-            String name = StringUtils.deleteWhitespace(type.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                setFilterPairCriterionType(type, limited);
-            } else {
-                searchInCriterions(type, filter);
-            }
-        }
-    }
-
-    private void searchInCriterions(CriterionType type, String filter) {
-        List<Criterion> list = getMapCriterions().get(type);
-        if (list == null) {
-            return;
-        }
-        for (Criterion criterion : list) {
-            String name = StringUtils.deleteWhitespace(criterion.getName()
-                    .toLowerCase());
-            if (name.contains(filter)) {
-                addCriterion(type, criterion);
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
-        }
-    }
-
-    private void setFilterPairCriterionType(CriterionType type, boolean limited) {
-        List<Criterion> list = getMapCriterions().get(type);
-        if (list == null) {
-            return;
-        }
-        for (Criterion criterion : list) {
-            addCriterion(type, criterion);
-            if ((limited) && (getListMatching().size() > 9)) {
-                return;
-            }
-        }
-    }
-
 }
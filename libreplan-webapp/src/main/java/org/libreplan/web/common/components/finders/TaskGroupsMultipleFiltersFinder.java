@@ -147,8 +147,8 @@ public class TaskGroupsMultipleFiltersFinder extends MultipleFiltersFinder {
             } else if (filter.indexOf("cod:") == 0) {
                 this.searchInOrderCodes(filter);
             } else {
-                searchInCriterionTypes(filter);
-                searchInLabelTypes(filter);
+                searchInCriterions(filter, databaseSnapshots, this::addCriterion);
+                searchInLabels(filter, databaseSnapshots, this::addLabel);
                 searchInExternalCompanies(filter);
                 searchInOrderStatus(filter);
                 searchInResources(filter);
@@ -159,98 +159,10 @@ public class TaskGroupsMultipleFiltersFinder extends MultipleFiltersFinder {
         return getListMatching();
     }
 
-    private void searchInCriterionTypes(String filter) {
-        boolean limited = filter.length() < 3;
-        for (CriterionType type : getMapCriterions().keySet()) {
-            String name = StringUtils.deleteWhitespace(type.getName().toLowerCase());
-            if (name.contains(filter)) {
-                setFilterPairCriterionType(type, limited);
-            } else {
-                searchInCriterions(type, filter);
-            }
-        }
-    }
-
-    private void searchInCriterions(CriterionType type, String filter) {
-        List<Criterion> list = getMapCriterions().get(type);
-        if (list == null) {
-            return;
-        }
-
-        for (Criterion criterion : list) {
-            String name = StringUtils.deleteWhitespace(criterion.getName().toLowerCase());
-
-            if (name.contains(filter)) {
-                addCriterion(type, criterion);
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
-        }
-    }
-
-    private void setFilterPairCriterionType(CriterionType type, boolean limited) {
-        for (Criterion criterion : getMapCriterions().get(type)) {
-            addCriterion(type, criterion);
-            if ((limited) && (getListMatching().size() > 9)) {
-                return;
-            }
-        }
-    }
-
-    private void searchInLabelTypes(String filter) {
-        Map<LabelType, List<Label>> mapLabels = getLabelsMap();
-        boolean limited = filter.length() < 3;
-
-        for (LabelType type : mapLabels.keySet()) {
-            String name = StringUtils.deleteWhitespace(type.getName().toLowerCase());
-
-            if (name.contains(filter)) {
-                setFilterPairLabelType(type, limited);
-            } else {
-                searchInLabels(type, filter);
-            }
-        }
-    }
-
-    private Map<LabelType, List<Label>> getLabelsMap() {
-        return databaseSnapshots.snapshotLabelsMap();
-    }
-
-    private void searchInLabels(LabelType type, String filter) {
-        for (Label label : getLabelsMap().get(type)) {
-            String name = StringUtils.deleteWhitespace(label.getName().toLowerCase());
-
-            if (name.contains(filter)) {
-                addLabel(label);
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
-        }
-    }
-
-    private void setFilterPairLabelType(LabelType type, boolean limited) {
-        for (Label label : getLabelsMap().get(type)) {
-            addLabel(label);
-            if ((limited) && (getListMatching().size() > 9)) {
-                return;
-            }
-        }
-    }
-
-    private void searchInExternalCompanies(String filter){
-        for (ExternalCompany externalCompany : databaseSnapshots.snapshotExternalCompanies()) {
-            String name = StringUtils.deleteWhitespace(externalCompany.getName().toLowerCase());
-            String nif = StringUtils.deleteWhitespace(externalCompany.getNif().toLowerCase());
-
-            if ((name.contains(filter)) || (nif.contains(filter))) {
-                addExternalCompany(externalCompany);
-
-                if ((filter.length() < 3) && (getListMatching().size() > 9)) {
-                    return;
-                }
-            }
+    private void searchInExternalCompanies(String filter) {
+        for (ExternalCompany externalCompany : databaseSnapshots.snapshotExternalCompaniesIndex()
+                .search(filter, getSearchLimit(filter))) {
+            addExternalCompany(externalCompany);
         }
     }
 
@@ -272,13 +184,9 @@ public class TaskGroupsMultipleFiltersFinder extends MultipleFiltersFinder {
         if (filter.indexOf("cod:") == 0) {
             String codeFilter = filter.replaceFirst("cod:", "");
 
-            for (String code : databaseSnapshots.snapshotOrdersCodes()) {
-                code = StringUtils.deleteWhitespace(code.toLowerCase());
-
-                if (code.equals(codeFilter)) {
-                    addCode(code);
-                    return;
-                }
+            List<String> codes = databaseSnapshots.snapshotOrdersCodesIndex().searchEqual(codeFilter);
+            if (!codes.isEmpty()) {
+                addCode(codes.get(0));
             }
         }
     }
@@ -287,13 +195,9 @@ public class TaskGroupsMultipleFiltersFinder extends MultipleFiltersFinder {
         if (filter.indexOf("rc:") == 0) {
             String referenceFilter = filter.replaceFirst("rc:", "");
 
-            for (String reference : databaseSnapshots.snapshotCustomerReferences()) {
-                reference = StringUtils.deleteWhitespace(reference.toLowerCase());
-
-                if (reference.equals(referenceFilter)) {
-                    addCustomerReference(reference);
-                    return;
-                }
+            List<String> references = databaseSnapshots.snapshotCustomerReferencesIndex().searchEqual(referenceFilter);
+            if (!references.isEmpty()) {
+                addCustomerReference(references.get(0));
             }
         }
     }
@@ -142,6 +142,27 @@ public interface ILimitingResourceQueueModel {
             LimitingResourceQueueElement oldElement,
             LimitingResourceQueueElement newElement);
 
+    /**
+     * Assigns all the <code>elements</code> in topological order, in the same way that
+     * {@link #assignLimitingResourceQueueElement(LimitingResourceQueueElement)} does.
+     *
+     * @return all the inserted or moved queue elements
+     */
     Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(List<LimitingResourceQueueElement> elements);
 
+    /**
+     * Assigns all the {@link LimitingResourceQueueElement} not assigned to any {@link LimitingResourceQueue}.
+     *
+     * @return all the inserted or moved queue elements
+     */
+    Set<LimitingResourceQueueElement> assignAllUnassignedLimitingResourceQueueElements();
+
+    /**
+     * Loads the queues, assigns all the unassigned elements and saves the result in a single transaction.
+     * It doesn't need any other conversation step, so it can be used out of the UI, from a scheduled job.
+     *
+     * @return all the inserted or moved queue elements
+     */
+    Set<LimitingResourceQueueElement> scheduleAllUnassignedLimitingResourceQueueElements();
+
 }
@@ -443,12 +443,24 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         applyAllocation(allocation);
 
         assert allocation.isValid();
+
+        return withAffectedElementsRescheduled(requirements.getElement(), allocation);
+    }
+
+    /**
+     * Moves the elements affected by the allocation just done for <code>element</code>.
+     *
+     * @return <code>element</code> plus the elements that have been moved
+     */
+    private List<LimitingResourceQueueElement> withAffectedElementsRescheduled(
+            LimitingResourceQueueElement element, AllocationSpec allocation) {
+
         List<LimitingResourceQueueElement> result = new ArrayList<>();
-        result.add(requirements.getElement());
+        result.add(element);
 
         List<LimitingResourceQueueElement> moved = shift(
-                queuesState.getPotentiallyAffectedByInsertion(externalQueueElement),
-                requirements.getElement(),
+                queuesState.getPotentiallyAffectedByInsertion(element),
+                element,
                 allocation);
 
         result.addAll(rescheduleAffectedElementsToSatisfyDependencies(allocation, moved));
@@ -1236,10 +1248,56 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
             List<LimitingResourceQueueElement> queueElements) {
 
         Set<LimitingResourceQueueElement> result = new HashSet<>();
-        for (LimitingResourceQueueElement each: queuesState.inTopologicalOrder(queueElements)) {
-            result.addAll(assignLimitingResourceQueueElement(each));
+        for (LimitingResourceQueueElement each: queuesState.inTopologicalOrderByPriority(queueElements)) {
+            result.addAll(assignInBatch(each));
+        }
+
+        return result;
+    }
+
+    /**
+     * As the elements are assigned in topological order, an element inserted at a gap can only affect the elements
+     * already assigned that depend on it, or the next one in its queue if they overlap. Otherwise the graph of the
+     * elements potentially affected by the insertion is not built.
+     */
+    private List<LimitingResourceQueueElement> assignInBatch(LimitingResourceQueueElement externalQueueElement) {
+        if ( !queuesState.getEquivalent(externalQueueElement).isDetached() ) {
+            // Already assigned while moving the elements affected by a previous one
+            return Collections.emptyList();
+        }
+
+        InsertionRequirements requirements = queuesState.getRequirementsFor(externalQueueElement);
+        AllocationSpec allocation = insertAtGap(requirements);
+
+        if ( allocation == null ) {
+            return Collections.emptyList();
+        }
+
+        applyAllocation(allocation);
+
+        LimitingResourceQueueElement element = requirements.getElement();
+        if ( allocation.isAppropriative()
+                || queuesState.hasAssignedSuccessors(element)
+                || queuesState.overlapsNextInQueue(element) ) {
+
+            return withAffectedElementsRescheduled(element, allocation);
         }
 
+        return Collections.singletonList(element);
+    }
+
+    @Override
+    public Set<LimitingResourceQueueElement> assignAllUnassignedLimitingResourceQueueElements() {
+        return assignLimitingResourceQueueElements(new ArrayList<>(queuesState.getUnassigned()));
+    }
+
+    @Override
+    @Transactional
+    public Set<LimitingResourceQueueElement> scheduleAllUnassignedLimitingResourceQueueElements() {
+        doGlobalView();
+        Set<LimitingResourceQueueElement> result = assignAllUnassignedLimitingResourceQueueElements();
+        applyChanges();
+
         return result;
     }
 
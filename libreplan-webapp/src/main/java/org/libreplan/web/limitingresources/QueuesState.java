@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
@@ -644,6 +645,49 @@ public class QueuesState {
         return toList(topologicalIterator(buildSubgraphFor(queueElements)));
     }
 
+    /**
+     * Like {@link #inTopologicalOrder(List)}, but when several elements have
+     * all their predecessors already placed, the one that can start earlier
+     * goes first, or the oldest one if they can start at the same time.
+     */
+    public List<LimitingResourceQueueElement> inTopologicalOrderByPriority(
+            List<LimitingResourceQueueElement> queueElements) {
+
+        PriorityQueue<LimitingResourceQueueElement> ready = new PriorityQueue<>(byPriority());
+
+        return toList(new TopologicalOrderIterator<>(buildSubgraphFor(queueElements), ready));
+    }
+
+    private static Comparator<LimitingResourceQueueElement> byPriority() {
+        return Comparator
+                .comparing(LimitingResourceQueueElement::getEarliestStartDateBecauseOfGantt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparingLong(LimitingResourceQueueElement::getCreationTimestamp);
+    }
+
+    /**
+     * @return if any of the elements depending on <code>element</code> is
+     *         already assigned to a queue, so it could need to be moved
+     */
+    public boolean hasAssignedSuccessors(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueDependency each : graph.outgoingEdgesOf(getEquivalent(element))) {
+            if ( !each.getHasAsDestiny().isDetached() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return if <code>element</code> ends after the start of the next element
+     *         of its queue, so the latter could need to be moved
+     */
+    public boolean overlapsNextInQueue(LimitingResourceQueueElement element) {
+        LimitingResourceQueueElement next = element.getLimitingResourceQueue().getNextElement(element);
+        return next != null && element.getEndTime().isAfter(next.getStartTime());
+    }
+
     /**
      * Constructs a graph composed only by queueElements
      *
@@ -0,0 +1,63 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * A job that assigns all the {@link LimitingResourceQueueElement} not assigned to any queue yet.
+ *
+ * It is used in {@link org.libreplan.web.common.JobSchedulerModel}.
+ */
+@SuppressWarnings("unused")
+public class ScheduleLimitingResourceQueueElementsJob extends QuartzJobBean {
+
+    private static final Log LOG = LogFactory.getLog(ScheduleLimitingResourceQueueElementsJob.class);
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+
+        ApplicationContext applicationContext = (ApplicationContext)
+                context.getJobDetail().getJobDataMap().get("applicationContext");
+
+        ILimitingResourceQueueModel limitingResourceQueueModel =
+                (ILimitingResourceQueueModel) applicationContext.getBean("limitingResourceQueueModel");
+
+        Set<LimitingResourceQueueElement> scheduled =
+                limitingResourceQueueModel.scheduleAllUnassignedLimitingResourceQueueElements();
+
+        LOG.info("Limiting resource queue elements scheduled or moved: " + scheduled.size());
+
+        for (LimitingResourceQueueElement each : limitingResourceQueueModel
+                .getUnassignedLimitingResourceQueueElements()) {
+
+            LOG.warn("No gap found for task " + each.getTask().getName());
+        }
+    }
+
+}
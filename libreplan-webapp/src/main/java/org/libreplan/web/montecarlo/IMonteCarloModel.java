@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
 
@@ -44,6 +45,28 @@ public interface IMonteCarloModel {
 
     List<String> getCriticalPathNames();
 
+    /**
+     * @return if there were more critical paths than {@link #getCriticalPathsLimit()}, so only some of them are in
+     *         {@link #getCriticalPathNames()}
+     */
+    boolean isCriticalPathsOverLimit();
+
+    /**
+     * @return the maximum number of critical paths built
+     */
+    int getCriticalPathsLimit();
+
     List<MonteCarloTask> getCriticalPath(String name);
 
+    /**
+     * @return the date at which, according to the last calculation, the project is completed with the given
+     *         probability. <code>null</code> if nothing has been calculated yet
+     */
+    LocalDate getCompletionDateWithProbability(double probability);
+
+    /**
+     * @return the fraction of iterations of the last calculation in which each task was in a critical path
+     */
+    Map<Task, BigDecimal> getCriticalityIndexes();
+
 }
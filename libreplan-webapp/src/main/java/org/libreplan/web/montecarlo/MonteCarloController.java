@@ -25,6 +25,7 @@ import static org.libreplan.web.I18nHelper._;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -77,6 +78,8 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private static final Integer MAX_NUMBER_ITERATIONS = 100000;
 
+    private static final int[] COMPLETION_PROBABILITIES = { 50, 80, 95 };
+
     private final RowRenderer gridCriticalPathTasksRender = new CriticalPathTasksRender();
 
     private Grid gridCriticalPathTasks;
@@ -89,6 +92,8 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private Listbox lbCriticalPaths;
 
+    private Label lblCriticalPathsOverLimit;
+
     private Progressmeter progressMonteCarloCalculation;
 
     private Window monteCarloChartWindow;
@@ -123,7 +128,9 @@ public class MonteCarloController extends GenericForwardComposer {
                                     iterations,
                                     percentageCompletedNotifier(updatesEmitter));
 
-                    updatesEmitter.doUpdate(showCalculatedData(monteCarloData));
+                    if ( !monteCarloData.isEmpty() ) {
+                        updatesEmitter.doUpdate(showCalculatedData(monteCarloData));
+                    }
                 } finally {
                     updatesEmitter.doUpdate(disableButton(false));
                 }
@@ -217,7 +224,17 @@ public class MonteCarloController extends GenericForwardComposer {
                         data,
                         groupByWeeks,
                         () -> progressMonteCarloCalculation.setValue(0));
+                controller.showCompletionDates(getCompletionDates());
+                controller.showCriticalityIndexes(monteCarloModel.getCriticalityIndexes());
+
+                return result;
+            }
 
+            private Map<Integer, LocalDate> getCompletionDates() {
+                Map<Integer, LocalDate> result = new LinkedHashMap<>();
+                for (int each : COMPLETION_PROBABILITIES) {
+                    result.put(each, monteCarloModel.getCompletionDateWithProbability(each / 100.0));
+                }
                 return result;
             }
 
@@ -227,6 +244,10 @@ public class MonteCarloController extends GenericForwardComposer {
     private void feedCriticalPathsList() {
         lbCriticalPaths.setModel(new SimpleListModel<>(monteCarloModel.getCriticalPathNames()));
 
+        lblCriticalPathsOverLimit.setValue(_("Only the first {0} critical paths are shown",
+                monteCarloModel.getCriticalPathsLimit()));
+        lblCriticalPathsOverLimit.setVisible(monteCarloModel.isCriticalPathsOverLimit());
+
         if ( !lbCriticalPaths.getChildren().isEmpty() ) {
             lbCriticalPaths.setSelectedIndex(0);
         }
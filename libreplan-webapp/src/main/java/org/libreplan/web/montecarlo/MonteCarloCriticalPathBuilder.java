@@ -22,12 +22,18 @@
 package org.libreplan.web.montecarlo;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import org.apache.commons.lang3.Validate;
 import org.libreplan.business.planner.entities.Dependency;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
@@ -50,87 +56,271 @@ import org.libreplan.business.planner.entities.TaskGroup;
  * It could be the case some of the tasks in that list  finish at the same time (in parallel for instance).
  * In those cases there are many critical paths and it's what this classes solves.
  *
+ * The navigation is restricted from the beginning to the tasks in the critical path, and the tasks from which no end
+ * can be reached are discarded before starting, so every branch explored produces a path. The paths are produced
+ * lazily by {@link #iterator()}, as the number of them can grow exponentially with the number of dependencies.
+ * The destinations of each task are visited sorted by their id, so the paths kept when there are more than the limit
+ * are always the same.
+ *
  * @author Diego Pino García <dpino@igalia.com>
  */
-public class MonteCarloCriticalPathBuilder {
+public class MonteCarloCriticalPathBuilder implements Iterable<List<Task>> {
+
+    /**
+     * Default maximum number of paths returned by {@link #iterator()} and {@link #buildAllPossibleCriticalPaths()}.
+     */
+    public static final int DEFAULT_LIMIT = 100;
+
+    private static final Comparator<Task> BY_ID = new Comparator<Task>() {
+
+        @Override
+        public int compare(Task task, Task other) {
+            Long id = task.getId();
+            Long otherId = other.getId();
+            if (id == null || otherId == null) {
+                return id == null ? (otherId == null ? 0 : 1) : -1;
+            }
+            return id.compareTo(otherId);
+        }
+    };
+
+    private int limit = DEFAULT_LIMIT;
 
     private List<Task> tasksInCriticalPath;
 
+    private Set<Task> criticalTasks;
+
+    /**
+     * Destinations of each task that are in the critical path and from which an end can be reached.
+     */
+    private Map<Task, List<Task>> criticalDestinations = new HashMap<>();
+
+    private Map<Task, Boolean> reachesEnd = new HashMap<>();
+
+    private Map<Task, List<Task>> destinations = new HashMap<>();
+
     private MonteCarloCriticalPathBuilder(List<Task> tasksInCriticalPath) {
         this.tasksInCriticalPath = tasksInCriticalPath;
+        this.criticalTasks = new HashSet<>(tasksInCriticalPath);
     }
 
     public static MonteCarloCriticalPathBuilder create(List<Task> tasksInCriticalPath) {
         return new MonteCarloCriticalPathBuilder(tasksInCriticalPath);
     }
 
+    public MonteCarloCriticalPathBuilder withLimit(int limit) {
+        Validate.isTrue(limit > 0, "limit must be positive");
+        this.limit = limit;
+        return this;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
     /**
-     * Constructs all possible paths starting from those tasks in the critical
-     * path have no incoming dependencies or have incoming dependencies to other tasks not in the critical path.
+     * Constructs the possible critical paths, up to the limit, starting from those tasks in the critical path which
+     * have no incoming dependencies or have incoming dependencies to other tasks not in the critical path.
      *
-     * Once all possible path were constructed, filter only those paths which
-     * all their tasks are in the list of tasks in the critical path.
+     * A path is critical if all its tasks are in the list of tasks in the critical path and it reaches a task without
+     * destinations.
      *
      * @return {@link List<List<Task>>}
      */
     public List<List<Task>> buildAllPossibleCriticalPaths() {
         List<List<Task>> result = new ArrayList<>();
+        for (List<Task> each : this) {
+            result.add(each);
+        }
+        return result;
+    }
+
+    /**
+     * @return if there are more critical paths than the limit, so only some of them are built
+     */
+    public boolean isOverLimit() {
+        return countCriticalPaths(limit + 1L) > limit;
+    }
 
+    /**
+     * Counts the critical paths without building them. If there are more than <code>max</code> it stops counting.
+     */
+    private long countCriticalPaths(long max) {
         if (tasksInCriticalPath.size() == 1) {
-            result.add(tasksInCriticalPath);
-            return result;
+            return 1;
         }
 
-        List<List<Task>> allPaths = new ArrayList<>();
-
+        Map<Task, Long> pathsFrom = new HashMap<>();
+        long result = 0;
         for (Task each : getStartingTasks(tasksInCriticalPath)) {
-            allPaths.addAll(allPossiblePaths(each));
+            result = Math.min(max, result + countPathsFrom(each, pathsFrom, max));
         }
+        return result;
+    }
 
-        for (List<Task> path : allPaths) {
-            if (isCriticalPath(path)) {
-                result.add(path);
+    private long countPathsFrom(Task task, Map<Task, Long> pathsFrom, long max) {
+        Long cached = pathsFrom.get(task);
+        if (cached != null) {
+            return cached;
+        }
+
+        long result = 0;
+        if (!reachesEnd(task)) {
+            result = 0;
+        } else if (isEnd(task)) {
+            result = 1;
+        } else {
+            for (Task each : getCriticalDestinations(task)) {
+                result = Math.min(max, result + countPathsFrom(each, pathsFrom, max));
             }
         }
+        pathsFrom.put(task, result);
 
         return result;
     }
 
-    private Collection<List<Task>> allPossiblePaths(Task task) {
-        Collection<List<Task>> result = new ArrayList<>();
-        List<Task> path = Collections.singletonList(task);
-        allPossiblePaths(path, result);
-
-        return result;
+    @Override
+    public Iterator<List<Task>> iterator() {
+        if (tasksInCriticalPath.size() == 1) {
+            return Collections.singletonList(tasksInCriticalPath).iterator();
+        }
+        return new CriticalPathsIterator();
     }
 
-    private void allPossiblePaths(List<Task> path, Collection<List<Task>> allPaths) {
-        TaskElement lastTask = getLastTask(path);
-        List<Task> destinations = getDestinations(lastTask);
+    /**
+     * Depth first navigation keeping the current path in a stack, together with the next destination to visit from
+     * each task in it.
+     */
+    private class CriticalPathsIterator implements Iterator<List<Task>> {
+
+        private final Iterator<Task> startingTasks = getStartingTasks(tasksInCriticalPath).iterator();
+
+        private final List<Task> path = new ArrayList<>();
+
+        private final List<Integer> nextDestination = new ArrayList<>();
+
+        private List<Task> next;
 
-        if (!destinations.isEmpty()) {
-            for (Task each : destinations) {
-                allPossiblePaths(newPath(path, each), allPaths);
+        private int returned = 0;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && returned < limit) {
+                next = findNext();
             }
-        } else {
-            allPaths.add(path);
+            return next != null;
+        }
+
+        @Override
+        public List<Task> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<Task> result = next;
+            next = null;
+            returned++;
+            return result;
+        }
+
+        private List<Task> findNext() {
+            while (true) {
+                if (path.isEmpty() && !pushNextStartingTask()) {
+                    return null;
+                }
+
+                int last = path.size() - 1;
+                Task task = path.get(last);
+
+                if (isEnd(task)) {
+                    List<Task> result = new ArrayList<>(path);
+                    pop();
+                    return result;
+                }
+
+                List<Task> destinations = getCriticalDestinations(task);
+                int position = nextDestination.get(last);
+
+                if (position < destinations.size()) {
+                    nextDestination.set(last, position + 1);
+                    Task destination = destinations.get(position);
+                    if (!path.contains(destination)) {
+                        push(destination);
+                    }
+                } else {
+                    pop();
+                }
+            }
+        }
+
+        private boolean pushNextStartingTask() {
+            while (startingTasks.hasNext()) {
+                Task each = startingTasks.next();
+                if (reachesEnd(each)) {
+                    push(each);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void push(Task task) {
+            path.add(task);
+            nextDestination.add(0);
+        }
+
+        private void pop() {
+            path.remove(path.size() - 1);
+            nextDestination.remove(nextDestination.size() - 1);
         }
     }
 
-    private TaskElement getLastTask(List<Task> path) {
-        return path.get(path.size() - 1);
+    private boolean isEnd(Task task) {
+        return getDestinationsOf(task).isEmpty();
     }
 
-    private List<Task> newPath(List<Task> path, Task task) {
-        List<Task> result = new ArrayList<>();
-        result.addAll(path);
-        result.add(task);
+    private List<Task> getDestinationsOf(Task task) {
+        List<Task> result = destinations.get(task);
+        if (result == null) {
+            result = getDestinations(task);
+            destinations.put(task, result);
+        }
+        return result;
+    }
+
+    /**
+     * A task reaches an end if it's in the critical path and it has no destinations or some of its destinations
+     * reaches an end.
+     */
+    private boolean reachesEnd(Task task) {
+        Boolean cached = reachesEnd.get(task);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Marked as not reaching an end while being calculated, so a cycle can't cause an infinite recursion
+        reachesEnd.put(task, false);
+        boolean result = criticalTasks.contains(task) && (isEnd(task) || !getCriticalDestinations(task).isEmpty());
+        reachesEnd.put(task, result);
 
         return result;
     }
 
+    private List<Task> getCriticalDestinations(Task task) {
+        List<Task> result = criticalDestinations.get(task);
+        if (result == null) {
+            result = new ArrayList<>();
+            for (Task each : getDestinationsOf(task)) {
+                if (criticalTasks.contains(each) && reachesEnd(each)) {
+                    result.add(each);
+                }
+            }
+            criticalDestinations.put(task, result);
+        }
+        return result;
+    }
+
     private List<Task> getDestinations(TaskElement task) {
-        Set<Task> result = new HashSet<>();
+        Set<Task> result = new LinkedHashSet<>();
         Set<Dependency> dependencies = getOutgoingDependencies(task);
         TaskGroup parent = task.getParent();
 
@@ -148,7 +338,9 @@ public class MonteCarloCriticalPathBuilder {
             }
         }
 
-        return new ArrayList<>(result);
+        List<Task> sorted = new ArrayList<>(result);
+        Collections.sort(sorted, BY_ID);
+        return sorted;
     }
 
     private static boolean isEndDateEquals(TaskGroup parent, TaskElement task){
@@ -156,7 +348,7 @@ public class MonteCarloCriticalPathBuilder {
     }
 
     private Set<Task> taskGroupChildren(TaskGroup taskGroup) {
-        Set<Task> result = new HashSet<>();
+        Set<Task> result = new LinkedHashSet<>();
 
         for (TaskElement child : taskGroup.getChildren()) {
             if (isTask(child) && isStartingTask((Task) child)) {
@@ -241,14 +433,4 @@ public class MonteCarloCriticalPathBuilder {
         return parent == null;
     }
 
-    private boolean isCriticalPath(List<Task> path) {
-        for (Task each : path) {
-            if (!tasksInCriticalPath.contains(each)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.libreplan.web.montecarlo.MonteCarloSimulation.IProgressListener;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Result;
+import org.springframework.stereotype.Component;
+
+/**
+ * Threads shared by all the {@link MonteCarloSimulation MonteCarloSimulations}, so the number of threads doesn't grow
+ * with the number of simulations run at the same time. They are stopped when the application context is closed.
+ */
+@Component
+public class MonteCarloExecutor {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors());
+
+    public Result run(MonteCarloSimulation simulation, IProgressListener progressListener) {
+        return simulation.run(executor, progressListener);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
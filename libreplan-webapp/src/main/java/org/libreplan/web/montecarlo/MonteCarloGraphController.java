@@ -19,14 +19,17 @@
 package org.libreplan.web.montecarlo;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.joda.time.LocalDate;
+import org.libreplan.business.planner.entities.Task;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
@@ -35,12 +38,16 @@ import org.zkoss.zul.CategoryModel;
 import org.zkoss.zul.Chart;
 import org.zkoss.zul.Datebox;
 import org.zkoss.zul.Decimalbox;
+import org.zkoss.zul.Label;
+import org.zkoss.zul.Row;
+import org.zkoss.zul.Rows;
 import org.zkoss.zul.SimpleCategoryModel;
 
 /**
  * Generates a BarChart 3D with the results of a MonteCarlo computation.
  * The window also shows a set of Datebox controllers that allow the  user to specify a start and end date
- * and calculate the probability density between both values.
+ * and calculate the probability density between both values, the completion dates for some probabilities and the
+ * criticality index of each task.
  *
  * @author Diego Pino Garcia <dpino@igalia.com>
  */
@@ -56,6 +63,10 @@ public class MonteCarloGraphController extends GenericForwardComposer {
 
     private Decimalbox dbIntervalProbability;
 
+    private Rows rowsCompletionDates;
+
+    private Rows rowsCriticalityIndexes;
+
     private List<LocalDate> dates;
 
     private Map<LocalDate, BigDecimal> monteCarloValues;
@@ -193,6 +204,40 @@ public class MonteCarloGraphController extends GenericForwardComposer {
         return result;
     }
 
+    /**
+     * @param completionDates
+     *            the date at which the project is completed for each percentage of probability
+     */
+    public void showCompletionDates(Map<Integer, LocalDate> completionDates) {
+        rowsCompletionDates.getChildren().clear();
+        for (Entry<Integer, LocalDate> each : completionDates.entrySet()) {
+            appendRow(rowsCompletionDates, each.getKey() + " %", each.getValue().toString());
+        }
+    }
+
+    /**
+     * Shows the tasks from the most critical to the least critical one.
+     */
+    public void showCriticalityIndexes(Map<Task, BigDecimal> criticalityIndexes) {
+        List<Entry<Task, BigDecimal>> sorted = new ArrayList<>(criticalityIndexes.entrySet());
+        sorted.sort((one, other) -> other.getValue().compareTo(one.getValue()));
+
+        rowsCriticalityIndexes.getChildren().clear();
+        for (Entry<Task, BigDecimal> each : sorted) {
+            appendRow(rowsCriticalityIndexes,
+                    each.getKey().getName(),
+                    each.getValue().movePointRight(2).setScale(2, RoundingMode.HALF_UP) + " %");
+        }
+    }
+
+    private void appendRow(Rows rows, String... values) {
+        Row row = new Row();
+        for (String each : values) {
+            row.appendChild(new Label(each));
+        }
+        rows.appendChild(row);
+    }
+
     public void showProbabilityDensity(Datebox startDatebox, Datebox endDatebox) {
         LocalDate start = (startDatebox.getValue() != null) ? new LocalDate(startDatebox.getValue()) : getFirstDate();
         LocalDate end = (endDatebox.getValue() != null) ? new LocalDate(endDatebox.getValue()) : getLastDate();
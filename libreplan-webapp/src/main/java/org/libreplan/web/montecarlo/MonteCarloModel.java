@@ -27,16 +27,13 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
-import org.apache.commons.lang3.Validate;
 import org.hibernate.Hibernate;
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
@@ -44,6 +41,8 @@ import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.Dependency;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.planner.entities.TaskPositionConstraint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -65,6 +64,9 @@ public class MonteCarloModel implements IMonteCarloModel {
     @Autowired
     private ITaskElementDAO taskDAO;
 
+    @Autowired
+    private MonteCarloExecutor monteCarloExecutor;
+
     private static String criticalPath = _("Critical path");
 
     private static String defaultCriticalPath = criticalPath + " 1";
@@ -75,6 +77,18 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     private List<Task> tasksInCriticalPath;
 
+    private List<Task> tasksInOrder = new ArrayList<>();
+
+    private boolean criticalPathsOverLimit = false;
+
+    private int criticalPathsLimit = MonteCarloCriticalPathBuilder.DEFAULT_LIMIT;
+
+    private MonteCarloSimulation.Result lastResult;
+
+    private LocalDate projectStart;
+
+    private List<Task> tasksSimulated;
+
     @Override
     @Transactional(readOnly = true)
     public void setCriticalPath(List<TaskElement> tasksInCriticalPath) {
@@ -103,7 +117,10 @@ public class MonteCarloModel implements IMonteCarloModel {
     }
 
     private void feedCriticalPaths(List<Task> tasksInCriticalPath) {
-        List<List<Task>> allCriticalPaths = buildAllPossibleCriticalPaths(tasksInCriticalPath);
+        MonteCarloCriticalPathBuilder criticalPathBuilder = MonteCarloCriticalPathBuilder.create(tasksInCriticalPath);
+        List<List<Task>> allCriticalPaths = criticalPathBuilder.buildAllPossibleCriticalPaths();
+        criticalPathsOverLimit = criticalPathBuilder.isOverLimit();
+        criticalPathsLimit = criticalPathBuilder.getLimit();
         int i = 1;
 
         criticalPaths.clear();
@@ -112,12 +129,6 @@ public class MonteCarloModel implements IMonteCarloModel {
         }
     }
 
-    private List<List<Task>> buildAllPossibleCriticalPaths(List<Task> tasksInCriticalPath) {
-        MonteCarloCriticalPathBuilder criticalPathBuilder = MonteCarloCriticalPathBuilder.create(tasksInCriticalPath);
-
-        return criticalPathBuilder.buildAllPossibleCriticalPaths();
-    }
-
     /**
      * Calculating all the critical paths, may need to explore other tasks that
      * are not part of the tasks that are on the critical path.
@@ -126,6 +137,7 @@ public class MonteCarloModel implements IMonteCarloModel {
      * @param root
      */
     private void initializeTasksInOrder(Order root) {
+        tasksInOrder.clear();
         initializeTask(root);
         for (OrderElement each: root.getAllChildren()) {
             Hibernate.initialize(each);
@@ -140,6 +152,9 @@ public class MonteCarloModel implements IMonteCarloModel {
             taskDAO.reattach(task);
             task.getCalendar();
             initializeDependenciesFor(task);
+            if (task instanceof Task) {
+                tasksInOrder.add((Task) task);
+            }
         }
     }
 
@@ -164,6 +179,16 @@ public class MonteCarloModel implements IMonteCarloModel {
         return result;
     }
 
+    @Override
+    public boolean isCriticalPathsOverLimit() {
+        return criticalPathsOverLimit;
+    }
+
+    @Override
+    public int getCriticalPathsLimit() {
+        return criticalPathsLimit;
+    }
+
     @Override
     public List<MonteCarloTask> getCriticalPath(String name) {
         if (name == null || name.isEmpty()) {
@@ -199,18 +224,51 @@ public class MonteCarloModel implements IMonteCarloModel {
                                                           int iterations,
                                                           IDesktopUpdatesEmitter<Integer> iterationProgress) {
 
-        MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(
-                copyOf(tasks), iterations, iterationProgress);
-        Map<LocalDate, BigDecimal> monteCarloValues = monteCarloCalculation.doCalculation();
+        lastResult = null;
+        if (tasksInOrder.isEmpty() && tasks.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(tasksInOrder, copyOf(tasks));
+        lastResult = monteCarloExecutor.run(
+                monteCarloCalculation.createSimulation(iterations), iterationProgress::doUpdate);
+        projectStart = monteCarloCalculation.getProjectStart();
+        tasksSimulated = monteCarloCalculation.getTasks();
 
         // Convert number of times to probability
-        for (LocalDate key : monteCarloValues.keySet()) {
-            BigDecimal times = monteCarloValues.get(key);
-            BigDecimal probability = times.divide(BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
-            monteCarloValues.put(key, probability);
+        Map<LocalDate, BigDecimal> result = new HashMap<>();
+        for (int day = 0; day <= lastResult.getLatestCompletion(); day++) {
+            long times = lastResult.getCompletionsOn(day);
+            if (times > 0) {
+                BigDecimal probability = BigDecimal.valueOf(times)
+                        .divide(BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
+                result.put(projectStart.plusDays(day), probability);
+            }
         }
 
-        return monteCarloValues;
+        return result;
+    }
+
+    @Override
+    public LocalDate getCompletionDateWithProbability(double probability) {
+        if (lastResult == null) {
+            return null;
+        }
+        return projectStart.plusDays(lastResult.getCompletionPercentile(probability));
+    }
+
+    @Override
+    public Map<Task, BigDecimal> getCriticalityIndexes() {
+        Map<Task, BigDecimal> result = new HashMap<>();
+        if (lastResult == null) {
+            return result;
+        }
+        for (int i = 0; i < tasksSimulated.size(); i++) {
+            result.put(
+                    tasksSimulated.get(i),
+                    BigDecimal.valueOf(lastResult.getCriticalityIndex(i)).setScale(4, RoundingMode.HALF_UP));
+        }
+        return result;
     }
 
     private List<MonteCarloTask> copyOf(List<MonteCarloTask> tasks) {
@@ -228,126 +286,136 @@ public class MonteCarloModel implements IMonteCarloModel {
         return orderName;
     }
 
+    /**
+     * Simulates all the tasks of the order, not only the ones in the critical path, so the critical path can change
+     * from one iteration to another. The tasks in the critical path use the estimations edited by the user and the
+     * rest of them the default ones.
+     */
     private static class MonteCarloCalculation {
 
-        private Map<MonteCarloTask, Set<EstimationRange>> estimationRangesForTasks = new HashMap<>();
-
-        private List<MonteCarloTask> tasks;
+        private final List<Task> tasks = new ArrayList<>();
 
-        private int iterations;
-
-        private IDesktopUpdatesEmitter<Integer> iterationProgress;
-
-        public MonteCarloCalculation(List<MonteCarloTask> tasks,
-                                     int iterations,
-                                     IDesktopUpdatesEmitter<Integer> iterationProgress) {
-
-            adjustDurationDays(tasks);
-            initializeEstimationRanges(tasks);
-            this.tasks = tasks;
-            this.iterations = iterations;
-            this.iterationProgress = iterationProgress;
-        }
+        private final Map<Task, Integer> positions = new HashMap<>();
 
-        public Map<LocalDate, BigDecimal> doCalculation() {
-            Map<LocalDate, BigDecimal> result = new HashMap<>();
+        private LocalDate projectStart;
 
-            final int onePercent = iterations / 100;
-            Random randomGenerator = new Random((new Date()).getTime());
+        private final MonteCarloNetwork network;
 
-            // Calculate number of times a date is repeated
-            for (int i = 0; i < iterations; i++) {
-                LocalDate endDate = calculateEndDateFor(tasks, randomGenerator);
-                BigDecimal times = result.get(endDate);
-
-                times = times != null ? times.add(BigDecimal.ONE) : BigDecimal.ONE;
-
-                result.put(endDate, times);
-
-                if (i % onePercent == 0) {
-                    increaseProgressMeter((i * 100) / iterations);
+        public MonteCarloCalculation(List<Task> tasksInOrder, List<MonteCarloTask> tasksInCriticalPath) {
+            Map<Long, MonteCarloTask> edited = new HashMap<>();
+            Map<Task, MonteCarloTask> estimations = new HashMap<>();
+            for (MonteCarloTask each : tasksInCriticalPath) {
+                edited.put(each.getTask().getId(), each);
+                estimations.put(each.getTask(), each);
+            }
+            for (Task each : tasksInOrder) {
+                MonteCarloTask estimation = edited.get(each.getId());
+                if (estimation == null) {
+                    estimations.put(each, MonteCarloTask.create(each));
+                } else if (estimation.getTask() != each) {
+                    estimations.remove(estimation.getTask());
+                    estimations.put(each, estimation);
                 }
             }
 
-            return result;
-        }
+            tasks.addAll(estimations.keySet());
+            Collections.sort(tasks, Task.getByStartDateComparator());
+            projectStart = tasks.get(0).getStartAsLocalDate();
+            for (int i = 0; i < tasks.size(); i++) {
+                positions.put(tasks.get(i), i);
+            }
 
-        private void increaseProgressMeter(int completedPercent) {
-            iterationProgress.doUpdate(completedPercent);
+            network = buildNetwork(estimations);
         }
 
-        private LocalDate calculateEndDateFor(List<MonteCarloTask> tasks, Random randomGenerator) {
-            Validate.notEmpty(tasks);
-            BigDecimal durationDays = BigDecimal.ZERO;
-            MonteCarloTask first = tasks.get(0);
-
-            for (MonteCarloTask each : tasks) {
-                BigDecimal randomNumber = generate(randomGenerator);
-                durationDays = durationDays.add(getDuration(each, randomNumber));
+        private MonteCarloNetwork buildNetwork(Map<Task, MonteCarloTask> estimations) {
+            MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+            List<Set<Dependency>> incoming = new ArrayList<>();
+
+            for (Task each : tasks) {
+                MonteCarloTask estimation = estimations.get(each);
+                Set<Dependency> dependencies = each.getDependenciesWithThisDestinationAndAllParents();
+                incoming.add(dependencies);
+
+                builder.addTask(earliestStartOf(each, dependencies.isEmpty()),
+                        realDuration(estimation, estimation.getPessimisticDuration()),
+                        estimation.getPessimisticDurationPercentage(),
+                        realDuration(estimation, estimation.getNormalDuration()),
+                        estimation.getNormalDurationPercentage(),
+                        realDuration(estimation, estimation.getOptimisticDuration()),
+                        estimation.getOptimisticDurationPercentage());
             }
 
-            return first.getStartDate().plusDays(durationDays.intValue());
-        }
+            for (int destination = 0; destination < tasks.size(); destination++) {
+                for (Dependency each : incoming.get(destination)) {
+                    for (Task origin : tasksIn(each.getOrigin())) {
+                        Integer position = positions.get(origin);
+                        if (position != null && position != destination) {
+                            builder.addDependency(position, destination, each.getType());
+                        }
+                    }
+                }
+            }
 
-        private BigDecimal generate(Random randomGenerator) {
-            return BigDecimal.valueOf(randomGenerator.nextDouble());
+            return builder.build();
         }
 
-        private BigDecimal getDuration(MonteCarloTask each, BigDecimal random) {
-            ESTIMATION_TYPE type = getEstimationType(each, random);
-            Validate.notNull(type);
-            switch (type) {
-
-                case PESSIMISTIC:
-                    return each.getPessimisticDuration();
+        /**
+         * A task without dependencies starts when it's scheduled. Otherwise it starts as soon as its dependencies
+         * allow it, but not before the date of its start constraint, if any.
+         */
+        private int earliestStartOf(Task task, boolean withoutDependencies) {
+            if (withoutDependencies) {
+                return daysSinceProjectStart(task.getStartAsLocalDate());
+            }
 
-                case NORMAL:
-                    return each.getNormalDuration();
+            TaskPositionConstraint constraint = task.getPositionConstraint();
+            if (constraint.getConstraintDate() == null) {
+                return 0;
+            }
+            switch (constraint.getConstraintType()) {
 
-                case OPTIMISTIC:
-                    return each.getOptimisticDuration();
+                case START_NOT_EARLIER_THAN:
+                case START_IN_FIXED_DATE:
+                    return daysSinceProjectStart(constraint.getConstraintDate().getDate());
 
                 default:
-                    break;
+                    return 0;
             }
-
-            return BigDecimal.ZERO;
         }
 
-        private void adjustDurationDays(List<MonteCarloTask> tasks) {
-            for (MonteCarloTask each : tasks) {
-                each.setPessimisticDuration(MonteCarloTask.calculateRealDurationFor(each, each.getPessimisticDuration()));
-                each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(each, each.getNormalDuration()));
-                each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(each, each.getOptimisticDuration()));
-            }
+        private int daysSinceProjectStart(LocalDate date) {
+            return Math.max(0, Days.daysBetween(projectStart, date).getDays());
         }
 
-        private void initializeEstimationRanges(List<MonteCarloTask> tasks) {
-            estimationRangesForTasks.clear();
+        private static int realDuration(MonteCarloTask task, BigDecimal daysDuration) {
+            return MonteCarloTask.calculateRealDurationFor(task, daysDuration)
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .intValue();
+        }
 
-            for (MonteCarloTask each : tasks) {
-                createEstimationRangesFor(each);
+        private static List<Task> tasksIn(TaskElement taskElement) {
+            List<Task> result = new ArrayList<>();
+            if (taskElement instanceof Task) {
+                result.add((Task) taskElement);
+            } else if (taskElement instanceof TaskGroup) {
+                for (TaskElement each : ((TaskGroup) taskElement).getChildren()) {
+                    result.addAll(tasksIn(each));
+                }
             }
+            return result;
         }
 
-        private void createEstimationRangesFor(MonteCarloTask task) {
-            Set<EstimationRange> estimationRanges = new HashSet<>();
-            estimationRanges.add(EstimationRange.pessimisticRangeFor(task));
-            estimationRanges.add(EstimationRange.normalRangeFor(task));
-            estimationRanges.add(EstimationRange.optimisticRangeFor(task));
-            estimationRangesForTasks.put(task, estimationRanges);
+        public MonteCarloSimulation createSimulation(int iterations) {
+            return MonteCarloSimulation.create(network, iterations);
         }
 
-        public ESTIMATION_TYPE getEstimationType(MonteCarloTask task, BigDecimal random) {
-            Set<EstimationRange> estimationRanges = estimationRangesForTasks.get(task);
-
-            for (EstimationRange each : estimationRanges) {
-                if (each.contains(random)) {
-                    return each.getEstimationType();
-                }
-            }
+        public LocalDate getProjectStart() {
+            return projectStart;
+        }
 
-            return null;
+        public List<Task> getTasks() {
+            return tasks;
         }
 
     }
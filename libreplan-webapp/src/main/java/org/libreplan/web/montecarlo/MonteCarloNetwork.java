@@ -0,0 +1,310 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+import org.libreplan.business.planner.entities.Dependency.Type;
+
+/**
+ * Tasks and dependencies of a project prepared to be simulated by {@link MonteCarloSimulation}.
+ *
+ * Tasks are identified by the position returned when they are added to the {@link Builder}. All the values are
+ * stored in primitive arrays, being the durations and starts expressed in days since the start of the project.
+ * The predecessors of each task are stored contiguously and the tasks are kept in topological order, so a
+ * simulation iteration is just a forward pass over the arrays.
+ */
+public class MonteCarloNetwork {
+
+    public static class Builder {
+
+        private final List<int[]> tasks = new ArrayList<>();
+
+        private final List<int[]> dependencies = new ArrayList<>();
+
+        /**
+         * @param earliestStart
+         *            days since the start of the project before which the task can not start
+         * @param optimisticPercentage
+         *            probability, from 0 to 100, of the optimistic duration. The pessimistic and normal ones are given
+         *            too, so the three of them must sum 100
+         * @return the position identifying the task
+         */
+        public int addTask(int earliestStart,
+                           int pessimisticDuration, int pessimisticPercentage,
+                           int normalDuration, int normalPercentage,
+                           int optimisticDuration, int optimisticPercentage) {
+
+            Validate.isTrue(earliestStart >= 0, "earliestStart must not be negative");
+            Validate.isTrue(pessimisticDuration >= 0 && normalDuration >= 0 && optimisticDuration >= 0,
+                    "durations must not be negative");
+            Validate.isTrue(pessimisticPercentage >= 0 && normalPercentage >= 0 && optimisticPercentage >= 0,
+                    "percentages must not be negative");
+            Validate.isTrue(pessimisticPercentage + normalPercentage + optimisticPercentage == 100,
+                    "percentages must sum 100");
+
+            tasks.add(new int[] {
+                    earliestStart,
+                    pessimisticDuration, pessimisticPercentage,
+                    normalDuration, normalPercentage,
+                    optimisticDuration });
+
+            return tasks.size() - 1;
+        }
+
+        public Builder addDependency(int origin, int destination, Type type) {
+            Validate.isTrue(origin >= 0 && origin < tasks.size(), "unknown origin: " + origin);
+            Validate.isTrue(destination >= 0 && destination < tasks.size(), "unknown destination: " + destination);
+            Validate.notNull(type);
+            dependencies.add(new int[] { origin, destination, type.ordinal() });
+
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException
+         *             if the dependencies contain a cycle
+         */
+        public MonteCarloNetwork build() {
+            return new MonteCarloNetwork(this);
+        }
+    }
+
+    /**
+     * The random numbers used to choose the durations are in [0, RANDOM_RANGE), so four of them can be taken from
+     * a single random long.
+     */
+    static final int RANDOM_RANGE = 1 << 16;
+
+    private static final byte END_START = 0;
+
+    private static final byte START_START = 1;
+
+    private static final byte END_END = 2;
+
+    private static final byte START_END = 3;
+
+    private final int size;
+
+    private final int[] earliestStart;
+
+    /**
+     * The pessimistic, normal and optimistic durations of the task <code>i</code> are in the positions
+     * <code>3 * i</code>, <code>3 * i + 1</code> and <code>3 * i + 2</code>.
+     */
+    private final int[] durations;
+
+    /**
+     * Upper limits of the pessimistic and normal estimations, scaled to {@link #RANDOM_RANGE}.
+     */
+    private final int[] pessimisticUpperLimit;
+
+    private final int[] normalUpperLimit;
+
+    private final int[] topologicalOrder;
+
+    /**
+     * The predecessors of the task <code>i</code> are in the positions from
+     * <code>predecessorsStart[i]</code> to <code>predecessorsStart[i + 1]</code> of {@link #predecessors} and
+     * {@link #predecessorTypes}. The types are stored as bytes so the inner loop of the simulation doesn't need to go
+     * through the enum.
+     */
+    private final int[] predecessorsStart;
+
+    private final int[] predecessors;
+
+    private final byte[] predecessorTypes;
+
+    private MonteCarloNetwork(Builder builder) {
+        size = builder.tasks.size();
+        earliestStart = new int[size];
+        durations = new int[size * 3];
+        pessimisticUpperLimit = new int[size];
+        normalUpperLimit = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            int[] each = builder.tasks.get(i);
+            earliestStart[i] = each[0];
+            durations[3 * i] = each[1];
+            durations[3 * i + 1] = each[3];
+            durations[3 * i + 2] = each[5];
+            pessimisticUpperLimit[i] = each[2] * RANDOM_RANGE / 100;
+            normalUpperLimit[i] = (each[2] + each[4]) * RANDOM_RANGE / 100;
+        }
+
+        predecessorsStart = new int[size + 1];
+        for (int[] each : builder.dependencies) {
+            predecessorsStart[each[1] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            predecessorsStart[i + 1] += predecessorsStart[i];
+        }
+
+        predecessors = new int[builder.dependencies.size()];
+        predecessorTypes = new byte[builder.dependencies.size()];
+        int[] filled = new int[size];
+        for (int[] each : builder.dependencies) {
+            int position = predecessorsStart[each[1]] + filled[each[1]]++;
+            predecessors[position] = each[0];
+            predecessorTypes[position] = toByte(Type.values()[each[2]]);
+        }
+
+        topologicalOrder = sortTopologically(builder.dependencies);
+    }
+
+    private static byte toByte(Type type) {
+        switch (type) {
+
+            case END_START:
+                return END_START;
+
+            case START_START:
+                return START_START;
+
+            case END_END:
+                return END_END;
+
+            case START_END:
+                return START_END;
+
+            default:
+                throw new IllegalArgumentException("unexpected dependency type: " + type);
+        }
+    }
+
+    private int[] sortTopologically(List<int[]> dependencies) {
+        int[] pendingPredecessors = new int[size];
+        int[] successorsStart = new int[size + 1];
+        for (int[] each : dependencies) {
+            pendingPredecessors[each[1]]++;
+            successorsStart[each[0] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            successorsStart[i + 1] += successorsStart[i];
+        }
+        int[] successors = new int[dependencies.size()];
+        int[] filled = new int[size];
+        for (int[] each : dependencies) {
+            successors[successorsStart[each[0]] + filled[each[0]]++] = each[1];
+        }
+
+        int[] result = new int[size];
+        int added = 0;
+        for (int i = 0; i < size; i++) {
+            if (pendingPredecessors[i] == 0) {
+                result[added++] = i;
+            }
+        }
+        for (int next = 0; next < added; next++) {
+            int task = result[next];
+            for (int j = successorsStart[task]; j < successorsStart[task + 1]; j++) {
+                if (--pendingPredecessors[successors[j]] == 0) {
+                    result[added++] = successors[j];
+                }
+            }
+        }
+
+        if (added < size) {
+            throw new IllegalArgumentException("the dependencies contain a cycle");
+        }
+
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calculates the duration of a task for a random number uniformly distributed in [0, {@link #RANDOM_RANGE}).
+     */
+    int durationOf(int task, int random) {
+        // Without branches, as the outcome is random they would be mispredicted
+        int estimation = ((pessimisticUpperLimit[task] - 1 - random) >>> 31)
+                + ((normalUpperLimit[task] - 1 - random) >>> 31);
+        return durations[3 * task + estimation];
+    }
+
+    int maxDurationOf(int task) {
+        return Math.max(durations[3 * task], Math.max(durations[3 * task + 1], durations[3 * task + 2]));
+    }
+
+    /**
+     * Forward pass over the network. The durations must be already filled, and the starts and ends of each task are
+     * written in the given arrays.
+     *
+     * @return the end of the project
+     */
+    int schedule(int[] durations, int[] starts, int[] ends) {
+        int result = 0;
+        for (int task : topologicalOrder) {
+            int start = earliestStart[task];
+            for (int j = predecessorsStart[task]; j < predecessorsStart[task + 1]; j++) {
+                start = Math.max(start, startRequiredBy(j, durations[task], starts, ends));
+            }
+            starts[task] = start;
+            ends[task] = start + durations[task];
+            result = Math.max(result, ends[task]);
+        }
+        return result;
+    }
+
+    private int startRequiredBy(int dependency, int duration, int[] starts, int[] ends) {
+        int origin = predecessors[dependency];
+        switch (predecessorTypes[dependency]) {
+
+            case END_START:
+                return ends[origin];
+
+            case START_START:
+                return starts[origin];
+
+            case END_END:
+                return ends[origin] - duration;
+
+            default:
+                return starts[origin] - duration;
+        }
+    }
+
+    /**
+     * Marks the tasks that are in some critical path of an already scheduled network, i.e. the tasks that end with
+     * the project and the predecessors whose dependencies determined the start of a critical task.
+     */
+    void markCritical(int projectEnd, int[] durations, int[] starts, int[] ends, boolean[] critical) {
+        for (int i = topologicalOrder.length - 1; i >= 0; i--) {
+            int task = topologicalOrder[i];
+            if (ends[task] == projectEnd) {
+                critical[task] = true;
+            }
+            if (!critical[task]) {
+                continue;
+            }
+            for (int j = predecessorsStart[task]; j < predecessorsStart[task + 1]; j++) {
+                if (startRequiredBy(j, durations[task], starts, ends) == starts[task]) {
+                    critical[predecessors[j]] = true;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Runs the iterations of the MonteCarlo method over a whole {@link MonteCarloNetwork}.
+ *
+ * In each iteration a duration is chosen for every task and the network is scheduled again, so the critical path can
+ * be a different one in each iteration. The iterations are split among several workers, each one with its own random
+ * generator split from a common one, and the results are accumulated in primitive arrays that are merged at the end.
+ * The workers can be run in the threads of an {@link ExecutorService} shared by all the simulations.
+ */
+public class MonteCarloSimulation {
+
+    public interface IProgressListener {
+
+        /**
+         * It's always called from the thread that runs the simulation.
+         */
+        void progress(int completedPercentage);
+    }
+
+    private static final long PROGRESS_INTERVAL_MILLISECONDS = 200;
+
+    private final MonteCarloNetwork network;
+
+    private final int iterations;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private SplittableRandom random = new SplittableRandom();
+
+    private MonteCarloSimulation(MonteCarloNetwork network, int iterations) {
+        Validate.notNull(network);
+        Validate.isTrue(iterations > 0, "iterations must be positive");
+        this.network = network;
+        this.iterations = iterations;
+    }
+
+    public static MonteCarloSimulation create(MonteCarloNetwork network, int iterations) {
+        return new MonteCarloSimulation(network, iterations);
+    }
+
+    public MonteCarloSimulation withParallelism(int parallelism) {
+        Validate.isTrue(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Using the same seed and parallelism the results are the same.
+     */
+    public MonteCarloSimulation withSeed(long seed) {
+        this.random = new SplittableRandom(seed);
+        return this;
+    }
+
+    /**
+     * Runs the iterations in the calling thread. The results are the same as the ones obtained with
+     * {@link #run(ExecutorService, IProgressListener)} using the same seed and parallelism.
+     */
+    public Result run() {
+        return run(null);
+    }
+
+    public Result run(IProgressListener progressListener) {
+        AtomicLong done = new AtomicLong();
+        Result result = Result.empty(network.size());
+        for (Worker each : createWorkers(done)) {
+            result = result.merge(each.call());
+            if (progressListener != null) {
+                progressListener.progress((int) (done.get() * 100 / iterations));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs the iterations in the given executor, so the threads can be shared with other simulations. The number of
+     * threads used at the same time is bounded by the executor and by the parallelism.
+     */
+    public Result run(ExecutorService executor, IProgressListener progressListener) {
+        Validate.notNull(executor);
+        AtomicLong done = new AtomicLong();
+
+        List<Future<Result>> futures = new ArrayList<>();
+        try {
+            for (Worker each : createWorkers(done)) {
+                futures.add(executor.submit(each));
+            }
+
+            Result result = Result.empty(network.size());
+            for (Future<Result> each : futures) {
+                result = result.merge(waitFor(each, done, progressListener));
+            }
+            return result;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<Result> each : futures) {
+                each.cancel(true);
+            }
+        }
+    }
+
+    private List<Worker> createWorkers(AtomicLong done) {
+        int workers = Math.min(parallelism, iterations);
+
+        List<Worker> result = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            int assigned = iterations / workers + (i < iterations % workers ? 1 : 0);
+            result.add(new Worker(network, assigned, random.split(), done));
+        }
+        return result;
+    }
+
+    private Result waitFor(Future<Result> future, AtomicLong done, IProgressListener progressListener)
+            throws InterruptedException, ExecutionException {
+
+        while (true) {
+            try {
+                return future.get(PROGRESS_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (progressListener != null) {
+                    progressListener.progress((int) (done.get() * 100 / iterations));
+                }
+            }
+        }
+    }
+
+    private static class Worker implements Callable<Result> {
+
+        private static final int PROGRESS_STEP = 1024;
+
+        private final MonteCarloNetwork network;
+
+        private final int iterations;
+
+        private final SplittableRandom random;
+
+        private final AtomicLong done;
+
+        Worker(MonteCarloNetwork network, int iterations, SplittableRandom random, AtomicLong done) {
+            this.network = network;
+            this.iterations = iterations;
+            this.random = random;
+            this.done = done;
+        }
+
+        @Override
+        public Result call() {
+            int size = network.size();
+            int[] durations = new int[size];
+            int[] starts = new int[size];
+            int[] ends = new int[size];
+            boolean[] critical = new boolean[size];
+
+            long[] completions = new long[initialCompletionsSize()];
+            long[] criticalTimes = new long[size];
+
+            for (int i = 0; i < iterations; i++) {
+                sampleDurations(durations);
+                int projectEnd = network.schedule(durations, starts, ends);
+
+                if (projectEnd >= completions.length) {
+                    completions = Arrays.copyOf(completions, Math.max(completions.length * 2, projectEnd + 1));
+                }
+                completions[projectEnd]++;
+
+                Arrays.fill(critical, false);
+                network.markCritical(projectEnd, durations, starts, ends, critical);
+                for (int task = 0; task < size; task++) {
+                    if (critical[task]) {
+                        criticalTimes[task]++;
+                    }
+                }
+
+                if ((i + 1) % PROGRESS_STEP == 0) {
+                    done.addAndGet(PROGRESS_STEP);
+                }
+            }
+            done.addAndGet(iterations % PROGRESS_STEP);
+
+            return new Result(iterations, completions, criticalTimes);
+        }
+
+        private void sampleDurations(int[] durations) {
+            for (int task = 0; task < durations.length; task += 4) {
+                long bits = random.nextLong();
+                for (int j = task; j < Math.min(task + 4, durations.length); j++) {
+                    durations[j] = network.durationOf(j, (int) bits & (MonteCarloNetwork.RANDOM_RANGE - 1));
+                    bits >>>= 16;
+                }
+            }
+        }
+
+        private int initialCompletionsSize() {
+            int[] durations = new int[network.size()];
+            for (int task = 0; task < durations.length; task++) {
+                durations[task] = network.maxDurationOf(task);
+            }
+            return network.schedule(durations, new int[durations.length], new int[durations.length]) + 1;
+        }
+    }
+
+    /**
+     * Number of iterations in which the project ended at each day and in which each task was critical.
+     */
+    public static class Result {
+
+        private final long iterations;
+
+        private final long[] completions;
+
+        private final long[] criticalTimes;
+
+        private static Result empty(int tasks) {
+            return new Result(0, new long[0], new long[tasks]);
+        }
+
+        private Result(long iterations, long[] completions, long[] criticalTimes) {
+            this.iterations = iterations;
+            this.completions = completions;
+            this.criticalTimes = criticalTimes;
+        }
+
+        private Result merge(Result other) {
+            long[] mergedCompletions = Arrays.copyOf(completions,
+                    Math.max(completions.length, other.completions.length));
+            for (int i = 0; i < other.completions.length; i++) {
+                mergedCompletions[i] += other.completions[i];
+            }
+
+            long[] mergedCriticalTimes = criticalTimes.clone();
+            for (int i = 0; i < other.criticalTimes.length; i++) {
+                mergedCriticalTimes[i] += other.criticalTimes[i];
+            }
+
+            return new Result(iterations + other.iterations, mergedCompletions, mergedCriticalTimes);
+        }
+
+        public long getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @return the last day, since the start of the project, in which the project ended in some iteration
+         */
+        public int getLatestCompletion() {
+            for (int day = completions.length - 1; day >= 0; day--) {
+                if (completions[day] > 0) {
+                    return day;
+                }
+            }
+            return 0;
+        }
+
+        public long getCompletionsOn(int day) {
+            return day >= 0 && day < completions.length ? completions[day] : 0;
+        }
+
+        public double getProbabilityOfCompletingOn(int day) {
+            return iterations == 0 ? 0 : (double) getCompletionsOn(day) / iterations;
+        }
+
+        /**
+         * @param probability
+         *            a value in (0, 1]
+         * @return the first day, since the start of the project, at which the project is completed with the given
+         *         probability
+         */
+        public int getCompletionPercentile(double probability) {
+            Validate.isTrue(probability > 0 && probability <= 1, "probability must be in (0, 1]");
+            double required = probability * iterations;
+            long accumulated = 0;
+            for (int day = 0; day < completions.length; day++) {
+                accumulated += completions[day];
+                if (accumulated >= required) {
+                    return day;
+                }
+            }
+            return getLatestCompletion();
+        }
+
+        /**
+         * @return the fraction of iterations in which the task was in a critical path
+         */
+        public double getCriticalityIndex(int task) {
+            return iterations == 0 ? 0 : (double) criticalTimes[task] / iterations;
+        }
+    }
+
+}
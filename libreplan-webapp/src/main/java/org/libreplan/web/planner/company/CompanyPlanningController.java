@@ -62,6 +62,8 @@ import org.zkoss.zul.Comboitem;
 import org.zkoss.zul.ComboitemRenderer;
 import org.zkoss.zul.Constraint;
 import org.zkoss.zul.Datebox;
+import org.zkoss.zul.Hbox;
+import org.zkoss.zul.Label;
 import org.zkoss.zul.ListModelList;
 import org.zkoss.zul.Textbox;
 import org.zkoss.zul.Vbox;
@@ -103,6 +105,12 @@ public class CompanyPlanningController implements Composer {
 
     private Button btnShowAdvances;
 
+    private Button previousPage;
+
+    private Label currentPage;
+
+    private Button nextPage;
+
     public CompanyPlanningController() {
     }
 
@@ -142,6 +150,7 @@ public class CompanyPlanningController implements Composer {
         loadPredefinedBandboxFilter();
 
         filterComponent.setVisible(true);
+        appendPagination();
         checkCreationPermissions();
 
     }
@@ -183,6 +192,40 @@ public class CompanyPlanningController implements Composer {
 
     }
 
+    private void appendPagination() {
+        Hbox pagination = new Hbox();
+        pagination.setAlign("center");
+
+        previousPage = new Button();
+        previousPage.setImage("/common/img/ico_step_left.png");
+        previousPage.setTooltiptext(_("Previous projects"));
+        previousPage.addEventListener(Events.ON_CLICK, event -> {
+            model.goToPreviousPage();
+            filterByPredicate(createPredicate());
+        });
+
+        currentPage = new Label();
+
+        nextPage = new Button();
+        nextPage.setImage("/common/img/ico_step_right.png");
+        nextPage.setTooltiptext(_("Next projects"));
+        nextPage.addEventListener(Events.ON_CLICK, event -> {
+            model.goToNextPage();
+            filterByPredicate(createPredicate());
+        });
+
+        pagination.appendChild(previousPage);
+        pagination.appendChild(currentPage);
+        pagination.appendChild(nextPage);
+        orderFilter.appendChild(pagination);
+    }
+
+    private void updatePagination() {
+        previousPage.setDisabled(!model.hasPreviousPage());
+        nextPage.setDisabled(!model.hasNextPage());
+        currentPage.setValue(_("Page {0}", model.getCurrentPage()));
+    }
+
     /**
      * Checks the creation permissions of the current user and enables/disables the create buttons accordingly.
      */
@@ -252,6 +295,7 @@ public class CompanyPlanningController implements Composer {
     public void setConfigurationForPlanner() {
         // Added predicate
         model.setConfigurationToPlanner(planner, additional, doubleClickCommand, createPredicate());
+        updatePagination();
         model.setTabsController(tabsController);
         planner.updateSelectedZoomLevel();
         planner.invalidate();
@@ -322,6 +366,7 @@ public class CompanyPlanningController implements Composer {
                 filterProjectName.getValue());
 
         FilterUtils.writeProjectPlanningFilterChanged(true);
+        model.goToFirstPage();
         filterByPredicate(createPredicate());
     }
 
@@ -360,12 +405,14 @@ public class CompanyPlanningController implements Composer {
     private void filterByPredicate(TaskGroupPredicate predicate) {
         // Recalculate predicate
         model.setConfigurationToPlanner(planner, additional, doubleClickCommand, predicate);
+        updatePagination();
         planner.updateSelectedZoomLevel();
         planner.invalidate();
     }
 
     public void setPredicate() {
         model.setConfigurationToPlanner(planner, additional, doubleClickCommand, createPredicate());
+        updatePagination();
     }
 
     public void setTabsController(MultipleTabsPlannerController tabsController) {
@@ -48,6 +48,7 @@ import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.RootTaskDatesDTO;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderStatusEnum;
 import org.libreplan.business.planner.chart.ILoadChartData;
@@ -124,6 +125,8 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
     /** All the status but CANCELLED and STORED */
     private static final EnumSet<OrderStatusEnum> STATUS_VISUALIZED = OrderStatusEnum.getVisibleStatus();
 
+    private static final int TOP_LEVEL_TASKS_PER_PAGE = 100;
+
     private static final String CENTER = "center";
 
     private static final String INDICATOR = "indicator";
@@ -164,6 +167,14 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
 
     private LocalDate filterFinishDate;
 
+    /** Last element of the page previous to the current one, <code>null</code> for the first page */
+    private RootTaskDatesDTO currentPageAfter;
+
+    /** Last element of the current page if there are more orders after it */
+    private RootTaskDatesDTO nextPageAfter;
+
+    private List<RootTaskDatesDTO> previousPagesAfter = new ArrayList<>();
+
     private static final class TaskElementNavigator implements IStructureNavigator<TaskElement> {
 
         @Override
@@ -663,31 +674,50 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
                 retainOnlyTopLevel(predicate));
     }
 
+    /**
+     * Only one page of the orders is shown at the same time, so the scheduling data is only loaded for them.
+     * Orders are paginated by the start date of their root tasks, continuing after the last one of the previous page.
+     */
     private List<TaskElement> retainOnlyTopLevel(TaskGroupPredicate predicate) {
         List<TaskElement> result = new ArrayList<>();
-
-        List<Order> list = getOrders(predicate);
-        for (Order order : list) {
-            order.useSchedulingDataFor(currentScenario, false);
-            TaskGroup associatedTaskElement = order.getAssociatedTaskElement();
-
-            if (associatedTaskElement != null) {
-                if (predicate != null) {
-                    if (!predicate.accepts(associatedTaskElement)) {
-                        // If predicate doesn't accept the element we move on to the next order
-                        continue;
+        nextPageAfter = null;
+
+        RootTaskDatesDTO after = currentPageAfter;
+        List<RootTaskDatesDTO> rootTasksDates;
+        do {
+            rootTasksDates = getRootTasksDates(predicate, after);
+            for (RootTaskDatesDTO each : rootTasksDates) {
+                if (result.size() == TOP_LEVEL_TASKS_PER_PAGE) {
+                    nextPageAfter = after;
+                    return result;
+                }
+                after = each;
+
+                TaskGroup associatedTaskElement = loadAssociatedTaskElement(each.getOrderId());
+                if (associatedTaskElement != null) {
+                    if (predicate != null) {
+                        if (!predicate.accepts(associatedTaskElement)) {
+                            // If predicate doesn't accept the element we move on to the next order
+                            continue;
+                        }
                     }
+                    associatedTaskElement.setSimplifiedAssignedStatusCalculationEnabled(true);
+                    result.add(associatedTaskElement);
                 }
-                associatedTaskElement.setSimplifiedAssignedStatusCalculationEnabled(true);
-                result.add(associatedTaskElement);
             }
-        }
-        Collections.sort(result, (arg0, arg1) -> arg0.getStartDate().compareTo(arg1.getStartDate()));
+        } while (rootTasksDates.size() == TOP_LEVEL_TASKS_PER_PAGE);
 
         return result;
     }
 
-    private List<Order> getOrders(TaskGroupPredicate predicate) {
+    private TaskGroup loadAssociatedTaskElement(Long orderId) {
+        Order order = orderDAO.findExistingEntity(orderId);
+        order.useSchedulingDataFor(currentScenario, false);
+
+        return order.getAssociatedTaskElement();
+    }
+
+    private List<RootTaskDatesDTO> getRootTasksDates(TaskGroupPredicate predicate, RootTaskDatesDTO after) {
         String username = SecurityUtils.getSessionUserLoginName();
 
         Date startDate = predicate.getStartDate();
@@ -731,8 +761,9 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
             }
         }
 
-        return orderDAO.getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-                username, currentScenario, startDate, endDate, labels, criteria, customer, state);
+        return orderDAO.getRootTasksDatesByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
+                username, currentScenario, startDate, endDate, labels, criteria, customer, state,
+                after, TOP_LEVEL_TASKS_PER_PAGE);
     }
 
     @Override
@@ -753,24 +784,20 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
                 currentScenario = scenarioManager.getCurrent();
             }
 
-            List<Order> list = orderDAO.getOrdersByReadAuthorizationByScenario(
-                    SecurityUtils.getSessionUserLoginName(), currentScenario);
+            // Only the dates are needed, so the scheduling data of the orders is not loaded
+            List<RootTaskDatesDTO> list = orderDAO.getRootTasksDatesByReadAuthorizationByScenario(
+                    SecurityUtils.getSessionUserLoginName(), currentScenario, STATUS_VISUALIZED);
 
-            for (Order each : list) {
-                each.useSchedulingDataFor(currentScenario, false);
-                TaskGroup associatedTaskElement = each.getAssociatedTaskElement();
+            for (RootTaskDatesDTO each : list) {
 
-                if ( associatedTaskElement != null && STATUS_VISUALIZED.contains(each.getState()) ) {
-
-                    if ( calculateStartDate ) {
-                        startDate = Collections.min(
-                                notNull(startDate, each.getInitDate(), associatedTaskElement.getStartDate()));
-                    }
+                if ( calculateStartDate ) {
+                    startDate = Collections.min(
+                            notNull(startDate, each.getInitDate(), toDate(each.getStartDate())));
+                }
 
-                    if ( calculateEndDate ) {
-                        endDate = Collections.max(
-                                notNull(endDate, each.getDeadline(), associatedTaskElement.getEndDate()));
-                    }
+                if ( calculateEndDate ) {
+                    endDate = Collections.max(
+                            notNull(endDate, each.getDeadline(), toDate(each.getEndDate())));
                 }
             }
         }
@@ -780,6 +807,10 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
         return new TaskGroupPredicate(null, startDate, endDate, name);
     }
 
+    private static Date toDate(LocalDate date) {
+        return date.toDateTimeAtStartOfDay().toDate();
+    }
+
     private static <T> List<T> notNull(T... values) {
         List<T> result = new ArrayList<>();
 
@@ -886,4 +917,41 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
         return user;
     }
 
+    @Override
+    public void goToFirstPage() {
+        previousPagesAfter.clear();
+        currentPageAfter = null;
+        nextPageAfter = null;
+    }
+
+    @Override
+    public void goToNextPage() {
+        if (hasNextPage()) {
+            previousPagesAfter.add(currentPageAfter);
+            currentPageAfter = nextPageAfter;
+        }
+    }
+
+    @Override
+    public void goToPreviousPage() {
+        if (hasPreviousPage()) {
+            currentPageAfter = previousPagesAfter.remove(previousPagesAfter.size() - 1);
+        }
+    }
+
+    @Override
+    public boolean hasNextPage() {
+        return nextPageAfter != null;
+    }
+
+    @Override
+    public boolean hasPreviousPage() {
+        return !previousPagesAfter.isEmpty();
+    }
+
+    @Override
+    public int getCurrentPage() {
+        return previousPagesAfter.size() + 1;
+    }
+
 }
@@ -55,4 +55,20 @@ public interface ICompanyPlanningModel {
     TaskGroupPredicate getDefaultPredicate();
 
     User getUser();
+
+    /**
+     * The orders are shown by pages, the page shown is changed by these methods and it is applied the next time that
+     * the configuration is set to the planner.
+     */
+    void goToFirstPage();
+
+    void goToNextPage();
+
+    void goToPreviousPage();
+
+    boolean hasNextPage();
+
+    boolean hasPreviousPage();
+
+    int getCurrentPage();
 }
\ No newline at end of file
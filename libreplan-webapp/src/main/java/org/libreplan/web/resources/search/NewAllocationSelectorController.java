@@ -223,13 +223,13 @@ public class NewAllocationSelectorController extends AllocationSelectorControlle
 
         List<ResourceWithItsLoadRatios> result = new ArrayList<>();
 
-        for (Resource each : listResources) {
-            ILoadRatiosDataType t = resourceLoadRatiosCalculator.calculateLoadRatios(each,
-                    LocalDate.fromDateFields(startDateLoadRatiosDatebox.getValue()),
-                    LocalDate.fromDateFields(endDateLoadRatiosDatebox.getValue()),
-                    scenarioManager.getCurrent());
+        Map<Resource, ILoadRatiosDataType> ratios = resourceLoadRatiosCalculator.calculateLoadRatios(listResources,
+                LocalDate.fromDateFields(startDateLoadRatiosDatebox.getValue()),
+                LocalDate.fromDateFields(endDateLoadRatiosDatebox.getValue()),
+                scenarioManager.getCurrent());
 
-            result.add(new ResourceWithItsLoadRatios(each, t));
+        for (Entry<Resource, ILoadRatiosDataType> each : ratios.entrySet()) {
+            result.add(new ResourceWithItsLoadRatios(each.getKey(), each.getValue()));
         }
 
         return result;
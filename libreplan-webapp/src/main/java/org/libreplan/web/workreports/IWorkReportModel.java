@@ -23,6 +23,7 @@ package org.libreplan.web.workreports;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
@@ -165,6 +166,16 @@ public interface IWorkReportModel extends IIntegrationEntityModel {
      */
     void confirmSave() throws ValidationException;
 
+    /**
+     * Stores the current {@link WorkReport} like {@link #confirmSave()}, but the charged efforts are only updated with
+     * the lines passed, that must include every line created or modified with a different effort, date or order
+     * element since the {@link WorkReport} was loaded.
+     *
+     * @throws ValidationException
+     *             If validation fails
+     */
+    void confirmSave(Set<WorkReportLine> changedWorkReportLines) throws ValidationException;
+
     /**
      * Return all {@link DescriptionValue} and {@link Label} associated with
      * current {@link WorkReport}
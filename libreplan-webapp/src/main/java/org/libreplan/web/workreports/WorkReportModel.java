@@ -274,11 +274,17 @@ public class WorkReportModel extends IntegrationEntityModel implements
     @Override
     @Transactional
     public void confirmSave() throws ValidationException {
+        confirmSave(workReport.getWorkReportLines());
+    }
+
+    @Override
+    @Transactional
+    public void confirmSave(Set<WorkReportLine> changedWorkReportLines) throws ValidationException {
         Set<OrderElement> orderElements = sumChargedEffortDAO.getOrderElementsToRecalculateTimsheetDates(
-                workReport.getWorkReportLines(), deletedWorkReportLinesSet);
+                changedWorkReportLines, deletedWorkReportLinesSet);
 
         sumChargedEffortDAO.updateRelatedSumChargedEffortWithDeletedWorkReportLineSet(deletedWorkReportLinesSet);
-        sumChargedEffortDAO.updateRelatedSumChargedEffortWithWorkReportLineSet(workReport.getWorkReportLines());
+        sumChargedEffortDAO.updateRelatedSumChargedEffortWithWorkReportLineSet(changedWorkReportLines);
 
         workReportDAO.save(workReport);
         sumChargedEffortDAO.recalculateTimesheetData(orderElements);
@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.calendarexceptiontypes.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -64,6 +67,11 @@ public class CalendarExceptionTypeServiceREST extends
         return calendarExceptionTypeDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(CalendarExceptionTypeDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected CalendarExceptionTypeDTO toDTO(CalendarExceptionType entity) {
         return CalendarExceptionTypeConverter.toDTO(entity);
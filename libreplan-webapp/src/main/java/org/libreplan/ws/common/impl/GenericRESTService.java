@@ -21,16 +21,34 @@
 
 package org.libreplan.ws.common.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
-
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityReceiver;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
@@ -47,6 +65,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 public abstract class GenericRESTService<E extends IntegrationEntity,
     DTO extends IntegrationEntityDTO> {
 
+    /**
+     * Number of entities saved in the same transaction by
+     * {@link #save(List)}.
+     */
+    protected static final int SAVE_CHUNK_SIZE = 100;
+
+    /**
+     * Bytes of XML kept in memory by
+     * {@link #streamAll(String, String, Integer)} before moving it to a
+     * temporary file.
+     */
+    private static final int STREAM_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final Log LOG = LogFactory.getLog(GenericRESTService.class);
+
     @Autowired
     protected IAdHocTransactionService transactionService;
 
@@ -58,54 +91,363 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
     }
 
     /**
-     * It saves (inserts or updates) a list of entities. Each entity is
-     * saved in a separate transaction.
+     * It returns a response with the DTOs of the entities ordered by code,
+     * inside a list element called <code>listElementName</code>. The entities
+     * are read from the database with a cursor and each one is written as
+     * soon as it is converted, so neither the entities nor the DTOs are kept
+     * in memory.
+     *
+     * The XML is written to a temporary file when it doesn't fit in
+     * {@link #STREAM_MEMORY_THRESHOLD} bytes and it is sent once it is
+     * complete. So, if anything fails while writing it, an internal server
+     * error is returned instead of a truncated list.
+     *
+     * The last code of a page can be used as <code>afterCode</code> to get
+     * the next one (keyset pagination).
+     *
+     * @param afterCode if not <code>null</code> only the entities with a code
+     *        greater than it, ignoring case, are returned
+     * @param limit if not <code>null</code> maximum number of entities
+     *        returned, it must be positive
+     */
+    protected Response streamAll(String listElementName, String afterCode,
+        Integer limit) {
+
+        if (limit != null && limit < 1) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        final DeferredFileOutputStream xml = new DeferredFileOutputStream(
+            STREAM_MEMORY_THRESHOLD, "libreplan-ws-", ".xml", null);
+
+        try {
+            try {
+                XMLListWriter writer =
+                    XMLListWriter.start(xml, listElementName);
+                writeAll(writer, afterCode, limit);
+                writer.end();
+            } finally {
+                xml.close();
+            }
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            LOG.error("Error writing the list " + listElementName, e);
+            FileUtils.deleteQuietly(xml.getFile());
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
+
+        StreamingOutput output = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                try {
+                    xml.writeTo(outputStream);
+                } finally {
+                    FileUtils.deleteQuietly(xml.getFile());
+                }
+            }
+
+        };
+
+        return Response.ok(output, MediaType.APPLICATION_XML).build();
+
+    }
+
+    /**
+     * It writes the DTOs of the entities by using a new read-only transaction,
+     * as the response is written after the service method has finished.
+     */
+    private void writeAll(final XMLListWriter writer, final String afterCode,
+        final Integer limit) {
+
+        final IEntityReceiver<E> writeDTO = new IEntityReceiver<E>() {
+
+            @Override
+            public void receive(E entity) {
+                try {
+                    writer.write(toDTO(entity));
+                } catch (JAXBException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+        };
+
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                getIntegrationEntityDAO().forEachOrderedByCode(afterCode, limit,
+                    writeDTO);
+                return null;
+            }
+
+        });
+
+    }
+
+    /**
+     * It saves (inserts or updates) a list of entities. Entities are saved in
+     * chunks of {@link #SAVE_CHUNK_SIZE}, each chunk in a separate
+     * transaction. If any entity of a chunk can not be saved, the chunk is
+     * rolled back and split in halves, which are saved again in the same way,
+     * until the failing entities are alone. The error of each failing entity
+     * is reported and the rest of entities are still saved in chunks.
+     *
+     * The uniqueness validations only see the entities already committed, so
+     * an entity with the same code as a previous one of the list is reported
+     * as an error and a chunk ends before an entity that repeats any of the
+     * {@link #getUniqueKeys(IntegrationEntityDTO) unique keys} of the chunk.
+     * This way, that entity is validated once the previous one is saved.
      */
     protected InstanceConstraintViolationsListDTO save(
         List<? extends DTO> entityDTOs) {
 
         List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
             new ArrayList<InstanceConstraintViolationsDTO>();
-        long numItem = 1;
+        Set<String> codes = new HashSet<String>();
 
-        for (DTO entityDTO : entityDTOs) {
-
-            InstanceConstraintViolationsDTO instanceConstraintViolationsDTO =
-                null;
+        int from = 0;
+        while (from < entityDTOs.size()) {
 
-            try {
-                insertOrUpdate(entityDTO);
-            } catch (ValidationException e) {
-                instanceConstraintViolationsDTO =
-                    ConstraintViolationConverter.toDTO(
-                        Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
-            } catch (RecoverableErrorException e) {
-                instanceConstraintViolationsDTO =
-                    ConstraintViolationConverter.toDTO(
-                        Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
-            } catch (RuntimeException e) {
-                instanceConstraintViolationsDTO =
+            int to = endOfChunk(entityDTOs, from, codes);
+            if (to == from) {
+                instanceConstraintViolationsList.add(
                     ConstraintViolationConverter.toDTO(
                         Util.generateInstanceConstraintViolationsDTOId(
-                            numItem, entityDTO), e);
+                            (long) from + 1, entityDTOs.get(from)),
+                        new ValidationException("repeated code in the list")));
+                from++;
+            } else {
+                instanceConstraintViolationsList.addAll(
+                    saveChunk(entityDTOs.subList(from, to), from + 1));
+                from = to;
             }
 
-            if (instanceConstraintViolationsDTO != null) {
-                instanceConstraintViolationsList.add(
-                    instanceConstraintViolationsDTO);
+        }
+
+        return new InstanceConstraintViolationsListDTO(
+            instanceConstraintViolationsList);
+
+    }
+
+    /**
+     * It returns the end (exclusive) of the chunk that starts at
+     * <code>from</code>. It is <code>from</code> if the code of its entity is
+     * already in <code>codes</code>, where the codes of the chunk are added.
+     */
+    private int endOfChunk(List<? extends DTO> entityDTOs, int from,
+        Set<String> codes) {
+
+        Set<String> uniqueKeys = new HashSet<String>();
+
+        int to = from;
+        while (to < entityDTOs.size() && to - from < SAVE_CHUNK_SIZE) {
+
+            DTO entityDTO = entityDTOs.get(to);
+            String code = normalizeCode(entityDTO.code);
+            if (!StringUtils.isBlank(code) && codes.contains(code)) {
+                return to;
             }
 
-            numItem++;
+            Collection<String> keys = normalizeKeys(getUniqueKeys(entityDTO));
+            if (!Collections.disjoint(uniqueKeys, keys)) {
+                return to;
+            }
+
+            if (!StringUtils.isBlank(code)) {
+                codes.add(code);
+            }
+            uniqueKeys.addAll(keys);
+            to++;
 
         }
 
-        return new InstanceConstraintViolationsListDTO(
-            instanceConstraintViolationsList);
+        return to;
 
     }
 
+    private static Collection<String> normalizeKeys(Collection<String> keys) {
+
+        List<String> result = new ArrayList<String>();
+
+        for (String key : keys) {
+            if (!StringUtils.isBlank(key)) {
+                result.add(normalizeCode(key));
+            }
+        }
+
+        return result;
+
+    }
+
+    /**
+     * It returns the values of the entity, besides its code, that must be
+     * unique and are validated against the saved entities in another
+     * transaction (e.g. the name or the NIF). Two entities of a list sharing
+     * any of them are not saved in the same chunk.
+     *
+     * Default implementation returns no keys.
+     */
+    protected Collection<String> getUniqueKeys(DTO entityDTO) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * It saves (inserts or updates) a chunk of entities in one transaction.
+     * If it fails, each half of the chunk is saved separately.
+     *
+     * @param firstNumItem number of the first entity of the chunk in the whole
+     *        list saved, used to identify the entities in the errors
+     */
+    private List<InstanceConstraintViolationsDTO> saveChunk(
+        List<? extends DTO> entityDTOs, long firstNumItem) {
+
+        if (entityDTOs.size() == 1) {
+            return saveOne(entityDTOs.get(0), firstNumItem);
+        }
+
+        try {
+            insertOrUpdate(entityDTOs);
+            return new ArrayList<InstanceConstraintViolationsDTO>();
+        } catch (RuntimeException e) {
+            int half = entityDTOs.size() / 2;
+            List<InstanceConstraintViolationsDTO> result =
+                saveChunk(entityDTOs.subList(0, half), firstNumItem);
+            result.addAll(saveChunk(
+                entityDTOs.subList(half, entityDTOs.size()),
+                firstNumItem + half));
+            return result;
+        }
+
+    }
+
+    /**
+     * It saves (inserts or updates) an entity in a separate transaction.
+     *
+     * @param numItem number of the entity in the whole list saved, used to
+     *        identify it in the errors
+     * @return the errors of the entity, empty if it was saved
+     */
+    private List<InstanceConstraintViolationsDTO> saveOne(DTO entityDTO,
+        long numItem) {
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
+            new ArrayList<InstanceConstraintViolationsDTO>();
+        InstanceConstraintViolationsDTO instanceConstraintViolationsDTO = null;
+
+        try {
+            insertOrUpdate(entityDTO);
+        } catch (ValidationException e) {
+            instanceConstraintViolationsDTO =
+                ConstraintViolationConverter.toDTO(
+                    Util.generateInstanceConstraintViolationsDTOId(
+                        numItem, entityDTO), e);
+        } catch (RecoverableErrorException e) {
+            instanceConstraintViolationsDTO =
+                ConstraintViolationConverter.toDTO(
+                    Util.generateInstanceConstraintViolationsDTOId(
+                        numItem, entityDTO), e);
+        } catch (RuntimeException e) {
+            instanceConstraintViolationsDTO =
+                ConstraintViolationConverter.toDTO(
+                    Util.generateInstanceConstraintViolationsDTOId(
+                        numItem, entityDTO), e);
+        }
+
+        if (instanceConstraintViolationsDTO != null) {
+            instanceConstraintViolationsList.add(
+                instanceConstraintViolationsDTO);
+        }
+
+        return instanceConstraintViolationsList;
+
+    }
+
+    /**
+     * It saves (inserts or updates) a list of entity DTOs by using only one
+     * new transaction. The existing entities are retrieved with only one
+     * query and all the changes are flushed at once, so Hibernate can write
+     * them in JDBC batches (see <code>hibernate.jdbc.batch_size</code> in
+     * <code>libreplan-business-hibernate.cfg.xml</code>). The codes of the
+     * DTOs must be different.
+     *
+     * @throws ValidationException if validations are not passed by any entity
+     * @throws RecoverableErrorException if a recoverable error occurs
+     */
+    protected void insertOrUpdate(final List<? extends DTO> entityDTOs)
+        throws ValidationException, RecoverableErrorException {
+
+        IOnTransaction<Void> save = new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+
+                IIntegrationEntityDAO<E> entityDAO =
+                    getIntegrationEntityDAO();
+                Map<String, E> existing = byCode(
+                    entityDAO.findByCodes(codesOf(entityDTOs)));
+
+                for (DTO entityDTO : entityDTOs) {
+
+                    /* Insert or update? */
+                    E entity = existing.get(normalizeCode(entityDTO.code));
+                    if (entity != null) {
+                        updateEntity(entity, entityDTO);
+                    } else {
+                        entity = toEntity(entityDTO);
+                    }
+
+                    entity.validate();
+                    beforeSaving(entity);
+                    entityDAO.saveWithoutValidating(entity);
+                    afterSaving(entity);
+
+                }
+
+                entityDAO.flush();
+
+                return null;
+
+            }
+
+        };
+
+        transactionService.runOnAnotherTransaction(save);
+
+    }
+
+    private List<String> codesOf(List<? extends DTO> entityDTOs) {
+
+        List<String> codes = new ArrayList<String>();
+
+        for (DTO entityDTO : entityDTOs) {
+            codes.add(entityDTO.code);
+        }
+
+        return codes;
+
+    }
+
+    private Map<String, E> byCode(List<E> entities) {
+
+        Map<String, E> result = new HashMap<String, E>();
+
+        for (E entity : entities) {
+            result.put(normalizeCode(entity.getCode()), entity);
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Codes are searched trimmed and ignoring case, as in
+     * {@link IIntegrationEntityDAO#findByCode(String)}.
+     */
+    private static String normalizeCode(String code) {
+        return code == null ? null : code.trim().toLowerCase();
+    }
+
     /**
      * It saves (inserts or updates) an entity DTO by using a new transaction.
      *
@@ -0,0 +1,93 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.impl;
+
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.libreplan.ws.common.api.WSCommonGlobalNames;
+
+/**
+ * Writes a list of DTOs as XML one by one, so the list doesn't need to be in
+ * memory. The list element is written by this class and each DTO is
+ * marshalled inside it as its root element.
+ */
+public class XMLListWriter {
+
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts =
+        new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+    public static XMLListWriter start(OutputStream output,
+        String listElementName) throws XMLStreamException {
+
+        XMLStreamWriter writer = XMLOutputFactory.newInstance()
+            .createXMLStreamWriter(output, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.setDefaultNamespace(WSCommonGlobalNames.REST_NAMESPACE);
+        writer.writeStartElement(WSCommonGlobalNames.REST_NAMESPACE,
+            listElementName);
+        writer.writeDefaultNamespace(WSCommonGlobalNames.REST_NAMESPACE);
+
+        return new XMLListWriter(writer);
+
+    }
+
+    private final XMLStreamWriter writer;
+
+    private XMLListWriter(XMLStreamWriter writer) {
+        this.writer = writer;
+    }
+
+    public void write(Object dto) throws JAXBException {
+
+        Marshaller marshaller = contextFor(dto.getClass()).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        marshaller.marshal(dto, writer);
+
+    }
+
+    private static JAXBContext contextFor(Class<?> dtoClass)
+        throws JAXBException {
+
+        JAXBContext context = contexts.get(dtoClass);
+        if (context == null) {
+            context = JAXBContext.newInstance(dtoClass);
+            contexts.putIfAbsent(dtoClass, context);
+        }
+
+        return context;
+
+    }
+
+    public void end() throws XMLStreamException {
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+}
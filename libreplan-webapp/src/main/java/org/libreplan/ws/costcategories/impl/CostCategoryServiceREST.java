@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.costcategories.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -89,6 +92,11 @@ public class CostCategoryServiceREST extends
         return costCategoryDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(CostCategoryDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected void updateEntity(CostCategory entity, CostCategoryDTO entityDTO)
             throws ValidationException {
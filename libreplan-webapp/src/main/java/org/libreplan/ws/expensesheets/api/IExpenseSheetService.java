@@ -31,7 +31,7 @@ import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
  */
 public interface IExpenseSheetService {
 
-    ExpenseSheetListDTO getExpenseSheets();
+    Response getExpenseSheets(String afterCode, Integer limit);
 
     InstanceConstraintViolationsListDTO addExpenseSheets(
             ExpenseSheetListDTO expenseSheetListDTO);
@@ -25,6 +25,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
@@ -109,8 +110,7 @@ public class ExpenseSheetServiceREST extends
 
     @Override
     @GET
-    @Transactional(readOnly = true)
-    public ExpenseSheetListDTO getExpenseSheets() {
-        return new ExpenseSheetListDTO(findAll());
+    public Response getExpenseSheets(@QueryParam("after") String afterCode, @QueryParam("limit") Integer limit) {
+        return streamAll("expense-sheet-list", afterCode, limit);
     }
 }
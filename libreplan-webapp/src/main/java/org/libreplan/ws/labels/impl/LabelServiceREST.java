@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.labels.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -78,6 +81,11 @@ public class LabelServiceREST extends
         return labelTypeDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(LabelTypeDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected LabelTypeDTO toDTO(LabelType entity) {
         return LabelConverter.toDTO(entity);
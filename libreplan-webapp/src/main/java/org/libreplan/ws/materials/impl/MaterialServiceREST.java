@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.materials.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -86,6 +89,11 @@ public class MaterialServiceREST extends
         return materialCategoryDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(MaterialCategoryDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected void updateEntity(MaterialCategory entity,
             MaterialCategoryDTO entityDTO)
@@ -35,7 +35,7 @@ public interface IOrderElementService {
 
     InstanceConstraintViolationsListDTO addOrders(OrderListDTO orderListDTO);
 
-    OrderListDTO getOrders();
+    Response getOrders(String afterCode, Integer limit);
 
     Response getOrderElement(String code);
 
@@ -21,6 +21,8 @@
 
 package org.libreplan.ws.orders.impl;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.UUID;
 
 import javax.ws.rs.Consumes;
@@ -30,6 +32,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -78,9 +81,8 @@ public class OrderElementServiceREST
 
     @Override
     @GET
-    @Transactional(readOnly = true)
-    public OrderListDTO getOrders() {
-        return new OrderListDTO(findAll());
+    public Response getOrders(@QueryParam("after") String afterCode, @QueryParam("limit") Integer limit) {
+        return streamAll("order-list", afterCode, limit);
     }
 
     @Override
@@ -100,6 +102,11 @@ public class OrderElementServiceREST
         return orderDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(OrderDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected Order toEntity(OrderDTO entityDTO) throws ValidationException, RecoverableErrorException {
         return (Order) OrderElementConverter.toEntity(entityDTO, ConfigurationOrderElementConverter.all());
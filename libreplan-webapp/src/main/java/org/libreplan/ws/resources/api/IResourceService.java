@@ -41,7 +41,7 @@ public interface IResourceService {
     public InstanceConstraintViolationsListDTO addResources(
         ResourceListDTO resources);
 
-    public ResourceListDTO getResources();
+    public Response getResources(String afterCode, Integer limit);
 
     Response getResource(String code);
 
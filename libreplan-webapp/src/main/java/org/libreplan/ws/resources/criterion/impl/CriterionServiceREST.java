@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.resources.criterion.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -89,6 +92,11 @@ public class CriterionServiceREST
         return criterionTypeDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(CriterionTypeDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected void updateEntity(CriterionType entity,
         CriterionTypeDTO entityDTO) throws ValidationException {
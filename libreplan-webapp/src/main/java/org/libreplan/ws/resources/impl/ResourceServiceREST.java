@@ -21,9 +21,9 @@
 
 package org.libreplan.ws.resources.impl;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
-import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -31,6 +31,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang3.StringUtils;
@@ -40,9 +41,7 @@ import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.entities.EntityNameEnum;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
-import org.libreplan.business.resources.daos.IMachineDAO;
 import org.libreplan.business.resources.daos.IResourceDAO;
-import org.libreplan.business.resources.daos.IWorkerDAO;
 import org.libreplan.business.resources.entities.CriterionSatisfaction;
 import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
@@ -51,6 +50,7 @@ import org.libreplan.ws.common.impl.RecoverableErrorException;
 import org.libreplan.ws.resources.api.IResourceService;
 import org.libreplan.ws.resources.api.ResourceDTO;
 import org.libreplan.ws.resources.api.ResourceListDTO;
+import org.libreplan.ws.resources.api.WorkerDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -108,6 +108,14 @@ public class ResourceServiceREST
         return resourceDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(ResourceDTO entityDTO) {
+        if (entityDTO instanceof WorkerDTO) {
+            return Collections.singletonList(((WorkerDTO) entityDTO).nif);
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     protected void updateEntity(Resource entity, ResourceDTO entityDTO)
         throws ValidationException, RecoverableErrorException {
@@ -118,25 +126,11 @@ public class ResourceServiceREST
         generateCodes(entity);
     }
 
-    @Autowired
-    private IWorkerDAO workerDAO;
-
-    @Autowired
-    private IMachineDAO machineDAO;
-
     @Override
     @GET
-    @Transactional(readOnly = true)
-    public ResourceListDTO getResources() {
-        return new ResourceListDTO(findAll());
-    }
-
-    @Override
-    protected List<ResourceDTO> findAll() {
-        List<Resource> result = new ArrayList<Resource>();
-        result.addAll(workerDAO.getWorkers());
-        result.addAll(machineDAO.getAll());
-        return toDTO(result);
+    public Response getResources(@QueryParam("after") String afterCode,
+            @QueryParam("limit") Integer limit) {
+        return streamAll("resource-list", afterCode, limit);
     }
 
     private void generateCodes(Resource resource) {
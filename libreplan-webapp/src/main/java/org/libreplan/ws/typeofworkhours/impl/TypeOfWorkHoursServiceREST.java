@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.typeofworkhours.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -89,6 +92,11 @@ public class TypeOfWorkHoursServiceREST extends
         return typeOfWorkHoursDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(TypeOfWorkHoursDTO entityDTO) {
+        return Collections.singletonList(entityDTO.name);
+    }
+
     @Override
     protected void updateEntity(TypeOfWorkHours entity,
             TypeOfWorkHoursDTO entityDTO)
@@ -21,6 +21,9 @@
 
 package org.libreplan.ws.unittypes.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -85,6 +88,11 @@ public class UnitTypeServiceREST extends
         return unitTypeDAO;
     }
 
+    @Override
+    protected Collection<String> getUniqueKeys(UnitTypeDTO entityDTO) {
+        return Collections.singletonList(entityDTO.measure);
+    }
+
     @Override
     protected void updateEntity(UnitType entity, UnitTypeDTO entityDTO)
             throws ValidationException {
@@ -32,7 +32,7 @@ import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
  */
 public interface IWorkReportService {
 
-    public WorkReportListDTO getWorkReports();
+    public Response getWorkReports(String afterCode, Integer limit);
 
     public InstanceConstraintViolationsListDTO addWorkReports(
             WorkReportListDTO workReportListDTO);
@@ -32,6 +32,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -76,9 +77,9 @@ public class WorkReportServiceREST extends GenericRESTService<WorkReport, WorkRe
 
     @Override
     @GET
-    @Transactional(readOnly = true)
-    public WorkReportListDTO getWorkReports() {
-        return new WorkReportListDTO(findAll());
+    public Response getWorkReports(@QueryParam("after") String afterCode,
+            @QueryParam("limit") Integer limit) {
+        return streamAll("work-report-list", afterCode, limit);
     }
 
     @Override
@@ -0,0 +1,337 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.importers;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IConnectorDAO;
+import org.libreplan.business.common.entities.Connector;
+import org.libreplan.business.common.entities.ConnectorException;
+import org.libreplan.business.common.entities.ConnectorProperty;
+import org.libreplan.business.common.entities.PredefinedConnectorProperties;
+import org.libreplan.business.common.entities.PredefinedConnectors;
+import org.libreplan.business.orders.daos.IOrderSyncInfoDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderSyncInfo;
+import org.libreplan.importers.jira.IssueDTO;
+import org.libreplan.importers.jira.WorkLogItemDTO;
+import org.libreplan.web.orders.IOrderModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for the synchronization of all the orders with JIRA issues done by
+ * {@link JiraOrderElementSynchronizer#syncOrderElementsWithJiraIssues()},
+ * against a stub JIRA server.
+ */
+public class JiraOrderElementSynchronizationJobTest {
+
+    private static final Date LAST_SYNC_DATE = new LocalDate(2016, 3, 10).toDateTimeAtStartOfDay().plusHours(12)
+            .toDate();
+
+    private static final int FETCH_THREADS = 4;
+
+    private HttpServer server;
+
+    private final List<String> requestedQueries = Collections.synchronizedList(new ArrayList<String>());
+
+    private final List<String> failingLabels = new ArrayList<>();
+
+    private final List<String> labelsWithoutIssues = new ArrayList<>();
+
+    private final List<String> labelsWithWorkLogs = new ArrayList<>();
+
+    private volatile boolean requestedWorkLogsInTransaction = false;
+
+    private final List<String> synchronizedOrders = new ArrayList<>();
+
+    private final Map<String, Integer> requestsWhenSynchronizing = new HashMap<>();
+
+    private final List<OrderSyncInfo> orderSyncInfos = new ArrayList<>();
+
+    private long lastId = 0;
+
+    private CountingTransactionService transactionService = new CountingTransactionService();
+
+    private IJiraTimesheetSynchronizer jiraTimesheetSynchronizer = createNiceMock(IJiraTimesheetSynchronizer.class);
+
+    private JiraOrderElementSynchronizer synchronizer = new JiraOrderElementSynchronizer() {
+
+        @Override
+        public void syncOrderElementsWithJiraIssues(List<IssueDTO> issues, Order order) {
+            synchronizedOrders.add(order.getName());
+            requestsWhenSynchronizing.put(order.getName(), requestedQueries.size());
+        }
+    };
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + JiraRESTClient.PATH_AUTH_SESSION, exchange -> respond(exchange, 200, "{}"));
+        server.createContext("/" + JiraRESTClient.PATH_SEARCH, exchange -> {
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+            Matcher matcher = Pattern.compile("jql=labels=(\\w+)").matcher(query);
+            String label = matcher.find() ? matcher.group(1) : "";
+            requestedQueries.add(query);
+
+            if ( failingLabels.contains(label) ) {
+                respond(exchange, 500, "{}");
+            } else if ( labelsWithWorkLogs.contains(label) ) {
+                respond(exchange, 200, "{\"startAt\": 0, \"total\": 1, \"issues\": [{\"key\": \"" + label + "-1\", " +
+                        "\"fields\": {\"worklog\": {\"startAt\": 0, \"total\": 3, \"worklogs\": [{\"id\": 1}]}}}]}");
+            } else if ( labelsWithoutIssues.contains(label) ) {
+                respond(exchange, 200, "{\"startAt\": 0, \"total\": 0, \"issues\": []}");
+            } else {
+                respond(exchange, 200, "{\"startAt\": 0, \"total\": 1, \"issues\": [{\"key\": \"" + label + "-1\"}]}");
+            }
+        });
+        server.createContext("/" + JiraRESTClient.PATH_ISSUE, exchange -> {
+            requestedWorkLogsInTransaction |= transactionService.inTransaction;
+            respond(exchange, 200, "{\"startAt\": 1, \"total\": 3, \"worklogs\": [{\"id\": 2}, {\"id\": 3}]}");
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private OrderSyncInfo givenOrderSynchronizedWith(String label) {
+        Order order = createNiceMock(Order.class);
+        expect(order.getName()).andReturn(label).anyTimes();
+        replay(order);
+
+        OrderSyncInfo result = OrderSyncInfo.create(label, order, PredefinedConnectors.JIRA.getName());
+        ReflectionTestUtils.setField(result, "id", ++lastId);
+        result.setLastSyncDate(LAST_SYNC_DATE);
+        orderSyncInfos.add(result);
+
+        return result;
+    }
+
+    private void givenSynchronizer() {
+        Connector connector = Connector.create(PredefinedConnectors.JIRA.getName());
+        connector.addProperty(ConnectorProperty.create(PredefinedConnectorProperties.SERVER_URL,
+                "http://localhost:" + server.getAddress().getPort() + "/"));
+        connector.addProperty(ConnectorProperty.create(PredefinedConnectorProperties.USERNAME, "user"));
+        connector.addProperty(ConnectorProperty.create(PredefinedConnectorProperties.PASSWORD, "password"));
+
+        IConnectorDAO connectorDAO = createNiceMock(IConnectorDAO.class);
+        expect(connectorDAO.findUniqueByName(PredefinedConnectors.JIRA.getName())).andReturn(connector).anyTimes();
+        replay(connectorDAO);
+
+        IOrderSyncInfoDAO orderSyncInfoDAO = createNiceMock(IOrderSyncInfoDAO.class);
+        expect(orderSyncInfoDAO.findByConnectorName(PredefinedConnectors.JIRA.getName()))
+                .andReturn(orderSyncInfos)
+                .anyTimes();
+        for (OrderSyncInfo each : orderSyncInfos) {
+            expect(orderSyncInfoDAO.findExistingEntity(each.getId())).andReturn(each).anyTimes();
+            expect(orderSyncInfoDAO.findByKeyOrderAndConnectorName(
+                    eq(each.getKey()), same(each.getOrder()), anyString())).andReturn(each).anyTimes();
+        }
+        replay(orderSyncInfoDAO, jiraTimesheetSynchronizer);
+
+        ReflectionTestUtils.setField(synchronizer, "connectorDAO", connectorDAO);
+        ReflectionTestUtils.setField(synchronizer, "orderSyncInfoDAO", orderSyncInfoDAO);
+        ReflectionTestUtils.setField(synchronizer, "adHocTransactionService", transactionService);
+        ReflectionTestUtils.setField(synchronizer, "orderModel", createNiceMock(IOrderModel.class));
+        ReflectionTestUtils.setField(synchronizer, "jiraTimesheetSynchronizer", jiraTimesheetSynchronizer);
+    }
+
+    private List<String> failedOrders(List<SynchronizationInfo> synchronizationInfos) {
+        List<String> result = new ArrayList<>();
+        for (SynchronizationInfo each : synchronizationInfos) {
+            assertFalse(each.isSuccessful());
+            result.add(each.getAction());
+        }
+
+        return result;
+    }
+
+    @Test
+    public void onlyTheIssuesUpdatedSinceTheDayBeforeTheLastSynchronizationAreFetched() throws ConnectorException {
+        givenOrderSynchronizedWith("A");
+        givenSynchronizer();
+
+        synchronizer.syncOrderElementsWithJiraIssues();
+
+        assertEquals(1, requestedQueries.size());
+        assertTrue(requestedQueries.get(0).contains("jql=labels=A AND updated >= \"2016/03/09\""));
+    }
+
+    @Test
+    public void allTheIssuesOfALabelAreFetchedOutOfTheSynchronization() throws ConnectorException {
+        givenSynchronizer();
+
+        synchronizer.getJiraIssues("A");
+
+        assertEquals(1, requestedQueries.size());
+        assertTrue(requestedQueries.get(0).contains("jql=labels=A&"));
+    }
+
+    @Test
+    public void eachOrderIsSynchronizedInItsOwnTransactionAndAFailureOnlyDiscardsItsOrder()
+            throws ConnectorException {
+
+        OrderSyncInfo notFetched = givenOrderSynchronizedWith("A");
+        OrderSyncInfo failing = givenOrderSynchronizedWith("B");
+        OrderSyncInfo synchronizedOk = givenOrderSynchronizedWith("C");
+        OrderSyncInfo notUpdated = givenOrderSynchronizedWith("D");
+        failingLabels.add("A");
+        labelsWithoutIssues.add("D");
+
+        jiraTimesheetSynchronizer.syncJiraTimesheetWithJiraIssues(anyObject(), same(failing.getOrder()));
+        expectLastCall().andThrow(new RuntimeException("timesheets not saved")).anyTimes();
+        givenSynchronizer();
+
+        List<SynchronizationInfo> result = synchronizer.syncOrderElementsWithJiraIssues();
+
+        assertEquals(Arrays.asList("Synchronization order A", "Synchronization order B"), failedOrders(result));
+        assertTrue(result.get(0).getFailedReasons().get(0).startsWith("Error fetching JIRA issues for key A"));
+        assertEquals("Error synchronizing order B: timesheets not saved", result.get(1).getFailedReasons().get(0));
+
+        assertEquals(Arrays.asList("B", "C"), synchronizedOrders);
+        assertEquals(2, transactionService.transactions);
+
+        assertEquals(LAST_SYNC_DATE, notFetched.getLastSyncDate());
+        assertEquals(LAST_SYNC_DATE, failing.getLastSyncDate());
+        assertNotEquals(LAST_SYNC_DATE, synchronizedOk.getLastSyncDate());
+        assertEquals(LAST_SYNC_DATE, notUpdated.getLastSyncDate());
+    }
+
+    @Test
+    public void theRemainingWorkLogsAreFetchedBeforeTheTimesheetsAreSynchronized() throws ConnectorException {
+        OrderSyncInfo orderSyncInfo = givenOrderSynchronizedWith("W");
+        labelsWithWorkLogs.add("W");
+
+        Capture<List<IssueDTO>> issues = EasyMock.newCapture();
+        jiraTimesheetSynchronizer.syncJiraTimesheetWithJiraIssues(capture(issues), same(orderSyncInfo.getOrder()));
+        givenSynchronizer();
+
+        synchronizer.syncOrderElementsWithJiraIssues();
+
+        List<WorkLogItemDTO> workLogItems = issues.getValue().get(0).getFields().getWorklog().getWorklogs();
+        assertEquals(3, workLogItems.size());
+        assertEquals(Integer.valueOf(3), workLogItems.get(2).getId());
+        assertFalse(requestedWorkLogsInTransaction);
+    }
+
+    @Test
+    public void theIssuesOfAtMostFourOrdersAreFetchedAheadOfTheSynchronizedOne() throws ConnectorException {
+        int orders = 10;
+        for (int i = 0; i < orders; i++) {
+            givenOrderSynchronizedWith("L" + i);
+        }
+        givenSynchronizer();
+
+        synchronizer.syncOrderElementsWithJiraIssues();
+
+        assertEquals(orders, synchronizedOrders.size());
+        assertEquals(orders, requestedQueries.size());
+        for (int i = 0; i < orders; i++) {
+            int requested = requestsWhenSynchronizing.get("L" + i);
+            assertTrue("fetched " + requested + " when synchronizing order " + i, requested <= i + FETCH_THREADS);
+        }
+    }
+
+    /**
+     * Runs everything directly, counting the read-write transactions.
+     */
+    private static class CountingTransactionService implements IAdHocTransactionService {
+
+        private int transactions = 0;
+
+        private volatile boolean inTransaction = false;
+
+        @Override
+        public <T> T runOnTransaction(IOnTransaction<T> onTransaction) {
+            transactions++;
+            inTransaction = true;
+            try {
+                return onTransaction.execute();
+            } finally {
+                inTransaction = false;
+            }
+        }
+
+        @Override
+        public <T> T runOnReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+    }
+
+}
@@ -19,13 +19,20 @@
 
 package org.libreplan.importers;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.ws.rs.ProcessingException;
 
@@ -34,6 +41,10 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.libreplan.importers.jira.IssueDTO;
+import org.libreplan.importers.jira.WorkLogItemDTO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
 
 /**
  * Test for {@link JiraRESTClient }
@@ -102,4 +113,88 @@ public class JiraRESTClientTest {
 
         assertTrue(issues.size() > 0);
     }
+
+    @Test
+    public void testGetIssuesRequestsAllThePages() throws IOException {
+        final int total = 5;
+        final int pageSize = 2;
+        final List<Integer> requestedPages = new ArrayList<>();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + JiraRESTClient.PATH_AUTH_SESSION, exchange -> respond(exchange, "{}"));
+        server.createContext("/" + JiraRESTClient.PATH_SEARCH, exchange -> {
+            Matcher matcher = Pattern.compile("startAt=(\\d+)").matcher(exchange.getRequestURI().getQuery());
+            int startAt = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+            requestedPages.add(startAt);
+
+            List<String> issues = new ArrayList<>();
+            for (int i = startAt; i < Math.min(startAt + pageSize, total); i++) {
+                issues.add("{\"key\": \"LP-" + i + "\"}");
+            }
+            respond(exchange, "{\"startAt\": " + startAt + ", \"maxResults\": " + pageSize +
+                    ", \"total\": " + total + ", \"issues\": [" + StringUtils.join(issues, ",") + "]}");
+        });
+        server.start();
+
+        try {
+            List<IssueDTO> issues = JiraRESTClient.getIssues(
+                    "http://localhost:" + server.getAddress().getPort() + "/", "user", "password",
+                    JiraRESTClient.PATH_SEARCH, getJiraLabel("label"));
+
+            assertEquals(total, issues.size());
+            assertEquals("LP-4", issues.get(total - 1).getKey());
+            assertEquals(Arrays.asList(0, 2, 4), requestedPages);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGetWorkLogsOfAnIssueRequestsTheRemainingPagesWithOneAuthorization() throws IOException {
+        final int total = 23;
+        final int pageSize = 2;
+        final List<Integer> requestedPages = new ArrayList<>();
+        final List<String> authorizations = new ArrayList<>();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + JiraRESTClient.PATH_AUTH_SESSION, exchange -> {
+            authorizations.add(exchange.getRequestURI().getPath());
+            respond(exchange, "{}");
+        });
+        server.createContext("/" + JiraRESTClient.PATH_ISSUE + "/LP-1/" + JiraRESTClient.PATH_WORKLOG, exchange -> {
+            Matcher matcher = Pattern.compile("startAt=(\\d+)").matcher(exchange.getRequestURI().getQuery());
+            int startAt = matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+            requestedPages.add(startAt);
+
+            List<String> worklogs = new ArrayList<>();
+            for (int i = startAt; i < Math.min(startAt + pageSize, total); i++) {
+                worklogs.add("{\"id\": " + (i + 1) + ", \"timeSpentSeconds\": 3600}");
+            }
+            respond(exchange, "{\"startAt\": " + startAt + ", \"maxResults\": " + pageSize +
+                    ", \"total\": " + total + ", \"worklogs\": [" + StringUtils.join(worklogs, ",") + "]}");
+        });
+        server.start();
+
+        try {
+            List<WorkLogItemDTO> workLogItems = JiraRESTClient.getWorkLogs(
+                    "http://localhost:" + server.getAddress().getPort() + "/", "user", "password", "LP-1", 18);
+
+            assertEquals(5, workLogItems.size());
+            assertEquals(Integer.valueOf(19), workLogItems.get(0).getId());
+            assertEquals(Integer.valueOf(23), workLogItems.get(4).getId());
+            assertEquals(Arrays.asList(18, 20, 22), requestedPages);
+            assertEquals(1, authorizations.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
 }
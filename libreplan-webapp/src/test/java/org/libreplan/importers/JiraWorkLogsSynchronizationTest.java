@@ -0,0 +1,245 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.importers;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.daos.IConnectorDAO;
+import org.libreplan.business.common.entities.Connector;
+import org.libreplan.business.common.entities.ConnectorProperty;
+import org.libreplan.business.common.entities.PredefinedConnectorProperties;
+import org.libreplan.business.common.entities.PredefinedConnectors;
+import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.orders.daos.IOrderSyncInfoDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderSyncInfo;
+import org.libreplan.business.resources.daos.IWorkerDAO;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportDAO;
+import org.libreplan.business.workreports.daos.IWorkReportTypeDAO;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.business.workreports.entities.WorkReportType;
+import org.libreplan.business.workreports.valueobjects.DescriptionField;
+import org.libreplan.importers.jira.FieldDTO;
+import org.libreplan.importers.jira.IssueDTO;
+import org.libreplan.importers.jira.WorkLogAuthorDTO;
+import org.libreplan.importers.jira.WorkLogDTO;
+import org.libreplan.importers.jira.WorkLogItemDTO;
+import org.libreplan.web.workreports.IWorkReportModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests that {@link JiraTimesheetSynchronizer} only takes into account the
+ * lines whose charged effort changes when saving the timesheet of the JIRA
+ * worklogs.
+ */
+public class JiraWorkLogsSynchronizationTest {
+
+    private static final String ORDER_CODE = "ORDER";
+
+    private static final String ISSUE_KEY = "LP-1";
+
+    private static final String WORKER_NIF = "12345678Z";
+
+    private static final LocalDate DAY = new LocalDate(2016, 3, 1);
+
+    private final Worker worker = Worker.create("First", "Surname", WORKER_NIF);
+
+    private final WorkReport workReport = WorkReport.create(givenWorkReportType());
+
+    private final OrderElement orderElement = givenOrderElement(
+            PredefinedConnectorProperties.JIRA_CODE_PREFIX + ORDER_CODE + "-" + ISSUE_KEY, 1L);
+
+    private final Capture<Set<WorkReportLine>> changedLines = EasyMock.newCapture();
+
+    private Order order;
+
+    private JiraTimesheetSynchronizer synchronizer = new JiraTimesheetSynchronizer();
+
+    private static WorkReportType givenWorkReportType() {
+        WorkReportType result = WorkReportType.create();
+        result.getLineFields().add(DescriptionField.create("Comment", 255));
+        return result;
+    }
+
+    private static OrderElement givenOrderElement(String code, Long id) {
+        OrderElement result = createNiceMock(OrderElement.class);
+        expect(result.getCode()).andReturn(code).anyTimes();
+        expect(result.getId()).andReturn(id).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    @Before
+    public void givenSynchronizer() throws Exception {
+        order = createNiceMock(Order.class);
+        expect(order.getCode()).andReturn(ORDER_CODE).anyTimes();
+        expect(order.getName()).andReturn(ORDER_CODE).anyTimes();
+        expect(order.getChildren()).andReturn(Collections.singletonList(orderElement)).anyTimes();
+        replay(order);
+
+        Connector connector = Connector.create(PredefinedConnectors.JIRA.getName());
+        connector.addProperty(ConnectorProperty.create(PredefinedConnectorProperties.JIRA_HOURS_TYPE, "Default"));
+        IConnectorDAO connectorDAO = createNiceMock(IConnectorDAO.class);
+        expect(connectorDAO.findUniqueByName(PredefinedConnectors.JIRA.getName())).andReturn(connector).anyTimes();
+
+        IWorkReportTypeDAO workReportTypeDAO = createNiceMock(IWorkReportTypeDAO.class);
+        expect(workReportTypeDAO.findUniqueByName(anyString())).andReturn(workReport.getWorkReportType()).anyTimes();
+
+        ITypeOfWorkHoursDAO typeOfWorkHoursDAO = createNiceMock(ITypeOfWorkHoursDAO.class);
+        expect(typeOfWorkHoursDAO.findUniqueByName("Default")).andReturn(TypeOfWorkHours.create()).anyTimes();
+
+        IWorkerDAO workerDAO = createNiceMock(IWorkerDAO.class);
+        expect(workerDAO.findAll()).andReturn(Collections.singletonList(worker)).anyTimes();
+
+        IOrderSyncInfoDAO orderSyncInfoDAO = createNiceMock(IOrderSyncInfoDAO.class);
+        expect(orderSyncInfoDAO.findLastSynchronizedInfoByOrderAndConnectorName(order,
+                PredefinedConnectors.JIRA.getName()))
+                .andReturn(OrderSyncInfo.create(ISSUE_KEY, order, PredefinedConnectors.JIRA.getName()))
+                .anyTimes();
+
+        IWorkReportDAO workReportDAO = createNiceMock(IWorkReportDAO.class);
+        expect(workReportDAO.findByCode(ORDER_CODE + "-" + ISSUE_KEY)).andReturn(workReport).anyTimes();
+
+        IWorkReportModel workReportModel = createNiceMock(IWorkReportModel.class);
+        expect(workReportModel.getWorkReport()).andReturn(workReport).anyTimes();
+        workReportModel.confirmSave(capture(changedLines));
+        expectLastCall().anyTimes();
+
+        replay(connectorDAO, workReportTypeDAO, typeOfWorkHoursDAO, workerDAO, orderSyncInfoDAO, workReportDAO,
+                workReportModel);
+
+        ReflectionTestUtils.setField(synchronizer, "connectorDAO", connectorDAO);
+        ReflectionTestUtils.setField(synchronizer, "workReportTypeDAO", workReportTypeDAO);
+        ReflectionTestUtils.setField(synchronizer, "typeOfWorkHoursDAO", typeOfWorkHoursDAO);
+        ReflectionTestUtils.setField(synchronizer, "workerDAO", workerDAO);
+        ReflectionTestUtils.setField(synchronizer, "orderSyncInfoDAO", orderSyncInfoDAO);
+        ReflectionTestUtils.setField(synchronizer, "workReportDAO", workReportDAO);
+        ReflectionTestUtils.setField(synchronizer, "workReportModel", workReportModel);
+    }
+
+    private WorkReportLine givenSynchronizedLine(int workLogId, OrderElement orderElement) {
+        WorkReportLine result = WorkReportLine.create(workReport);
+        result.setCode(orderElement.getCode() + "-" + workLogId);
+        result.setDate(DAY.toDateTimeAtStartOfDay().toDate());
+        result.setEffort(EffortDuration.hours(1));
+        result.setOrderElement(orderElement);
+        result.dontPoseAsTransientObjectAnymore();
+        workReport.addWorkReportLine(result);
+        return result;
+    }
+
+    private WorkLogItemDTO workLogItem(int id, String nif, LocalDate started, EffortDuration timeSpent) {
+        WorkLogAuthorDTO author = new WorkLogAuthorDTO();
+        author.setName(nif);
+
+        WorkLogItemDTO result = new WorkLogItemDTO();
+        result.setId(id);
+        result.setAuthor(author);
+        result.setStarted(started.toDateTimeAtStartOfDay().toDate());
+        result.setTimeSpentSeconds(timeSpent.getSeconds());
+        result.setComment("Worked on " + ISSUE_KEY);
+        return result;
+    }
+
+    private List<IssueDTO> issueWithWorkLogs(WorkLogItemDTO... workLogItems) {
+        WorkLogDTO workLog = new WorkLogDTO();
+        workLog.setStartAt(0);
+        workLog.setTotal(workLogItems.length);
+        workLog.setWorklogs(new ArrayList<>(Arrays.asList(workLogItems)));
+
+        FieldDTO fields = new FieldDTO();
+        fields.setWorklog(workLog);
+
+        IssueDTO issue = new IssueDTO();
+        issue.setKey(ISSUE_KEY);
+        issue.setFields(fields);
+        return Collections.singletonList(issue);
+    }
+
+    @Test
+    public void theLinesWhoseChargedEffortDoesNotChangeAreSkipped() throws Exception {
+        WorkReportLine unchanged = givenSynchronizedLine(10, orderElement);
+        WorkReportLine changedEffort = givenSynchronizedLine(11, orderElement);
+        WorkReportLine changedDate = givenSynchronizedLine(12, orderElement);
+        WorkReportLine changedOrderElement = givenSynchronizedLine(13, givenOrderElement(orderElement.getCode(), 2L));
+
+        synchronizer.syncJiraTimesheetWithJiraIssues(issueWithWorkLogs(
+                workLogItem(10, WORKER_NIF, DAY, EffortDuration.hours(1)),
+                workLogItem(11, WORKER_NIF, DAY, EffortDuration.hours(2)),
+                workLogItem(12, WORKER_NIF, DAY.plusDays(1), EffortDuration.hours(1)),
+                workLogItem(13, WORKER_NIF, DAY, EffortDuration.hours(1)),
+                workLogItem(14, WORKER_NIF, DAY, EffortDuration.hours(1))), order);
+
+        assertTrue(changedLines.hasCaptured());
+        Set<WorkReportLine> expected = new HashSet<>(Arrays.asList(changedEffort, changedDate, changedOrderElement));
+        for (WorkReportLine each : workReport.getWorkReportLines()) {
+            if ( each.isNewObject() ) {
+                expected.add(each);
+            }
+        }
+        assertEquals(5, workReport.getWorkReportLines().size());
+        assertEquals(4, expected.size());
+        assertEquals(expected, changedLines.getValue());
+
+        assertEquals(EffortDuration.hours(1), unchanged.getEffort());
+        assertEquals(EffortDuration.hours(2), changedEffort.getEffort());
+        assertEquals(orderElement, changedOrderElement.getOrderElement());
+    }
+
+    @Test
+    public void theWorkLogsOfUnknownWorkersAreReportedOnceAndSkipped() throws Exception {
+        givenSynchronizedLine(10, orderElement);
+
+        synchronizer.syncJiraTimesheetWithJiraIssues(issueWithWorkLogs(
+                workLogItem(10, WORKER_NIF, DAY, EffortDuration.hours(1)),
+                workLogItem(11, "unknown", DAY, EffortDuration.hours(1)),
+                workLogItem(12, "unknown", DAY, EffortDuration.hours(1))), order);
+
+        assertEquals(1, workReport.getWorkReportLines().size());
+        assertTrue(changedLines.getValue().isEmpty());
+        assertEquals(Collections.singletonList("Worker \"unknown\" not found"),
+                synchronizer.getSynchronizationInfo().getFailedReasons());
+    }
+
+}
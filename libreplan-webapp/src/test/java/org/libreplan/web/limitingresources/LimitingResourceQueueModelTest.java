@@ -0,0 +1,170 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency.QueueDependencyType;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for the assignment in batch of {@link LimitingResourceQueueModel}.
+ */
+public class LimitingResourceQueueModelTest {
+
+    private static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    private long lastId = 0;
+
+    private Worker worker;
+
+    private LimitingResourceQueue queue;
+
+    private LimitingResourceQueueModel model = new LimitingResourceQueueModel();
+
+    @Before
+    public void createQueue() {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(anyObject(PartialDay.class))).andAnswer(new IAnswer<EffortDuration>() {
+            @Override
+            public EffortDuration answer() throws Throwable {
+                PartialDay day = (PartialDay) EasyMock.getCurrentArguments()[0];
+                return day.limitWorkingDay(EffortDuration.hours(8));
+            }
+        }).anyTimes();
+        expect(calendar.getCalendarAvailabilities())
+                .andReturn(Collections.<CalendarAvailability> emptyList())
+                .anyTimes();
+        replay(calendar);
+
+        worker = createNiceMock(Worker.class);
+        expect(worker.getId()).andReturn(++lastId).anyTimes();
+        expect(worker.getCalendar()).andReturn(calendar).anyTimes();
+        replay(worker);
+
+        queue = LimitingResourceQueue.create();
+        ReflectionTestUtils.setField(queue, "id", ++lastId);
+        queue.setResource(worker);
+    }
+
+    private LimitingResourceQueueElement element(int earliestStartDay, int hours, long creationTimestamp) {
+        Task task = createNiceMock(Task.class);
+        expect(task.getDependenciesWithThisOrigin()).andReturn(Collections.<Dependency> emptySet()).anyTimes();
+        replay(task);
+
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        expect(allocation.getResource()).andReturn(worker).anyTimes();
+        expect(allocation.getIntendedTotalHours()).andReturn(hours).anyTimes();
+        expect(allocation.getTask()).andReturn(task).anyTimes();
+        replay(allocation);
+
+        LimitingResourceQueueElement result = LimitingResourceQueueElement.create();
+        ReflectionTestUtils.setField(result, "id", ++lastId);
+        result.setResourceAllocation(allocation);
+        result.setEarlierStartDateBecauseOfGantt(START.plusDays(earliestStartDay).toDate());
+        result.setCreationTimestamp(creationTimestamp);
+
+        return result;
+    }
+
+    private LimitingResourceQueueElement assigned(int startDay, int endDay) {
+        LimitingResourceQueueElement result = element(startDay, (endDay - startDay) * 8, 0);
+        result.setStartDate(START.plusDays(startDay));
+        result.setEndDate(START.plusDays(endDay));
+        queue.addLimitingResourceQueueElement(result);
+
+        return result;
+    }
+
+    private static void link(LimitingResourceQueueElement origin, LimitingResourceQueueElement destination) {
+        LimitingResourceQueueDependency.create(
+                origin, destination, createNiceMock(Dependency.class), QueueDependencyType.END_START);
+    }
+
+    private Set<LimitingResourceQueueElement> assignInBatch(LimitingResourceQueueElement... unassigned) {
+        List<LimitingResourceQueueElement> elements = asList(unassigned);
+        ReflectionTestUtils.setField(
+                model, "queuesState", new QueuesState(Collections.singletonList(queue), elements));
+
+        return model.assignLimitingResourceQueueElements(elements);
+    }
+
+    private static DateAndHour day(int day) {
+        return DateAndHour.from(START.plusDays(day));
+    }
+
+    @Test
+    public void theElementsAreAssignedByPriority() {
+        LimitingResourceQueueElement late = element(1, 8, 1);
+        LimitingResourceQueueElement earlyAndNew = element(0, 8, 3);
+        LimitingResourceQueueElement earlyAndOld = element(0, 8, 2);
+
+        Set<LimitingResourceQueueElement> result = assignInBatch(late, earlyAndNew, earlyAndOld);
+
+        assertEquals(new HashSet<>(asList(late, earlyAndNew, earlyAndOld)), result);
+        assertEquals(day(0), earlyAndOld.getStartTime());
+        assertEquals(earlyAndOld.getEndTime(), earlyAndNew.getStartTime());
+        assertEquals(earlyAndNew.getEndTime(), late.getStartTime());
+        assertEquals(queue, late.getLimitingResourceQueue());
+    }
+
+    @Test
+    public void anAlreadyAssignedSuccessorIsMovedAfterTheElement() {
+        LimitingResourceQueueElement successor = assigned(0, 1);
+        LimitingResourceQueueElement element = element(0, 16, 0);
+        link(element, successor);
+
+        Set<LimitingResourceQueueElement> result = assignInBatch(element);
+
+        assertTrue(result.contains(successor));
+        assertEquals(day(1), element.getStartTime());
+        assertEquals(element.getEndTime(), successor.getStartTime());
+        assertEquals(queue, successor.getLimitingResourceQueue());
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency.QueueDependencyType;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Worker;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for {@link QueuesState}.
+ */
+public class QueuesStateTest {
+
+    private static final LocalDate START = new LocalDate(2016, 1, 4);
+
+    private long lastId = 0;
+
+    private LimitingResourceQueue queue;
+
+    @Before
+    public void createQueue() {
+        Worker worker = createNiceMock(Worker.class);
+        expect(worker.getId()).andReturn(++lastId).anyTimes();
+        replay(worker);
+
+        queue = LimitingResourceQueue.create();
+        ReflectionTestUtils.setField(queue, "id", ++lastId);
+        queue.setResource(worker);
+    }
+
+    private LimitingResourceQueueElement unassigned(int earliestStartDay, long creationTimestamp) {
+        LimitingResourceQueueElement result = LimitingResourceQueueElement.create();
+        ReflectionTestUtils.setField(result, "id", ++lastId);
+        result.setResourceAllocation(createNiceMock(SpecificResourceAllocation.class));
+        result.setEarlierStartDateBecauseOfGantt(START.plusDays(earliestStartDay).toDate());
+        result.setCreationTimestamp(creationTimestamp);
+
+        return result;
+    }
+
+    private LimitingResourceQueueElement assigned(int startDay, int endDay) {
+        LimitingResourceQueueElement result = unassigned(startDay, 0);
+        result.setStartDate(START.plusDays(startDay));
+        result.setEndDate(START.plusDays(endDay));
+        queue.addLimitingResourceQueueElement(result);
+
+        return result;
+    }
+
+    private static void link(LimitingResourceQueueElement origin, LimitingResourceQueueElement destination) {
+        LimitingResourceQueueDependency.create(
+                origin, destination, createNiceMock(Dependency.class), QueueDependencyType.END_START);
+    }
+
+    private QueuesState stateWithUnassigned(LimitingResourceQueueElement... unassigned) {
+        return new QueuesState(Collections.singletonList(queue), asList(unassigned));
+    }
+
+    @Test
+    public void theElementsReadyAtTheSameTimeAreOrderedByEarliestStartAndThenByCreation() {
+        LimitingResourceQueueElement late = unassigned(2, 1);
+        LimitingResourceQueueElement earlyAndNew = unassigned(0, 3);
+        LimitingResourceQueueElement earlyAndOld = unassigned(0, 2);
+        LimitingResourceQueueElement afterLate = unassigned(1, 0);
+        link(late, afterLate);
+
+        List<LimitingResourceQueueElement> elements = asList(afterLate, late, earlyAndNew, earlyAndOld);
+        QueuesState state = stateWithUnassigned(afterLate, late, earlyAndNew, earlyAndOld);
+
+        assertEquals(asList(earlyAndOld, earlyAndNew, late, afterLate), state.inTopologicalOrderByPriority(elements));
+    }
+
+    @Test
+    public void theElementsWithoutEarliestStartGoFirst() {
+        LimitingResourceQueueElement early = unassigned(0, 0);
+        LimitingResourceQueueElement withoutEarliestStart = unassigned(0, 1);
+        withoutEarliestStart.setEarlierStartDateBecauseOfGantt(null);
+
+        QueuesState state = stateWithUnassigned(early, withoutEarliestStart);
+
+        assertEquals(asList(withoutEarliestStart, early),
+                state.inTopologicalOrderByPriority(asList(early, withoutEarliestStart)));
+    }
+
+    @Test
+    public void anElementHasAssignedSuccessorsIfAnyElementDependingOnItIsInAQueue() {
+        LimitingResourceQueueElement assignedSuccessor = assigned(0, 1);
+        LimitingResourceQueueElement unassignedSuccessor = unassigned(0, 0);
+        LimitingResourceQueueElement beforeAssigned = unassigned(0, 0);
+        LimitingResourceQueueElement beforeUnassigned = unassigned(0, 0);
+        link(beforeAssigned, assignedSuccessor);
+        link(beforeUnassigned, unassignedSuccessor);
+
+        QueuesState state = stateWithUnassigned(unassignedSuccessor, beforeAssigned, beforeUnassigned);
+
+        assertTrue(state.hasAssignedSuccessors(beforeAssigned));
+        assertFalse(state.hasAssignedSuccessors(beforeUnassigned));
+        assertFalse(state.hasAssignedSuccessors(assignedSuccessor));
+    }
+
+    @Test
+    public void anElementOverlapsTheNextOneInItsQueueIfItEndsAfterTheStartOfTheNextOne() {
+        LimitingResourceQueueElement overlapping = assigned(0, 2);
+        LimitingResourceQueueElement overlapped = assigned(1, 3);
+        LimitingResourceQueueElement last = assigned(3, 4);
+
+        QueuesState state = stateWithUnassigned();
+
+        assertTrue(state.overlapsNextInQueue(overlapping));
+        assertFalse(state.overlapsNextInQueue(overlapped));
+        assertFalse(state.overlapsNextInQueue(last));
+    }
+
+}
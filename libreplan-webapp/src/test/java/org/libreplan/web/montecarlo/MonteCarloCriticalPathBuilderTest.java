@@ -0,0 +1,234 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.Task;
+
+public class MonteCarloCriticalPathBuilderTest {
+
+    /**
+     * Tasks without parent linked by the dependencies added with {@link #link(String, String)}. Their ids follow the
+     * order of the names.
+     */
+    private static class Network {
+
+        private final Map<String, Task> tasks = new HashMap<>();
+
+        private final Map<String, Long> ids = new HashMap<>();
+
+        private final Map<String, Set<Dependency>> outgoing = new HashMap<>();
+
+        private final Map<String, Set<Dependency>> incoming = new HashMap<>();
+
+        Network(String... names) {
+            for (String each : names) {
+                tasks.put(each, createNiceMock(Task.class));
+                ids.put(each, (long) ids.size() + 1);
+                outgoing.put(each, new HashSet<Dependency>());
+                incoming.put(each, new HashSet<Dependency>());
+            }
+        }
+
+        Network link(String origin, String destination) {
+            Dependency dependency = createNiceMock(Dependency.class);
+            expect(dependency.getOrigin()).andReturn(tasks.get(origin)).anyTimes();
+            expect(dependency.getDestination()).andReturn(tasks.get(destination)).anyTimes();
+            replay(dependency);
+            outgoing.get(origin).add(dependency);
+            incoming.get(destination).add(dependency);
+            return this;
+        }
+
+        Network build() {
+            for (String each : tasks.keySet()) {
+                Task task = tasks.get(each);
+                expect(task.getId()).andReturn(ids.get(each)).anyTimes();
+                expect(task.getDependenciesWithThisOrigin()).andReturn(outgoing.get(each)).anyTimes();
+                expect(task.getDependenciesWithThisDestination()).andReturn(incoming.get(each)).anyTimes();
+                replay(task);
+            }
+            return this;
+        }
+
+        List<Task> tasks(String... names) {
+            List<Task> result = new ArrayList<>();
+            for (String each : names) {
+                result.add(tasks.get(each));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The enumeration done before the paths were built lazily: all the paths from the starting tasks are built and
+     * then the ones with some task not in the critical path are discarded.
+     */
+    private static Set<List<Task>> enumerateAllPathsAndFilter(List<Task> tasksInCriticalPath) {
+        List<List<Task>> allPaths = new ArrayList<>();
+        for (Task each : tasksInCriticalPath) {
+            if (each.getDependenciesWithThisDestination().isEmpty()) {
+                allPossiblePaths(new ArrayList<>(Arrays.asList(each)), allPaths);
+            }
+        }
+
+        Set<List<Task>> result = new HashSet<>();
+        for (List<Task> each : allPaths) {
+            if (tasksInCriticalPath.containsAll(each)) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private static void allPossiblePaths(List<Task> path, Collection<List<Task>> allPaths) {
+        Set<Dependency> dependencies = path.get(path.size() - 1).getDependenciesWithThisOrigin();
+        if (dependencies.isEmpty()) {
+            allPaths.add(path);
+            return;
+        }
+        for (Dependency each : dependencies) {
+            List<Task> newPath = new ArrayList<>(path);
+            newPath.add((Task) each.getDestination());
+            allPossiblePaths(newPath, allPaths);
+        }
+    }
+
+    private static Set<List<Task>> build(List<Task> tasksInCriticalPath) {
+        List<List<Task>> paths = MonteCarloCriticalPathBuilder.create(tasksInCriticalPath)
+                .buildAllPossibleCriticalPaths();
+        Set<List<Task>> result = new HashSet<>(paths);
+        assertThat("no path is repeated", result.size(), equalTo(paths.size()));
+        return result;
+    }
+
+    @Test
+    public void theSameCriticalPathsAsEnumeratingAllThePathsAreFoundInADiamond() {
+        Network network = new Network("a", "b", "c", "d")
+                .link("a", "b")
+                .link("a", "c")
+                .link("b", "d")
+                .link("c", "d")
+                .build();
+        List<Task> critical = network.tasks("a", "b", "c", "d");
+
+        Set<List<Task>> paths = build(critical);
+
+        assertThat(paths, equalTo(enumerateAllPathsAndFilter(critical)));
+        assertThat(paths.size(), equalTo(2));
+        assertTrue(paths.contains(network.tasks("a", "b", "d")));
+        assertTrue(paths.contains(network.tasks("a", "c", "d")));
+    }
+
+    @Test
+    public void thePathsThroughTasksNotInTheCriticalPathAreDiscarded() {
+        Network network = new Network("a", "b", "c", "d", "e")
+                .link("a", "b")
+                .link("a", "c")
+                .link("b", "d")
+                .link("c", "d")
+                .link("c", "e")
+                .build();
+        List<Task> critical = network.tasks("a", "c", "d");
+
+        Set<List<Task>> paths = build(critical);
+
+        assertThat(paths, equalTo(enumerateAllPathsAndFilter(critical)));
+        assertThat(paths.size(), equalTo(1));
+        assertTrue(paths.contains(network.tasks("a", "c", "d")));
+    }
+
+    /**
+     * A chain of diamonds, each one doubling the number of paths.
+     */
+    private static List<Task> chainOfDiamonds(int diamonds) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i <= 3 * diamonds; i++) {
+            names.add("t" + i);
+        }
+        Network network = new Network(names.toArray(new String[names.size()]));
+        for (int i = 0; i < diamonds; i++) {
+            String start = "t" + (3 * i);
+            String end = "t" + (3 * i + 3);
+            network.link(start, "t" + (3 * i + 2)).link(start, "t" + (3 * i + 1));
+            network.link("t" + (3 * i + 2), end).link("t" + (3 * i + 1), end);
+        }
+        network.build();
+        return network.tasks(names.toArray(new String[names.size()]));
+    }
+
+    @Test
+    public void theNumberOfPathsIsLimited() {
+        List<Task> critical = chainOfDiamonds(7);
+
+        MonteCarloCriticalPathBuilder builder = MonteCarloCriticalPathBuilder.create(critical);
+
+        assertThat(builder.buildAllPossibleCriticalPaths().size(),
+                equalTo(MonteCarloCriticalPathBuilder.DEFAULT_LIMIT));
+        assertTrue(builder.isOverLimit());
+        assertFalse(MonteCarloCriticalPathBuilder.create(critical.subList(0, 4)).isOverLimit());
+    }
+
+    @Test
+    public void theLimitCanBeConfigured() {
+        List<Task> critical = chainOfDiamonds(3);
+
+        MonteCarloCriticalPathBuilder builder = MonteCarloCriticalPathBuilder.create(critical).withLimit(5);
+
+        assertThat(builder.buildAllPossibleCriticalPaths().size(), equalTo(5));
+        assertTrue(builder.isOverLimit());
+        assertFalse(MonteCarloCriticalPathBuilder.create(critical).withLimit(8).isOverLimit());
+    }
+
+    @Test
+    public void theDestinationsAreVisitedByIdSoTheTruncatedPathsAreAlwaysTheSame() {
+        List<Task> critical = chainOfDiamonds(3);
+
+        List<List<Task>> paths = MonteCarloCriticalPathBuilder.create(critical).withLimit(2)
+                .buildAllPossibleCriticalPaths();
+
+        // t1 has a lower id than t2 although the dependency to t2 was added first
+        assertThat(paths.get(0), equalTo(Arrays.asList(
+                critical.get(0), critical.get(1), critical.get(3), critical.get(4), critical.get(6),
+                critical.get(7), critical.get(9))));
+        assertThat(paths.get(1), equalTo(Arrays.asList(
+                critical.get(0), critical.get(1), critical.get(3), critical.get(4), critical.get(6),
+                critical.get(8), critical.get(9))));
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency.Type;
+
+public class MonteCarloSimulationTest {
+
+    private static final int ITERATIONS = 20000;
+
+    private static int fixed(MonteCarloNetwork.Builder builder, int earliestStart, int duration) {
+        return builder.addTask(earliestStart, duration, 30, duration, 50, duration, 20);
+    }
+
+    @Test
+    public void theEndOfAChainIsTheSumOfTheDurations() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        int first = fixed(builder, 0, 3);
+        int second = fixed(builder, 0, 4);
+        builder.addDependency(first, second, Type.END_START);
+
+        MonteCarloSimulation.Result result = MonteCarloSimulation
+                .create(builder.build(), ITERATIONS).withParallelism(2).run();
+
+        assertThat(result.getIterations(), equalTo((long) ITERATIONS));
+        assertThat(result.getCompletionsOn(7), equalTo((long) ITERATIONS));
+        assertThat(result.getCompletionPercentile(0.5), equalTo(7));
+        assertThat(result.getCriticalityIndex(first), equalTo(1.0));
+        assertThat(result.getCriticalityIndex(second), equalTo(1.0));
+    }
+
+    @Test
+    public void theProbabilitiesFollowTheEstimations() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        builder.addTask(0, 15, 30, 10, 50, 5, 20);
+
+        MonteCarloSimulation.Result result = MonteCarloSimulation
+                .create(builder.build(), ITERATIONS).withSeed(1).run();
+
+        assertClose(result.getProbabilityOfCompletingOn(15), 0.3);
+        assertClose(result.getProbabilityOfCompletingOn(10), 0.5);
+        assertClose(result.getProbabilityOfCompletingOn(5), 0.2);
+        assertThat(result.getCompletionPercentile(0.1), equalTo(5));
+        assertThat(result.getCompletionPercentile(0.5), equalTo(10));
+        assertThat(result.getCompletionPercentile(1), equalTo(15));
+    }
+
+    @Test
+    public void theCriticalPathCanChangeBetweenIterations() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        int start = fixed(builder, 0, 1);
+        int uncertain = builder.addTask(0, 10, 50, 2, 0, 2, 50);
+        int steady = fixed(builder, 0, 6);
+        int end = fixed(builder, 0, 1);
+        builder.addDependency(start, uncertain, Type.END_START);
+        builder.addDependency(start, steady, Type.END_START);
+        builder.addDependency(uncertain, end, Type.END_START);
+        builder.addDependency(steady, end, Type.END_START);
+
+        MonteCarloSimulation.Result result = MonteCarloSimulation
+                .create(builder.build(), ITERATIONS).withSeed(7).run();
+
+        assertClose(result.getCriticalityIndex(uncertain), 0.5);
+        assertClose(result.getCriticalityIndex(steady), 0.5);
+        assertThat(result.getCriticalityIndex(start), equalTo(1.0));
+        assertThat(result.getCriticalityIndex(end), equalTo(1.0));
+        assertClose(result.getProbabilityOfCompletingOn(12), 0.5);
+        assertClose(result.getProbabilityOfCompletingOn(8), 0.5);
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameResults() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        int first = builder.addTask(0, 9, 30, 6, 50, 3, 20);
+        int second = builder.addTask(2, 9, 30, 6, 50, 3, 20);
+        builder.addDependency(first, second, Type.START_START);
+        MonteCarloNetwork network = builder.build();
+
+        MonteCarloSimulation.Result one = MonteCarloSimulation.create(network, 1000).withSeed(3).run();
+        MonteCarloSimulation.Result other = MonteCarloSimulation.create(network, 1000).withSeed(3).run();
+
+        for (int day = 0; day <= 20; day++) {
+            assertThat(one.getCompletionsOn(day), equalTo(other.getCompletionsOn(day)));
+        }
+    }
+
+    @Test
+    public void runningTheWorkersInAnExecutorGivesTheSameResults() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        int first = builder.addTask(0, 9, 30, 6, 50, 3, 20);
+        int second = builder.addTask(2, 9, 30, 6, 50, 3, 20);
+        builder.addDependency(first, second, Type.END_START);
+        MonteCarloNetwork network = builder.build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MonteCarloSimulation.Result sequential = MonteCarloSimulation.create(network, 1000)
+                    .withSeed(5).withParallelism(3).run();
+            MonteCarloSimulation.Result parallel = MonteCarloSimulation.create(network, 1000)
+                    .withSeed(5).withParallelism(3).run(executor, null);
+
+            assertThat(parallel.getIterations(), equalTo(sequential.getIterations()));
+            for (int day = 0; day <= 20; day++) {
+                assertThat(parallel.getCompletionsOn(day), equalTo(sequential.getCompletionsOn(day)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theDependenciesCannotContainCycles() {
+        MonteCarloNetwork.Builder builder = new MonteCarloNetwork.Builder();
+        int first = fixed(builder, 0, 1);
+        int second = fixed(builder, 0, 1);
+        builder.addDependency(first, second, Type.END_START);
+        builder.addDependency(second, first, Type.END_START);
+        builder.build();
+    }
+
+    private static void assertClose(double value, double expected) {
+        assertTrue("expected " + expected + " but was " + value, Math.abs(value - expected) < 0.02);
+    }
+
+}
@@ -0,0 +1,451 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2016 LibrePlan
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.test.ws.common;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.commons.lang3.Validate;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO.IEntityReceiver;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
+import org.libreplan.ws.common.api.IntegrationEntityDTO;
+import org.libreplan.ws.common.impl.GenericRESTService;
+
+/**
+ * Tests for the chunked saving and the streamed lists of
+ * {@link GenericRESTService}.
+ */
+public class GenericRESTServiceTest {
+
+    private static final String INVALID = "invalid";
+
+    private Map<String, Entity> database;
+
+    private List<Entity> savedInTransaction;
+
+    private int transactions;
+
+    private EntityService service;
+
+    @Before
+    public void setUp() {
+        database = new HashMap<>();
+        savedInTransaction = new ArrayList<>();
+        transactions = 0;
+        service = new EntityService(createTransactionService(), createDAO());
+    }
+
+    private IAdHocTransactionService createTransactionService() {
+        return new IAdHocTransactionService() {
+
+            @Override
+            public <T> T runOnTransaction(IOnTransaction<T> onTransaction) {
+                return runOnAnotherTransaction(onTransaction);
+            }
+
+            @Override
+            public <T> T runOnReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+                return onTransaction.execute();
+            }
+
+            @Override
+            public <T> T runOnAnotherTransaction(IOnTransaction<T> onTransaction) {
+                transactions++;
+                savedInTransaction.clear();
+                T result = onTransaction.execute();
+                for (Entity each : savedInTransaction) {
+                    database.put(each.getCode(), each);
+                }
+                return result;
+            }
+
+            @Override
+            public <T> T runOnAnotherReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+                return onTransaction.execute();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private IIntegrationEntityDAO<Entity> createDAO() {
+        IIntegrationEntityDAO<Entity> dao = createNiceMock(IIntegrationEntityDAO.class);
+
+        expect(dao.findByCodes(anyObject(Collection.class))).andAnswer(new IAnswer<List<Entity>>() {
+            @Override
+            public List<Entity> answer() {
+                List<Entity> result = new ArrayList<>();
+                for (String each : (Collection<String>) getCurrentArguments()[0]) {
+                    if (database.containsKey(each)) {
+                        result.add(database.get(each));
+                    }
+                }
+                return result;
+            }
+        }).anyTimes();
+
+        try {
+            expect(dao.findByCode(anyObject(String.class))).andAnswer(new IAnswer<Entity>() {
+                @Override
+                public Entity answer() throws InstanceNotFoundException {
+                    String code = (String) getCurrentArguments()[0];
+                    if (!database.containsKey(code)) {
+                        throw new InstanceNotFoundException(code, Entity.class.getName());
+                    }
+                    return database.get(code);
+                }
+            }).anyTimes();
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+
+        dao.saveWithoutValidating(anyObject(Entity.class));
+        expectLastCall().andAnswer(new IAnswer<Void>() {
+            @Override
+            public Void answer() {
+                savedInTransaction.add((Entity) getCurrentArguments()[0]);
+                return null;
+            }
+        }).anyTimes();
+
+        dao.forEachOrderedByCode(anyObject(String.class), anyObject(Integer.class), anyObject(IEntityReceiver.class));
+        expectLastCall().andAnswer(new IAnswer<Void>() {
+            @Override
+            public Void answer() {
+                String afterCode = (String) getCurrentArguments()[0];
+                Integer limit = (Integer) getCurrentArguments()[1];
+                IEntityReceiver<Entity> receiver = (IEntityReceiver<Entity>) getCurrentArguments()[2];
+                int received = 0;
+                for (String each : new TreeSet<>(database.keySet())) {
+                    if ((afterCode == null || each.compareTo(afterCode) > 0) && (limit == null || received < limit)) {
+                        receiver.receive(database.get(each));
+                        received++;
+                    }
+                }
+                return null;
+            }
+        }).anyTimes();
+
+        replay(dao);
+
+        return dao;
+    }
+
+    private List<EntityDTO> givenDTOs(int number, Integer... invalidPositions) {
+        List<EntityDTO> result = new ArrayList<>();
+        for (int i = 1; i <= number; i++) {
+            result.add(new EntityDTO("code" + i, "name" + i));
+        }
+        for (Integer each : invalidPositions) {
+            result.get(each - 1).name = INVALID;
+        }
+        return result;
+    }
+
+    @Test
+    public void theEntitiesAreSavedInOneTransactionPerChunk() {
+        List<InstanceConstraintViolationsDTO> errors = service.saveAll(givenDTOs(250));
+
+        assertTrue(errors.isEmpty());
+        assertEquals(250, database.size());
+        assertEquals(3, transactions);
+    }
+
+    @Test
+    public void theExistingEntitiesAreUpdated() {
+        service.saveAll(givenDTOs(150));
+        List<EntityDTO> updated = givenDTOs(150);
+        for (EntityDTO each : updated) {
+            each.name = "updated";
+        }
+
+        service.saveAll(updated);
+
+        assertEquals(150, database.size());
+        for (Entity each : database.values()) {
+            assertEquals("updated", each.name);
+        }
+    }
+
+    @Test
+    public void onlyTheFailingEntityIsNotSaved() {
+        List<InstanceConstraintViolationsDTO> errors = service.saveAll(givenDTOs(250, 137));
+
+        assertEquals(1, errors.size());
+        assertEquals(Long.valueOf(137), errors.get(0).numItem);
+        assertEquals("code137", errors.get(0).code);
+        assertEquals(249, database.size());
+        assertTrue(!database.containsKey("code137"));
+    }
+
+    @Test
+    public void theFailingEntityIsIsolatedWithoutSavingTheRestOneByOne() {
+        service.saveAll(givenDTOs(100, 37));
+
+        // The whole chunk plus the two halves of each of the 7 splits
+        assertEquals(1 + 2 * 7, transactions);
+    }
+
+    @Test
+    public void allTheFailingEntitiesAreReported() {
+        List<InstanceConstraintViolationsDTO> errors = service.saveAll(givenDTOs(250, 1, 100, 101, 250));
+
+        assertEquals(4, errors.size());
+        assertEquals(Long.valueOf(1), errors.get(0).numItem);
+        assertEquals(Long.valueOf(100), errors.get(1).numItem);
+        assertEquals(Long.valueOf(101), errors.get(2).numItem);
+        assertEquals(Long.valueOf(250), errors.get(3).numItem);
+        assertEquals(246, database.size());
+    }
+
+    @Test
+    public void theSecondEntityWithTheSameUniqueKeyIsNotSaved() {
+        List<EntityDTO> entityDTOs = givenDTOs(5);
+        entityDTOs.get(1).nif = "nif";
+        entityDTOs.get(3).nif = "nif";
+
+        List<InstanceConstraintViolationsDTO> errors = service.saveAll(entityDTOs);
+
+        assertEquals(1, errors.size());
+        assertEquals(Long.valueOf(4), errors.get(0).numItem);
+        assertEquals(4, database.size());
+        assertEquals("nif", database.get("code2").nif);
+        assertTrue(!database.containsKey("code4"));
+    }
+
+    @Test
+    public void theSecondEntityWithTheSameCodeIsNotSaved() {
+        List<EntityDTO> entityDTOs = givenDTOs(3);
+        entityDTOs.add(new EntityDTO("code2", "repeated"));
+
+        List<InstanceConstraintViolationsDTO> errors = service.saveAll(entityDTOs);
+
+        assertEquals(1, errors.size());
+        assertEquals(Long.valueOf(4), errors.get(0).numItem);
+        assertEquals("code2", errors.get(0).code);
+        assertEquals(3, database.size());
+        assertEquals("name2", database.get("code2").name);
+        assertEquals(1, transactions);
+    }
+
+    private String streamAll(String afterCode, Integer limit) throws IOException {
+        Response response = service.streamAll("entity-list", afterCode, limit);
+        assertEquals(Status.OK.getStatusCode(), response.getStatus());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+
+        return output.toString("UTF-8");
+    }
+
+    private static int count(String xml, String text) {
+        return xml.split(text, -1).length - 1;
+    }
+
+    @Test
+    public void theWholeListIsStreamedOrderedByCode() throws IOException {
+        service.saveAll(givenDTOs(3));
+
+        String xml = streamAll(null, null);
+
+        assertTrue(xml, xml.matches(
+                "(?s).*<entity-list.*code=\"code1\".*code=\"code2\".*code=\"code3\".*</entity-list>"));
+        assertEquals(3, count(xml, "<entity "));
+    }
+
+    @Test
+    public void theListIsPagedAfterACode() throws IOException {
+        service.saveAll(givenDTOs(5));
+
+        String xml = streamAll("code2", 2);
+
+        assertEquals(2, count(xml, "<entity "));
+        assertTrue(xml, xml.contains("code=\"code3\"") && xml.contains("code=\"code4\""));
+        assertTrue(xml, xml.contains("</entity-list>"));
+    }
+
+    @Test
+    public void theListsBiggerThanTheMemoryThresholdAreStreamedCompletely() throws IOException {
+        for (int i = 0; i < 30000; i++) {
+            Entity entity = new Entity(String.format("code%05d", i), "name" + i, null);
+            database.put(entity.getCode(), entity);
+        }
+
+        String xml = streamAll(null, null);
+
+        assertTrue(xml.length() > 1024 * 1024);
+        assertEquals(30000, count(xml, "<entity "));
+        assertTrue(xml.endsWith("</entity-list>"));
+    }
+
+    @Test
+    public void theLimitMustBePositive() {
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), service.streamAll("entity-list", null, 0).getStatus());
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), service.streamAll("entity-list", null, -1).getStatus());
+    }
+
+    @Test
+    public void anErrorWhileWritingTheListIsAnInternalServerError() {
+        service.saveAll(givenDTOs(3));
+        database.get("code2").name = null;
+
+        Response response = service.streamAll("entity-list", null, null);
+
+        assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    }
+
+    @XmlRootElement(name = "entity")
+    private static class EntityDTO extends IntegrationEntityDTO {
+
+        @XmlAttribute
+        private String name;
+
+        @XmlAttribute
+        private String nif;
+
+        EntityDTO() {
+        }
+
+        EntityDTO(String code, String name) {
+            super(code);
+            this.name = name;
+        }
+
+        @Override
+        public String getEntityType() {
+            return "entity";
+        }
+
+    }
+
+    private class Entity extends IntegrationEntity {
+
+        private String name;
+
+        private String nif;
+
+        Entity(String code, String name, String nif) {
+            setCode(code);
+            this.name = name;
+            this.nif = nif;
+        }
+
+        /**
+         * Like the uniqueness validations, the NIF is only checked against the
+         * committed entities.
+         */
+        @Override
+        public void validate() throws ValidationException {
+            if (INVALID.equals(name)) {
+                throw new ValidationException("invalid name");
+            }
+            for (Entity each : database.values()) {
+                if (each != this && nif != null && nif.equals(each.nif)) {
+                    throw new ValidationException("NIF already used");
+                }
+            }
+        }
+
+        @Override
+        protected IIntegrationEntityDAO<? extends IntegrationEntity> getIntegrationEntityDAO() {
+            return null;
+        }
+
+    }
+
+    private class EntityService extends GenericRESTService<Entity, EntityDTO> {
+
+        private final IIntegrationEntityDAO<Entity> entityDAO;
+
+        EntityService(IAdHocTransactionService transactionService, IIntegrationEntityDAO<Entity> entityDAO) {
+            this.transactionService = transactionService;
+            this.entityDAO = entityDAO;
+        }
+
+        public List<InstanceConstraintViolationsDTO> saveAll(List<EntityDTO> entityDTOs) {
+            return super.save(entityDTOs).instanceConstraintViolationsList;
+        }
+
+        @Override
+        protected Entity toEntity(EntityDTO entityDTO) {
+            return new Entity(entityDTO.code, entityDTO.name, entityDTO.nif);
+        }
+
+        @Override
+        public Response streamAll(String listElementName, String afterCode, Integer limit) {
+            return super.streamAll(listElementName, afterCode, limit);
+        }
+
+        @Override
+        protected EntityDTO toDTO(Entity entity) {
+            Validate.notNull(entity.name);
+            return new EntityDTO(entity.getCode(), entity.name);
+        }
+
+        @Override
+        protected IIntegrationEntityDAO<Entity> getIntegrationEntityDAO() {
+            return entityDAO;
+        }
+
+        @Override
+        protected void updateEntity(Entity entity, EntityDTO entityDTO) {
+            entity.name = entityDTO.name;
+            entity.nif = entityDTO.nif;
+        }
+
+        @Override
+        protected Collection<String> getUniqueKeys(EntityDTO entityDTO) {
+            return Collections.singletonList(entityDTO.nif);
+        }
+
+    }
+
+}
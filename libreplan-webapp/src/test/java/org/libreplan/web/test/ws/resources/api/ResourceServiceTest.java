@@ -208,6 +208,39 @@ public class ResourceServiceTest {
 
     }
 
+    @Test
+    @Transactional
+    public void testAddWorkersWithTheSameNifInTheSameList() {
+
+        /* Create two worker DTOs with the same ID. */
+        String nif = getUniqueName();
+        WorkerDTO w1 = new WorkerDTO(getUniqueName(), "surname", nif);
+        WorkerDTO w2 = new WorkerDTO(getUniqueName(), "surname", nif);
+
+        /* Test. */
+        assertOneConstraintViolation(
+            resourceService.addResources(createResourceListDTO(w1, w2)));
+        assertTrue(resourceDAO.existsByCode(w1.code));
+        assertFalse(resourceDAO.existsByCode(w2.code));
+
+    }
+
+    @Test
+    @Transactional
+    public void testAddResourcesWithTheSameCodeInTheSameList() {
+
+        /* Create two machine DTOs with the same code. */
+        MachineDTO m1 = new MachineDTO("name", "desc");
+        MachineDTO m2 = new MachineDTO(m1.code, "another name", "desc");
+
+        /* Test. */
+        assertOneConstraintViolation(
+            resourceService.addResources(createResourceListDTO(m1, m2)));
+        assertEquals("name",
+            machineDAO.findExistingEntityByCode(m1.code).getName());
+
+    }
+
     @Test
     @Transactional
     public void testAddResourceWithCriterionSatisfactions() {